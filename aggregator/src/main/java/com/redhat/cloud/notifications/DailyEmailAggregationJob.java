@@ -3,6 +3,7 @@ package com.redhat.cloud.notifications;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.redhat.cloud.notifications.config.FeatureFlipper;
+import com.redhat.cloud.notifications.db.AggregationJobRunRepository;
 import com.redhat.cloud.notifications.db.AggregationOrgConfigRepository;
 import com.redhat.cloud.notifications.db.EmailAggregationRepository;
 import com.redhat.cloud.notifications.models.AggregationCommand;
@@ -21,10 +22,14 @@ import javax.inject.Inject;
 import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.LocalTime;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ExecutionException;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 
 import static com.redhat.cloud.notifications.models.EmailSubscriptionType.DAILY;
@@ -58,6 +63,22 @@ public class DailyEmailAggregationJob {
     @Inject
     FeatureFlipper featureFlipper;
 
+    @Inject
+    AggregationJobRunRepository aggregationJobRunRepository;
+
+    // The orgs are split between the shards of the job, which can run in parallel.
+    @ConfigProperty(name = "notifications.aggregator.shard.index", defaultValue = "0")
+    int shardIndex;
+
+    @ConfigProperty(name = "notifications.aggregator.shard.count", defaultValue = "1")
+    int shardCount;
+
+    @ConfigProperty(name = "notifications.aggregator.page.size", defaultValue = "1000")
+    int pageSize;
+
+    @ConfigProperty(name = "notifications.aggregator.max.in.flight.commands", defaultValue = "500")
+    int maxInFlightCommands;
+
     private Gauge pairsProcessed;
 
     @ActivateRequestContext
@@ -72,36 +93,47 @@ public class DailyEmailAggregationJob {
 
         try {
             LocalDateTime now = LocalDateTime.now(UTC);
-            List<AggregationCommand> aggregationCommands = null;
             if (featureFlipper.isAggregatorOrgPrefEnabled()) {
                 aggregationOrgConfigRepository.createMissingDefaultConfiguration(defaultDailyDigestTime);
-                aggregationCommands = processAggregateEmailsWithOrgPref(now, registry);
-            } else {
-                aggregationCommands = processAggregateEmails(now, registry);
-            }
-            List<CompletableFuture<Void>> futures = new ArrayList<>();
-            for (AggregationCommand aggregationCommand : aggregationCommands) {
-                try {
-                    final String payload = objectMapper.writeValueAsString(aggregationCommand);
-                    futures.add(emitter.send(payload).toCompletableFuture());
-                } catch (JsonProcessingException e) {
-                    Log.warn("Could not transform AggregationCommand to JSON object.", e);
+                pairsProcessed = Gauge
+                        .build()
+                        .name("aggregator_job_orgid_application_pairs_processed")
+                        .help("Number of orgId and application pairs processed.")
+                        .register(registry);
+                /*
+                 * The runs of this shard that were interrupted are resumed with their original end time. The commands that
+                 * were sent before the interruption but not checkpointed will be sent again with the same period, and the
+                 * engine skips the commands it already claimed, even if the original commands are still being processed.
+                 * The runs interrupted with another shard count are moved to the current shards first, and each shard
+                 * resumes them for its own orgs.
+                 */
+                int reshardedRuns = aggregationJobRunRepository.reshardInterruptedRuns(shardCount);
+                if (reshardedRuns > 0) {
+                    Log.warnf("%d interrupted runs of another shard count were moved to the %d current shards", reshardedRuns, shardCount);
                 }
-            }
-            if (!futures.isEmpty()) {
-                // resolve completable futures so the Quarkus main thread doesn't stop before everything has been sent
-                try {
-                    CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])).get();
-                } catch (InterruptedException | ExecutionException ie) {
-                    Log.error("Writing AggregationCommands failed", ie);
+                for (LocalDateTime interruptedRunEnd : aggregationJobRunRepository.findInterruptedRunEnds(shardIndex, shardCount)) {
+                    Log.infof("Resuming the interrupted run of shard %d/%d ending at %s", shardIndex, shardCount, interruptedRunEnd);
+                    if (!runWithOrgPref(interruptedRunEnd)) {
+                        throw new IllegalStateException("The interrupted run could not be completed");
+                    }
+                }
+                aggregationJobRunRepository.startRun(shardIndex, shardCount, now);
+                if (!runWithOrgPref(now)) {
+                    throw new IllegalStateException("Some aggregation commands could not be sent, the run will be resumed by the next job");
+                }
+            } else if (shardIndex == 0) {
+                // Without org preferences, the progress is global and can't be split between shards.
+                List<AggregationCommand> aggregationCommands = processAggregateEmails(now, registry);
+                AggregationCommandSender sender = new AggregationCommandSender(now);
+                aggregationCommands.stream()
+                        .collect(Collectors.groupingBy(aggregationCommand -> aggregationCommand.getAggregationKey().getOrgId(), LinkedHashMap::new, Collectors.toList()))
+                        .values()
+                        .forEach(sender::send);
+                if (sender.flush()) {
+                    emailAggregationResources.updateLastCronJobRun(now);
                 }
-            }
-
-            if (featureFlipper.isAggregatorOrgPrefEnabled()) {
-                List<String> orgIdsToUpdate = aggregationCommands.stream().map(agc -> agc.getAggregationKey().getOrgId()).collect(Collectors.toList());
-                emailAggregationResources.updateLastCronJobRunAccordingOrgPref(orgIdsToUpdate, now);
             } else {
-                emailAggregationResources.updateLastCronJobRun(now);
+                Log.infof("Shard %d/%d skipped because the aggregator org preferences are disabled", shardIndex, shardCount);
             }
 
             Gauge lastSuccess = Gauge
@@ -124,10 +156,55 @@ public class DailyEmailAggregationJob {
         }
     }
 
-    List<AggregationCommand> processAggregateEmailsWithOrgPref(LocalDateTime endTime, CollectorRegistry registry) {
+    /*
+     * Streams the pending commands of this shard and sends them. The progress is checkpointed per org: the last run of
+     * an org is updated as soon as all its commands have been sent. Returns true if all the commands were sent.
+     */
+    private boolean runWithOrgPref(LocalDateTime endTime) {
+        AggregationCommandSender sender = new AggregationCommandSender(endTime);
+        long commandsCount = streamAggregationCommandsWithOrgPref(endTime, sender::send);
+        boolean sent = sender.flush();
+        pairsProcessed.inc(commandsCount);
+        Log.infof("%d aggregation commands sent by shard %d/%d for the run ending at %s", commandsCount, shardIndex, shardCount, endTime);
+        if (sent) {
+            aggregationJobRunRepository.completeRun(shardIndex, shardCount, endTime);
+        }
+        return sent;
+    }
 
-        final List<AggregationCommand> pendingAggregationCommands =
-                    emailAggregationResources.getApplicationsWithPendingAggregationAccordinfOrgPref(endTime);
+    /*
+     * Reads the pending commands of this shard page by page. The commands are ordered by org, so the consumer is called
+     * once per org with all the commands of that org. Returns the number of commands.
+     */
+    long streamAggregationCommandsWithOrgPref(LocalDateTime endTime, Consumer<List<AggregationCommand>> orgCommandsConsumer) {
+        long commandsCount = 0;
+        List<AggregationCommand> orgCommands = new ArrayList<>();
+        AggregationCommand lastCommand = null;
+        List<AggregationCommand> page;
+        do {
+            page = emailAggregationResources.getApplicationsWithPendingAggregationAccordinfOrgPref(endTime, shardIndex, shardCount, lastCommand, pageSize);
+            for (AggregationCommand aggregationCommand : page) {
+                if (!orgCommands.isEmpty() && !orgCommands.get(0).getAggregationKey().getOrgId().equals(aggregationCommand.getAggregationKey().getOrgId())) {
+                    orgCommandsConsumer.accept(orgCommands);
+                    orgCommands = new ArrayList<>();
+                }
+                orgCommands.add(aggregationCommand);
+            }
+            commandsCount += page.size();
+            if (!page.isEmpty()) {
+                lastCommand = page.get(page.size() - 1);
+            }
+        } while (page.size() == pageSize);
+        if (!orgCommands.isEmpty()) {
+            orgCommandsConsumer.accept(orgCommands);
+        }
+        return commandsCount;
+    }
+
+    // For automatic tests purpose
+    List<AggregationCommand> processAggregateEmailsWithOrgPref(LocalDateTime endTime, CollectorRegistry registry) {
+        List<AggregationCommand> pendingAggregationCommands = new ArrayList<>();
+        streamAggregationCommandsWithOrgPref(endTime, pendingAggregationCommands::addAll);
         pairsProcessed = Gauge
                 .build()
                 .name("aggregator_job_orgid_application_pairs_processed")
@@ -175,6 +252,71 @@ public class DailyEmailAggregationJob {
         return pairsProcessed;
     }
 
+    /*
+     * Sends the commands with a bounded number of in-flight sends. When too many commands are in flight, the sender waits
+     * for the oldest org to be sent and checkpoints all the orgs whose commands were sent.
+     */
+    private class AggregationCommandSender {
+
+        private final LocalDateTime endTime;
+        private final Deque<PendingOrg> pendingOrgs = new ArrayDeque<>();
+        private int inFlightCommands;
+        private boolean failed;
+
+        AggregationCommandSender(LocalDateTime endTime) {
+            this.endTime = endTime;
+        }
+
+        void send(List<AggregationCommand> orgCommands) {
+            List<CompletableFuture<Void>> futures = new ArrayList<>();
+            for (AggregationCommand aggregationCommand : orgCommands) {
+                try {
+                    final String payload = objectMapper.writeValueAsString(aggregationCommand);
+                    futures.add(emitter.send(payload).toCompletableFuture());
+                } catch (JsonProcessingException e) {
+                    Log.warn("Could not transform AggregationCommand to JSON object.", e);
+                }
+            }
+            pendingOrgs.add(new PendingOrg(orgCommands.get(0).getAggregationKey().getOrgId(), CompletableFuture.allOf(futures.toArray(new CompletableFuture[0])), orgCommands.size()));
+            inFlightCommands += orgCommands.size();
+            while (inFlightCommands > maxInFlightCommands) {
+                checkpoint();
+            }
+        }
+
+        // Waits until all the commands are sent, so the Quarkus main thread doesn't stop before. Returns true if all of them were sent.
+        boolean flush() {
+            while (!pendingOrgs.isEmpty()) {
+                checkpoint();
+            }
+            return !failed;
+        }
+
+        private void checkpoint() {
+            List<String> sentOrgIds = new ArrayList<>();
+            do {
+                PendingOrg pendingOrg = pendingOrgs.poll();
+                inFlightCommands -= pendingOrg.commandsCount();
+                try {
+                    pendingOrg.sent().get();
+                    sentOrgIds.add(pendingOrg.orgId());
+                } catch (InterruptedException ie) {
+                    Thread.currentThread().interrupt();
+                    Log.error("Writing AggregationCommands failed", ie);
+                    failed = true;
+                } catch (ExecutionException ee) {
+                    Log.errorf(ee, "Writing AggregationCommands of org %s failed", pendingOrg.orgId());
+                    failed = true;
+                }
+            } while (!pendingOrgs.isEmpty() && pendingOrgs.peek().sent().isDone());
+            if (featureFlipper.isAggregatorOrgPrefEnabled() && !sentOrgIds.isEmpty()) {
+                emailAggregationResources.updateLastCronJobRunAccordingOrgPref(sentOrgIds, endTime);
+            }
+        }
+    }
+
+    private record PendingOrg(String orgId, CompletableFuture<Void> sent, int commandsCount) { }
+
     // For automatic tests purpose
     protected void setDefaultDailyDigestTime(LocalTime defaultDailyDigestTime) {
         this.defaultDailyDigestTime = defaultDailyDigestTime;
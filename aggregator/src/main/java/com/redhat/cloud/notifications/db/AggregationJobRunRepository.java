@@ -0,0 +1,65 @@
+package com.redhat.cloud.notifications.db;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+@ApplicationScoped
+public class AggregationJobRunRepository {
+
+    @Inject
+    EntityManager entityManager;
+
+    /**
+     * Moves the interrupted runs of another shard count to each shard of the given shard count, so that they are not
+     * orphaned when the number of shards is changed. Each shard then resumes these runs for its own orgs, with their
+     * original end time. Returns the number of runs created for the current shards.
+     */
+    @Transactional
+    public int reshardInterruptedRuns(int shardCount) {
+        String query = "WITH orphaned_runs AS (DELETE FROM aggregation_job_run WHERE shard_count <> :shardCount RETURNING end_time) " +
+                "INSERT INTO aggregation_job_run (shard_index, shard_count, end_time) " +
+                "SELECT DISTINCT shard_index, :shardCount, end_time FROM orphaned_runs CROSS JOIN generate_series(0, :shardCount - 1) AS shard_index " +
+                "ON CONFLICT DO NOTHING";
+        return entityManager.createNativeQuery(query)
+                .setParameter("shardCount", shardCount)
+                .executeUpdate();
+    }
+
+    /**
+     * Returns the end times of the runs of the given shard which were interrupted before all their commands were sent,
+     * oldest first.
+     */
+    public List<LocalDateTime> findInterruptedRunEnds(int shardIndex, int shardCount) {
+        String query = "SELECT end_time FROM aggregation_job_run WHERE shard_index = :shardIndex AND shard_count = :shardCount ORDER BY end_time";
+        List<Timestamp> endTimes = entityManager.createNativeQuery(query)
+                .setParameter("shardIndex", shardIndex)
+                .setParameter("shardCount", shardCount)
+                .getResultList();
+        return endTimes.stream().map(Timestamp::toLocalDateTime).toList();
+    }
+
+    @Transactional
+    public void startRun(int shardIndex, int shardCount, LocalDateTime endTime) {
+        String query = "INSERT INTO aggregation_job_run (shard_index, shard_count, end_time) VALUES (:shardIndex, :shardCount, :endTime)";
+        entityManager.createNativeQuery(query)
+                .setParameter("shardIndex", shardIndex)
+                .setParameter("shardCount", shardCount)
+                .setParameter("endTime", endTime)
+                .executeUpdate();
+    }
+
+    @Transactional
+    public void completeRun(int shardIndex, int shardCount, LocalDateTime endTime) {
+        String query = "DELETE FROM aggregation_job_run WHERE shard_index = :shardIndex AND shard_count = :shardCount AND end_time = :endTime";
+        entityManager.createNativeQuery(query)
+                .setParameter("shardIndex", shardIndex)
+                .setParameter("shardCount", shardCount)
+                .setParameter("endTime", endTime)
+                .executeUpdate();
+    }
+}
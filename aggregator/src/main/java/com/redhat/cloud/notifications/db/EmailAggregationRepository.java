@@ -23,25 +23,56 @@ public class EmailAggregationRepository {
     @Inject
     EntityManager entityManager;
 
-    public List<AggregationCommand> getApplicationsWithPendingAggregationAccordinfOrgPref(LocalDateTime now) {
+    /**
+     * Returns a page of the pending aggregation commands of a job shard, ordered by org ID, bundle and application. The
+     * pages are retrieved with keyset pagination: the next page starts right after the last command of the previous
+     * page. The orgs are split between the shards with a hash of their ID.
+     * @param after the last command of the previous page or {@code null} to retrieve the first page
+     */
+    public List<AggregationCommand> getApplicationsWithPendingAggregationAccordinfOrgPref(LocalDateTime now, int shardIndex, int shardCount, AggregationCommand after, int maxResults) {
         // Must takes every EmailAggregation supposed to be processed on last 15 min
         // it covers cases when aggregation job may be run with few minutes late (ie: 05:01, 07,32)
-        String query = "SELECT DISTINCT ea.orgId, ea.bundleName, ea.applicationName, acp.lastRun FROM EmailAggregation ea, AggregationOrgConfig acp WHERE " +
+        // The aggregations are counted so that the engine can process the largest commands first.
+        String query = "SELECT ea.orgId, ea.bundleName, ea.applicationName, acp.lastRun, COUNT(ea.id) FROM EmailAggregation ea, AggregationOrgConfig acp WHERE " +
             "ea.orgId = acp.orgId AND ea.created > acp.lastRun AND ea.created <= :now " +
-            "AND :nowTime >= acp.scheduledExecutionTime AND (:nowTime - acp.scheduledExecutionTime) < CAST(:cutoff as LocalTime)";
+            "AND :nowTime >= acp.scheduledExecutionTime AND (:nowTime - acp.scheduledExecutionTime) < CAST(:cutoff as LocalTime) ";
+        if (shardCount > 1) {
+            // The hash only has to be the same for all shards, which share the same database.
+            query += "AND ABS(MOD(FUNCTION('hashtext', ea.orgId), :shardCount)) = :shardIndex ";
+        }
+        if (after != null) {
+            query += "AND (ea.orgId > :afterOrgId OR (ea.orgId = :afterOrgId AND (ea.bundleName > :afterBundle " +
+                "OR (ea.bundleName = :afterBundle AND ea.applicationName > :afterApplication)))) ";
+        }
+        query += "GROUP BY ea.orgId, ea.bundleName, ea.applicationName, acp.lastRun " +
+            "ORDER BY ea.orgId, ea.bundleName, ea.applicationName";
         Query hqlQuery = entityManager.createQuery(query)
                 .setParameter("nowTime", now.toLocalTime())
                 .setParameter("cutoff", LocalTime.of(0, 15))
-               .setParameter("now", now);
+                .setParameter("now", now)
+                .setMaxResults(maxResults);
+        if (shardCount > 1) {
+            hqlQuery.setParameter("shardCount", shardCount)
+                .setParameter("shardIndex", shardIndex);
+        }
+        if (after != null) {
+            hqlQuery.setParameter("afterOrgId", after.getAggregationKey().getOrgId())
+                .setParameter("afterBundle", after.getAggregationKey().getBundle())
+                .setParameter("afterApplication", after.getAggregationKey().getApplication());
+        }
 
         List<Object[]> records = hqlQuery.getResultList();
         return records.stream()
-                .map(emailAggregationRecord -> new AggregationCommand(
-                    new EmailAggregationKey((String) emailAggregationRecord[0], (String) emailAggregationRecord[1], (String) emailAggregationRecord[2]),
-                    (LocalDateTime) emailAggregationRecord[3],
-                    now,
-                    DAILY
-                ))
+                .map(emailAggregationRecord -> {
+                    AggregationCommand aggregationCommand = new AggregationCommand(
+                        new EmailAggregationKey((String) emailAggregationRecord[0], (String) emailAggregationRecord[1], (String) emailAggregationRecord[2]),
+                        (LocalDateTime) emailAggregationRecord[3],
+                        now,
+                        DAILY
+                    );
+                    aggregationCommand.setEstimatedAggregationsCount((Long) emailAggregationRecord[4]);
+                    return aggregationCommand;
+                })
                 .collect(toList());
     }
 
@@ -1,6 +1,7 @@
 package com.redhat.cloud.notifications;
 
 import com.redhat.cloud.notifications.config.FeatureFlipper;
+import com.redhat.cloud.notifications.db.AggregationJobRunRepository;
 import com.redhat.cloud.notifications.helpers.ResourceHelpers;
 import com.redhat.cloud.notifications.models.AggregationCommand;
 import com.redhat.cloud.notifications.models.AggregationOrgConfig;
@@ -22,7 +23,10 @@ import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.ZoneOffset;
 import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import static com.redhat.cloud.notifications.models.EmailSubscriptionType.DAILY;
 import static java.time.ZoneOffset.UTC;
@@ -47,6 +51,9 @@ class DailyEmailAggregationJobAccordingOrgIdPrefTest {
     @Inject
     FeatureFlipper featureFlipper;
 
+    @Inject
+    AggregationJobRunRepository aggregationJobRunRepository;
+
     final AggregationOrgConfig someOrgIdToProceed = new AggregationOrgConfig("someOrgId",
             LocalTime.of(LocalTime.now(ZoneOffset.UTC).getHour(), LocalTime.now(ZoneOffset.UTC).getMinute()),
             LocalDateTime.now(ZoneOffset.UTC).minus(1, ChronoUnit.DAYS));
@@ -65,6 +72,9 @@ class DailyEmailAggregationJobAccordingOrgIdPrefTest {
     @AfterEach
     void tearDown() {
         featureFlipper.setAggregatorOrgPrefEnabled(false);
+        testee.shardIndex = 0;
+        testee.shardCount = 1;
+        testee.pageSize = 1000;
         helpers.purgeEmailAggregations();
         connector.sink(DailyEmailAggregationJob.AGGREGATION_CHANNEL).clear();
     }
@@ -301,6 +311,7 @@ class DailyEmailAggregationJobAccordingOrgIdPrefTest {
         assertEquals("rhel", aggregationCommand.getAggregationKey().getBundle());
         assertEquals("policies", aggregationCommand.getAggregationKey().getApplication());
         assertEquals(DAILY, aggregationCommand.getSubscriptionType());
+        assertEquals(2, aggregationCommand.getEstimatedAggregationsCount());
     }
 
     @Test
@@ -337,4 +348,69 @@ class DailyEmailAggregationJobAccordingOrgIdPrefTest {
 
         assertEquals(0, emailAggregations.size());
     }
+
+    @Test
+    @TestTransaction
+    void shouldResumeInterruptedRun() {
+        helpers.addEmailAggregation("someOrgId", "rhel", "policies", "somePolicyId", "someHostId");
+        helpers.addAggregationOrgConfig(someOrgIdToProceed);
+        // The previous run was interrupted before the commands were checkpointed.
+        LocalDateTime interruptedRunEnd = LocalDateTime.now(UTC).plusSeconds(1L).withNano(0);
+        aggregationJobRunRepository.startRun(0, 1, interruptedRunEnd);
+
+        testee.processDailyEmail();
+
+        // The command is sent again with the period of the interrupted run, and only once.
+        InMemorySink<String> results = connector.sink(DailyEmailAggregationJob.AGGREGATION_CHANNEL);
+        assertEquals(1, results.received().size());
+        JsonObject aggregationCommand = new JsonObject(results.received().get(0).getPayload());
+        assertEquals("someOrgId", aggregationCommand.getJsonObject("aggregationKey").getString("orgId"));
+        assertEquals(interruptedRunEnd, LocalDateTime.parse(aggregationCommand.getString("end")));
+        assertEquals(interruptedRunEnd, helpers.findAggregationOrgConfigByOrgId("someOrgId").getLastRun());
+        assertTrue(aggregationJobRunRepository.findInterruptedRunEnds(0, 1).isEmpty());
+    }
+
+    @Test
+    @TestTransaction
+    void shouldResumeInterruptedRunOfAnotherShardCount() {
+        helpers.addEmailAggregation("someOrgId", "rhel", "policies", "somePolicyId", "someHostId");
+        helpers.addAggregationOrgConfig(someOrgIdToProceed);
+        // The run was interrupted while the job had two shards, the job now has a single shard.
+        LocalDateTime interruptedRunEnd = LocalDateTime.now(UTC).plusSeconds(1L).withNano(0);
+        aggregationJobRunRepository.startRun(1, 2, interruptedRunEnd);
+
+        testee.processDailyEmail();
+
+        InMemorySink<String> results = connector.sink(DailyEmailAggregationJob.AGGREGATION_CHANNEL);
+        assertEquals(1, results.received().size());
+        JsonObject aggregationCommand = new JsonObject(results.received().get(0).getPayload());
+        assertEquals(interruptedRunEnd, LocalDateTime.parse(aggregationCommand.getString("end")));
+        assertTrue(aggregationJobRunRepository.findInterruptedRunEnds(1, 2).isEmpty());
+        assertTrue(aggregationJobRunRepository.findInterruptedRunEnds(0, 1).isEmpty());
+    }
+
+    @Test
+    @TestTransaction
+    void shouldSplitOrgsBetweenShards() {
+        List<String> orgIds = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            String orgId = "org-" + i;
+            orgIds.add(orgId);
+            helpers.addEmailAggregation(orgId, "rhel", "policies", "somePolicyId", "someHostId");
+            helpers.addAggregationOrgConfig(new AggregationOrgConfig(orgId, someOrgIdToProceed.getScheduledExecutionTime(), someOrgIdToProceed.getLastRun()));
+        }
+        // The commands are read with several pages.
+        testee.pageSize = 3;
+
+        testee.shardCount = 2;
+        Set<String> processedOrgIds = new HashSet<>();
+        for (int shardIndex = 0; shardIndex < testee.shardCount; shardIndex++) {
+            testee.shardIndex = shardIndex;
+            for (AggregationCommand aggregationCommand : testee.processAggregateEmailsWithOrgPref(LocalDateTime.now(UTC), new CollectorRegistry())) {
+                // Each org is processed by one shard only.
+                assertTrue(processedOrgIds.add(aggregationCommand.getAggregationKey().getOrgId()));
+            }
+        }
+        assertEquals(new HashSet<>(orgIds), processedOrgIds);
+    }
 }
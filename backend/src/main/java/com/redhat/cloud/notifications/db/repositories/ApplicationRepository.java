@@ -22,12 +22,17 @@ import java.util.Set;
 import java.util.UUID;
 import java.util.function.Supplier;
 
+import static com.redhat.cloud.notifications.models.CacheInvalidation.EVENT_TYPES_CACHE_NAME;
+
 @ApplicationScoped
 public class ApplicationRepository {
 
     @Inject
     EntityManager entityManager;
 
+    @Inject
+    CacheInvalidationRepository cacheInvalidationRepository;
+
     @Transactional
     public Application createApp(Application app) {
         Bundle bundle = entityManager.find(Bundle.class, app.getBundleId());
@@ -53,6 +58,7 @@ public class ApplicationRepository {
                 .setParameter("displayName", app.getDisplayName())
                 .setParameter("applicationId", id)
                 .executeUpdate();
+        cacheInvalidationRepository.invalidate(EVENT_TYPES_CACHE_NAME);
         return rowCount;
     }
 
@@ -62,6 +68,7 @@ public class ApplicationRepository {
         int rowCount = entityManager.createQuery(query)
                 .setParameter("id", id)
                 .executeUpdate();
+        cacheInvalidationRepository.invalidate(EVENT_TYPES_CACHE_NAME);
         return rowCount > 0;
     }
 
@@ -73,6 +80,8 @@ public class ApplicationRepository {
         } else {
             eventType.setApplication(app);
             entityManager.persist(eventType);
+            // The engine may have cached the absence of this event type.
+            cacheInvalidationRepository.invalidate(EVENT_TYPES_CACHE_NAME);
             eventType.filterOutApplication();
             return eventType;
         }
@@ -193,6 +202,7 @@ public class ApplicationRepository {
                 .setParameter("displayName", eventType.getDisplayName())
                 .setParameter("eventTypeId", id)
                 .executeUpdate();
+        cacheInvalidationRepository.invalidate(EVENT_TYPES_CACHE_NAME);
         return rowCount;
     }
 
@@ -202,6 +212,7 @@ public class ApplicationRepository {
         int rowCount = entityManager.createQuery(query)
                 .setParameter("id", id)
                 .executeUpdate();
+        cacheInvalidationRepository.invalidate(EVENT_TYPES_CACHE_NAME);
         return rowCount > 0;
     }
 
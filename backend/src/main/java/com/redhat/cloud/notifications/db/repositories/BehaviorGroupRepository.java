@@ -23,6 +23,7 @@ import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 
+import static com.redhat.cloud.notifications.models.CacheInvalidation.TARGET_ENDPOINTS_CACHE_NAME;
 import static javax.persistence.LockModeType.PESSIMISTIC_WRITE;
 import static org.hibernate.jpa.QueryHints.HINT_PASS_DISTINCT_THROUGH;
 
@@ -42,6 +43,9 @@ public class BehaviorGroupRepository {
     @Inject
     FeatureFlipper featureFlipper;
 
+    @Inject
+    CacheInvalidationRepository cacheInvalidationRepository;
+
     /**
      * Counts all the behavior groups by their org id and event type id.
      * @param orgId the org id to filter with.
@@ -269,7 +273,11 @@ public class BehaviorGroupRepository {
             q = q.setParameter("orgId", orgId);
         }
 
-        return q.executeUpdate() > 0;
+        boolean deleted = q.executeUpdate() > 0;
+        if (deleted) {
+            invalidateTargetEndpoints(orgId);
+        }
+        return deleted;
     }
 
     @Transactional
@@ -283,6 +291,7 @@ public class BehaviorGroupRepository {
                 .setParameter("behaviorGroupId", behaviorGroupId)
                 .setParameter("created", LocalDateTime.now(UTC))
                 .executeUpdate();
+        invalidateTargetEndpoints(null);
         return true;
     }
 
@@ -296,6 +305,7 @@ public class BehaviorGroupRepository {
                 .setParameter("eventTypeId", eventTypeId)
                 .setParameter("behaviorGroupId", behaviorGroupId)
                 .executeUpdate();
+        invalidateTargetEndpoints(null);
         return true;
     }
 
@@ -364,6 +374,7 @@ public class BehaviorGroupRepository {
                         .executeUpdate();
             }
         }
+        invalidateTargetEndpoints(orgId);
     }
 
     @Transactional
@@ -434,6 +445,7 @@ public class BehaviorGroupRepository {
                             .executeUpdate();
                 }
             }
+            invalidateTargetEndpoints(orgId);
         }
     }
 
@@ -482,6 +494,7 @@ public class BehaviorGroupRepository {
         if (affectedRows == 0) {
             throw new NotFoundException("the specified behavior group doesn't exist or the specified event type doesn't belong to the same bundle as the behavior group");
         }
+        invalidateTargetEndpoints(orgId);
     }
 
     /**
@@ -521,6 +534,7 @@ public class BehaviorGroupRepository {
         if (affectedRows == 0) {
             throw new NotFoundException("the specified behavior group was not found for the given event type");
         }
+        invalidateTargetEndpoints(orgId);
     }
 
     public List<EventType> findEventTypesByBehaviorGroupId(String orgId, UUID behaviorGroupId) {
@@ -644,6 +658,7 @@ public class BehaviorGroupRepository {
 
             sessionQuery.executeUpdate();
         }
+        invalidateTargetEndpoints(orgId);
     }
 
     public void updateDefaultBehaviorGroupActions(UUID behaviorGroupId, List<UUID> endpointIds) {
@@ -667,6 +682,18 @@ public class BehaviorGroupRepository {
         return behaviorGroups;
     }
 
+    /*
+     * The target endpoints are cached by the engine per org ID. A default behavior group (null org ID) applies to all
+     * orgs, so its modifications invalidate the whole cache.
+     */
+    private void invalidateTargetEndpoints(String orgId) {
+        if (orgId == null) {
+            cacheInvalidationRepository.invalidate(TARGET_ENDPOINTS_CACHE_NAME);
+        } else {
+            cacheInvalidationRepository.invalidate(TARGET_ENDPOINTS_CACHE_NAME, orgId);
+        }
+    }
+
     private void checkBehaviorGroup(UUID behaviorGroupId, boolean isDefaultBehaviorGroup) {
         BehaviorGroup behaviorGroup = entityManager.find(BehaviorGroup.class, behaviorGroupId);
         if (behaviorGroup == null) {
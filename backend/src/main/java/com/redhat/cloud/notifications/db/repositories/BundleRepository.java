@@ -13,12 +13,17 @@ import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
+import static com.redhat.cloud.notifications.models.CacheInvalidation.EVENT_TYPES_CACHE_NAME;
+
 @ApplicationScoped
 public class BundleRepository {
 
     @Inject
     EntityManager entityManager;
 
+    @Inject
+    CacheInvalidationRepository cacheInvalidationRepository;
+
     @Transactional
     public Bundle createBundle(Bundle bundle) {
         // The returned bundle will contain an ID and a creation timestamp.
@@ -60,6 +65,7 @@ public class BundleRepository {
                 .setParameter("displayName", bundle.getDisplayName())
                 .setParameter("bundleId", id)
                 .executeUpdate();
+        cacheInvalidationRepository.invalidate(EVENT_TYPES_CACHE_NAME);
         return rowCount;
     }
 
@@ -69,6 +75,7 @@ public class BundleRepository {
         int rowCount = entityManager.createQuery(query)
                 .setParameter("id", id)
                 .executeUpdate();
+        cacheInvalidationRepository.invalidate(EVENT_TYPES_CACHE_NAME);
         return rowCount > 0;
     }
 
@@ -0,0 +1,29 @@
+package com.redhat.cloud.notifications.db.repositories;
+
+import com.redhat.cloud.notifications.models.CacheInvalidation;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+
+@ApplicationScoped
+public class CacheInvalidationRepository {
+
+    @Inject
+    EntityManager entityManager;
+
+    /*
+     * The invalidation is persisted in the transaction of the caller, so the engine pods will never
+     * be asked to invalidate a cache if the data modification that caused the invalidation is rolled back.
+     */
+    @Transactional
+    public void invalidate(String cacheName) {
+        entityManager.persist(new CacheInvalidation(cacheName));
+    }
+
+    @Transactional
+    public void invalidate(String cacheName, String cacheKey) {
+        entityManager.persist(new CacheInvalidation(cacheName, cacheKey));
+    }
+}
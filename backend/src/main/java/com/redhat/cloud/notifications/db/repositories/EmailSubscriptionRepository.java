@@ -13,6 +13,7 @@ import javax.transaction.Transactional;
 import java.util.List;
 import java.util.UUID;
 
+import static com.redhat.cloud.notifications.models.CacheInvalidation.EMAIL_SUBSCRIBERS_CACHE_NAME;
 import static com.redhat.cloud.notifications.models.EmailSubscriptionType.DAILY;
 import static com.redhat.cloud.notifications.models.EmailSubscriptionType.DRAWER;
 import static com.redhat.cloud.notifications.models.EmailSubscriptionType.INSTANT;
@@ -26,6 +27,9 @@ public class EmailSubscriptionRepository {
     @Inject
     FeatureFlipper featureFlipper;
 
+    @Inject
+    CacheInvalidationRepository cacheInvalidationRepository;
+
     @Transactional
     public boolean subscribe(String accountId, String orgId, String username, String bundleName, String applicationName, EmailSubscriptionType subscriptionType) {
         String query = "INSERT INTO endpoint_email_subscriptions(account_id, org_id, user_id, application_id, subscription_type) " +
@@ -43,6 +47,7 @@ public class EmailSubscriptionRepository {
             .executeUpdate();
 
         replicateSubscribeToEventTypeLevel(orgId, username, bundleName, applicationName, subscriptionType);
+        cacheInvalidationRepository.invalidate(EMAIL_SUBSCRIBERS_CACHE_NAME, orgId);
         return true;
     }
 
@@ -60,6 +65,7 @@ public class EmailSubscriptionRepository {
             .executeUpdate();
 
         replicateUnsubscribeToEventTypeLevel(orgId, username, subscriptionType, bundleName, applicationName);
+        cacheInvalidationRepository.invalidate(EMAIL_SUBSCRIBERS_CACHE_NAME, orgId);
         return true;
     }
 
@@ -113,13 +119,17 @@ public class EmailSubscriptionRepository {
             "ON CONFLICT (org_id, user_id, event_type_id, subscription_type) DO NOTHING"; // The value is already on the database, this is OK
 
         // HQL does not support the ON CONFLICT clause so we need a native query here
-        return entityManager.createNativeQuery(query)
+        int rowCount = entityManager.createNativeQuery(query)
             .setParameter("orgId", orgId)
             .setParameter("userId", username)
             .setParameter("eventTypeId", eventTypeId)
             .setParameter("subscriptionType", subscriptionType.name())
             .setParameter("subscribed", subscribed)
             .executeUpdate();
+        if (rowCount > 0) {
+            cacheInvalidationRepository.invalidate(EMAIL_SUBSCRIBERS_CACHE_NAME, orgId);
+        }
+        return rowCount;
     }
 
     public int unsubscribeEventType(String orgId, String userId, UUID eventTypeId, EmailSubscriptionType subscriptionType) {
@@ -135,9 +145,13 @@ public class EmailSubscriptionRepository {
     @Transactional
     public int deleteEventTypeSubscription(String orgId, String userId, UUID eventTypeId, EmailSubscriptionType subscriptionType) {
         String query = "DELETE FROM EventTypeEmailSubscription WHERE id = :Id";
-        return entityManager.createQuery(query)
+        int rowCount = entityManager.createQuery(query)
             .setParameter("Id", new EventTypeEmailSubscriptionId(orgId, userId, eventTypeId, subscriptionType))
             .executeUpdate();
+        if (rowCount > 0) {
+            cacheInvalidationRepository.invalidate(EMAIL_SUBSCRIBERS_CACHE_NAME, orgId);
+        }
+        return rowCount;
     }
 
     public List<EventTypeEmailSubscription> getEmailSubscriptionByEventType(String orgId, String username, String bundleName, String applicationName) {
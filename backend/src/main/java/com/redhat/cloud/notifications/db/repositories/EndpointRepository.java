@@ -33,6 +33,7 @@ import java.util.function.Function;
 import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+import static com.redhat.cloud.notifications.models.CacheInvalidation.TARGET_ENDPOINTS_CACHE_NAME;
 import static com.redhat.cloud.notifications.models.EndpointStatus.READY;
 
 @ApplicationScoped
@@ -43,6 +44,9 @@ public class EndpointRepository {
     @Inject
     FeatureFlipper featureFlipper;
 
+    @Inject
+    CacheInvalidationRepository cacheInvalidationRepository;
+
     public void checkEndpointNameDuplicate(Endpoint endpoint) {
         if (!featureFlipper.isEnforceIntegrationNameUnicity()) {
             // Check disabled from configuration
@@ -182,6 +186,9 @@ public class EndpointRepository {
                 .setParameter("id", id)
                 .setParameter("orgId", orgId)
                 .executeUpdate();
+        if (rowCount > 0) {
+            cacheInvalidationRepository.invalidate(TARGET_ENDPOINTS_CACHE_NAME, orgId);
+        }
         return rowCount > 0;
         // Actually, the endpoint targeting this should be repeatable
     }
@@ -202,6 +209,9 @@ public class EndpointRepository {
                 .setParameter("orgId", orgId)
                 .setParameter("enabled", enabled)
                 .executeUpdate();
+        if (rowCount > 0) {
+            cacheInvalidationRepository.invalidate(TARGET_ENDPOINTS_CACHE_NAME, orgId);
+        }
         return rowCount > 0;
     }
 
@@ -232,7 +242,10 @@ public class EndpointRepository {
 
         if (endpointRowCount == 0) {
             return false;
-        } else if (endpoint.getProperties() == null) {
+        }
+        // The endpoint enablement or properties may have changed.
+        cacheInvalidationRepository.invalidate(TARGET_ENDPOINTS_CACHE_NAME, endpoint.getOrgId());
+        if (endpoint.getProperties() == null) {
             return true;
         } else {
             switch (endpoint.getType()) {
@@ -16,9 +16,14 @@ import javax.persistence.TypedQuery;
 import javax.transaction.Transactional;
 import javax.ws.rs.BadRequestException;
 import javax.ws.rs.NotFoundException;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
 import java.util.List;
 import java.util.UUID;
 
+import static com.redhat.cloud.notifications.models.CacheInvalidation.COMPILED_TEMPLATES_CACHE_NAME;
+import static com.redhat.cloud.notifications.models.CacheInvalidation.EMAIL_AGGREGATION_SUPPORT_CACHE_NAME;
+import static com.redhat.cloud.notifications.models.CacheInvalidation.INSTANT_EMAIL_TEMPLATES_CACHE_NAME;
 import static com.redhat.cloud.notifications.models.EmailSubscriptionType.INSTANT;
 
 @ApplicationScoped
@@ -26,6 +31,7 @@ public class TemplateRepository {
 
     private static final String SUBJECT_NOT_FOUND = "Subject template not found";
     private static final String BODY_NOT_FOUND = "Body template not found";
+    private static final ZoneId UTC = ZoneId.of("UTC");
 
     @Inject
     EntityManager entityManager;
@@ -33,9 +39,14 @@ public class TemplateRepository {
     @Inject
     FeatureFlipper featureFlipper;
 
+    @Inject
+    CacheInvalidationRepository cacheInvalidationRepository;
+
     @Transactional
     public Template createTemplate(Template template) {
         entityManager.persist(template);
+        // An outer template may have been compiled by the engine while the included template didn't exist yet.
+        cacheInvalidationRepository.invalidate(COMPILED_TEMPLATES_CACHE_NAME, template.getName());
         return template;
     }
 
@@ -51,13 +62,25 @@ public class TemplateRepository {
 
     @Transactional
     public boolean updateTemplate(UUID id, Template template) {
-        String hql = "UPDATE Template SET name = :name, description = :description, data = :data WHERE id = :id";
+        List<String> oldName = entityManager.createQuery("SELECT name FROM Template WHERE id = :id", String.class)
+                .setParameter("id", id)
+                .getResultList();
+        // The engine caches the compiled templates by ID and update timestamp, so the timestamp has to be updated here.
+        String hql = "UPDATE Template SET name = :name, description = :description, data = :data, updated = :updated WHERE id = :id";
         int rowCount = entityManager.createQuery(hql)
                 .setParameter("name", template.getName())
                 .setParameter("description", template.getDescription())
                 .setParameter("data", template.getData())
+                .setParameter("updated", LocalDateTime.now(UTC))
                 .setParameter("id", id)
                 .executeUpdate();
+        if (rowCount > 0) {
+            // The templates which include the modified template have to be invalidated as well, the engine does that.
+            cacheInvalidationRepository.invalidate(COMPILED_TEMPLATES_CACHE_NAME, template.getName());
+            if (!oldName.isEmpty() && !oldName.get(0).equals(template.getName())) {
+                cacheInvalidationRepository.invalidate(COMPILED_TEMPLATES_CACHE_NAME, oldName.get(0));
+            }
+        }
         return rowCount > 0;
     }
 
@@ -79,6 +102,9 @@ public class TemplateRepository {
                 int rowCount = entityManager.createQuery(deleteHql)
                         .setParameter("id", id)
                         .executeUpdate();
+                if (rowCount > 0) {
+                    cacheInvalidationRepository.invalidate(COMPILED_TEMPLATES_CACHE_NAME, template.getName());
+                }
                 return rowCount > 0;
             }
         }
@@ -98,6 +124,7 @@ public class TemplateRepository {
         }
 
         entityManager.persist(template);
+        cacheInvalidationRepository.invalidate(INSTANT_EMAIL_TEMPLATES_CACHE_NAME);
 
         // The full event type isn't needed in the REST response.
         template.filterOutEventType();
@@ -183,6 +210,9 @@ public class TemplateRepository {
                 .setParameter("bodyTemplate", bodyTemplate)
                 .setParameter("id", id)
                 .executeUpdate();
+        if (rowCount > 0) {
+            cacheInvalidationRepository.invalidate(INSTANT_EMAIL_TEMPLATES_CACHE_NAME);
+        }
         return rowCount > 0;
     }
 
@@ -192,6 +222,9 @@ public class TemplateRepository {
         int rowCount = entityManager.createQuery(hql)
                 .setParameter("id", id)
                 .executeUpdate();
+        if (rowCount > 0) {
+            cacheInvalidationRepository.invalidate(INSTANT_EMAIL_TEMPLATES_CACHE_NAME);
+        }
         return rowCount > 0;
     }
 
@@ -210,6 +243,7 @@ public class TemplateRepository {
         }
 
         entityManager.persist(template);
+        cacheInvalidationRepository.invalidate(EMAIL_AGGREGATION_SUPPORT_CACHE_NAME);
 
         // The full application isn't needed in the REST response.
         template.filterOutApplication();
@@ -280,6 +314,9 @@ public class TemplateRepository {
                 .setParameter("bodyTemplate", bodyTemplate)
                 .setParameter("id", id)
                 .executeUpdate();
+        if (rowCount > 0) {
+            cacheInvalidationRepository.invalidate(EMAIL_AGGREGATION_SUPPORT_CACHE_NAME);
+        }
         return rowCount > 0;
     }
 
@@ -289,6 +326,9 @@ public class TemplateRepository {
         int rowCount = entityManager.createQuery(hql)
                 .setParameter("id", id)
                 .executeUpdate();
+        if (rowCount > 0) {
+            cacheInvalidationRepository.invalidate(EMAIL_AGGREGATION_SUPPORT_CACHE_NAME);
+        }
         return rowCount > 0;
     }
 
@@ -1,5 +1,6 @@
 package com.redhat.cloud.notifications.routers.internal;
 
+import com.redhat.cloud.notifications.db.repositories.CacheInvalidationRepository;
 import io.quarkus.logging.Log;
 import javax.annotation.security.RolesAllowed;
 import javax.inject.Inject;
@@ -10,6 +11,7 @@ import javax.ws.rs.Path;
 
 import static com.redhat.cloud.notifications.Constants.API_INTERNAL;
 import static com.redhat.cloud.notifications.auth.ConsoleIdentityProvider.RBAC_INTERNAL_ADMIN;
+import static com.redhat.cloud.notifications.models.CacheInvalidation.EMAIL_SUBSCRIBERS_CACHE_NAME;
 
 @RolesAllowed(RBAC_INTERNAL_ADMIN)
 @Path(API_INTERNAL)
@@ -18,6 +20,9 @@ public class SubscriptionToEventTypeMigrationService {
     @Inject
     EntityManager entityManager;
 
+    @Inject
+    CacheInvalidationRepository cacheInvalidationRepository;
+
     @PUT
     @Path("/subscription-to-event-type/migrate")
     public void migrate() {
@@ -38,5 +43,8 @@ public class SubscriptionToEventTypeMigrationService {
 
         affectedRows = entityManager.createNativeQuery(query).executeUpdate();
         Log.infof("%d record(s) inserted", affectedRows);
+
+        // The subscriptions of every org may have changed, so all the cached subscribers are invalidated.
+        cacheInvalidationRepository.invalidate(EMAIL_SUBSCRIBERS_CACHE_NAME);
     }
 }
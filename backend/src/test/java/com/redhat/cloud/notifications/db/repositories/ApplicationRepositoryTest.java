@@ -16,10 +16,12 @@ import org.junit.jupiter.api.Assertions;
 import org.junit.jupiter.api.Test;
 
 import javax.inject.Inject;
+import javax.persistence.EntityManager;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
 
+import static com.redhat.cloud.notifications.models.CacheInvalidation.EVENT_TYPES_CACHE_NAME;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -40,6 +42,33 @@ public class ApplicationRepositoryTest extends DbIsolatedTest {
     @Inject
     ApplicationRepository applicationRepository;
 
+    @Inject
+    EntityManager entityManager;
+
+    @Test
+    void shouldInvalidateEventTypesCacheWhenEventTypesAreModified() {
+        Bundle bundle = resourceHelpers.createBundle("my-bundle", NOT_USED);
+        Application application = resourceHelpers.createApplication(bundle.getId(), "application", NOT_USED);
+        long invalidations = countEventTypesCacheInvalidations();
+
+        EventType eventType = new EventType();
+        eventType.setApplicationId(application.getId());
+        eventType.setName("event-type");
+        eventType.setDisplayName(NOT_USED);
+        applicationRepository.createEventType(eventType);
+        assertEquals(++invalidations, countEventTypesCacheInvalidations());
+
+        eventType.setDisplayName("Updated");
+        applicationRepository.updateEventType(eventType.getId(), eventType);
+        assertEquals(++invalidations, countEventTypesCacheInvalidations());
+
+        applicationRepository.deleteEventTypeById(eventType.getId());
+        assertEquals(++invalidations, countEventTypesCacheInvalidations());
+
+        applicationRepository.deleteApplication(application.getId());
+        assertEquals(++invalidations, countEventTypesCacheInvalidations());
+    }
+
     @Test
     void shouldFindApplicationsLinkedToForcedEmails() {
         Bundle myBundle = resourceHelpers.createBundle("my-bundle", NOT_USED);
@@ -215,4 +244,10 @@ public class ApplicationRepositoryTest extends DbIsolatedTest {
                 null
         );
     }
+
+    private long countEventTypesCacheInvalidations() {
+        return entityManager.createQuery("SELECT COUNT(*) FROM CacheInvalidation WHERE cacheName = :cacheName", Long.class)
+                .setParameter("cacheName", EVENT_TYPES_CACHE_NAME)
+                .getSingleResult();
+    }
 }
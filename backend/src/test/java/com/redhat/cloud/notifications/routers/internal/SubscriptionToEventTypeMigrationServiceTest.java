@@ -15,10 +15,12 @@ import io.restassured.http.Header;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.junit.jupiter.api.Test;
 import javax.inject.Inject;
+import javax.persistence.EntityManager;
 import java.util.List;
 import java.util.Set;
 
 import static com.redhat.cloud.notifications.Constants.API_INTERNAL;
+import static com.redhat.cloud.notifications.models.CacheInvalidation.EMAIL_SUBSCRIBERS_CACHE_NAME;
 import static com.redhat.cloud.notifications.models.EmailSubscriptionType.INSTANT;
 import static io.restassured.RestAssured.given;
 import static io.restassured.http.ContentType.JSON;
@@ -40,6 +42,9 @@ public class SubscriptionToEventTypeMigrationServiceTest extends DbIsolatedTest
     @Inject
     ApplicationRepository applicationRepository;
 
+    @Inject
+    EntityManager entityManager;
+
     @Test
     void testEmailSubscription() {
         Header identity = TestHelpers.createTurnpikeIdentityHeader("user", adminRole);
@@ -73,6 +78,8 @@ public class SubscriptionToEventTypeMigrationServiceTest extends DbIsolatedTest
         eventTypeEmailSubscriptionList = emailSubscriptionRepository.getEmailSubscriptionsPerEventTypeForUser(orgId, username2);
         assertEquals(0, eventTypeEmailSubscriptionList.size());
 
+        long allOrgsInvalidations = countAllOrgsEmailSubscribersCacheInvalidations();
+
         // migrate from application to event type subscription level
         given()
             .basePath(API_INTERNAL)
@@ -89,5 +96,14 @@ public class SubscriptionToEventTypeMigrationServiceTest extends DbIsolatedTest
 
         eventTypeEmailSubscriptionList = emailSubscriptionRepository.getEmailSubscriptionsPerEventTypeForUser(orgId, username);
         assertEquals(2, eventTypeEmailSubscriptionList.size());
+
+        // The engine pods are asked to invalidate the cached subscribers of all orgs.
+        assertEquals(allOrgsInvalidations + 1, countAllOrgsEmailSubscribersCacheInvalidations());
+    }
+
+    private long countAllOrgsEmailSubscribersCacheInvalidations() {
+        return entityManager.createQuery("SELECT COUNT(*) FROM CacheInvalidation WHERE cacheName = :cacheName AND cacheKey IS NULL", Long.class)
+                .setParameter("cacheName", EMAIL_SUBSCRIBERS_CACHE_NAME)
+                .getSingleResult();
     }
 }
@@ -0,0 +1,105 @@
+package com.redhat.cloud.notifications.db.converters;
+
+import io.vertx.core.json.JsonObject;
+import org.eclipse.microprofile.config.ConfigProvider;
+
+import javax.persistence.AttributeConverter;
+import javax.persistence.Converter;
+import java.io.ByteArrayOutputStream;
+import java.util.Base64;
+import java.util.function.BooleanSupplier;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Stores the email aggregation payloads either as plain JSON or as deflated JSON, depending on the
+ * {@value #COMPRESSION_ENABLED_KEY} configuration key. The compressed payloads are Base64-encoded and prefixed with
+ * {@value #DEFLATE_PREFIX} so that they can be stored in the existing text column. A JSON object always starts with a
+ * curly bracket, which means that both formats can be read from the same table while the compression is rolled out or
+ * rolled back. The Base64 encoding makes the deflated payloads a third larger, which only matters for the small
+ * payloads: a binary column would save a few percent more on payloads with several events.
+ */
+@Converter
+public class EmailAggregationPayloadConverter implements AttributeConverter<JsonObject, String> {
+
+    static final String COMPRESSION_ENABLED_KEY = "notifications.email-aggregation.payload-compression.enabled";
+    static final String DEFLATE_PREFIX = "deflate:";
+
+    private final BooleanSupplier compressionEnabled;
+
+    public EmailAggregationPayloadConverter() {
+        // Hibernate instantiates the converter, so the configuration can't be injected.
+        this(() -> ConfigProvider.getConfig().getOptionalValue(COMPRESSION_ENABLED_KEY, Boolean.class).orElse(false));
+    }
+
+    EmailAggregationPayloadConverter(BooleanSupplier compressionEnabled) {
+        this.compressionEnabled = compressionEnabled;
+    }
+
+    @Override
+    public String convertToDatabaseColumn(JsonObject jsonObject) {
+        if (jsonObject == null) {
+            return null;
+        }
+        String json = jsonObject.encode();
+        if (!compressionEnabled.getAsBoolean()) {
+            return json;
+        }
+        String compressed = compress(json);
+        // Small payloads may be larger once compressed and Base64-encoded.
+        return compressed.length() < json.length() ? compressed : json;
+    }
+
+    @Override
+    public JsonObject convertToEntityAttribute(String dbData) {
+        if (dbData == null) {
+            return null;
+        } else if (dbData.startsWith(DEFLATE_PREFIX)) {
+            return new JsonObject(decompress(dbData));
+        } else {
+            return new JsonObject(dbData);
+        }
+    }
+
+    static String compress(String json) {
+        Deflater deflater = new Deflater(Deflater.BEST_SPEED);
+        try {
+            deflater.setInput(json.getBytes(UTF_8));
+            deflater.finish();
+            ByteArrayOutputStream output = new ByteArrayOutputStream();
+            byte[] buffer = new byte[4096];
+            while (!deflater.finished()) {
+                int length = deflater.deflate(buffer);
+                output.write(buffer, 0, length);
+            }
+            return DEFLATE_PREFIX + Base64.getEncoder().encodeToString(output.toByteArray());
+        } finally {
+            deflater.end();
+        }
+    }
+
+    static String decompress(String dbData) {
+        byte[] compressed = Base64.getDecoder().decode(dbData.substring(DEFLATE_PREFIX.length()));
+        Inflater inflater = new Inflater();
+        try {
+            inflater.setInput(compressed);
+            ByteArrayOutputStream output = new ByteArrayOutputStream(compressed.length * 4);
+            byte[] buffer = new byte[4096];
+            while (!inflater.finished()) {
+                int length = inflater.inflate(buffer);
+                if (length == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("Truncated compressed email aggregation payload");
+                }
+                output.write(buffer, 0, length);
+            }
+            return output.toString(UTF_8);
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("Invalid compressed email aggregation payload", e);
+        } finally {
+            inflater.end();
+        }
+    }
+}
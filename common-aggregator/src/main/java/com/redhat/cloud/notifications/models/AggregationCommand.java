@@ -17,6 +17,9 @@ public class AggregationCommand {
     @NotNull
     private final EmailSubscriptionType subscriptionType;
 
+    // Number of aggregations estimated by the aggregator job, used to process the largest commands first. 0 means unknown.
+    private long estimatedAggregationsCount;
+
     public AggregationCommand(EmailAggregationKey aggregationKey, LocalDateTime start, LocalDateTime end, EmailSubscriptionType subscriptionType) {
         this.aggregationKey = aggregationKey;
         this.start = start;
@@ -40,6 +43,14 @@ public class AggregationCommand {
         return subscriptionType;
     }
 
+    public long getEstimatedAggregationsCount() {
+        return estimatedAggregationsCount;
+    }
+
+    public void setEstimatedAggregationsCount(long estimatedAggregationsCount) {
+        this.estimatedAggregationsCount = estimatedAggregationsCount;
+    }
+
     @Override
     public String toString() {
         return "AggregationCommand{" +
@@ -47,6 +58,7 @@ public class AggregationCommand {
                 ", start=" + start +
                 ", end=" + end +
                 ", subscriptionType=" + subscriptionType +
+                ", estimatedAggregationsCount=" + estimatedAggregationsCount +
                 '}';
     }
 }
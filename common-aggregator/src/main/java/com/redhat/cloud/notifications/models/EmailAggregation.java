@@ -1,7 +1,7 @@
 package com.redhat.cloud.notifications.models;
 
 import com.fasterxml.jackson.annotation.JsonProperty;
-import com.redhat.cloud.notifications.db.converters.JsonObjectConverter;
+import com.redhat.cloud.notifications.db.converters.EmailAggregationPayloadConverter;
 import io.vertx.core.json.JsonObject;
 
 import javax.persistence.Column;
@@ -43,7 +43,7 @@ public class EmailAggregation extends CreationTimestamped {
     private String applicationName;
 
     @NotNull
-    @Convert(converter = JsonObjectConverter.class)
+    @Convert(converter = EmailAggregationPayloadConverter.class)
     private JsonObject payload;
 
     public Integer getId() {
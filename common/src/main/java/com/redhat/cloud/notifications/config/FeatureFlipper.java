@@ -96,6 +96,33 @@ public class FeatureFlipper {
     @ConfigProperty(name = "notifications.email-connector.enabled", defaultValue = "false")
     boolean emailConnectorEnabled;
 
+    @ConfigProperty(name = "mp.messaging.incoming.ingressbatch.enabled", defaultValue = "false")
+    boolean ingressBatchConsumptionEnabled;
+
+    @ConfigProperty(name = "notifications.endpoint-processor.fan-out.enabled", defaultValue = "false")
+    boolean endpointProcessorFanOutEnabled;
+
+    @ConfigProperty(name = "notifications.webhook.async-delivery.enabled", defaultValue = "false")
+    boolean webhookAsyncDeliveryEnabled;
+
+    @ConfigProperty(name = "notifications.webhook.circuit-breaker.enabled", defaultValue = "false")
+    boolean webhookCircuitBreakerEnabled;
+
+    @ConfigProperty(name = "notifications.history-writer.batch.enabled", defaultValue = "false")
+    boolean historyBatchWriterEnabled;
+
+    @ConfigProperty(name = "mp.messaging.incoming.fromcamelbatch.enabled", defaultValue = "false")
+    boolean connectorResultsBatchConsumptionEnabled;
+
+    @ConfigProperty(name = "notifications.recipients.parallel-page-fetching.enabled", defaultValue = "false")
+    boolean recipientsParallelPageFetchingEnabled;
+
+    @ConfigProperty(name = "notifications.email-subscribers.cache.enabled", defaultValue = "false")
+    boolean emailSubscribersCacheEnabled;
+
+    @ConfigProperty(name = "notifications.email-aggregation.incremental.enabled", defaultValue = "false")
+    boolean incrementalEmailAggregationEnabled;
+
     void logFeaturesStatusAtStartup(@Observes StartupEvent event) {
         Log.infof("=== %s startup status ===", FeatureFlipper.class.getSimpleName());
         Log.infof("The behavior groups unique name constraint is %s", enforceBehaviorGroupNameUnicity ? "enabled" : "disabled");
@@ -117,6 +144,15 @@ public class FeatureFlipper {
         Log.infof("The use of BOP/MBOP for fetching users is %s", useMBOPForFetchingUsers ? "enabled" : "disabled");
         Log.infof("The webhook connector is %s", webhookConnectorEnabled ? "enabled" : "disabled");
         Log.infof("The email connector is %s", emailConnectorEnabled ? "enabled" : "disabled");
+        Log.infof("The batch consumption of the ingress topic is %s", ingressBatchConsumptionEnabled ? "enabled" : "disabled");
+        Log.infof("The concurrent fan-out of the endpoint processors is %s", endpointProcessorFanOutEnabled ? "enabled" : "disabled");
+        Log.infof("The asynchronous delivery of webhooks is %s", webhookAsyncDeliveryEnabled ? "enabled" : "disabled");
+        Log.infof("The in-memory circuit breaker of the webhook endpoints is %s", webhookCircuitBreakerEnabled ? "enabled" : "disabled");
+        Log.infof("The batched write-behind of the notification history is %s", historyBatchWriterEnabled ? "enabled" : "disabled");
+        Log.infof("The batch consumption of the connector results topic is %s", connectorResultsBatchConsumptionEnabled ? "enabled" : "disabled");
+        Log.infof("The parallel fetching of the recipients pages is %s", recipientsParallelPageFetchingEnabled ? "enabled" : "disabled");
+        Log.infof("The email subscribers cache is %s", emailSubscribersCacheEnabled ? "enabled" : "disabled");
+        Log.infof("The incremental email aggregation is %s", incrementalEmailAggregationEnabled ? "enabled" : "disabled");
     }
 
     public boolean isEnforceBehaviorGroupNameUnicity() {
@@ -286,6 +322,69 @@ public class FeatureFlipper {
         this.emailConnectorEnabled = emailConnectorEnabled;
     }
 
+    public boolean isEndpointProcessorFanOutEnabled() {
+        return endpointProcessorFanOutEnabled;
+    }
+
+    public void setEndpointProcessorFanOutEnabled(boolean endpointProcessorFanOutEnabled) {
+        checkTestLaunchMode();
+        this.endpointProcessorFanOutEnabled = endpointProcessorFanOutEnabled;
+    }
+
+    public boolean isWebhookAsyncDeliveryEnabled() {
+        return webhookAsyncDeliveryEnabled;
+    }
+
+    public void setWebhookAsyncDeliveryEnabled(boolean webhookAsyncDeliveryEnabled) {
+        checkTestLaunchMode();
+        this.webhookAsyncDeliveryEnabled = webhookAsyncDeliveryEnabled;
+    }
+
+    public boolean isWebhookCircuitBreakerEnabled() {
+        return webhookCircuitBreakerEnabled;
+    }
+
+    public void setWebhookCircuitBreakerEnabled(boolean webhookCircuitBreakerEnabled) {
+        checkTestLaunchMode();
+        this.webhookCircuitBreakerEnabled = webhookCircuitBreakerEnabled;
+    }
+
+    public boolean isHistoryBatchWriterEnabled() {
+        return historyBatchWriterEnabled;
+    }
+
+    public void setHistoryBatchWriterEnabled(boolean historyBatchWriterEnabled) {
+        checkTestLaunchMode();
+        this.historyBatchWriterEnabled = historyBatchWriterEnabled;
+    }
+
+    public boolean isRecipientsParallelPageFetchingEnabled() {
+        return recipientsParallelPageFetchingEnabled;
+    }
+
+    public void setRecipientsParallelPageFetchingEnabled(boolean recipientsParallelPageFetchingEnabled) {
+        checkTestLaunchMode();
+        this.recipientsParallelPageFetchingEnabled = recipientsParallelPageFetchingEnabled;
+    }
+
+    public boolean isEmailSubscribersCacheEnabled() {
+        return emailSubscribersCacheEnabled;
+    }
+
+    public void setEmailSubscribersCacheEnabled(boolean emailSubscribersCacheEnabled) {
+        checkTestLaunchMode();
+        this.emailSubscribersCacheEnabled = emailSubscribersCacheEnabled;
+    }
+
+    public boolean isIncrementalEmailAggregationEnabled() {
+        return incrementalEmailAggregationEnabled;
+    }
+
+    public void setIncrementalEmailAggregationEnabled(boolean incrementalEmailAggregationEnabled) {
+        checkTestLaunchMode();
+        this.incrementalEmailAggregationEnabled = incrementalEmailAggregationEnabled;
+    }
+
     /**
      * This method throws an {@link IllegalStateException} if it is invoked with a launch mode different from
      * {@link io.quarkus.runtime.LaunchMode#TEST TEST}. It should be added to methods that allow overriding a
@@ -0,0 +1,76 @@
+package com.redhat.cloud.notifications.models;
+
+import javax.persistence.Entity;
+import javax.persistence.GeneratedValue;
+import javax.persistence.Id;
+import javax.persistence.Table;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+
+import static javax.persistence.GenerationType.IDENTITY;
+
+/**
+ * A request, usually emitted by the backend, to invalidate a cache held in memory by all engine pods.
+ */
+@Entity
+@Table(name = "cache_invalidation")
+public class CacheInvalidation extends CreationTimestamped {
+
+    public static final String EVENT_TYPES_CACHE_NAME = "event-types";
+    public static final String TARGET_ENDPOINTS_CACHE_NAME = "target-endpoints";
+    // The keys of the invalidations of this cache are template names.
+    public static final String COMPILED_TEMPLATES_CACHE_NAME = "compiled-templates";
+    public static final String INSTANT_EMAIL_TEMPLATES_CACHE_NAME = "instant-email-templates";
+    public static final String EMAIL_AGGREGATION_SUPPORT_CACHE_NAME = "email-aggregation-support";
+    public static final String INTEGRATION_TEMPLATES_CACHE_NAME = "integration-templates";
+    // The keys of the invalidations of this cache are org IDs.
+    public static final String EMAIL_SUBSCRIBERS_CACHE_NAME = "email-subscribers";
+
+    @Id
+    @GeneratedValue(strategy = IDENTITY)
+    private Long id;
+
+    @NotNull
+    @Size(max = 100)
+    private String cacheName;
+
+    // When null, all entries of the cache are invalidated.
+    @Size(max = 255)
+    private String cacheKey;
+
+    public CacheInvalidation() {
+    }
+
+    public CacheInvalidation(String cacheName) {
+        this.cacheName = cacheName;
+    }
+
+    public CacheInvalidation(String cacheName, String cacheKey) {
+        this.cacheName = cacheName;
+        this.cacheKey = cacheKey;
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public void setId(Long id) {
+        this.id = id;
+    }
+
+    public String getCacheName() {
+        return cacheName;
+    }
+
+    public void setCacheName(String cacheName) {
+        this.cacheName = cacheName;
+    }
+
+    public String getCacheKey() {
+        return cacheKey;
+    }
+
+    public void setCacheKey(String cacheKey) {
+        this.cacheKey = cacheKey;
+    }
+}
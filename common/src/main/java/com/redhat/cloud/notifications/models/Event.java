@@ -77,6 +77,9 @@ public class Event {
     @Transient
     private EventWrapper<?, ?> eventWrapper;
 
+    @Transient
+    private volatile TransformedEvent transformedEvent;
+
     public Event() { }
 
     public Event(EventType eventType, String payload, EventWrapper<?, ?> eventWrapper) {
@@ -228,6 +231,14 @@ public class Event {
         this.eventWrapper = eventWrapper;
     }
 
+    public TransformedEvent getTransformedEvent() {
+        return transformedEvent;
+    }
+
+    public void setTransformedEvent(TransformedEvent transformedEvent) {
+        this.transformedEvent = transformedEvent;
+    }
+
     public String getRenderedDrawerNotification() {
         return renderedDrawerNotification;
     }
@@ -1,5 +1,7 @@
 package com.redhat.cloud.notifications.models;
 
+import java.util.Objects;
+
 public class EventTypeKeyBundleAppEventTriplet implements EventTypeKey {
 
     private final String bundle;
@@ -24,6 +26,25 @@ public class EventTypeKeyBundleAppEventTriplet implements EventTypeKey {
         return application;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o instanceof EventTypeKeyBundleAppEventTriplet) {
+            EventTypeKeyBundleAppEventTriplet other = (EventTypeKeyBundleAppEventTriplet) o;
+            return Objects.equals(bundle, other.bundle) &&
+                    Objects.equals(application, other.application) &&
+                    Objects.equals(eventType, other.eventType);
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(bundle, application, eventType);
+    }
+
     @Override
     public String toString() {
         return String.format("baet=%s/%s/%s", bundle, application, eventType);
@@ -1,5 +1,7 @@
 package com.redhat.cloud.notifications.models;
 
+import java.util.Objects;
+
 public class EventTypeKeyFqn implements EventTypeKey {
 
     private final String fullyQualifiedName;
@@ -12,6 +14,23 @@ public class EventTypeKeyFqn implements EventTypeKey {
         return fullyQualifiedName;
     }
 
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o instanceof EventTypeKeyFqn) {
+            EventTypeKeyFqn other = (EventTypeKeyFqn) o;
+            return Objects.equals(fullyQualifiedName, other.fullyQualifiedName);
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(fullyQualifiedName);
+    }
+
     @Override
     public String toString() {
         return String.format("eventFqn=%s", fullyQualifiedName);
@@ -0,0 +1,77 @@
+package com.redhat.cloud.notifications.models;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.vertx.core.json.JsonObject;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Transformed payload of an {@link Event}, memoized in the event itself. The same instance is shared by all the
+ * processors and endpoints of the event, possibly from several threads, so only copies and read-only views of the
+ * payload are exposed. The encoded and {@link Map} representations are computed lazily, at most once.
+ */
+public class TransformedEvent {
+
+    private final JsonObject jsonObject;
+    private final ObjectMapper objectMapper;
+    private volatile String encoded;
+    private volatile Map<String, Object> map;
+
+    public TransformedEvent(JsonObject jsonObject, ObjectMapper objectMapper) {
+        this.jsonObject = jsonObject;
+        this.objectMapper = objectMapper;
+    }
+
+    public JsonObject copyJsonObject() {
+        return jsonObject.copy();
+    }
+
+    public String encode() {
+        String result = encoded;
+        if (result == null) {
+            result = jsonObject.encode();
+            encoded = result;
+        }
+        return result;
+    }
+
+    /**
+     * Returns a read-only view of the event made of plain Java maps and lists, as expected by the Qute templates. The
+     * nested maps and lists are read-only too.
+     */
+    public Map<String, Object> asMap() {
+        Map<String, Object> result = map;
+        if (result == null) {
+            try {
+                result = unmodifiableMap(objectMapper.readValue(encode(), Map.class));
+            } catch (JsonProcessingException e) {
+                throw new RuntimeException("Event data transformation failed", e);
+            }
+            map = result;
+        }
+        return result;
+    }
+
+    private static Map<String, Object> unmodifiableMap(Map<?, ?> map) {
+        Map<String, Object> result = new LinkedHashMap<>();
+        map.forEach((key, value) -> result.put((String) key, unmodifiable(value)));
+        return Collections.unmodifiableMap(result);
+    }
+
+    private static Object unmodifiable(Object value) {
+        if (value instanceof Map<?, ?> nestedMap) {
+            return unmodifiableMap(nestedMap);
+        } else if (value instanceof List<?> list) {
+            List<Object> result = new ArrayList<>(list.size());
+            list.forEach(item -> result.add(unmodifiable(item)));
+            return Collections.unmodifiableList(result);
+        } else {
+            return value;
+        }
+    }
+}
@@ -123,6 +123,16 @@ public class MicrometerAssertionHelper {
         });
     }
 
+    /**
+     * Waits until the sum of the counts of all the timers with the given name, whatever their tags, reaches the expected value.
+     */
+    public void awaitAndAssertTotalTimerIncrement(String timerName, long expectedIncrement) {
+        await().atMost(Duration.ofSeconds(30L)).until(() -> {
+            long actualIncrement = findTimersByNameOnly(timerName).stream().mapToLong(Timer::count).sum();
+            return expectedIncrement == actualIncrement;
+        });
+    }
+
     public void clearSavedValues() {
         counterValuesBeforeTest.clear();
     }
@@ -0,0 +1,111 @@
+package com.redhat.cloud.notifications.models;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.vertx.core.buffer.Buffer;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class TransformedEventTest {
+
+    @Test
+    void testRepresentationsAreComputedOnce() {
+        TransformedEvent transformedEvent = new TransformedEvent(buildJsonObject(), new ObjectMapper());
+
+        String encoded = transformedEvent.encode();
+        assertEquals(buildJsonObject().encode(), encoded);
+        assertSame(encoded, transformedEvent.encode());
+
+        Map<String, Object> map = transformedEvent.asMap();
+        assertEquals("my-bundle", map.get("bundle"));
+        assertEquals(Map.of("foo", "bar"), map.get("context"));
+        assertEquals(List.of(Map.of("payload", Map.of("count", 1))), map.get("events"));
+        assertSame(map, transformedEvent.asMap());
+    }
+
+    @Test
+    void testSharedRepresentationsCannotBeModified() {
+        TransformedEvent transformedEvent = new TransformedEvent(buildJsonObject(), new ObjectMapper());
+
+        Map<String, Object> map = transformedEvent.asMap();
+        assertThrows(UnsupportedOperationException.class, () -> map.put("environment_url", "url"));
+        assertThrows(UnsupportedOperationException.class, () -> ((Map<String, Object>) map.get("context")).put("foo", "baz"));
+        List<Map<String, Object>> events = (List<Map<String, Object>>) map.get("events");
+        assertThrows(UnsupportedOperationException.class, () -> events.add(Map.of()));
+        assertThrows(UnsupportedOperationException.class, () -> ((Map<String, Object>) events.get(0).get("payload")).put("count", 2));
+
+        JsonObject copy = transformedEvent.copyJsonObject();
+        copy.put("environment_url", "url");
+        copy.getJsonObject("context").put("foo", "baz");
+        assertEquals(buildJsonObject(), transformedEvent.copyJsonObject());
+        assertEquals(buildJsonObject().encode(), transformedEvent.encode());
+    }
+
+    /*
+     * Compares the webhook bodies built for each endpoint from a copy of the transformed event with a single body shared
+     * by all the endpoints. The timings depend on the machine, so this is not run with the other tests.
+     */
+    @Test
+    @Disabled("Benchmark, run it manually to compare the webhook body encodings")
+    void benchmark() {
+        for (int eventsCount : List.of(1, 10, 100)) {
+            JsonObject jsonObject = buildJsonObject(eventsCount);
+            for (int endpointsCount : List.of(1, 10, 100)) {
+                int iterations = 2000;
+                long perEndpoint = 0;
+                long shared = 0;
+                // The first half of the iterations warms the JIT up.
+                for (int i = 0; i < iterations * 2; i++) {
+                    boolean measured = i >= iterations;
+                    TransformedEvent transformedEvent = new TransformedEvent(jsonObject, new ObjectMapper());
+                    long start = System.nanoTime();
+                    for (int j = 0; j < endpointsCount; j++) {
+                        transformedEvent.copyJsonObject().toBuffer();
+                    }
+                    long afterPerEndpoint = System.nanoTime();
+                    Buffer body = Buffer.buffer(transformedEvent.encode());
+                    for (int j = 0; j < endpointsCount; j++) {
+                        body.getByteBuf();
+                    }
+                    long afterShared = System.nanoTime();
+                    if (measured) {
+                        perEndpoint += afterPerEndpoint - start;
+                        shared += afterShared - afterPerEndpoint;
+                    }
+                }
+                System.out.printf("%3d events, %3d endpoints: %6d bytes, copy and encode per endpoint %8.1f us, shared body %6.1f us%n",
+                        eventsCount, endpointsCount, jsonObject.encode().length(),
+                        perEndpoint / 1000.0 / iterations, shared / 1000.0 / iterations);
+            }
+        }
+    }
+
+    private static JsonObject buildJsonObject(int eventsCount) {
+        JsonObject jsonObject = buildJsonObject();
+        JsonArray events = new JsonArray();
+        for (int i = 0; i < eventsCount; i++) {
+            events.add(new JsonObject()
+                    .put("metadata", new JsonObject())
+                    .put("payload", new JsonObject()
+                            .put("host_id", "host-" + i)
+                            .put("display_name", "Host " + i)
+                            .put("tags", new JsonArray().add(new JsonObject().put("key", "env").put("value", "prod")))));
+        }
+        return jsonObject.put("events", events);
+    }
+
+    private static JsonObject buildJsonObject() {
+        return new JsonObject()
+                .put("bundle", "my-bundle")
+                .put("context", new JsonObject().put("foo", "bar"))
+                .put("events", new JsonArray().add(new JsonObject().put("payload", new JsonObject().put("count", 1))));
+    }
+}
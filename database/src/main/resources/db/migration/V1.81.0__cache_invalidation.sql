@@ -0,0 +1,21 @@
+-- The backend and the engine are deployed separately and each engine pod owns its in-memory caches.
+-- The backend inserts a row in this table whenever it modifies data cached by the engine. The engine
+-- polls the table and invalidates the matching caches.
+CREATE TABLE cache_invalidation (
+    id BIGSERIAL PRIMARY KEY,
+    cache_name VARCHAR(100) NOT NULL,
+    created TIMESTAMP NOT NULL
+);
+
+-- This stored procedure deletes the cache invalidations that are no longer needed.
+-- It is executed from an OpenShift CronJob.
+CREATE PROCEDURE cleanCacheInvalidations() AS $$
+DECLARE
+    deleted INTEGER;
+BEGIN
+    RAISE INFO '% Cache invalidations purge starting. Entries older than 1 day will be deleted.', NOW();
+    DELETE FROM cache_invalidation WHERE created < NOW() AT TIME ZONE 'UTC' - INTERVAL '1 days';
+    GET DIAGNOSTICS deleted = ROW_COUNT;
+    RAISE INFO '% Cache invalidations purge ended. % entries were deleted from the database.', NOW(), deleted;
+END;
+$$ LANGUAGE PLPGSQL;
@@ -0,0 +1,2 @@
+-- When a key is set, only the matching entries of the cache are invalidated by the engine.
+ALTER TABLE cache_invalidation ADD COLUMN cache_key VARCHAR(255);
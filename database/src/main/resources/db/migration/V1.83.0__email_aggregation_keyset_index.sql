@@ -0,0 +1,2 @@
+-- The engine reads the aggregations of an org, bundle and application with keyset pagination on (created, id).
+CREATE INDEX ix_email_aggregation_keyset ON email_aggregation (org_id, bundle, application, created, id);
@@ -0,0 +1,16 @@
+-- Pre-aggregated daily digest state of each (org, bundle, application). The engine folds each email aggregation into
+-- that state as soon as the aggregation is stored, so that the digest doesn't have to replay all the aggregations.
+-- The state is only used by a digest when it contains exactly the aggregations of the digest period.
+CREATE TABLE email_aggregation_state (
+    org_id VARCHAR(50) NOT NULL,
+    bundle VARCHAR(255) NOT NULL,
+    application VARCHAR(255) NOT NULL,
+    version INTEGER NOT NULL,
+    state TEXT,
+    aggregations_count INTEGER NOT NULL,
+    first_created TIMESTAMP,
+    last_created TIMESTAMP,
+    last_id INTEGER,
+    stale BOOLEAN NOT NULL,
+    CONSTRAINT pk_email_aggregation_state PRIMARY KEY (org_id, bundle, application)
+);
@@ -0,0 +1,11 @@
+-- Runs of the daily aggregation job that are in progress. The row of a run is deleted once all the aggregation commands
+-- of the run have been sent. When the job is restarted after a crash, it resumes the run with the same end time, so
+-- that the commands which were sent before the crash are not sent again with a different period. The interrupted runs
+-- of a previous shard count are moved to each current shard, which may then have several runs to resume, one per end
+-- time.
+CREATE TABLE aggregation_job_run (
+    shard_index INTEGER NOT NULL,
+    shard_count INTEGER NOT NULL,
+    end_time TIMESTAMP NOT NULL,
+    CONSTRAINT pk_aggregation_job_run PRIMARY KEY (shard_index, shard_count, end_time)
+);
@@ -0,0 +1,27 @@
+-- Aggregation commands claimed by the engine. Kafka may deliver an aggregation command again after it was processed,
+-- and the aggregator job may send it again when it resumes an interrupted run. The engine claims each command before
+-- processing it and skips the commands which were already processed or which are being processed by another worker.
+CREATE TABLE aggregation_command_claim (
+    org_id VARCHAR(50) NOT NULL,
+    bundle VARCHAR(255) NOT NULL,
+    application VARCHAR(255) NOT NULL,
+    subscription_type VARCHAR(50) NOT NULL,
+    start_time TIMESTAMP NOT NULL,
+    end_time TIMESTAMP NOT NULL,
+    claimed TIMESTAMP NOT NULL,
+    completed TIMESTAMP,
+    CONSTRAINT pk_aggregation_command_claim PRIMARY KEY (org_id, bundle, application, subscription_type, start_time, end_time)
+);
+
+-- This stored procedure deletes the aggregation command claims that are no longer needed.
+-- It is executed from an OpenShift CronJob.
+CREATE PROCEDURE cleanAggregationCommandClaims() AS $$
+DECLARE
+    deleted INTEGER;
+BEGIN
+    RAISE INFO '% Aggregation command claims purge starting. Entries older than 7 days will be deleted.', NOW();
+    DELETE FROM aggregation_command_claim WHERE claimed < NOW() AT TIME ZONE 'UTC' - INTERVAL '7 days';
+    GET DIAGNOSTICS deleted = ROW_COUNT;
+    RAISE INFO '% Aggregation command claims purge ended. % entries were deleted from the database.', NOW(), deleted;
+END;
+$$ LANGUAGE PLPGSQL;
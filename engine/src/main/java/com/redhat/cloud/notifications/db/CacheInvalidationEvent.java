@@ -0,0 +1,25 @@
+package com.redhat.cloud.notifications.db;
+
+/**
+ * CDI event fired by {@link CacheInvalidationPoller} after a cache was invalidated. It can be observed by the beans
+ * which hold state derived from the cache entries.
+ */
+public class CacheInvalidationEvent {
+
+    private final String cacheName;
+    private final String cacheKey;
+
+    public CacheInvalidationEvent(String cacheName, String cacheKey) {
+        this.cacheName = cacheName;
+        this.cacheKey = cacheKey;
+    }
+
+    public String getCacheName() {
+        return cacheName;
+    }
+
+    // When null, all entries of the cache were invalidated.
+    public String getCacheKey() {
+        return cacheKey;
+    }
+}
@@ -0,0 +1,120 @@
+package com.redhat.cloud.notifications.db;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.cache.CacheManager;
+import io.quarkus.logging.Log;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.control.ActivateRequestContext;
+import javax.enterprise.event.Event;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import static io.quarkus.scheduler.Scheduled.ConcurrentExecution.SKIP;
+
+/**
+ * The backend, and sometimes the engine itself, records a {@link com.redhat.cloud.notifications.models.CacheInvalidation}
+ * whenever it modifies data which may be cached in memory by the engine. This class polls these records and invalidates
+ * the matching caches on the current engine pod.
+ */
+@ApplicationScoped
+public class CacheInvalidationPoller {
+
+    public static final String INVALIDATIONS_COUNTER_NAME = "cache.invalidations";
+    public static final String STALENESS_TIMER_NAME = "cache.invalidation.staleness";
+    private static final ZoneId UTC = ZoneId.of("UTC");
+
+    /*
+     * The IDs and timestamps are set before the transaction is committed, so an invalidation may become visible after
+     * an invalidation with a more recent timestamp. Each poll reads the invalidations of that overlap window again and
+     * skips the ones which were already processed.
+     */
+    @ConfigProperty(name = "notifications.cache-invalidation.overlap", defaultValue = "1M")
+    Duration overlap;
+
+    @Inject
+    EntityManager entityManager;
+
+    @Inject
+    CacheManager cacheManager;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    Event<CacheInvalidationEvent> cacheInvalidationEvent;
+
+    private final Map<Long, LocalDateTime> processedIds = new HashMap<>();
+    private LocalDateTime lastSeenCreated;
+
+    @ActivateRequestContext
+    void onStartup(@Observes StartupEvent event) {
+        // Nothing is cached yet when the pod starts, so the past invalidations can safely be ignored.
+        lastSeenCreated = entityManager.createQuery("SELECT MAX(created) FROM CacheInvalidation", LocalDateTime.class)
+                .getSingleResult();
+        if (lastSeenCreated == null) {
+            lastSeenCreated = LocalDateTime.now(UTC);
+        }
+        for (Object[] invalidation : findInvalidationsSince(lastSeenCreated.minus(overlap))) {
+            processedIds.put((Long) invalidation[0], (LocalDateTime) invalidation[3]);
+        }
+    }
+
+    @Scheduled(every = "${notifications.cache-invalidation.period:10s}", concurrentExecution = SKIP)
+    public synchronized void poll() {
+        LocalDateTime since = lastSeenCreated.minus(overlap);
+        // The oldest unprocessed invalidation of each cache entry.
+        Map<List<String>, LocalDateTime> invalidations = new LinkedHashMap<>();
+        for (Object[] invalidation : findInvalidationsSince(since)) {
+            Long id = (Long) invalidation[0];
+            LocalDateTime created = (LocalDateTime) invalidation[3];
+            if (processedIds.putIfAbsent(id, created) == null) {
+                invalidations.merge(Arrays.asList((String) invalidation[1], (String) invalidation[2]), created,
+                        (oldest, other) -> oldest.isBefore(other) ? oldest : other);
+                if (created.isAfter(lastSeenCreated)) {
+                    lastSeenCreated = created;
+                }
+            }
+        }
+        // The invalidations which can no longer be returned by the query don't need to be remembered.
+        LocalDateTime nextSince = lastSeenCreated.minus(overlap);
+        processedIds.values().removeIf(created -> !created.isAfter(nextSince));
+
+        invalidations.forEach((cacheEntry, oldestInvalidation) -> {
+            String cacheName = cacheEntry.get(0);
+            String cacheKey = cacheEntry.get(1);
+            cacheManager.getCache(cacheName).ifPresentOrElse(cache -> {
+                if (cacheKey == null) {
+                    Log.debugf("Invalidating cache %s", cacheName);
+                    cache.invalidateAll().await().indefinitely();
+                } else {
+                    Log.debugf("Invalidating key %s of cache %s", cacheKey, cacheName);
+                    cache.invalidate(cacheKey).await().indefinitely();
+                }
+                cacheInvalidationEvent.fire(new CacheInvalidationEvent(cacheName, cacheKey));
+                registry.counter(INVALIDATIONS_COUNTER_NAME, "cache", cacheName).increment();
+                // How long the cache entries may have been stale after the data they were built from was modified.
+                registry.timer(STALENESS_TIMER_NAME, "cache", cacheName)
+                        .record(Duration.between(oldestInvalidation, LocalDateTime.now(UTC)));
+            }, () -> Log.warnf("Cache invalidation requested for unknown cache: %s", cacheName));
+        });
+    }
+
+    private List<Object[]> findInvalidationsSince(LocalDateTime since) {
+        return entityManager.createQuery("SELECT id, cacheName, cacheKey, created FROM CacheInvalidation WHERE created > :since", Object[].class)
+                .setParameter("since", since)
+                .getResultList();
+    }
+}
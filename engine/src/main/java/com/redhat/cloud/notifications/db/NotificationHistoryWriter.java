@@ -0,0 +1,206 @@
+package com.redhat.cloud.notifications.db;
+
+import com.redhat.cloud.notifications.config.FeatureFlipper;
+import com.redhat.cloud.notifications.db.repositories.NotificationHistoryRepository;
+import com.redhat.cloud.notifications.models.NotificationHistory;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.logging.Log;
+import io.quarkus.runtime.ShutdownEvent;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * Write-behind sink for the notification history. When the batch mode is enabled, the histories are buffered in
+ * memory and a background thread inserts them with multi-row INSERT statements, either when a full batch is available
+ * or when the oldest buffered history has waited for the configured linger duration. The processors are blocked when
+ * the buffer is full, which prevents the engine from consuming events faster than the history can be written.
+ */
+@ApplicationScoped
+public class NotificationHistoryWriter {
+
+    public static final String BUFFERED_HISTORIES_GAUGE = "notification-history.writer.buffered";
+    public static final String BATCH_TIMER_NAME = "notification-history.writer.batch";
+
+    @ConfigProperty(name = "notifications.history-writer.buffer-size", defaultValue = "1000")
+    int bufferSize;
+
+    @ConfigProperty(name = "notifications.history-writer.batch-size", defaultValue = "100")
+    int batchSize;
+
+    @ConfigProperty(name = "notifications.history-writer.linger", defaultValue = "0.1S")
+    Duration linger;
+
+    @ConfigProperty(name = "notifications.history-writer.await-timeout", defaultValue = "10S")
+    Duration awaitTimeout;
+
+    @Inject
+    NotificationHistoryRepository notificationHistoryRepository;
+
+    @Inject
+    FeatureFlipper featureFlipper;
+
+    @Inject
+    MeterRegistry registry;
+
+    private BlockingQueue<NotificationHistory> buffer;
+    // Histories which were buffered and are not committed yet, including the ones being inserted by the flusher.
+    private final Map<UUID, CompletableFuture<Void>> pendingHistories = new ConcurrentHashMap<>();
+    private ExecutorService flusher;
+    private Timer batchTimer;
+    private volatile boolean running = true;
+
+    @PostConstruct
+    void postConstruct() {
+        buffer = new ArrayBlockingQueue<>(bufferSize);
+        batchTimer = registry.timer(BATCH_TIMER_NAME);
+        registry.gauge(BUFFERED_HISTORIES_GAUGE, pendingHistories, Map::size);
+        flusher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "notification-history-writer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        flusher.submit(this::flushContinuously);
+    }
+
+    /**
+     * Persists the given history, either immediately or asynchronously depending on the configuration. Failures are
+     * only thrown when the history is persisted immediately. Otherwise, they are logged by the background thread.
+     */
+    public void write(NotificationHistory history) {
+        if (!featureFlipper.isHistoryBatchWriterEnabled() || !running) {
+            notificationHistoryRepository.createNotificationHistory(history);
+            return;
+        }
+        pendingHistories.put(history.getId(), new CompletableFuture<>());
+        try {
+            // This call blocks the processor if the buffer is full.
+            buffer.put(history);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            pendingHistories.remove(history.getId()).complete(null);
+            notificationHistoryRepository.createNotificationHistory(history);
+        }
+    }
+
+    /**
+     * Waits until the history identified by the given ID is committed if it is still buffered. This has to be called
+     * before any query that reads or updates a history which may have been written recently.
+     */
+    public void awaitPersisted(UUID historyId) {
+        CompletableFuture<Void> pendingHistory = pendingHistories.get(historyId);
+        if (pendingHistory != null) {
+            try {
+                pendingHistory.get(awaitTimeout.toMillis(), TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } catch (TimeoutException e) {
+                Log.warnf("Timeout while waiting for the history %s to be persisted", historyId);
+            } catch (Exception e) {
+                // Failures are logged by the flusher.
+            }
+        }
+    }
+
+    void onShutdown(@Observes ShutdownEvent event) {
+        running = false;
+        flusher.shutdown();
+        try {
+            if (!flusher.awaitTermination(awaitTimeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                Log.warn("The notification history writer did not terminate in time");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        // Histories may have been buffered while the flusher was terminating.
+        List<NotificationHistory> remaining = new ArrayList<>();
+        buffer.drainTo(remaining);
+        if (!remaining.isEmpty()) {
+            flush(remaining);
+        }
+    }
+
+    private void flushContinuously() {
+        List<NotificationHistory> batch = new ArrayList<>(batchSize);
+        while (running || !buffer.isEmpty()) {
+            try {
+                NotificationHistory first = buffer.poll(linger.toMillis(), TimeUnit.MILLISECONDS);
+                if (first == null) {
+                    continue;
+                }
+                batch.add(first);
+                long deadline = System.nanoTime() + linger.toNanos();
+                while (batch.size() < batchSize && running) {
+                    buffer.drainTo(batch, batchSize - batch.size());
+                    long remaining = deadline - System.nanoTime();
+                    if (batch.size() >= batchSize || remaining <= 0) {
+                        break;
+                    }
+                    NotificationHistory next = buffer.poll(remaining, TimeUnit.NANOSECONDS);
+                    if (next != null) {
+                        batch.add(next);
+                    }
+                }
+                buffer.drainTo(batch, batchSize - batch.size());
+                flush(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (Exception e) {
+                Log.error("Unexpected notification history writer failure", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void flush(List<NotificationHistory> batch) {
+        try {
+            batchTimer.record(() -> writeNow(batch));
+        } finally {
+            for (NotificationHistory history : batch) {
+                CompletableFuture<Void> pendingHistory = pendingHistories.remove(history.getId());
+                if (pendingHistory != null) {
+                    pendingHistory.complete(null);
+                }
+            }
+        }
+    }
+
+    private void writeNow(List<NotificationHistory> histories) {
+        try {
+            if (histories.size() == 1) {
+                notificationHistoryRepository.createNotificationHistory(histories.get(0));
+            } else {
+                notificationHistoryRepository.createNotificationHistories(histories);
+            }
+        } catch (Exception e) {
+            if (histories.size() == 1) {
+                Log.errorf(e, "Notification history creation failed for %s", histories.get(0).getEndpoint());
+            } else {
+                // One invalid history must not prevent the other histories of the batch from being persisted.
+                Log.warn("Batch notification history creation failed, falling back to single inserts", e);
+                for (NotificationHistory history : histories) {
+                    writeNow(List.of(history));
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package com.redhat.cloud.notifications.db.repositories;
+
+import com.redhat.cloud.notifications.models.AggregationCommand;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.Query;
+import javax.transaction.Transactional;
+import java.time.Duration;
+import java.time.LocalDateTime;
+
+import static java.time.ZoneOffset.UTC;
+
+@ApplicationScoped
+public class AggregationCommandClaimRepository {
+
+    @Inject
+    EntityManager entityManager;
+
+    /**
+     * Claims the given command before it is processed. The command can't be claimed if it was already processed, or if
+     * it was claimed less than the given lease ago and is still being processed. An older claim belongs to an engine
+     * pod which stopped while it was processing the command, so it is taken over.
+     * @return true if the command was claimed
+     */
+    @Transactional
+    public boolean claim(AggregationCommand aggregationCommand, Duration lease) {
+        LocalDateTime now = LocalDateTime.now(UTC);
+        String sql = "INSERT INTO aggregation_command_claim (org_id, bundle, application, subscription_type, start_time, end_time, claimed) " +
+                "VALUES (:orgId, :bundleName, :applicationName, :subscriptionType, :start, :end, :now) " +
+                "ON CONFLICT (org_id, bundle, application, subscription_type, start_time, end_time) DO UPDATE SET claimed = :now " +
+                "WHERE aggregation_command_claim.completed IS NULL AND aggregation_command_claim.claimed < :leaseExpiry";
+        // HQL does not support the ON CONFLICT clause so we need a native query here
+        return setCommandParameters(entityManager.createNativeQuery(sql), aggregationCommand)
+                .setParameter("now", now)
+                .setParameter("leaseExpiry", now.minus(lease))
+                .executeUpdate() == 1;
+    }
+
+    /**
+     * Marks the given claimed command as processed, so that it is never processed again.
+     */
+    @Transactional
+    public void complete(AggregationCommand aggregationCommand) {
+        String sql = "UPDATE aggregation_command_claim SET completed = :now " +
+                "WHERE org_id = :orgId AND bundle = :bundleName AND application = :applicationName " +
+                "AND subscription_type = :subscriptionType AND start_time = :start AND end_time = :end";
+        setCommandParameters(entityManager.createNativeQuery(sql), aggregationCommand)
+                .setParameter("now", LocalDateTime.now(UTC))
+                .executeUpdate();
+    }
+
+    /**
+     * Deletes the claim of the given command if it wasn't processed, so that the command can be processed again when
+     * it is delivered again.
+     */
+    @Transactional
+    public void release(AggregationCommand aggregationCommand) {
+        String sql = "DELETE FROM aggregation_command_claim " +
+                "WHERE org_id = :orgId AND bundle = :bundleName AND application = :applicationName " +
+                "AND subscription_type = :subscriptionType AND start_time = :start AND end_time = :end AND completed IS NULL";
+        setCommandParameters(entityManager.createNativeQuery(sql), aggregationCommand)
+                .executeUpdate();
+    }
+
+    private static Query setCommandParameters(Query query, AggregationCommand aggregationCommand) {
+        return query
+                .setParameter("orgId", aggregationCommand.getAggregationKey().getOrgId())
+                .setParameter("bundleName", aggregationCommand.getAggregationKey().getBundle())
+                .setParameter("applicationName", aggregationCommand.getAggregationKey().getApplication())
+                .setParameter("subscriptionType", aggregationCommand.getSubscriptionType().name())
+                .setParameter("start", aggregationCommand.getStart())
+                .setParameter("end", aggregationCommand.getEnd());
+    }
+}
@@ -7,10 +7,13 @@ import io.quarkus.logging.Log;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
+import javax.persistence.TypedQuery;
 import javax.transaction.Transactional;
 import java.time.LocalDateTime;
 import java.util.List;
 
+import static org.hibernate.annotations.QueryHints.READ_ONLY;
+
 @ApplicationScoped
 public class EmailAggregationRepository {
 
@@ -28,17 +31,45 @@ public class EmailAggregationRepository {
         }
     }
 
-    public List<EmailAggregation> getEmailAggregation(EmailAggregationKey key, LocalDateTime start, LocalDateTime end, int firstResultIndex, int maxResults) {
-        String query = "FROM EmailAggregation WHERE orgId = :orgId AND bundleName = :bundleName AND applicationName = :applicationName AND created > :start AND created <= :end ORDER BY created";
-        return entityManager.createQuery(query, EmailAggregation.class)
+    /**
+     * Returns a page of the aggregations that match the given key, ordered by creation date and ID. The pages are
+     * retrieved with keyset pagination: the next page starts right after the last aggregation of the previous page, so
+     * the DB never scans the rows of the previous pages. The returned aggregations are detached from the persistence
+     * context and can be garbage collected as soon as the caller is done with them.
+     * @param after the last aggregation of the previous page or {@code null} to retrieve the first page
+     */
+    public List<EmailAggregation> getEmailAggregation(EmailAggregationKey key, LocalDateTime start, LocalDateTime end, EmailAggregation after, int maxResults) {
+        String query = "FROM EmailAggregation WHERE orgId = :orgId AND bundleName = :bundleName AND applicationName = :applicationName AND created > :start AND created <= :end";
+        if (after != null) {
+            query += " AND (created > :afterCreated OR (created = :afterCreated AND id > :afterId))";
+        }
+        query += " ORDER BY created, id";
+        TypedQuery<EmailAggregation> typedQuery = entityManager.createQuery(query, EmailAggregation.class)
+                .setParameter("orgId", key.getOrgId())
+                .setParameter("bundleName", key.getBundle())
+                .setParameter("applicationName", key.getApplication())
+                .setParameter("start", start)
+                .setParameter("end", end)
+                .setHint(READ_ONLY, true)
+                .setMaxResults(maxResults);
+        if (after != null) {
+            typedQuery.setParameter("afterCreated", after.getCreated())
+                    .setParameter("afterId", after.getId());
+        }
+        List<EmailAggregation> aggregations = typedQuery.getResultList();
+        aggregations.forEach(entityManager::detach);
+        return aggregations;
+    }
+
+    public long countEmailAggregation(EmailAggregationKey key, LocalDateTime start, LocalDateTime end) {
+        String query = "SELECT COUNT(*) FROM EmailAggregation WHERE orgId = :orgId AND bundleName = :bundleName AND applicationName = :applicationName AND created > :start AND created <= :end";
+        return entityManager.createQuery(query, Long.class)
                 .setParameter("orgId", key.getOrgId())
                 .setParameter("bundleName", key.getBundle())
                 .setParameter("applicationName", key.getApplication())
                 .setParameter("start", start)
                 .setParameter("end", end)
-                .setFirstResult(firstResultIndex)
-                .setMaxResults(maxResults)
-                .getResultList();
+                .getSingleResult();
     }
 
     @Transactional
@@ -0,0 +1,57 @@
+package com.redhat.cloud.notifications.db.repositories;
+
+import com.redhat.cloud.notifications.models.EmailAggregationKey;
+import com.redhat.cloud.notifications.models.EmailAggregationState;
+import com.redhat.cloud.notifications.models.EmailAggregationStateId;
+import org.hibernate.LockOptions;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import java.util.Optional;
+
+import static javax.persistence.LockModeType.PESSIMISTIC_WRITE;
+
+@ApplicationScoped
+public class EmailAggregationStateRepository {
+
+    @Inject
+    EntityManager entityManager;
+
+    /**
+     * Returns the state of the given key, which is created if it does not exist yet. The state is locked with a
+     * "SELECT FOR UPDATE" until the end of the current transaction, so that the aggregations are folded into it one
+     * batch at a time. The modifications of the returned state are saved when the transaction is committed.
+     */
+    public EmailAggregationState lock(EmailAggregationKey key, int version) {
+        insertIfAbsent(key, version);
+        return entityManager.find(EmailAggregationState.class, new EmailAggregationStateId(key), PESSIMISTIC_WRITE);
+    }
+
+    /**
+     * Same as {@link #lock(EmailAggregationKey, int)}, except that nothing is returned if the state is already locked
+     * by another transaction.
+     */
+    public Optional<EmailAggregationState> tryLock(EmailAggregationKey key, int version) {
+        insertIfAbsent(key, version);
+        return entityManager.createQuery("FROM EmailAggregationState WHERE id = :id", EmailAggregationState.class)
+                .setParameter("id", new EmailAggregationStateId(key))
+                .setLockMode(PESSIMISTIC_WRITE)
+                .setHint("javax.persistence.lock.timeout", LockOptions.SKIP_LOCKED)
+                .getResultStream()
+                .findFirst();
+    }
+
+    private void insertIfAbsent(EmailAggregationKey key, int version) {
+        String sql = "INSERT INTO email_aggregation_state (org_id, bundle, application, version, aggregations_count, stale) " +
+                "VALUES (:orgId, :bundleName, :applicationName, :version, 0, false) " +
+                "ON CONFLICT (org_id, bundle, application) DO NOTHING";
+        // HQL does not support the ON CONFLICT clause so we need a native query here
+        entityManager.createNativeQuery(sql)
+                .setParameter("orgId", key.getOrgId())
+                .setParameter("bundleName", key.getBundle())
+                .setParameter("applicationName", key.getApplication())
+                .setParameter("version", version)
+                .executeUpdate();
+    }
+}
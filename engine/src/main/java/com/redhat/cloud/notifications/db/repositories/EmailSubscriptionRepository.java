@@ -1,77 +1,131 @@
 package com.redhat.cloud.notifications.db.repositories;
 
+import com.redhat.cloud.notifications.config.FeatureFlipper;
+import com.redhat.cloud.notifications.db.CacheInvalidationEvent;
 import com.redhat.cloud.notifications.models.EmailSubscriptionType;
+import io.quarkus.cache.Cache;
+import io.quarkus.cache.CacheName;
+import io.quarkus.cache.CaffeineCache;
 
 import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.UUID;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
+import static com.redhat.cloud.notifications.models.CacheInvalidation.EMAIL_SUBSCRIBERS_CACHE_NAME;
+
+/*
+ * The subscribers are queried for each email or drawer event and for each aggregation, while they only change when
+ * the users save their preferences. When the cache is enabled, the backend records a cache invalidation keyed by org
+ * ID for each preferences change and all the subscribers of that org are evicted from the cache. The cached values
+ * are immutable because they are shared by all callers.
+ */
 @ApplicationScoped
 public class EmailSubscriptionRepository {
 
     @Inject
     EntityManager entityManager;
 
+    @Inject
+    FeatureFlipper featureFlipper;
+
+    @CacheName(EMAIL_SUBSCRIBERS_CACHE_NAME)
+    Cache subscribersCache;
+
+    void onCacheInvalidation(@Observes CacheInvalidationEvent event) {
+        // The invalidations with a null key are handled by CacheInvalidationPoller.
+        if (EMAIL_SUBSCRIBERS_CACHE_NAME.equals(event.getCacheName()) && event.getCacheKey() != null) {
+            for (Object key : subscribersCache.as(CaffeineCache.class).keySet()) {
+                if (Objects.equals(((SubscribersKey) key).orgId(), event.getCacheKey())) {
+                    subscribersCache.invalidate(key).await().indefinitely();
+                }
+            }
+        }
+    }
+
+    private <T> T getSubscribers(SubscribersKey key, Supplier<T> loader) {
+        if (featureFlipper.isEmailSubscribersCacheEnabled()) {
+            return subscribersCache.get(key, ignored -> loader.get()).await().indefinitely();
+        } else {
+            return loader.get();
+        }
+    }
+
     public List<String> getEmailSubscribersUserId(String orgId, String bundleName, String applicationName, EmailSubscriptionType subscriptionType) {
-        String query = "SELECT es.id.userId FROM EmailSubscription es WHERE id.orgId = :orgId AND application.bundle.name = :bundleName " +
-                "AND application.name = :applicationName AND id.subscriptionType = :subscriptionType";
-        return entityManager.createQuery(query, String.class)
-                .setParameter("orgId", orgId)
-                .setParameter("bundleName", bundleName)
-                .setParameter("applicationName", applicationName)
-                .setParameter("subscriptionType", subscriptionType)
-                .getResultList();
+        SubscribersKey key = new SubscribersKey(orgId, "application-name", List.of(bundleName, applicationName), subscriptionType);
+        return getSubscribers(key, () -> {
+            String query = "SELECT es.id.userId FROM EmailSubscription es WHERE id.orgId = :orgId AND application.bundle.name = :bundleName " +
+                    "AND application.name = :applicationName AND id.subscriptionType = :subscriptionType";
+            return List.copyOf(entityManager.createQuery(query, String.class)
+                    .setParameter("orgId", orgId)
+                    .setParameter("bundleName", bundleName)
+                    .setParameter("applicationName", applicationName)
+                    .setParameter("subscriptionType", subscriptionType)
+                    .getResultList());
+        });
     }
 
     public List<String> getSubscribersByApplication(String orgId, UUID applicationId, EmailSubscriptionType subscriptionType) {
-        String hql = "SELECT id.userId FROM EmailSubscription WHERE id.orgId = :orgId AND id.subscriptionType = :subscriptionType " +
-                "AND application.id = :applicationId";
-        return entityManager.createQuery(hql, String.class)
-                .setParameter("orgId", orgId)
-                .setParameter("subscriptionType", subscriptionType)
-                .setParameter("applicationId", applicationId)
-                .getResultList();
+        SubscribersKey key = new SubscribersKey(orgId, "application", applicationId, subscriptionType);
+        return getSubscribers(key, () -> {
+            String hql = "SELECT id.userId FROM EmailSubscription WHERE id.orgId = :orgId AND id.subscriptionType = :subscriptionType " +
+                    "AND application.id = :applicationId";
+            return List.copyOf(entityManager.createQuery(hql, String.class)
+                    .setParameter("orgId", orgId)
+                    .setParameter("subscriptionType", subscriptionType)
+                    .setParameter("applicationId", applicationId)
+                    .getResultList());
+        });
     }
 
     public List<String> getSubscribersByEventType(String orgId, UUID eventTypeId, EmailSubscriptionType subscriptionType) {
-        String hql = "SELECT id.userId FROM EventTypeEmailSubscription WHERE id.orgId = :orgId AND id.subscriptionType = :subscriptionType " +
-                "AND eventType.id = :eventTypeId";
-        return entityManager.createQuery(hql, String.class)
+        SubscribersKey key = new SubscribersKey(orgId, "event-type", eventTypeId, subscriptionType);
+        return getSubscribers(key, () -> {
+            String hql = "SELECT id.userId FROM EventTypeEmailSubscription WHERE id.orgId = :orgId AND id.subscriptionType = :subscriptionType " +
+                    "AND eventType.id = :eventTypeId";
+            return List.copyOf(entityManager.createQuery(hql, String.class)
+                    .setParameter("orgId", orgId)
+                    .setParameter("subscriptionType", subscriptionType)
+                    .setParameter("eventTypeId", eventTypeId)
+                    .getResultList());
+        });
+    }
+
+    public Map<String, Set<String>> getEmailSubscribersUserIdGroupedByEventType(String orgId, String bundleName, String applicationName, EmailSubscriptionType subscriptionType) {
+        SubscribersKey key = new SubscribersKey(orgId, "event-types-by-application-name", List.of(bundleName, applicationName), subscriptionType);
+        return getSubscribers(key, () -> {
+            String query = "SELECT eventType.name, es.id.userId FROM EventTypeEmailSubscription es WHERE id.orgId = :orgId AND eventType.application.bundle.name = :bundleName " +
+                "AND eventType.application.name = :applicationName AND id.subscriptionType = :subscriptionType";
+
+            List<Object[]> records = entityManager.createQuery(query)
                 .setParameter("orgId", orgId)
+                .setParameter("bundleName", bundleName)
+                .setParameter("applicationName", applicationName)
                 .setParameter("subscriptionType", subscriptionType)
-                .setParameter("eventTypeId", eventTypeId)
                 .getResultList();
-    }
 
-    public Map<String, Set<String>> getEmailSubscribersUserIdGroupedByEventType(String orgId, String bundleName, String applicationName, EmailSubscriptionType subscriptionType) {
-        String query = "SELECT eventType.name, es.id.userId FROM EventTypeEmailSubscription es WHERE id.orgId = :orgId AND eventType.application.bundle.name = :bundleName " +
-            "AND eventType.application.name = :applicationName AND id.subscriptionType = :subscriptionType";
-
-        List<Object[]> records = entityManager.createQuery(query)
-            .setParameter("orgId", orgId)
-            .setParameter("bundleName", bundleName)
-            .setParameter("applicationName", applicationName)
-            .setParameter("subscriptionType", subscriptionType)
-            .getResultList();
-
-        // group userIds by eventType name
-        Map<String, Set<String>> map = records
-            .stream()
-            .collect(
-                Collectors.groupingBy(elt -> (String) elt[0],
-                    Collectors.mapping(
-                        elt -> (String)  elt[1],
-                        Collectors.toSet()
+            // group userIds by eventType name
+            Map<String, Set<String>> map = records
+                .stream()
+                .collect(
+                    Collectors.groupingBy(elt -> (String) elt[0],
+                        Collectors.mapping(
+                            elt -> (String)  elt[1],
+                            Collectors.toUnmodifiableSet()
+                        )
                     )
-                )
-            );
-        return map;
+                );
+            return Map.copyOf(map);
+        });
     }
 
-
+    // The target is the ID or the bundle and application names of the application or the event type.
+    private record SubscribersKey(String orgId, String query, Object target, EmailSubscriptionType subscriptionType) { }
 }
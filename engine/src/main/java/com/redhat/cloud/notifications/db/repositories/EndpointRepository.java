@@ -1,5 +1,8 @@
 package com.redhat.cloud.notifications.db.repositories;
 
+import com.redhat.cloud.notifications.db.CacheInvalidationEvent;
+import com.redhat.cloud.notifications.models.BasicAuthentication;
+import com.redhat.cloud.notifications.models.CacheInvalidation;
 import com.redhat.cloud.notifications.models.CamelProperties;
 import com.redhat.cloud.notifications.models.Endpoint;
 import com.redhat.cloud.notifications.models.EndpointProperties;
@@ -7,22 +10,30 @@ import com.redhat.cloud.notifications.models.EndpointType;
 import com.redhat.cloud.notifications.models.EventType;
 import com.redhat.cloud.notifications.models.SystemSubscriptionProperties;
 import com.redhat.cloud.notifications.models.WebhookProperties;
+import io.quarkus.cache.Cache;
+import io.quarkus.cache.CacheName;
+import io.quarkus.cache.CaffeineCache;
 import io.quarkus.logging.Log;
 
 import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
 import javax.transaction.Transactional;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import java.util.function.Function;
 import java.util.stream.Collectors;
 
+import static com.redhat.cloud.notifications.models.CacheInvalidation.TARGET_ENDPOINTS_CACHE_NAME;
 import static com.redhat.cloud.notifications.models.EndpointStatus.READY;
 import static com.redhat.cloud.notifications.models.EndpointType.ANSIBLE;
 import static com.redhat.cloud.notifications.models.EndpointType.CAMEL;
@@ -37,6 +48,9 @@ public class EndpointRepository {
     @Inject
     EntityManager entityManager;
 
+    @CacheName(TARGET_ENDPOINTS_CACHE_NAME)
+    Cache targetEndpointsCache;
+
     /**
      * The purpose of this method is to find or create an EMAIL_SUBSCRIPTION or DRAWER endpoint with empty properties. This
      * endpoint is used to aggregate and store in the DB the email or drawer actions outcome, which will be used later by the
@@ -82,7 +96,30 @@ public class EndpointRepository {
         return endpoint;
     }
 
+    /*
+     * The target endpoints, including their properties, are cached per org ID and event type. The backend records a
+     * cache invalidation keyed by org ID when the behavior groups or the endpoints of an org are modified, and all the
+     * target endpoints of that org are evicted from the cache. The engine does the same when it disables an endpoint.
+     * The cached endpoints are never returned to the callers, which receive copies they can modify.
+     */
     public List<Endpoint> getTargetEndpoints(String orgId, EventType eventType) {
+        TargetEndpointsKey key = new TargetEndpointsKey(orgId, eventType.getId());
+        List<Endpoint> endpoints = targetEndpointsCache.get(key, ignored -> loadTargetEndpoints(orgId, eventType)).await().indefinitely();
+        return endpoints.stream().map(EndpointRepository::copy).collect(Collectors.toList());
+    }
+
+    void onCacheInvalidation(@Observes CacheInvalidationEvent event) {
+        // The invalidations with a null key are handled by CacheInvalidationPoller.
+        if (TARGET_ENDPOINTS_CACHE_NAME.equals(event.getCacheName()) && event.getCacheKey() != null) {
+            for (Object key : targetEndpointsCache.as(CaffeineCache.class).keySet()) {
+                if (Objects.equals(((TargetEndpointsKey) key).orgId(), event.getCacheKey())) {
+                    targetEndpointsCache.invalidate(key).await().indefinitely();
+                }
+            }
+        }
+    }
+
+    private List<Endpoint> loadTargetEndpoints(String orgId, EventType eventType) {
         String query = "SELECT DISTINCT e FROM Endpoint e JOIN e.behaviorGroupActions bga JOIN bga.behaviorGroup.behaviors b " +
                 "WHERE e.enabled IS TRUE AND e.status = :status AND b.eventType = :eventType " +
                 "AND (bga.behaviorGroup.orgId = :orgId OR bga.behaviorGroup.orgId IS NULL)";
@@ -93,16 +130,85 @@ public class EndpointRepository {
                 .setParameter("orgId", orgId)
                 .getResultList();
         loadProperties(endpoints);
+        List<Endpoint> result = new ArrayList<>();
         for (Endpoint endpoint : endpoints) {
-            if (endpoint.getOrgId() == null) {
-                if (endpoint.getType() != null && endpoint.getType().isSystemEndpointType) {
-                    endpoint.setOrgId(orgId);
+            Endpoint copy = copy(endpoint);
+            if (copy.getOrgId() == null) {
+                if (copy.getType() != null && copy.getType().isSystemEndpointType) {
+                    copy.setOrgId(orgId);
                 } else {
-                    Log.warnf("Invalid endpoint configured in default behavior group: %s", endpoint.getId());
+                    Log.warnf("Invalid endpoint configured in default behavior group: %s", copy.getId());
                 }
             }
+            result.add(copy);
         }
-        return endpoints;
+        return List.copyOf(result);
+    }
+
+    /*
+     * Copies the endpoint and its properties, without the associations which are not loaded. The copy is not managed
+     * by the persistence context.
+     */
+    private static Endpoint copy(Endpoint endpoint) {
+        Endpoint copy = new Endpoint();
+        copy.setId(endpoint.getId());
+        copy.setAccountId(endpoint.getAccountId());
+        copy.setOrgId(endpoint.getOrgId());
+        copy.setName(endpoint.getName());
+        copy.setDescription(endpoint.getDescription());
+        copy.setEnabled(endpoint.isEnabled());
+        copy.setStatus(endpoint.getStatus());
+        copy.setType(endpoint.getType());
+        copy.setSubType(endpoint.getSubType());
+        copy.setServerErrors(endpoint.getServerErrors());
+        copy.setCreated(endpoint.getCreated());
+        copy.setUpdated(endpoint.getUpdated());
+        if (endpoint.getProperties() != null) {
+            EndpointProperties properties = copy(endpoint.getProperties());
+            properties.setId(endpoint.getProperties().getId());
+            properties.setEndpoint(copy);
+            copy.setProperties(properties);
+        }
+        return copy;
+    }
+
+    private static EndpointProperties copy(EndpointProperties properties) {
+        if (properties instanceof WebhookProperties webhookProperties) {
+            WebhookProperties copy = new WebhookProperties();
+            copy.setUrl(webhookProperties.getUrl());
+            copy.setMethod(webhookProperties.getMethod());
+            copy.setDisableSslVerification(webhookProperties.getDisableSslVerification());
+            copy.setSecretToken(webhookProperties.getSecretToken());
+            copy.setSecretTokenSourcesId(webhookProperties.getSecretTokenSourcesId());
+            copy.setBasicAuthentication(copy(webhookProperties.getBasicAuthentication()));
+            copy.setBasicAuthenticationSourcesId(webhookProperties.getBasicAuthenticationSourcesId());
+            return copy;
+        } else if (properties instanceof CamelProperties camelProperties) {
+            CamelProperties copy = new CamelProperties();
+            copy.setUrl(camelProperties.getUrl());
+            copy.setDisableSslVerification(camelProperties.getDisableSslVerification());
+            copy.setSecretToken(camelProperties.getSecretToken());
+            copy.setSecretTokenSourcesId(camelProperties.getSecretTokenSourcesId());
+            copy.setBasicAuthentication(copy(camelProperties.getBasicAuthentication()));
+            copy.setBasicAuthenticationSourcesId(camelProperties.getBasicAuthenticationSourcesId());
+            copy.setExtras(camelProperties.getExtras() == null ? null : new HashMap<>(camelProperties.getExtras()));
+            return copy;
+        } else if (properties instanceof SystemSubscriptionProperties systemSubscriptionProperties) {
+            SystemSubscriptionProperties copy = new SystemSubscriptionProperties();
+            copy.setOnlyAdmins(systemSubscriptionProperties.isOnlyAdmins());
+            copy.setIgnorePreferences(systemSubscriptionProperties.isIgnorePreferences());
+            copy.setGroupId(systemSubscriptionProperties.getGroupId());
+            return copy;
+        } else {
+            throw new IllegalStateException("Unexpected endpoint properties type: " + properties.getClass().getName());
+        }
+    }
+
+    private static BasicAuthentication copy(BasicAuthentication basicAuthentication) {
+        if (basicAuthentication == null) {
+            return null;
+        }
+        return new BasicAuthentication(basicAuthentication.getUsername(), basicAuthentication.getPassword());
     }
 
     public List<Endpoint> getTargetEmailSubscriptionEndpoints(String orgId, String bundleName, String applicationName, String eventTypeName) {
@@ -149,6 +255,9 @@ public class EndpointRepository {
                 int updated = entityManager.createQuery(hql)
                         .setParameter("id", endpointId)
                         .executeUpdate();
+                if (updated > 0) {
+                    invalidateTargetEndpoints(endpointId);
+                }
                 return updated > 0;
             } else {
                 /*
@@ -166,6 +275,40 @@ public class EndpointRepository {
         }
     }
 
+    /**
+     * Adds the given number of server errors to the counter of the endpoint identified by the given ID. Unlike
+     * {@link #incrementEndpointServerErrors(UUID, int)}, this method does not lock the endpoint with a
+     * "SELECT FOR UPDATE". It relies on conditional updates instead, which are atomic from a DB perspective.
+     * @param endpointId the endpoint ID
+     * @param serverErrors the number of server errors to add to the counter
+     * @param maxServerErrors the maximum server errors allowed from the configuration
+     * @return {@code true} if the endpoint was disabled by this method, {@code false} otherwise
+     */
+    @Transactional
+    public boolean addEndpointServerErrors(UUID endpointId, int serverErrors, int maxServerErrors) {
+        /*
+         * Only one thread or pod can disable the endpoint thanks to the "enabled IS TRUE" condition, so only one
+         * email notification will be sent about the disabled endpoint.
+         */
+        String hql = "UPDATE Endpoint SET enabled = FALSE WHERE id = :id AND enabled IS TRUE AND serverErrors + :serverErrors > :maxServerErrors";
+        int disabled = entityManager.createQuery(hql)
+                .setParameter("id", endpointId)
+                .setParameter("serverErrors", serverErrors)
+                .setParameter("maxServerErrors", maxServerErrors)
+                .executeUpdate();
+        if (disabled > 0) {
+            invalidateTargetEndpoints(endpointId);
+            return true;
+        } else {
+            hql = "UPDATE Endpoint SET serverErrors = serverErrors + :serverErrors WHERE id = :id AND enabled IS TRUE";
+            entityManager.createQuery(hql)
+                    .setParameter("id", endpointId)
+                    .setParameter("serverErrors", serverErrors)
+                    .executeUpdate();
+            return false;
+        }
+    }
+
     /**
      * Gets the endpoint by its UUID and OrgId along with its associated properties.
      * @param endpointUuid the UUID of the endpoint.
@@ -247,9 +390,24 @@ public class EndpointRepository {
         int updated = entityManager.createQuery(hql)
                 .setParameter("id", endpointId)
                 .executeUpdate();
+        if (updated > 0) {
+            invalidateTargetEndpoints(endpointId);
+        }
         return updated > 0;
     }
 
+    /*
+     * The disabled endpoint has to be removed from the target endpoints cache of all engine pods. The invalidation
+     * is persisted in the current transaction and will be processed by CacheInvalidationPoller on each pod. An
+     * endpoint without org ID can be used by the default behavior groups of all orgs.
+     */
+    private void invalidateTargetEndpoints(UUID endpointId) {
+        String orgId = entityManager.createQuery("SELECT orgId FROM Endpoint WHERE id = :id", String.class)
+                .setParameter("id", endpointId)
+                .getSingleResult();
+        entityManager.persist(new CacheInvalidation(TARGET_ENDPOINTS_CACHE_NAME, orgId));
+    }
+
     private void loadProperties(List<Endpoint> endpoints) {
         if (!endpoints.isEmpty()) {
             // Group endpoints in types and load in batches for each type.
@@ -282,4 +440,7 @@ public class EndpointRepository {
             }
         }
     }
+
+    private record TargetEndpointsKey(String orgId, UUID eventTypeId) {
+    }
 }
@@ -1,6 +1,7 @@
 package com.redhat.cloud.notifications.db.repositories;
 
 import com.redhat.cloud.notifications.models.Event;
+import org.hibernate.Session;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
@@ -26,6 +27,21 @@ public class EventRepository {
         return event;
     }
 
+    /**
+     * Persists all given events in a single transaction. The JDBC batch size of the underlying session is raised
+     * so that all insertions are sent to the DB in as few round-trips as possible when the transaction is committed.
+     * @param events the events to persist
+     */
+    @Transactional
+    public void createAll(List<Event> events) {
+        if (!events.isEmpty()) {
+            entityManager.unwrap(Session.class).setJdbcBatchSize(events.size());
+            for (Event event : events) {
+                entityManager.persist(event);
+            }
+        }
+    }
+
     /**
      * Finds the events related to the provided org id in order to export them.
      * It is the caller's responsibility to provide valid "from" and "to"
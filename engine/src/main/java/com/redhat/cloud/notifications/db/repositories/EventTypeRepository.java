@@ -4,10 +4,15 @@ import com.redhat.cloud.notifications.models.EventType;
 import com.redhat.cloud.notifications.models.EventTypeKey;
 import com.redhat.cloud.notifications.models.EventTypeKeyBundleAppEventTriplet;
 import com.redhat.cloud.notifications.models.EventTypeKeyFqn;
+import io.quarkus.cache.CacheResult;
 
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
+import javax.persistence.NoResultException;
+import java.util.Optional;
+
+import static com.redhat.cloud.notifications.models.CacheInvalidation.EVENT_TYPES_CACHE_NAME;
 
 @ApplicationScoped
 public class EventTypeRepository {
@@ -15,12 +20,33 @@ public class EventTypeRepository {
     @Inject
     EntityManager entityManager;
 
+    /**
+     * Returns the event type identified by the given key.
+     * @param eventTypeKey the event type key
+     * @return the event type with its application and bundle
+     * @throws NoResultException if the event type does not exist
+     */
     public EventType getEventType(EventTypeKey eventTypeKey) {
-        if (eventTypeKey instanceof EventTypeKeyBundleAppEventTriplet) {
-            EventTypeKeyBundleAppEventTriplet triplet = (EventTypeKeyBundleAppEventTriplet) eventTypeKey;
-            return getEventType(triplet.getBundle(), triplet.getApplication(), triplet.getEventType());
-        } else if (eventTypeKey instanceof EventTypeKeyFqn) {
-            return getEventType(((EventTypeKeyFqn) eventTypeKey).getFullyQualifiedName());
+        return findEventType(eventTypeKey)
+                .orElseThrow(() -> new NoResultException("Event type not found: " + eventTypeKey));
+    }
+
+    /*
+     * The result of this method is cached, including when the event type does not exist. That way, an application
+     * which keeps sending unknown event types won't cause a DB query for each event. The cache is invalidated by
+     * CacheInvalidationPoller when the backend modifies a bundle, an application or an event type.
+     */
+    @CacheResult(cacheName = EVENT_TYPES_CACHE_NAME)
+    public Optional<EventType> findEventType(EventTypeKey eventTypeKey) {
+        try {
+            if (eventTypeKey instanceof EventTypeKeyBundleAppEventTriplet) {
+                EventTypeKeyBundleAppEventTriplet triplet = (EventTypeKeyBundleAppEventTriplet) eventTypeKey;
+                return Optional.of(getEventType(triplet.getBundle(), triplet.getApplication(), triplet.getEventType()));
+            } else if (eventTypeKey instanceof EventTypeKeyFqn) {
+                return Optional.of(getEventType(((EventTypeKeyFqn) eventTypeKey).getFullyQualifiedName()));
+            }
+        } catch (NoResultException e) {
+            return Optional.empty();
         }
 
         throw new IllegalArgumentException("Unsupported EventTypeKey found: " + eventTypeKey.getClass());
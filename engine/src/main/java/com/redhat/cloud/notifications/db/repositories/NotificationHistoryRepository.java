@@ -9,7 +9,11 @@ import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
+import javax.persistence.Query;
 import javax.transaction.Transactional;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
 import java.util.UUID;
 
 @ApplicationScoped
@@ -43,6 +47,52 @@ public class NotificationHistoryRepository {
                 .executeUpdate();
     }
 
+    /**
+     * Inserts the given histories with a single multi-row INSERT statement.
+     * @see #createNotificationHistory(NotificationHistory)
+     */
+    @Transactional
+    public void createNotificationHistories(List<NotificationHistory> histories) {
+        if (histories.isEmpty()) {
+            return;
+        }
+        StringBuilder sql = new StringBuilder("INSERT INTO notification_history (id, invocation_time, invocation_result, status, details, event_id, endpoint_type_v2, endpoint_sub_type, created, endpoint_id) VALUES ");
+        for (int i = 0; i < histories.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append("(:id").append(i)
+                    .append(", :invocationTime").append(i)
+                    .append(", :invocationResult").append(i)
+                    .append(", :status").append(i)
+                    .append(", :details").append(i)
+                    .append(", :eventId").append(i)
+                    .append(", :endpointType").append(i)
+                    .append(", :endpointSubType").append(i)
+                    .append(", :created").append(i)
+                    // Same subquery as in createNotificationHistory, the endpoint may have been deleted.
+                    .append(", (SELECT id FROM endpoints WHERE id = :endpointId").append(i).append("))");
+        }
+
+        NotificationHistoryDetailsConverter detailsConverter = new NotificationHistoryDetailsConverter();
+        Query query = entityManager.createNativeQuery(sql.toString());
+        for (int i = 0; i < histories.size(); i++) {
+            NotificationHistory history = histories.get(i);
+            history.prePersist();
+            query.setParameter("id" + i, history.getId())
+                    .setParameter("invocationTime" + i, history.getInvocationTime())
+                    .setParameter("invocationResult" + i, history.isInvocationResult())
+                    .setParameter("status" + i, history.getStatus().toString())
+                    .setParameter("details" + i, detailsConverter.convertToDatabaseColumn(history.getDetails()))
+                    .setParameter("eventId" + i, history.getEvent().getId())
+                    .setParameter("endpointType" + i, history.getEndpointType().name())
+                    .setParameter("endpointSubType" + i, history.getEndpointSubType())
+                    .setParameter("created" + i, history.getCreated())
+                    .setParameter("endpointId" + i, history.getEndpoint().getId());
+        }
+        query.executeUpdate();
+    }
+
     /**
      * Update a stub history item with data we have received from the Camel sender
      *
@@ -63,6 +113,49 @@ public class NotificationHistoryRepository {
         return count > 0;
     }
 
+    /**
+     * Bulk alternative to {@link #updateHistoryItem(NotificationHistory)} which updates all given history items with
+     * a single {@code UPDATE ... FROM (VALUES ...)} statement.
+     * @return the IDs of the history items that were found and updated
+     */
+    @Transactional
+    public Set<UUID> updateHistoryItems(List<NotificationHistory> notificationHistories) {
+        Set<UUID> updatedIds = new HashSet<>();
+        if (notificationHistories.isEmpty()) {
+            return updatedIds;
+        }
+        StringBuilder sql = new StringBuilder("UPDATE notification_history AS h " +
+                "SET details = v.details, invocation_result = v.invocation_result, status = v.status, invocation_time = v.invocation_time " +
+                "FROM (VALUES ");
+        for (int i = 0; i < notificationHistories.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append("(:id").append(i)
+                    .append(", :details").append(i)
+                    .append(", :result").append(i)
+                    .append(", :status").append(i)
+                    .append(", CAST(:invocationTime").append(i).append(" AS INTEGER))");
+        }
+        // The IDs are cast to strings because Hibernate has no dialect mapping for the native UUID type.
+        sql.append(") AS v (id, details, invocation_result, status, invocation_time) WHERE h.id = v.id RETURNING CAST(h.id AS VARCHAR)");
+
+        NotificationHistoryDetailsConverter detailsConverter = new NotificationHistoryDetailsConverter();
+        Query query = entityManager.createNativeQuery(sql.toString());
+        for (int i = 0; i < notificationHistories.size(); i++) {
+            NotificationHistory history = notificationHistories.get(i);
+            query.setParameter("id" + i, history.getId())
+                    .setParameter("details" + i, detailsConverter.convertToDatabaseColumn(history.getDetails()))
+                    .setParameter("result" + i, history.isInvocationResult())
+                    .setParameter("status" + i, history.getStatus().toString())
+                    .setParameter("invocationTime" + i, history.getInvocationTime());
+        }
+        for (Object updatedId : query.getResultList()) {
+            updatedIds.add(UUID.fromString((String) updatedId));
+        }
+        return updatedIds;
+    }
+
     public Endpoint getEndpointForHistoryId(String historyId) {
 
         String query = "SELECT e from Endpoint e, NotificationHistory h WHERE h.id = :id AND e.id = h.endpoint.id";
@@ -1,14 +1,19 @@
 package com.redhat.cloud.notifications.db.repositories;
 
 import com.redhat.cloud.notifications.config.FeatureFlipper;
+import com.redhat.cloud.notifications.db.CacheInvalidationEvent;
 import com.redhat.cloud.notifications.models.AggregationEmailTemplate;
 import com.redhat.cloud.notifications.models.EmailSubscriptionType;
 import com.redhat.cloud.notifications.models.InstantEmailTemplate;
 import com.redhat.cloud.notifications.models.IntegrationTemplate;
 import com.redhat.cloud.notifications.models.Template;
+import io.quarkus.cache.Cache;
+import io.quarkus.cache.CacheName;
+import io.quarkus.cache.CacheResult;
 import io.quarkus.logging.Log;
 
 import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
 import javax.persistence.NoResultException;
@@ -20,6 +25,16 @@ import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
+import static com.redhat.cloud.notifications.models.CacheInvalidation.COMPILED_TEMPLATES_CACHE_NAME;
+import static com.redhat.cloud.notifications.models.CacheInvalidation.EMAIL_AGGREGATION_SUPPORT_CACHE_NAME;
+import static com.redhat.cloud.notifications.models.CacheInvalidation.INSTANT_EMAIL_TEMPLATES_CACHE_NAME;
+import static com.redhat.cloud.notifications.models.CacheInvalidation.INTEGRATION_TEMPLATES_CACHE_NAME;
+
+/*
+ * The lookups executed for each event are cached, including when nothing is found. The caches are invalidated by
+ * CacheInvalidationPoller when the backend modifies the email templates. The instant email templates and the
+ * integration templates contain the templates data, so they are also invalidated when a template is modified.
+ */
 @ApplicationScoped
 public class TemplateRepository {
 
@@ -29,9 +44,22 @@ public class TemplateRepository {
     @Inject
     FeatureFlipper featureFlipper;
 
+    @CacheName(INSTANT_EMAIL_TEMPLATES_CACHE_NAME)
+    Cache instantEmailTemplates;
+
+    @CacheName(INTEGRATION_TEMPLATES_CACHE_NAME)
+    Cache integrationTemplates;
+
     private Optional<InstantEmailTemplate> defaultEmailTemplate = null;
 
+    void onCacheInvalidation(@Observes CacheInvalidationEvent event) {
+        if (COMPILED_TEMPLATES_CACHE_NAME.equals(event.getCacheName())) {
+            instantEmailTemplates.invalidateAll().await().indefinitely();
+            integrationTemplates.invalidateAll().await().indefinitely();
+        }
+    }
 
+    @CacheResult(cacheName = EMAIL_AGGREGATION_SUPPORT_CACHE_NAME)
     public boolean isEmailAggregationSupported(String bundleName, String appName, List<EmailSubscriptionType> subscriptionTypes) {
         String hql = "SELECT COUNT(*) FROM AggregationEmailTemplate WHERE application.bundle.name = :bundleName " +
                 "AND application.name = :appName AND subscriptionType IN (:subscriptionTypes)";
@@ -43,6 +71,16 @@ public class TemplateRepository {
     }
 
     public Optional<InstantEmailTemplate> findInstantEmailTemplate(UUID eventTypeId) {
+        Optional<InstantEmailTemplate> emailTemplate = findInstantEmailTemplateFromDb(eventTypeId);
+        if (emailTemplate.isEmpty() && featureFlipper.isUseDefaultTemplate()) {
+            return getDefaultEmailTemplate();
+        }
+        return emailTemplate;
+    }
+
+    // The default template is not cached here because it depends on a feature flag.
+    @CacheResult(cacheName = INSTANT_EMAIL_TEMPLATES_CACHE_NAME)
+    Optional<InstantEmailTemplate> findInstantEmailTemplateFromDb(UUID eventTypeId) {
         String hql = "FROM InstantEmailTemplate t JOIN FETCH t.subjectTemplate JOIN FETCH t.bodyTemplate " +
                 "WHERE t.eventType.id = :eventTypeId";
         try {
@@ -51,10 +89,6 @@ public class TemplateRepository {
                     .getSingleResult();
             return Optional.of(emailTemplate);
         } catch (NoResultException e) {
-            if (featureFlipper.isUseDefaultTemplate()) {
-                return getDefaultEmailTemplate();
-            }
-
             return Optional.empty();
         }
     }
@@ -130,6 +164,7 @@ public class TemplateRepository {
      * @param integrationType Type of integration requested. E.g. 'slack', 'teams' or 'splunk'
      * @return IntegrationTemplate with potential fallback or Optional.empty() if there is not even a default template.
      */
+    @CacheResult(cacheName = INTEGRATION_TEMPLATES_CACHE_NAME)
     public Optional<IntegrationTemplate> findIntegrationTemplate(String appName,
                                                                  String orgId,
                                                                  IntegrationTemplate.TemplateKind templateKind,
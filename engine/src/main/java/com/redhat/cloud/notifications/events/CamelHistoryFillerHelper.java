@@ -1,5 +1,6 @@
 package com.redhat.cloud.notifications.events;
 
+import com.redhat.cloud.notifications.db.NotificationHistoryWriter;
 import com.redhat.cloud.notifications.db.repositories.NotificationHistoryRepository;
 import com.redhat.cloud.notifications.models.NotificationHistory;
 import com.redhat.cloud.notifications.models.NotificationStatus;
@@ -15,6 +16,9 @@ public class CamelHistoryFillerHelper {
     @Inject
     NotificationHistoryRepository notificationHistoryRepository;
 
+    @Inject
+    NotificationHistoryWriter notificationHistoryWriter;
+
     /**
      * Update a stub history item with data we have received from the Camel sender
      *
@@ -23,6 +27,19 @@ public class CamelHistoryFillerHelper {
      * @see ConnectorReceiver
      */
     public boolean updateHistoryItem(Map<String, Object> jo) {
+        NotificationHistory history = buildHistoryUpdate(jo);
+        // The history may still be buffered if the connector replied quickly.
+        notificationHistoryWriter.awaitPersisted(history.getId());
+        return notificationHistoryRepository.updateHistoryItem(history);
+    }
+
+    /**
+     * Builds the stub history update from the data we have received from the Camel sender, without touching the DB.
+     *
+     * @param jo Map containing the returned data
+     * @return the history update
+     */
+    public NotificationHistory buildHistoryUpdate(Map<String, Object> jo) {
         String historyId = (String) jo.get("historyId");
 
         if (historyId == null || historyId.isBlank()) {
@@ -59,7 +76,6 @@ public class CamelHistoryFillerHelper {
         history.setStatus(status);
         history.setDetails(details);
         history.setInvocationTime(duration);
-
-        return notificationHistoryRepository.updateHistoryItem(history);
+        return history;
     }
 }
@@ -1,6 +1,11 @@
 package com.redhat.cloud.notifications.events;
 
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.redhat.cloud.notifications.config.FeatureFlipper;
+import com.redhat.cloud.notifications.db.NotificationHistoryWriter;
 import com.redhat.cloud.notifications.db.repositories.NotificationHistoryRepository;
 import com.redhat.cloud.notifications.ingress.Action;
 import com.redhat.cloud.notifications.ingress.Context;
@@ -9,11 +14,13 @@ import com.redhat.cloud.notifications.ingress.Parser;
 import com.redhat.cloud.notifications.ingress.Payload;
 import com.redhat.cloud.notifications.ingress.Recipient;
 import com.redhat.cloud.notifications.models.Endpoint;
+import com.redhat.cloud.notifications.models.NotificationHistory;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.quarkus.logging.Log;
 import io.smallrye.reactive.messaging.annotations.Blocking;
-import io.vertx.core.json.Json;
+import io.smallrye.reactive.messaging.kafka.KafkaRecordBatch;
+import io.vertx.core.json.jackson.DatabindCodec;
 import org.eclipse.microprofile.reactive.messaging.Acknowledgment;
 import org.eclipse.microprofile.reactive.messaging.Channel;
 import org.eclipse.microprofile.reactive.messaging.Emitter;
@@ -24,11 +31,18 @@ import javax.annotation.PostConstruct;
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.context.control.ActivateRequestContext;
 import javax.inject.Inject;
+import java.io.IOException;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletionStage;
 
 /**
  * We sent data via Camel. Now Camel informs us about the outcome,
@@ -38,14 +52,20 @@ import java.util.UUID;
 public class ConnectorReceiver {
 
     public static final String FROMCAMEL_CHANNEL = "fromcamel";
+    public static final String FROMCAMEL_BATCH_CHANNEL = "fromcamelbatch";
     public static final String MESSAGES_ERROR_COUNTER_NAME = "camel.messages.error";
     public static final String MESSAGES_PROCESSED_COUNTER_NAME = "camel.messages.processed";
     public static final String EGRESS_CHANNEL = "egress";
     public static final String INTEGRATION_FAILED_EVENT_TYPE = "integration-failed";
 
+    private static final TypeReference<Map<String, Object>> MAP_TYPE = new TypeReference<>() { };
+
     @Inject
     NotificationHistoryRepository notificationHistoryRepository;
 
+    @Inject
+    NotificationHistoryWriter notificationHistoryWriter;
+
     @Inject
     MeterRegistry meterRegistry;
 
@@ -88,6 +108,85 @@ public class ConnectorReceiver {
         }
     }
 
+    /**
+     * Batch alternative to {@link #processAsync(String)}, enabled with {@code mp.messaging.incoming.fromcamelbatch.enabled}.
+     * Both channels consume the same topic, so only one of them should be enabled at a time.
+     */
+    @Incoming(FROMCAMEL_BATCH_CHANNEL)
+    @Blocking
+    @ActivateRequestContext
+    public CompletionStage<Void> processBatch(KafkaRecordBatch<String, String> batch) {
+        processBatch(batch.getPayload());
+        return batch.ack();
+    }
+
+    /**
+     * Processes a batch of connector results. The history items of the whole batch are updated with a single statement.
+     * A failure related to a single result (invalid payload, reinjection failure...) is counted and logged, but it does
+     * not prevent the other results of the batch from being processed.
+     */
+    void processBatch(List<String> payloads) {
+        /*
+         * Step 1
+         * Each payload is decoded and reinjected if needed. If the same history ID is reported more than once, the
+         * last result wins, just like it would with one UPDATE per result.
+         */
+        Map<UUID, NotificationHistory> historyUpdates = new LinkedHashMap<>();
+        for (String payload : payloads) {
+            try {
+                Log.infof("Processing return from camel: %s", payload);
+                Map<String, Object> decodedPayload = decodeItem(payload);
+                NotificationHistory historyUpdate = camelHistoryFillerHelper.buildHistoryUpdate(decodedPayload);
+                reinjectIfNeeded(decodedPayload);
+                historyUpdates.remove(historyUpdate.getId());
+                historyUpdates.put(historyUpdate.getId(), historyUpdate);
+            } catch (Exception e) {
+                messagesErrorCounter.increment();
+                Log.error("|  Failure to update the history", e);
+            } finally {
+                messagesProcessedCounter.increment();
+            }
+        }
+
+        if (historyUpdates.isEmpty()) {
+            return;
+        }
+
+        /*
+         * Step 2
+         * All history items are updated at once. If the batch update fails, the items are updated one by one so
+         * that a single faulty result does not prevent the others from being recorded.
+         */
+        for (UUID historyId : historyUpdates.keySet()) {
+            // The histories may still be buffered if the connectors replied quickly.
+            notificationHistoryWriter.awaitPersisted(historyId);
+        }
+        Set<UUID> updatedIds;
+        try {
+            updatedIds = notificationHistoryRepository.updateHistoryItems(new ArrayList<>(historyUpdates.values()));
+        } catch (Exception e) {
+            Log.warn("Batch history update failed, falling back to one transaction per result", e);
+            updatedIds = new HashSet<>();
+            for (NotificationHistory historyUpdate : historyUpdates.values()) {
+                try {
+                    if (notificationHistoryRepository.updateHistoryItem(historyUpdate)) {
+                        updatedIds.add(historyUpdate.getId());
+                    }
+                } catch (Exception updateException) {
+                    messagesErrorCounter.increment();
+                    Log.error("|  Failure to update the history", updateException);
+                    // The failure was already counted, there's no need for the warning below.
+                    updatedIds.add(historyUpdate.getId());
+                }
+            }
+        }
+        for (UUID historyId : historyUpdates.keySet()) {
+            if (!updatedIds.contains(historyId)) {
+                Log.warnf("Camel notification history update failed because no record was found with [id=%s]", historyId);
+            }
+        }
+    }
+
     private void reinjectIfNeeded(Map<String, Object> payloadMap) {
         if (!featureFlipper.isEnableReInject() || (payloadMap.containsKey("successful") && ((Boolean) payloadMap.get("successful")))) {
             return;
@@ -96,6 +195,7 @@ public class ConnectorReceiver {
         String historyId = (String) payloadMap.get("historyId");
         Log.infof("Notification with id %s was not successful, resubmitting for further processing", historyId);
 
+        notificationHistoryWriter.awaitPersisted(UUID.fromString(historyId));
         Endpoint ep = notificationHistoryRepository.getEndpointForHistoryId(historyId);
 
         Event event = new Event();
@@ -135,16 +235,35 @@ public class ConnectorReceiver {
         emitter.send(message);
     }
 
-    private Map<String, Object> decodeItem(String s) {
-
-        // 1st step CloudEvent as String -> map
-        Map<String, Object> ceMap = Json.decodeValue(s, Map.class);
-
-        // Take the id from the CloudEvent as the historyId
-        String id = (String) ceMap.get("id");
-
-        // 2nd step data item (as String) to final map
-        Map<String, Object> map = Json.decodeValue((String) ceMap.get("data"), Map.class);
+    /*
+     * The CloudEvent is read with a streaming parser so that only its id and data fields are materialized. The data
+     * field is usually a JSON document serialized as a string, but it is also accepted as an embedded object.
+     */
+    private Map<String, Object> decodeItem(String s) throws IOException {
+        ObjectMapper mapper = DatabindCodec.mapper();
+        String id = null;
+        Map<String, Object> map = null;
+        try (JsonParser parser = mapper.getFactory().createParser(s)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalArgumentException("The CloudEvent is not a JSON object");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String fieldName = parser.getCurrentName();
+                JsonToken valueToken = parser.nextToken();
+                if ("id".equals(fieldName)) {
+                    id = parser.getValueAsString();
+                } else if ("data".equals(fieldName) && valueToken == JsonToken.VALUE_STRING) {
+                    map = mapper.readValue(parser.getText(), MAP_TYPE);
+                } else if ("data".equals(fieldName) && valueToken == JsonToken.START_OBJECT) {
+                    map = parser.readValueAs(MAP_TYPE);
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
+        if (map == null) {
+            throw new IllegalArgumentException("The CloudEvent has no data");
+        }
         map.put("historyId", id);
         return map;
     }
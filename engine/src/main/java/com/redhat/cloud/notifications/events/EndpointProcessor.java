@@ -17,15 +17,28 @@ import com.redhat.cloud.notifications.processors.eventing.EventingProcessor;
 import com.redhat.cloud.notifications.processors.webhooks.WebhookTypeProcessor;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.control.ActivateRequestContext;
 import javax.inject.Inject;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.atomic.AtomicInteger;
 import java.util.stream.Collectors;
 
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+
 @ApplicationScoped
 public class EndpointProcessor {
 
@@ -35,6 +48,7 @@ public class EndpointProcessor {
     public static final String SLACK_ENDPOINT_SUBTYPE = "slack";
     public static final String TEAMS_ENDPOINT_SUBTYPE = "teams";
     public static final String GOOGLE_CHAT_ENDPOINT_SUBTYPE = "google_chat";
+    public static final String PROCESSOR_DURATION_TIMER_NAME = "processor.endpoint.duration";
 
     @Inject
     EndpointRepository endpointRepository;
@@ -69,13 +83,34 @@ public class EndpointProcessor {
     @Inject
     MeterRegistry registry;
 
+    @ConfigProperty(name = "notifications.endpoint-processor.fan-out.threads", defaultValue = "20")
+    int fanOutThreads;
+
+    @ConfigProperty(name = "notifications.endpoint-processor.fan-out.queue-size", defaultValue = "200")
+    int fanOutQueueSize;
+
     private Counter processedItems;
     private Counter endpointTargeted;
+    private ExecutorService fanOutExecutor;
 
     @PostConstruct
     void init() {
         processedItems = registry.counter(PROCESSED_MESSAGES_COUNTER_NAME);
         endpointTargeted = registry.counter(PROCESSED_ENDPOINTS_COUNTER_NAME);
+        AtomicInteger threadCount = new AtomicInteger();
+        fanOutExecutor = new ThreadPoolExecutor(fanOutThreads, fanOutThreads, 0L, MILLISECONDS,
+                new ArrayBlockingQueue<>(fanOutQueueSize),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "endpoint-processor-fan-out-" + threadCount.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                },
+                new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    void shutdown() {
+        fanOutExecutor.shutdown();
     }
 
     public void process(Event event) {
@@ -97,50 +132,105 @@ public class EndpointProcessor {
         Map<EndpointType, List<Endpoint>> endpointsByType = endpoints.stream().collect(Collectors.groupingBy(Endpoint::getType));
 
         DelayedThrower.throwEventually(DELAYED_EXCEPTION_MSG, accumulator -> {
+            // For each endpoint type, the list of target endpoints will be sent alongside with the event to the relevant processor.
+            List<ProcessorInvocation> invocations = new ArrayList<>();
             for (Map.Entry<EndpointType, List<Endpoint>> endpointsByTypeEntry : endpointsByType.entrySet()) {
-                try {
-                    // For each endpoint type, the list of target endpoints is sent alongside with the event to the relevant processor.
-                    switch (endpointsByTypeEntry.getKey()) {
-                        // TODO Introduce EndpointType.SLACK?
-                        case CAMEL:
-                            Map<String, List<Endpoint>> endpointsBySubType = endpointsByTypeEntry.getValue().stream().collect(Collectors.groupingBy(Endpoint::getSubType));
-                            for (Map.Entry<String, List<Endpoint>> endpointsBySubTypeEntry : endpointsBySubType.entrySet()) {
-                                try {
-                                    if (SLACK_ENDPOINT_SUBTYPE.equals(endpointsBySubTypeEntry.getKey())) {
-                                        slackProcessor.process(event, endpointsBySubTypeEntry.getValue());
-                                    } else if (TEAMS_ENDPOINT_SUBTYPE.equals(endpointsBySubTypeEntry.getKey())) {
-                                        teamsProcessor.process(event, endpointsBySubTypeEntry.getValue());
-                                    } else if (GOOGLE_CHAT_ENDPOINT_SUBTYPE.equals(endpointsBySubTypeEntry.getKey())) {
-                                        googleChatProcessor.process(event, endpointsBySubTypeEntry.getValue());
-                                    } else {
-                                        camelProcessor.process(event, endpointsBySubTypeEntry.getValue());
-                                    }
-                                } catch (Exception e) {
-                                    accumulator.add(e);
-                                }
-                            }
-                            break;
-                        case EMAIL_SUBSCRIPTION:
-                            if (this.featureFlipper.isEmailConnectorEnabled()) {
-                                emailConnectorProcessor.process(event, endpointsByTypeEntry.getValue());
+                List<Endpoint> typedEndpoints = endpointsByTypeEntry.getValue();
+                switch (endpointsByTypeEntry.getKey()) {
+                    // TODO Introduce EndpointType.SLACK?
+                    case CAMEL:
+                        Map<String, List<Endpoint>> endpointsBySubType = typedEndpoints.stream().collect(Collectors.groupingBy(Endpoint::getSubType));
+                        for (Map.Entry<String, List<Endpoint>> endpointsBySubTypeEntry : endpointsBySubType.entrySet()) {
+                            List<Endpoint> subTypedEndpoints = endpointsBySubTypeEntry.getValue();
+                            if (SLACK_ENDPOINT_SUBTYPE.equals(endpointsBySubTypeEntry.getKey())) {
+                                invocations.add(new ProcessorInvocation(SLACK_ENDPOINT_SUBTYPE, () -> slackProcessor.process(event, subTypedEndpoints)));
+                            } else if (TEAMS_ENDPOINT_SUBTYPE.equals(endpointsBySubTypeEntry.getKey())) {
+                                invocations.add(new ProcessorInvocation(TEAMS_ENDPOINT_SUBTYPE, () -> teamsProcessor.process(event, subTypedEndpoints)));
+                            } else if (GOOGLE_CHAT_ENDPOINT_SUBTYPE.equals(endpointsBySubTypeEntry.getKey())) {
+                                invocations.add(new ProcessorInvocation(GOOGLE_CHAT_ENDPOINT_SUBTYPE, () -> googleChatProcessor.process(event, subTypedEndpoints)));
                             } else {
-                                emailProcessor.process(event, endpointsByTypeEntry.getValue());
+                                invocations.add(new ProcessorInvocation("camel", () -> camelProcessor.process(event, subTypedEndpoints)));
                             }
-                            break;
-                        case WEBHOOK:
-                        case ANSIBLE:
-                            webhookProcessor.process(event, endpointsByTypeEntry.getValue());
-                            break;
-                        case DRAWER:
-                            drawerProcessor.process(event, endpointsByTypeEntry.getValue());
-                            break;
-                        default:
-                            throw new IllegalArgumentException("Unexpected endpoint type: " + endpointsByTypeEntry.getKey());
+                        }
+                        break;
+                    case EMAIL_SUBSCRIPTION:
+                        if (this.featureFlipper.isEmailConnectorEnabled()) {
+                            invocations.add(new ProcessorInvocation("email", () -> emailConnectorProcessor.process(event, typedEndpoints)));
+                        } else {
+                            invocations.add(new ProcessorInvocation("email", () -> emailProcessor.process(event, typedEndpoints)));
+                        }
+                        break;
+                    case WEBHOOK:
+                    case ANSIBLE:
+                        String processorName = endpointsByTypeEntry.getKey().name().toLowerCase();
+                        invocations.add(new ProcessorInvocation(processorName, () -> webhookProcessor.process(event, typedEndpoints)));
+                        break;
+                    case DRAWER:
+                        invocations.add(new ProcessorInvocation("drawer", () -> drawerProcessor.process(event, typedEndpoints)));
+                        break;
+                    default:
+                        accumulator.add(new IllegalArgumentException("Unexpected endpoint type: " + endpointsByTypeEntry.getKey()));
+                }
+            }
+
+            if (featureFlipper.isEndpointProcessorFanOutEnabled() && invocations.size() > 1) {
+                fanOut(invocations, accumulator);
+            } else {
+                for (ProcessorInvocation invocation : invocations) {
+                    try {
+                        invoke(invocation);
+                    } catch (Exception e) {
+                        accumulator.add(e);
                     }
-                } catch (Exception e) {
-                    accumulator.add(e);
                 }
             }
         });
     }
+
+    /*
+     * The processors are invoked concurrently and this method returns once all of them are done. Each processor runs
+     * with its own request context because the request-scoped beans (e.g. the EntityManager) are not thread-safe. If
+     * all threads of the executor are busy and its queue is full, the processor is invoked from the calling thread.
+     */
+    private void fanOut(List<ProcessorInvocation> invocations, List<Exception> accumulator) {
+        List<CompletableFuture<Void>> futures = new ArrayList<>(invocations.size());
+        for (ProcessorInvocation invocation : invocations) {
+            futures.add(CompletableFuture.runAsync(() -> invokeWithRequestContext(invocation), fanOutExecutor));
+        }
+        for (CompletableFuture<Void> future : futures) {
+            try {
+                future.join();
+            } catch (CompletionException e) {
+                accumulator.add(e.getCause() instanceof Exception ? (Exception) e.getCause() : e);
+            }
+        }
+    }
+
+    @ActivateRequestContext
+    void invokeWithRequestContext(ProcessorInvocation invocation) {
+        invoke(invocation);
+    }
+
+    private void invoke(ProcessorInvocation invocation) {
+        Timer.Sample processorTimer = Timer.start(registry);
+        try {
+            invocation.processing.run();
+        } finally {
+            processorTimer.stop(Timer.builder(PROCESSOR_DURATION_TIMER_NAME)
+                    .tag("processor", invocation.processor)
+                    .publishPercentileHistogram()
+                    .register(registry));
+        }
+    }
+
+    static class ProcessorInvocation {
+
+        final String processor;
+        final Runnable processing;
+
+        ProcessorInvocation(String processor, Runnable processing) {
+            this.processor = processor;
+            this.processing = processing;
+        }
+    }
 }
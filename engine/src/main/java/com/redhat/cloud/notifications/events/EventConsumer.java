@@ -9,14 +9,17 @@ import com.redhat.cloud.notifications.db.repositories.EventTypeRepository;
 import com.redhat.cloud.notifications.ingress.Action;
 import com.redhat.cloud.notifications.models.Event;
 import com.redhat.cloud.notifications.models.EventType;
+import com.redhat.cloud.notifications.models.EventTypeKey;
 import com.redhat.cloud.notifications.models.NotificationsConsoleCloudEvent;
 import com.redhat.cloud.notifications.utils.ActionParser;
 import com.redhat.cloud.notifications.utils.ActionParsingException;
 import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.DistributionSummary;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Timer;
 import io.quarkus.logging.Log;
 import io.smallrye.reactive.messaging.annotations.Blocking;
+import io.smallrye.reactive.messaging.kafka.KafkaRecordBatch;
 import org.eclipse.microprofile.reactive.messaging.Incoming;
 import org.eclipse.microprofile.reactive.messaging.Message;
 
@@ -26,12 +29,17 @@ import javax.enterprise.context.control.ActivateRequestContext;
 import javax.inject.Inject;
 import javax.persistence.NoResultException;
 
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.CompletionStage;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import static com.redhat.cloud.notifications.events.KafkaMessageDeduplicator.MESSAGE_ID_HEADER;
 
@@ -39,11 +47,14 @@ import static com.redhat.cloud.notifications.events.KafkaMessageDeduplicator.MES
 public class EventConsumer {
 
     public static final String INGRESS_CHANNEL = "ingress";
+    public static final String INGRESS_BATCH_CHANNEL = "ingressbatch";
     public static final String REJECTED_COUNTER_NAME = "input.rejected";
     public static final String PROCESSING_ERROR_COUNTER_NAME = "input.processing.error";
     public static final String PROCESSING_EXCEPTION_COUNTER_NAME = "input.processing.exception";
     public static final String DUPLICATE_COUNTER_NAME = "input.duplicate";
     public static final String CONSUMED_TIMER_NAME = "input.consumed";
+    public static final String BATCH_SIZE_SUMMARY_NAME = "input.batch.size";
+    public static final String BATCH_CONSUMED_TIMER_NAME = "input.batch.consumed";
 
     static final String TAG_KEY_BUNDLE = "bundle";
     static final String TAG_KEY_APPLICATION = "application";
@@ -78,6 +89,8 @@ public class EventConsumer {
     private Counter processingErrorCounter;
     private Counter duplicateCounter;
     private Counter processingExceptionCounter;
+    private DistributionSummary batchSizeSummary;
+    private Timer batchConsumedTimer;
 
     @PostConstruct
     public void init() {
@@ -85,6 +98,8 @@ public class EventConsumer {
         processingErrorCounter = registry.counter(PROCESSING_ERROR_COUNTER_NAME);
         processingExceptionCounter = registry.counter(PROCESSING_EXCEPTION_COUNTER_NAME);
         duplicateCounter = registry.counter(DUPLICATE_COUNTER_NAME);
+        batchSizeSummary = registry.summary(BATCH_SIZE_SUMMARY_NAME);
+        batchConsumedTimer = registry.timer(BATCH_CONSUMED_TIMER_NAME);
     }
 
     @Incoming(INGRESS_CHANNEL)
@@ -123,10 +138,10 @@ public class EventConsumer {
 
             /*
              * Step 3
-             * It's time to check if the message ID is already known. For now, messages without an ID
-             * (messageId == null) are always considered new.
+             * It's time to claim the message ID. The claim fails if the message ID is already known. For now,
+             * messages without an ID (messageId == null) are always considered new.
              */
-            if (kafkaMessageDeduplicator.isDuplicate(messageId)) {
+            if (!kafkaMessageDeduplicator.claim(messageId)) {
                 /*
                  * The message ID is already known which means we already processed the current
                  * message and sent notifications. The message is therefore ignored.
@@ -135,58 +150,19 @@ public class EventConsumer {
             } else {
                 /*
                  * Step 4
-                 * The message ID is new. Let's persist it. The current message will never be processed again as
-                 * long as its ID stays in the DB.
-                 */
-                kafkaMessageDeduplicator.registerMessageId(messageId);
-                /*
-                 * Step 5
+                 * The message ID was new and it is now persisted. The current message will never be processed
+                 * again as long as its ID stays in the DB.
                  * We need to retrieve an EventType from the DB using the bundle/app/eventType triplet from the
                  * parsed Action.
                  */
-                EventType eventType;
-                EventWrapper<?, ?> eventWrapperToProcess = eventWrapper;
-                try {
-                    eventType = eventTypeRepository.getEventType(eventWrapperToProcess.getKey());
-
-                    if (eventWrapperToProcess instanceof EventWrapperCloudEvent) {
-                        // We loaded a cloud event and identified the event-type it belongs to
-                        // At this point, lets check if we have a transformation available for this event
-                        // If we do, transform the event - Later this will be done on a by-integration basis
-                        Optional<CloudEventTransformer> transformer = cloudEventTransformerFactory.getTransformerIfSupported((EventWrapperCloudEvent) eventWrapperToProcess);
-                        if (transformer.isPresent()) {
-                            eventWrapperToProcess = new EventWrapperAction(
-                                    transformer.get().toAction(
-                                            (EventWrapperCloudEvent) eventWrapperToProcess,
-                                            eventType.getApplication().getBundle().getName(),
-                                            eventType.getApplication().getName(),
-                                            eventType.getName()
-                            ));
-                        }
-                    }
-
-                    tags.computeIfAbsent(TAG_KEY_BUNDLE, key -> eventType.getApplication().getBundle().getName());
-                    tags.computeIfAbsent(TAG_KEY_APPLICATION, key -> eventType.getApplication().getName());
-                } catch (NoResultException | IllegalArgumentException e) {
-                    /*
-                     * A NoResultException was thrown because no EventType was found. The message is therefore
-                     * considered rejected.
-                     */
-                    rejectedCounter.increment();
-                    throw new NoResultException(String.format(EVENT_TYPE_NOT_FOUND_MSG, eventWrapperToProcess.getKey()));
-                }
                 /*
-                 * Step 6
+                 * Step 5
                  * The EventType was found. It's time to create an Event from the current message and persist it.
                  */
-                Event event = new Event(eventType, payload, eventWrapperToProcess);
-                if (event.getId() == null) {
-                    // NOTIF-499 If there is no ID provided whatsoever we create one.
-                    event.setId(Objects.requireNonNullElseGet(messageId, UUID::randomUUID));
-                }
+                Event event = buildEvent(eventWrapper, payload, messageId, tags, eventTypeRepository::getEventType);
                 eventRepository.create(event);
                 /*
-                 * Step 7
+                 * Step 6
                  * The Event and the Action it contains are processed by all relevant endpoint processors.
                  */
                 try {
@@ -217,6 +193,172 @@ public class EventConsumer {
         return message.ack();
     }
 
+    /**
+     * Batch alternative to {@link #process(Message)}, enabled with {@code mp.messaging.incoming.ingressbatch.enabled}.
+     * Both channels consume the same topic, so only one of them should be enabled at a time.
+     */
+    @Incoming(INGRESS_BATCH_CHANNEL)
+    @Blocking
+    @ActivateRequestContext
+    public CompletionStage<Void> processBatch(KafkaRecordBatch<String, String> batch) {
+        processBatch(batch.getRecords());
+        return batch.ack();
+    }
+
+    /**
+     * Processes a batch of Kafka messages with one statement to claim their IDs and one JDBC batch to persist them.
+     * A failing message is counted and logged without affecting the rest of the batch.
+     */
+    void processBatch(List<? extends Message<String>> messages) {
+        Timer.Sample batchTimer = Timer.start(registry);
+        batchSizeSummary.record(messages.size());
+        try {
+            /*
+             * Step 1
+             * Each payload is parsed and its message ID is extracted.
+             */
+            List<IngressRecord> records = new ArrayList<>();
+            for (Message<String> message : messages) {
+                String payload = message.getPayload();
+                try {
+                    EventWrapper<?, ?> eventWrapper = parsePayload(payload, new HashMap<>());
+                    UUID messageId = getMessageId(eventWrapper, message);
+                    Log.infof("Processing received event [id=%s, %s=%s, orgId=%s, %s]",
+                            eventWrapper.getId(), MESSAGE_ID_HEADER, messageId == null ? "null" : messageId.toString(),
+                            eventWrapper.getOrgId(), eventWrapper.getKey());
+                    records.add(new IngressRecord(payload, eventWrapper, messageId));
+                } catch (Exception e) {
+                    processingExceptionCounter.increment();
+                    Log.infof(e, "Could not process the payload: %s", payload);
+                }
+            }
+
+            /*
+             * Step 2
+             * All message IDs are claimed at once. A message ID can also be duplicated within the batch itself.
+             */
+            Set<UUID> claimedMessageIds = kafkaMessageDeduplicator.claim(
+                    records.stream().map(record -> record.messageId).collect(Collectors.toList())
+            );
+            List<IngressRecord> newRecords = new ArrayList<>();
+            for (IngressRecord record : records) {
+                if (record.messageId != null && !claimedMessageIds.remove(record.messageId)) {
+                    duplicateCounter.increment();
+                } else {
+                    newRecords.add(record);
+                }
+            }
+
+            /*
+             * Step 3
+             * The event types are retrieved from the DB. Each distinct event type is only retrieved once per batch.
+             */
+            Map<EventTypeKey, EventType> eventTypes = new HashMap<>();
+            Function<EventTypeKey, EventType> eventTypeLookup = key -> {
+                EventType eventType = eventTypes.get(key);
+                if (eventType == null) {
+                    eventType = eventTypeRepository.getEventType(key);
+                    eventTypes.put(key, eventType);
+                }
+                return eventType;
+            };
+            for (IngressRecord record : newRecords) {
+                try {
+                    record.event = buildEvent(record.eventWrapper, record.payload, record.messageId, new HashMap<>(), eventTypeLookup);
+                } catch (Exception e) {
+                    processingExceptionCounter.increment();
+                    Log.infof(e, "Could not process the payload: %s", record.payload);
+                }
+            }
+
+            /*
+             * Step 4
+             * The events are persisted. If the batch transaction fails, the events are persisted one by one so that
+             * a single faulty record does not prevent the others from being processed.
+             */
+            List<IngressRecord> persistedRecords;
+            try {
+                eventRepository.createAll(
+                        newRecords.stream().map(record -> record.event).filter(Objects::nonNull).collect(Collectors.toList())
+                );
+                persistedRecords = newRecords;
+            } catch (Exception e) {
+                Log.warn("Batch persistence failed, falling back to one transaction per record", e);
+                persistedRecords = new ArrayList<>();
+                for (IngressRecord record : newRecords) {
+                    try {
+                        if (record.event != null) {
+                            eventRepository.create(record.event);
+                        }
+                        persistedRecords.add(record);
+                    } catch (Exception recordException) {
+                        processingExceptionCounter.increment();
+                        Log.infof(recordException, "Could not process the payload: %s", record.payload);
+                    }
+                }
+            }
+
+            /*
+             * Step 5
+             * The events are processed by all relevant endpoint processors.
+             */
+            for (IngressRecord record : persistedRecords) {
+                if (record.event != null) {
+                    try {
+                        endpointProcessor.process(record.event);
+                    } catch (Exception e) {
+                        processingErrorCounter.increment();
+                        processingExceptionCounter.increment();
+                        Log.infof(e, "Could not process the payload: %s", record.payload);
+                    }
+                }
+            }
+        } finally {
+            batchTimer.stop(batchConsumedTimer);
+        }
+    }
+
+    private Event buildEvent(EventWrapper<?, ?> eventWrapper, String payload, UUID messageId, Map<String, String> tags, Function<EventTypeKey, EventType> eventTypeLookup) {
+        EventType eventType;
+        EventWrapper<?, ?> eventWrapperToProcess = eventWrapper;
+        try {
+            eventType = eventTypeLookup.apply(eventWrapperToProcess.getKey());
+
+            if (eventWrapperToProcess instanceof EventWrapperCloudEvent) {
+                // We loaded a cloud event and identified the event-type it belongs to
+                // At this point, lets check if we have a transformation available for this event
+                // If we do, transform the event - Later this will be done on a by-integration basis
+                Optional<CloudEventTransformer> transformer = cloudEventTransformerFactory.getTransformerIfSupported((EventWrapperCloudEvent) eventWrapperToProcess);
+                if (transformer.isPresent()) {
+                    eventWrapperToProcess = new EventWrapperAction(
+                            transformer.get().toAction(
+                                    (EventWrapperCloudEvent) eventWrapperToProcess,
+                                    eventType.getApplication().getBundle().getName(),
+                                    eventType.getApplication().getName(),
+                                    eventType.getName()
+                    ));
+                }
+            }
+
+            tags.computeIfAbsent(TAG_KEY_BUNDLE, key -> eventType.getApplication().getBundle().getName());
+            tags.computeIfAbsent(TAG_KEY_APPLICATION, key -> eventType.getApplication().getName());
+        } catch (NoResultException | IllegalArgumentException e) {
+            /*
+             * A NoResultException was thrown because no EventType was found. The message is therefore
+             * considered rejected.
+             */
+            rejectedCounter.increment();
+            throw new NoResultException(String.format(EVENT_TYPE_NOT_FOUND_MSG, eventWrapperToProcess.getKey()));
+        }
+
+        Event event = new Event(eventType, payload, eventWrapperToProcess);
+        if (event.getId() == null) {
+            // NOTIF-499 If there is no ID provided whatsoever we create one.
+            event.setId(Objects.requireNonNullElseGet(messageId, UUID::randomUUID));
+        }
+        return event;
+    }
+
     private EventWrapper<?, ?> parsePayload(String payload, Map<String, String> tags) {
         try {
             Action action = actionParser.fromJsonString(payload);
@@ -250,4 +392,18 @@ public class EventConsumer {
 
         return messageId;
     }
+
+    static class IngressRecord {
+
+        final String payload;
+        final EventWrapper<?, ?> eventWrapper;
+        final UUID messageId;
+        Event event;
+
+        IngressRecord(String payload, EventWrapper<?, ?> eventWrapper, UUID messageId) {
+            this.payload = payload;
+            this.eventWrapper = eventWrapper;
+            this.messageId = messageId;
+        }
+    }
 }
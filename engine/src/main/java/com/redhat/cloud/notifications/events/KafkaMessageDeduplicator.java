@@ -1,9 +1,11 @@
 package com.redhat.cloud.notifications.events;
 
 import com.redhat.cloud.notifications.models.EventTypeKey;
-import com.redhat.cloud.notifications.models.KafkaMessage;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.cache.Cache;
+import io.quarkus.cache.CacheName;
+import io.quarkus.cache.CaffeineCache;
 import io.quarkus.logging.Log;
 import io.smallrye.reactive.messaging.kafka.api.KafkaMessageMetadata;
 import org.apache.kafka.common.header.Header;
@@ -13,13 +15,21 @@ import javax.annotation.PostConstruct;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.persistence.EntityManager;
-import javax.persistence.NoResultException;
+import javax.persistence.Query;
 import javax.transaction.Transactional;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.Iterator;
+import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.time.ZoneOffset.UTC;
 
 @ApplicationScoped
 public class KafkaMessageDeduplicator {
@@ -28,6 +38,9 @@ public class KafkaMessageDeduplicator {
     public static final String MESSAGE_ID_VALID_COUNTER_NAME = "kafka-message-id.valid";
     public static final String MESSAGE_ID_INVALID_COUNTER_NAME = "kafka-message-id.invalid";
     public static final String MESSAGE_ID_MISSING_COUNTER_NAME = "kafka-message-id.missing";
+    public static final String FILTER_HIT_COUNTER_NAME = "kafka-message-id.filter.hit";
+    public static final String FILTER_MISS_COUNTER_NAME = "kafka-message-id.filter.miss";
+    public static final String RECENT_MESSAGE_IDS_CACHE_NAME = "kafka-message-deduplicator-recent-ids";
 
     private static final String ACCEPTED_UUID_VERSION = "4";
 
@@ -37,15 +50,22 @@ public class KafkaMessageDeduplicator {
     @Inject
     MeterRegistry meterRegistry;
 
+    @CacheName(RECENT_MESSAGE_IDS_CACHE_NAME)
+    Cache recentMessageIds;
+
     private Counter validMessageIdCounter;
     private Counter invalidMessageIdCounter;
     private Counter missingMessageIdCounter;
+    private Counter filterHitCounter;
+    private Counter filterMissCounter;
 
     @PostConstruct
     void initCounters() {
         validMessageIdCounter = meterRegistry.counter(MESSAGE_ID_VALID_COUNTER_NAME);
         invalidMessageIdCounter = meterRegistry.counter(MESSAGE_ID_INVALID_COUNTER_NAME);
         missingMessageIdCounter = meterRegistry.counter(MESSAGE_ID_MISSING_COUNTER_NAME);
+        filterHitCounter = meterRegistry.counter(FILTER_HIT_COUNTER_NAME);
+        filterMissCounter = meterRegistry.counter(FILTER_MISS_COUNTER_NAME);
     }
 
     /**
@@ -99,34 +119,87 @@ public class KafkaMessageDeduplicator {
     }
 
     /**
-     * Verifies that another Kafka consumer didn't already process the given message and then failed to commit its
-     * offset. Such failure can happen when a consumer is kicked out of its consumer group because it didn't poll new
-     * messages fast enough. We experienced that already on production.
+     * Claims the given message ID on behalf of the current Kafka consumer. A successful claim means that no other
+     * Kafka consumer processed the message before. Such duplicate processing can happen when a consumer is kicked out
+     * of its consumer group because it didn't poll new messages fast enough and then failed to commit its offset.
+     * We experienced that already on production.
+     * <p>
+     * The claim is an atomic operation from a DB perspective, which prevents two pods from processing the same message
+     * concurrently. Message IDs claimed recently are also kept in memory so that redeliveries (after a consumer group
+     * rebalance for example) don't have to hit the DB.
+     * </p>
+     * @param messageId the message ID to claim
+     * @return {@code true} if the message ID was claimed, {@code false} if the message is a duplicate
      */
-    public boolean isDuplicate(UUID messageId) {
+    public boolean claim(UUID messageId) {
         if (messageId == null) {
             /*
              * For now, messages without an ID are always considered new. This is necessary to give the onboarded apps
              * time to change their integration and start sending the new header. The message ID may become mandatory later.
              */
-            return false;
+            return true;
         } else {
-            String hql = "SELECT TRUE FROM KafkaMessage WHERE id = :messageId";
-            try {
-                return entityManager.createQuery(hql, Boolean.class)
-                        .setParameter("messageId", messageId)
-                        .getSingleResult();
-            } catch (NoResultException e) {
-                return false;
+            return claim(List.of(messageId)).contains(messageId);
+        }
+    }
+
+    /**
+     * Batch version of {@link #claim(UUID)}: the message IDs which are not known from the in-memory filter are all
+     * claimed with a single DB statement.
+     * @param messageIds the message IDs to claim, {@code null} values are ignored
+     * @return the message IDs that were claimed
+     */
+    public Set<UUID> claim(Collection<UUID> messageIds) {
+        CaffeineCache cache = recentMessageIds.as(CaffeineCache.class);
+        Set<UUID> unknownMessageIds = new HashSet<>();
+        for (UUID messageId : messageIds) {
+            if (messageId != null) {
+                if (cache.getIfPresent(messageId) == null) {
+                    unknownMessageIds.add(messageId);
+                } else {
+                    filterHitCounter.increment();
+                }
             }
         }
+        if (unknownMessageIds.isEmpty()) {
+            return new HashSet<>();
+        }
+        filterMissCounter.increment(unknownMessageIds.size());
+        Set<UUID> claimedMessageIds = insertIfAbsent(unknownMessageIds);
+        /*
+         * The message IDs are only added to the in-memory filter once the transaction is committed. Whether they were
+         * claimed by the current consumer or by another one, any future occurrence of these IDs will be a duplicate.
+         */
+        for (UUID messageId : unknownMessageIds) {
+            cache.put(messageId, CompletableFuture.completedFuture(Boolean.TRUE));
+        }
+        return claimedMessageIds;
     }
 
     @Transactional
-    public void registerMessageId(UUID messageId) {
-        if (messageId != null) {
-            KafkaMessage kafkaMessage = new KafkaMessage(messageId);
-            entityManager.persist(kafkaMessage);
+    Set<UUID> insertIfAbsent(Set<UUID> messageIds) {
+        StringBuilder sql = new StringBuilder("INSERT INTO kafka_message (id, created) VALUES ");
+        List<UUID> orderedMessageIds = new ArrayList<>(messageIds);
+        for (int i = 0; i < orderedMessageIds.size(); i++) {
+            if (i > 0) {
+                sql.append(", ");
+            }
+            sql.append("(:id").append(i).append(", :created)");
+        }
+        // The IDs are cast to strings because Hibernate has no dialect mapping for the native UUID type.
+        sql.append(" ON CONFLICT (id) DO NOTHING RETURNING CAST(id AS VARCHAR)");
+
+        // HQL does not support the ON CONFLICT clause so we need a native query here
+        Query query = entityManager.createNativeQuery(sql.toString())
+                .setParameter("created", LocalDateTime.now(UTC));
+        for (int i = 0; i < orderedMessageIds.size(); i++) {
+            query.setParameter("id" + i, orderedMessageIds.get(i));
+        }
+
+        Set<UUID> insertedMessageIds = new HashSet<>();
+        for (Object insertedMessageId : query.getResultList()) {
+            insertedMessageIds.add(UUID.fromString((String) insertedMessageId));
         }
+        return insertedMessageIds;
     }
 }
@@ -0,0 +1,122 @@
+package com.redhat.cloud.notifications.models;
+
+import com.redhat.cloud.notifications.db.converters.JsonObjectConverter;
+import io.vertx.core.json.JsonObject;
+
+import javax.persistence.Convert;
+import javax.persistence.EmbeddedId;
+import javax.persistence.Entity;
+import javax.persistence.Table;
+import java.time.LocalDateTime;
+import java.util.Objects;
+
+/*
+ * Pre-aggregated digest state of an (org, bundle, application). The state is null until an aggregation is folded
+ * into it. The creation date and the ID of the last folded aggregation are the watermark after which the stored
+ * aggregations were not folded yet. When the state is emptied, the ID is null and the creation date is the end of the
+ * purged digest period.
+ */
+@Entity
+@Table(name = "email_aggregation_state")
+public class EmailAggregationState {
+
+    @EmbeddedId
+    private EmailAggregationStateId id;
+
+    private int version;
+
+    @Convert(converter = JsonObjectConverter.class)
+    private JsonObject state;
+
+    private int aggregationsCount;
+
+    private LocalDateTime firstCreated;
+
+    private LocalDateTime lastCreated;
+
+    private Integer lastId;
+
+    // A stale state is never folded. It is replaced by the next digest.
+    private boolean stale;
+
+    public EmailAggregationStateId getId() {
+        return id;
+    }
+
+    public void setId(EmailAggregationStateId id) {
+        this.id = id;
+    }
+
+    public int getVersion() {
+        return version;
+    }
+
+    public void setVersion(int version) {
+        this.version = version;
+    }
+
+    public JsonObject getState() {
+        return state;
+    }
+
+    public void setState(JsonObject state) {
+        this.state = state;
+    }
+
+    public int getAggregationsCount() {
+        return aggregationsCount;
+    }
+
+    public void setAggregationsCount(int aggregationsCount) {
+        this.aggregationsCount = aggregationsCount;
+    }
+
+    public LocalDateTime getFirstCreated() {
+        return firstCreated;
+    }
+
+    public void setFirstCreated(LocalDateTime firstCreated) {
+        this.firstCreated = firstCreated;
+    }
+
+    public LocalDateTime getLastCreated() {
+        return lastCreated;
+    }
+
+    public void setLastCreated(LocalDateTime lastCreated) {
+        this.lastCreated = lastCreated;
+    }
+
+    public Integer getLastId() {
+        return lastId;
+    }
+
+    public void setLastId(Integer lastId) {
+        this.lastId = lastId;
+    }
+
+    public boolean isStale() {
+        return stale;
+    }
+
+    public void setStale(boolean stale) {
+        this.stale = stale;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o instanceof EmailAggregationState) {
+            EmailAggregationState other = (EmailAggregationState) o;
+            return Objects.equals(id, other.id);
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(id);
+    }
+}
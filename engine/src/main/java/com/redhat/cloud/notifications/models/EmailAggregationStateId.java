@@ -0,0 +1,54 @@
+package com.redhat.cloud.notifications.models;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+import javax.validation.constraints.NotNull;
+import javax.validation.constraints.Size;
+import java.io.Serializable;
+import java.util.Objects;
+
+@Embeddable
+public class EmailAggregationStateId implements Serializable {
+
+    @NotNull
+    @Size(max = 50)
+    public String orgId;
+
+    @NotNull
+    @Size(max = 255)
+    @Column(name = "bundle")
+    public String bundleName;
+
+    @NotNull
+    @Size(max = 255)
+    @Column(name = "application")
+    public String applicationName;
+
+    public EmailAggregationStateId() {
+    }
+
+    public EmailAggregationStateId(EmailAggregationKey key) {
+        this.orgId = key.getOrgId();
+        this.bundleName = key.getBundle();
+        this.applicationName = key.getApplication();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o instanceof EmailAggregationStateId) {
+            EmailAggregationStateId other = (EmailAggregationStateId) o;
+            return Objects.equals(orgId, other.orgId) &&
+                Objects.equals(bundleName, other.bundleName) &&
+                Objects.equals(applicationName, other.applicationName);
+        }
+        return false;
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(orgId, bundleName, applicationName);
+    }
+}
@@ -52,6 +52,10 @@ public class ConnectorSender {
         Log.infof("Sending notification to connector [orgId=%s, eventId=%s, connector=%s, historyId=%s]",
                 endpoint.getOrgId(), event.getId(), connector, history.getId());
 
+        /*
+         * The connector reply may be consumed by another engine pod, which can't wait for the local buffer of the
+         * history writer. The history is therefore inserted directly, and the message is not sent if that fails.
+         */
         notificationHistoryRepository.createNotificationHistory(history);
 
         try {
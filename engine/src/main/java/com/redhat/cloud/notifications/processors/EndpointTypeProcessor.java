@@ -1,6 +1,6 @@
 package com.redhat.cloud.notifications.processors;
 
-import com.redhat.cloud.notifications.db.repositories.NotificationHistoryRepository;
+import com.redhat.cloud.notifications.db.NotificationHistoryWriter;
 import com.redhat.cloud.notifications.models.Endpoint;
 import com.redhat.cloud.notifications.models.Event;
 import com.redhat.cloud.notifications.models.NotificationHistory;
@@ -12,13 +12,13 @@ import java.util.List;
 public abstract class EndpointTypeProcessor {
 
     @Inject
-    NotificationHistoryRepository notificationHistoryRepository;
+    NotificationHistoryWriter notificationHistoryWriter;
 
     public abstract void process(Event event, List<Endpoint> endpoints);
 
     protected void persistNotificationHistory(NotificationHistory history) {
         try {
-            notificationHistoryRepository.createNotificationHistory(history);
+            notificationHistoryWriter.write(history);
         } catch (Exception e) {
             Log.errorf(e, "Notification history creation failed for %s", history.getEndpoint());
         }
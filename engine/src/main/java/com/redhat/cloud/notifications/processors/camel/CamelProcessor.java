@@ -1,7 +1,5 @@
 package com.redhat.cloud.notifications.processors.camel;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.redhat.cloud.notifications.DelayedThrower;
 import com.redhat.cloud.notifications.config.FeatureFlipper;
 import com.redhat.cloud.notifications.db.repositories.TemplateRepository;
@@ -14,10 +12,12 @@ import com.redhat.cloud.notifications.processors.ConnectorSender;
 import com.redhat.cloud.notifications.processors.EndpointTypeProcessor;
 import com.redhat.cloud.notifications.templates.TemplateService;
 import com.redhat.cloud.notifications.transformers.BaseTransformer;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.quarkus.logging.Log;
 import io.quarkus.qute.TemplateInstance;
 import io.vertx.core.json.JsonObject;
 import javax.inject.Inject;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 
@@ -26,6 +26,8 @@ import static com.redhat.cloud.notifications.models.IntegrationTemplate.Template
 
 public abstract class CamelProcessor extends EndpointTypeProcessor {
 
+    public static final String AVOIDED_RENDERS_COUNTER_NAME = "processor.camel.avoided-renders";
+
     @Inject
     FeatureFlipper featureFlipper;
 
@@ -42,10 +44,10 @@ public abstract class CamelProcessor extends EndpointTypeProcessor {
     TemplateService templateService;
 
     @Inject
-    ObjectMapper objectMapper;
+    ConnectorSender connectorSender;
 
     @Inject
-    ConnectorSender connectorSender;
+    MeterRegistry registry;
 
     @Override
     public void process(Event event, List<Endpoint> endpoints) {
@@ -53,10 +55,25 @@ public abstract class CamelProcessor extends EndpointTypeProcessor {
             Log.warn("Skipping event processing because Notifications is running in emails only mode");
             return;
         }
+        if (endpoints.isEmpty()) {
+            return;
+        }
         DelayedThrower.throwEventually(DELAYED_EXCEPTION_MSG, accumulator -> {
+            /*
+             * The message only depends on the event, the integration template of the org and the environment, which
+             * are the same for all endpoints. It is rendered once and shared by the endpoints.
+             */
+            String message;
+            try {
+                message = buildNotificationMessage(event);
+            } catch (Exception e) {
+                accumulator.add(e);
+                return;
+            }
+            registry.counter(AVOIDED_RENDERS_COUNTER_NAME, "subType", getIntegrationType()).increment(endpoints.size() - 1);
             for (Endpoint endpoint : endpoints) {
                 try {
-                    process(event, endpoint);
+                    process(event, endpoint, message);
                 } catch (Exception e) {
                     accumulator.add(e);
                 }
@@ -64,24 +81,17 @@ public abstract class CamelProcessor extends EndpointTypeProcessor {
         });
     }
 
-    private void process(Event event, Endpoint endpoint) {
+    private void process(Event event, Endpoint endpoint, String message) {
 
-        CamelNotification notification = getCamelNotification(event, endpoint);
+        CamelNotification notification = getCamelNotification(endpoint, message);
         JsonObject payload = JsonObject.mapFrom(notification);
 
         connectorSender.send(event, endpoint, payload);
     }
 
     protected String buildNotificationMessage(Event event) {
-        JsonObject data = baseTransformer.toJsonObject(event);
-        data.put("environment_url", environment.url());
-
-        Map<Object, Object> dataAsMap;
-        try {
-            dataAsMap = objectMapper.readValue(data.encode(), Map.class);
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException(getIntegrationName() + " notification data transformation failed", e);
-        }
+        Map<String, Object> dataAsMap = new HashMap<>(baseTransformer.transform(event).asMap());
+        dataAsMap.put("environment_url", environment.url());
 
         String message = getTemplate(event.getOrgId())
                 .data("data", dataAsMap)
@@ -93,12 +103,10 @@ public abstract class CamelProcessor extends EndpointTypeProcessor {
     private TemplateInstance getTemplate(String orgId) {
         IntegrationTemplate integrationTemplate = templateRepository.findIntegrationTemplate(null, orgId, ORG, getIntegrationType())
                 .orElseThrow(() -> new IllegalStateException("No default template defined for integration"));
-        String template = integrationTemplate.getTheTemplate().getData();
-        return templateService.compileTemplate(template, integrationTemplate.getTheTemplate().getName());
+        return templateService.compileTemplate(integrationTemplate.getTheTemplate());
     }
 
-    protected CamelNotification getCamelNotification(Event event, Endpoint endpoint) {
-        String message = buildNotificationMessage(event);
+    protected CamelNotification getCamelNotification(Endpoint endpoint, String message) {
         CamelProperties properties = endpoint.getProperties(CamelProperties.class);
 
         CamelNotification notification = new CamelNotification();
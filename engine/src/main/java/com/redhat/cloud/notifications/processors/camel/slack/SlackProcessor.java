@@ -2,7 +2,6 @@ package com.redhat.cloud.notifications.processors.camel.slack;
 
 import com.redhat.cloud.notifications.models.CamelProperties;
 import com.redhat.cloud.notifications.models.Endpoint;
-import com.redhat.cloud.notifications.models.Event;
 import com.redhat.cloud.notifications.processors.camel.CamelNotification;
 import com.redhat.cloud.notifications.processors.camel.CamelProcessor;
 
@@ -24,8 +23,7 @@ public class SlackProcessor extends CamelProcessor {
     }
 
     @Override
-    protected CamelNotification getCamelNotification(Event event, Endpoint endpoint) {
-        String message = buildNotificationMessage(event);
+    protected CamelNotification getCamelNotification(Endpoint endpoint, String message) {
         CamelProperties properties = endpoint.getProperties(CamelProperties.class);
 
         SlackNotification notification = new SlackNotification();
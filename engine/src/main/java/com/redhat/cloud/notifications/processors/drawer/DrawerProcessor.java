@@ -1,7 +1,5 @@
 package com.redhat.cloud.notifications.processors.drawer;
 
-import com.fasterxml.jackson.core.JsonProcessingException;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import com.redhat.cloud.notifications.DelayedThrower;
 import com.redhat.cloud.notifications.config.FeatureFlipper;
 import com.redhat.cloud.notifications.db.repositories.DrawerNotificationRepository;
@@ -60,9 +58,6 @@ public class DrawerProcessor extends SystemEndpointTypeProcessor {
     @Inject
     BaseTransformer baseTransformer;
 
-    @Inject
-    ObjectMapper objectMapper;
-
     @Inject
     EndpointRepository endpointRepository;
 
@@ -169,14 +164,7 @@ public class DrawerProcessor extends SystemEndpointTypeProcessor {
     }
 
     public String buildNotificationMessage(Event event) {
-        JsonObject data = baseTransformer.toJsonObject(event);
-
-        Map<Object, Object> dataAsMap;
-        try {
-            dataAsMap = objectMapper.readValue(data.encode(), Map.class);
-        } catch (JsonProcessingException e) {
-            throw new RuntimeException("Drawer notification data transformation failed", e);
-        }
+        Map<String, Object> dataAsMap = baseTransformer.transform(event).asMap();
 
         String message = getTemplate()
             .data("data", dataAsMap)
@@ -189,7 +177,6 @@ public class DrawerProcessor extends SystemEndpointTypeProcessor {
     TemplateInstance getTemplate() {
         IntegrationTemplate integrationTemplate = templateRepository.findIntegrationTemplate(null, null, DEFAULT, "drawer")
             .orElseThrow(() -> new IllegalStateException("No default template defined for drawer"));
-        String template = integrationTemplate.getTheTemplate().getData();
-        return templateService.compileTemplate(template, integrationTemplate.getTheTemplate().getName());
+        return templateService.compileTemplate(integrationTemplate.getTheTemplate());
     }
 }
@@ -24,8 +24,10 @@ import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import java.time.LocalDateTime;
 import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
@@ -48,6 +50,9 @@ public class EmailAggregator {
     @Inject
     FeatureFlipper featureFlipper;
 
+    @Inject
+    IncrementalEmailAggregator incrementalEmailAggregator;
+
     // This is manually used from the JSON payload instead of converting it to an Action and using getEventType()
     private static final String EVENT_TYPE_KEY = "event_type";
     private static final String RECIPIENTS_KEY = "recipients";
@@ -88,52 +93,80 @@ public class EmailAggregator {
             subscribers = getEmailSubscribers(aggregationKey, emailSubscriptionType);
         }
 
-        int offset = 0;
+        /*
+         * Most aggregations share the same event type and the same action recipient settings, so the target endpoints
+         * are retrieved once per event type and the recipients are resolved once per (event type, action recipient
+         * settings) combination. The aggregations are still aggregated in the order of the DB query.
+         */
+        Map<String, Set<Endpoint>> endpointsByEventType = new HashMap<>();
+        Map<RecipientsKey, Set<User>> recipientsByKey = new HashMap<>();
+
+        /*
+         * When the aggregations of the period were folded into a pre-aggregated state, the users who receive all the
+         * aggregations of the period share that state. The aggregations only have to be replayed for the users who
+         * receive some of them.
+         */
+        Set<User> partialUsers = null;
+        if (featureFlipper.isIncrementalEmailAggregationEnabled()) {
+            Optional<IncrementalEmailAggregator.Snapshot> snapshot = incrementalEmailAggregator.getSnapshot(aggregationKey, start, end);
+            if (snapshot.isPresent()) {
+                Map<User, Integer> groupsByUser = new HashMap<>();
+                List<JsonObject> groups = snapshot.get().getGroups();
+                for (JsonObject group : groups) {
+                    Set<User> users = getRecipients(aggregationKey, group, subscribers, subscribersByEventType, endpointsByEventType, recipientsByKey);
+                    users.forEach(user -> groupsByUser.merge(user, 1, Integer::sum));
+                }
+                partialUsers = new HashSet<>();
+                for (Map.Entry<User, Integer> entry : groupsByUser.entrySet()) {
+                    if (entry.getValue() == groups.size()) {
+                        aggregated.put(entry.getKey(), snapshot.get().getAggregator());
+                    } else {
+                        partialUsers.add(entry.getKey());
+                    }
+                }
+                Log.infof("Pre-aggregated state used for %d users of key %s, %d endpoints lookups and %d recipients resolutions were done for %d groups, %d users need a replay",
+                    aggregated.size(), aggregationKey, endpointsByEventType.size(), recipientsByKey.size(), groups.size(), partialUsers.size());
+            }
+        }
+
+        EmailAggregation lastAggregation = null;
         int totalAggregatedElements = 0;
 
         List<EmailAggregation> aggregations;
-        do {
-            // First, we retrieve paginated aggregations that match the given key.
-            aggregations = emailAggregationRepository.getEmailAggregation(aggregationKey, start, end, offset, aggregationMaxPageSize);
-            offset += aggregationMaxPageSize;
-
-            // For each aggregation...
-            for (EmailAggregation aggregation : aggregations) {
-                // We need its event type to determine the target endpoints.
-                String eventType = getEventType(aggregation);
-                // Let's retrieve these targets.
-                Set<Endpoint> endpoints = Set.copyOf(endpointRepository
-                    .getTargetEmailSubscriptionEndpoints(aggregationKey.getOrgId(), aggregationKey.getBundle(), aggregationKey.getApplication(), eventType));
-
-                // Now we want to determine who will actually receive the aggregation email.
-                // All users who subscribed to the current application and subscription type combination are recipients candidates.
-                /*
-                 * The actual recipients list may differ from the candidates depending on the endpoint properties and the action settings.
-                 * The target endpoints properties will determine whether or not each candidate will actually receive an email.
-                 */
-                Set<User> users = recipientResolver.recipientUsers(
-                    aggregationKey.getOrgId(),
-                    Stream.concat(
-                        endpoints
-                            .stream()
-                            .map(EndpointRecipientSettings::new),
-                        getActionRecipient(aggregation).stream()
-                    ).collect(Collectors.toSet()),
-                    getSubscribers(eventType, subscribers, subscribersByEventType)
-                );
-
-                /*
-                 * We now have the final recipients list.
-                 * Let's populate the Map that will be returned by the method.
-                 */
-                users.forEach(user -> {
-                    // It's aggregation time!
-                    fillUsers(aggregationKey, user, aggregated, aggregation);
-                });
-            }
-            totalAggregatedElements += aggregations.size();
-        } while (aggregationMaxPageSize == aggregations.size());
-        Log.infof("%d elements were aggregated for key %s", totalAggregatedElements, aggregationKey);
+        if (partialUsers == null || !partialUsers.isEmpty()) {
+            // The lookups done for the pre-aggregated state groups are reused by the replay but not counted in its log.
+            int previousEndpointsLookups = endpointsByEventType.size();
+            int previousRecipientsResolutions = recipientsByKey.size();
+            do {
+                // First, we retrieve paginated aggregations that match the given key, starting after the last aggregation of the previous page.
+                aggregations = emailAggregationRepository.getEmailAggregation(aggregationKey, start, end, lastAggregation, aggregationMaxPageSize);
+
+                // For each aggregation...
+                for (EmailAggregation aggregation : aggregations) {
+                    // We need to determine who will actually receive the aggregation email.
+                    Set<User> users = getRecipients(aggregationKey, aggregation.getPayload(), subscribers, subscribersByEventType, endpointsByEventType, recipientsByKey);
+
+                    /*
+                     * We now have the final recipients list.
+                     * Let's populate the Map that will be returned by the method.
+                     */
+                    for (User user : users) {
+                        if (partialUsers == null || partialUsers.contains(user)) {
+                            // It's aggregation time!
+                            fillUsers(aggregationKey, user, aggregated, aggregation);
+                        }
+                    }
+                }
+                totalAggregatedElements += aggregations.size();
+                if (!aggregations.isEmpty()) {
+                    lastAggregation = aggregations.get(aggregations.size() - 1);
+                }
+            } while (aggregationMaxPageSize == aggregations.size());
+            Log.infof("%d elements were aggregated for key %s, %d endpoints lookups and %d recipients resolutions were avoided",
+                totalAggregatedElements, aggregationKey,
+                totalAggregatedElements - (endpointsByEventType.size() - previousEndpointsLookups),
+                totalAggregatedElements - (recipientsByKey.size() - previousRecipientsResolutions));
+        }
 
         return aggregated
                 .entrySet()
@@ -151,18 +184,54 @@ public class EmailAggregator {
                 );
     }
 
+    /*
+     * Returns the users who receive an aggregation with the given payload. The pre-aggregated state groups have the
+     * same event type and recipients fields as the aggregation payloads.
+     */
+    private Set<User> getRecipients(EmailAggregationKey aggregationKey, JsonObject payload, Set<String> subscribers, Map<String, Set<String>> subscribersByEventType,
+                                    Map<String, Set<Endpoint>> endpointsByEventType, Map<RecipientsKey, Set<User>> recipientsByKey) {
+        // We need its event type to determine the target endpoints.
+        String eventType = getEventType(payload);
+        RecipientsKey recipientsKey = new RecipientsKey(eventType, Set.copyOf(getActionRecipient(payload)));
+
+        Set<User> users = recipientsByKey.get(recipientsKey);
+        if (users == null) {
+            // Let's retrieve these targets.
+            Set<Endpoint> endpoints = endpointsByEventType.computeIfAbsent(eventType, ignored -> Set.copyOf(endpointRepository
+                .getTargetEmailSubscriptionEndpoints(aggregationKey.getOrgId(), aggregationKey.getBundle(), aggregationKey.getApplication(), eventType)));
+
+            // All users who subscribed to the current application and subscription type combination are recipients candidates.
+            /*
+             * The actual recipients list may differ from the candidates depending on the endpoint properties and the action settings.
+             * The target endpoints properties will determine whether or not each candidate will actually receive an email.
+             */
+            users = recipientResolver.recipientUsers(
+                aggregationKey.getOrgId(),
+                Stream.concat(
+                    endpoints
+                        .stream()
+                        .map(EndpointRecipientSettings::new),
+                    recipientsKey.actionRecipientSettings().stream()
+                ).collect(Collectors.toSet()),
+                getSubscribers(eventType, subscribers, subscribersByEventType)
+            );
+            recipientsByKey.put(recipientsKey, users);
+        }
+        return users;
+    }
+
     private void fillUsers(EmailAggregationKey aggregationKey, User user, Map<User, AbstractEmailPayloadAggregator> aggregated, EmailAggregation emailAggregation) {
         AbstractEmailPayloadAggregator aggregator = aggregated.computeIfAbsent(user, ignored -> EmailPayloadAggregatorFactory.by(aggregationKey));
         aggregator.aggregate(emailAggregation);
     }
 
-    private String getEventType(EmailAggregation aggregation) {
-        return aggregation.getPayload().getString(EVENT_TYPE_KEY);
+    private String getEventType(JsonObject payload) {
+        return payload.getString(EVENT_TYPE_KEY);
     }
 
-    private List<ActionRecipientSettings> getActionRecipient(EmailAggregation emailAggregation) {
-        if (emailAggregation.getPayload().containsKey(RECIPIENTS_KEY)) {
-            JsonArray recipients = emailAggregation.getPayload().getJsonArray(RECIPIENTS_KEY);
+    private List<ActionRecipientSettings> getActionRecipient(JsonObject payload) {
+        if (payload.containsKey(RECIPIENTS_KEY)) {
+            JsonArray recipients = payload.getJsonArray(RECIPIENTS_KEY);
             if (recipients.size() > 0) {
                 return recipients.stream().map(r -> {
                     JsonObject recipient = (JsonObject) r;
@@ -174,4 +243,5 @@ public class EmailAggregator {
         return List.of();
     }
 
+    private record RecipientsKey(String eventType, Set<ActionRecipientSettings> actionRecipientSettings) { }
 }
@@ -55,11 +55,8 @@ public class EmailProcessor extends SystemEndpointTypeProcessor {
         // Render the subject and the body of the email.
         final InstantEmailTemplate instantEmailTemplate = instantEmailTemplateMaybe.get();
 
-        final String subjectData = instantEmailTemplate.getSubjectTemplate().getData();
-        final String bodyData = instantEmailTemplate.getBodyTemplate().getData();
-
-        final TemplateInstance subjectTemplate = this.templateService.compileTemplate(subjectData, "subject");
-        final TemplateInstance bodyTemplate = this.templateService.compileTemplate(bodyData, "body");
+        final TemplateInstance subjectTemplate = this.templateService.compileTemplate(instantEmailTemplate.getSubjectTemplate());
+        final TemplateInstance bodyTemplate = this.templateService.compileTemplate(instantEmailTemplate.getBodyTemplate());
 
         final String subject = this.templateService.renderTemplate(event, subjectTemplate);
         final String body = this.templateService.renderTemplate(event, bodyTemplate);
@@ -3,6 +3,7 @@ package com.redhat.cloud.notifications.processors.email;
 import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.redhat.cloud.notifications.config.FeatureFlipper;
+import com.redhat.cloud.notifications.db.repositories.AggregationCommandClaimRepository;
 import com.redhat.cloud.notifications.db.repositories.EmailAggregationRepository;
 import com.redhat.cloud.notifications.db.repositories.TemplateRepository;
 import com.redhat.cloud.notifications.events.EventWrapperAction;
@@ -23,6 +24,7 @@ import com.redhat.cloud.notifications.templates.TemplateService;
 import com.redhat.cloud.notifications.transformers.BaseTransformer;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
 import io.micrometer.core.instrument.Timer;
 import io.quarkus.logging.Log;
 import io.quarkus.qute.TemplateInstance;
@@ -32,11 +34,14 @@ import io.vertx.core.json.JsonObject;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.reactive.messaging.Acknowledgment;
 import org.eclipse.microprofile.reactive.messaging.Incoming;
+import org.eclipse.microprofile.reactive.messaging.Message;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
 import javax.enterprise.context.control.ActivateRequestContext;
 import javax.inject.Inject;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.Arrays;
@@ -45,6 +50,12 @@ import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionStage;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
 
 import static io.quarkus.runtime.LaunchMode.NORMAL;
@@ -56,8 +67,11 @@ public class EmailSubscriptionTypeProcessor extends SystemEndpointTypeProcessor
     public static final String AGGREGATION_COMMAND_REJECTED_COUNTER_NAME = "aggregation.command.rejected";
     public static final String AGGREGATION_COMMAND_PROCESSED_COUNTER_NAME = "aggregation.command.processed";
     public static final String AGGREGATION_COMMAND_ERROR_COUNTER_NAME = "aggregation.command.error";
+    public static final String AGGREGATION_COMMAND_DUPLICATE_COUNTER_NAME = "aggregation.command.duplicate";
 
     public static final String AGGREGATION_CONSUMED_TIMER_NAME = "aggregation.time.consumed";
+    public static final String AGGREGATION_COMMAND_QUEUE_WAIT_TIMER_NAME = "aggregation.command.queue.wait";
+    public static final String AGGREGATION_COMMAND_QUEUE_SIZE_GAUGE_NAME = "aggregation.command.queue.size";
     protected static final String TAG_KEY_BUNDLE = "bundle";
     protected static final String TAG_KEY_APPLICATION = "application";
 
@@ -92,18 +106,51 @@ public class EmailSubscriptionTypeProcessor extends SystemEndpointTypeProcessor
     @Inject
     FeatureFlipper featureFlipper;
 
+    @Inject
+    IncrementalEmailAggregator incrementalEmailAggregator;
+
+    @Inject
+    AggregationCommandClaimRepository aggregationCommandClaimRepository;
+
     private Counter rejectedAggregationCommandCount;
     private Counter processedAggregationCommandCount;
     private Counter failedAggregationCommandCount;
+    private Counter duplicateAggregationCommandCount;
+    private ThreadPoolExecutor aggregationExecutor;
+    // Maximum number of aggregation commands queued or being processed.
+    private Semaphore aggregationPermits;
 
     @ConfigProperty(name = "notifications.single.email.test.user")
     String singleEmailTestUser;
 
+    @ConfigProperty(name = "notifications.aggregation.consumer.parallelism", defaultValue = "4")
+    int aggregationParallelism;
+
+    @ConfigProperty(name = "notifications.aggregation.consumer.max-pending-commands", defaultValue = "1000")
+    int aggregationMaxPendingCommands;
+
+    // A command claimed longer ago than this lease and still not processed is taken over by the next worker which receives it.
+    @ConfigProperty(name = "notifications.aggregation.consumer.claim-lease", defaultValue = "1H")
+    Duration aggregationClaimLease;
+
     @PostConstruct
     void postConstruct() {
         rejectedAggregationCommandCount = registry.counter(AGGREGATION_COMMAND_REJECTED_COUNTER_NAME);
         processedAggregationCommandCount = registry.counter(AGGREGATION_COMMAND_PROCESSED_COUNTER_NAME);
         failedAggregationCommandCount = registry.counter(AGGREGATION_COMMAND_ERROR_COUNTER_NAME);
+        duplicateAggregationCommandCount = registry.counter(AGGREGATION_COMMAND_DUPLICATE_COUNTER_NAME);
+        // The priority queue sorts the commands with QueuedAggregationCommand#compareTo.
+        aggregationExecutor = new ThreadPoolExecutor(aggregationParallelism, aggregationParallelism, 0L, TimeUnit.MILLISECONDS, new PriorityBlockingQueue<>());
+        aggregationPermits = new Semaphore(aggregationMaxPendingCommands);
+        registry.gaugeCollectionSize(AGGREGATION_COMMAND_QUEUE_SIZE_GAUGE_NAME, Tags.empty(), aggregationExecutor.getQueue());
+        Log.infof("Aggregation commands will be processed by %d workers", aggregationParallelism);
+    }
+
+    @PreDestroy
+    void preDestroy() {
+        // The queued commands are dropped without being acknowledged, the running ones are not interrupted.
+        aggregationExecutor.getQueue().clear();
+        aggregationExecutor.shutdown();
     }
 
     @Override
@@ -134,14 +181,23 @@ public class EmailSubscriptionTypeProcessor extends SystemEndpointTypeProcessor
             aggregation.setApplicationName(applicationName);
             aggregation.setBundleName(bundleName);
 
-            final JsonObject transformedEvent = this.baseTransformer.toJsonObject(event);
+            final JsonObject transformedEvent = this.baseTransformer.transform(event).copyJsonObject();
             aggregation.setPayload(transformedEvent);
+            boolean added = false;
             try {
-                this.emailAggregationRepository.addEmailAggregation(aggregation);
+                added = this.emailAggregationRepository.addEmailAggregation(aggregation);
             } catch (Exception e) {
                 // ConstraintViolationException may be thrown here and it must not interrupt the email that is being sent.
                 Log.warn("Email aggregation persisting failed", e);
             }
+            if (added && featureFlipper.isIncrementalEmailAggregationEnabled()) {
+                try {
+                    incrementalEmailAggregator.foldPending(new EmailAggregationKey(aggregation.getOrgId(), bundleName, applicationName));
+                } catch (Exception e) {
+                    // The daily digest will fold the aggregations which were not folded yet.
+                    Log.warn("Email aggregation folding failed", e);
+                }
+            }
         }
     }
 
@@ -154,10 +210,8 @@ public class EmailSubscriptionTypeProcessor extends SystemEndpointTypeProcessor
         if (instantEmailTemplate.isEmpty()) {
             return;
         } else {
-            String subjectData = instantEmailTemplate.get().getSubjectTemplate().getData();
-            subject = templateService.compileTemplate(subjectData, "subject");
-            String bodyData = instantEmailTemplate.get().getBodyTemplate().getData();
-            body = templateService.compileTemplate(bodyData, "body");
+            subject = templateService.compileTemplate(instantEmailTemplate.get().getSubjectTemplate());
+            body = templateService.compileTemplate(instantEmailTemplate.get().getBodyTemplate());
         }
 
         Set<User> userList = getRecipientList(event, endpoints.stream().toList(), EmailSubscriptionType.INSTANT);
@@ -170,25 +224,54 @@ public class EmailSubscriptionTypeProcessor extends SystemEndpointTypeProcessor
         }
     }
 
+    /*
+     * The aggregation commands are not processed on the channel thread: they are queued and processed concurrently by
+     * the aggregation workers, largest commands first. The channel consumption is blocked while too many commands are
+     * queued or being processed. Each command is acknowledged once it has been processed, so the commands are not
+     * acknowledged in the order of their offsets and Kafka may deliver again the commands which were processed after a
+     * command that was still pending when the engine stopped. The commands are claimed in the database before they are
+     * processed, which makes the processing idempotent.
+     */
     @Incoming(AGGREGATION_CHANNEL)
-    @Acknowledgment(Acknowledgment.Strategy.PRE_PROCESSING)
+    @Acknowledgment(Acknowledgment.Strategy.MANUAL)
     @Blocking
-    @ActivateRequestContext
-    public void consumeEmailAggregations(String aggregationCommandJson) {
-        Timer.Sample consumedTimer = Timer.start(registry);
+    public CompletionStage<Void> consumeEmailAggregations(Message<String> message) {
         AggregationCommand aggregationCommand;
         try {
-            aggregationCommand = objectMapper.readValue(aggregationCommandJson, AggregationCommand.class);
+            aggregationCommand = objectMapper.readValue(message.getPayload(), AggregationCommand.class);
         } catch (JsonProcessingException e) {
             Log.error("Kafka aggregation payload parsing failed", e);
             rejectedAggregationCommandCount.increment();
-            return;
+            return message.ack();
         }
 
-        Log.infof("Processing received aggregation command: %s", aggregationCommand);
-        processedAggregationCommandCount.increment();
+        aggregationPermits.acquireUninterruptibly();
+        aggregationExecutor.execute(new QueuedAggregationCommand(aggregationCommand, message, Timer.start(registry), this::processAggregationCommand));
+        return CompletableFuture.completedFuture(null);
+    }
+
+    @ActivateRequestContext
+    void processAggregationCommand(QueuedAggregationCommand queuedAggregationCommand) {
+        AggregationCommand aggregationCommand = queuedAggregationCommand.getAggregationCommand();
+        queuedAggregationCommand.getQueueWaitTimer().stop(registry.timer(
+            AGGREGATION_COMMAND_QUEUE_WAIT_TIMER_NAME,
+            TAG_KEY_BUNDLE, aggregationCommand.getAggregationKey().getBundle(),
+            TAG_KEY_APPLICATION, aggregationCommand.getAggregationKey().getApplication()
+        ));
 
+        Timer.Sample consumedTimer = Timer.start(registry);
+        boolean claimed = false;
+        boolean processed = false;
         try {
+            claimed = aggregationCommandClaimRepository.claim(aggregationCommand, aggregationClaimLease);
+            if (!claimed) {
+                Log.infof("Skipping aggregation command already processed or being processed: %s", aggregationCommand);
+                duplicateAggregationCommandCount.increment();
+                return;
+            }
+
+            Log.infof("Processing received aggregation command: %s", aggregationCommand);
+            processedAggregationCommandCount.increment();
             processAggregateEmailsByAggregationKey(
                     aggregationCommand.getAggregationKey(),
                     aggregationCommand.getStart(),
@@ -196,15 +279,31 @@ public class EmailSubscriptionTypeProcessor extends SystemEndpointTypeProcessor
                     aggregationCommand.getSubscriptionType(),
                     // Delete on daily
                     aggregationCommand.getSubscriptionType().equals(EmailSubscriptionType.DAILY));
+            processed = true;
+            aggregationCommandClaimRepository.complete(aggregationCommand);
         } catch (Exception e) {
             Log.warn("Error while processing aggregation", e);
             failedAggregationCommandCount.increment();
+            if (claimed && !processed) {
+                releaseClaim(aggregationCommand);
+            }
         } finally {
             consumedTimer.stop(registry.timer(
                 AGGREGATION_CONSUMED_TIMER_NAME,
                 TAG_KEY_BUNDLE, aggregationCommand.getAggregationKey().getBundle(),
                 TAG_KEY_APPLICATION, aggregationCommand.getAggregationKey().getApplication()
             ));
+            queuedAggregationCommand.getMessage().ack();
+            aggregationPermits.release();
+        }
+    }
+
+    // The command will be processed again if it is delivered again, e.g. when the aggregator job resumes its run.
+    private void releaseClaim(AggregationCommand aggregationCommand) {
+        try {
+            aggregationCommandClaimRepository.release(aggregationCommand);
+        } catch (Exception e) {
+            Log.warnf(e, "Could not release the claim of aggregation command: %s", aggregationCommand);
         }
     }
 
@@ -215,10 +314,8 @@ public class EmailSubscriptionTypeProcessor extends SystemEndpointTypeProcessor
         Optional<AggregationEmailTemplate> aggregationEmailTemplate = templateRepository
                 .findAggregationEmailTemplate(aggregationKey.getBundle(), aggregationKey.getApplication(), emailSubscriptionType);
         if (aggregationEmailTemplate.isPresent()) {
-            String subjectData = aggregationEmailTemplate.get().getSubjectTemplate().getData();
-            subject = templateService.compileTemplate(subjectData, "subject");
-            String bodyData = aggregationEmailTemplate.get().getBodyTemplate().getData();
-            body = templateService.compileTemplate(bodyData, "body");
+            subject = templateService.compileTemplate(aggregationEmailTemplate.get().getSubjectTemplate());
+            body = templateService.compileTemplate(aggregationEmailTemplate.get().getBodyTemplate());
         }
 
         if (subject != null && body != null) {
@@ -279,6 +376,9 @@ public class EmailSubscriptionTypeProcessor extends SystemEndpointTypeProcessor
 
         if (delete) {
             emailAggregationRepository.purgeOldAggregation(aggregationKey, endTime);
+            if (featureFlipper.isIncrementalEmailAggregationEnabled()) {
+                incrementalEmailAggregator.reset(aggregationKey, endTime);
+            }
         }
     }
 
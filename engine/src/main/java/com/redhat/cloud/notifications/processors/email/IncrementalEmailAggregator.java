@@ -0,0 +1,274 @@
+package com.redhat.cloud.notifications.processors.email;
+
+import com.redhat.cloud.notifications.db.repositories.EmailAggregationRepository;
+import com.redhat.cloud.notifications.db.repositories.EmailAggregationStateRepository;
+import com.redhat.cloud.notifications.models.EmailAggregation;
+import com.redhat.cloud.notifications.models.EmailAggregationKey;
+import com.redhat.cloud.notifications.models.EmailAggregationState;
+import com.redhat.cloud.notifications.processors.email.aggregators.AbstractEmailPayloadAggregator;
+import com.redhat.cloud.notifications.processors.email.aggregators.EmailPayloadAggregatorFactory;
+import io.quarkus.logging.Log;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.enterprise.context.ApplicationScoped;
+import javax.inject.Inject;
+import javax.transaction.Transactional;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.redhat.cloud.notifications.processors.email.aggregators.AbstractEmailPayloadAggregator.STATE_VERSION;
+
+/**
+ * Maintains a persisted, pre-aggregated state of the email aggregations of each (org, bundle, application). The
+ * stored aggregations are the append-only log of that state: they are folded into it in batches, in the order used by
+ * the replay, starting after a watermark made of the creation date and the ID of the last folded aggregation. The
+ * daily digest folds the aggregations of its period which were not folded yet, then restores the state instead of
+ * replaying all the aggregations of the period. Otherwise, the digest falls back to the replay.
+ */
+@ApplicationScoped
+public class IncrementalEmailAggregator {
+
+    // Keys of the JSON state.
+    private static final String AGGREGATOR_KEY = "aggregator";
+    private static final String GROUPS_KEY = "groups";
+    // The groups have the same keys as the aggregation payloads, so they can be read the same way.
+    private static final String EVENT_TYPE_KEY = "event_type";
+    private static final String RECIPIENTS_KEY = "recipients";
+    // Watermark of a state which was never folded.
+    private static final LocalDateTime NO_WATERMARK = LocalDateTime.of(1970, 1, 1, 0, 0);
+
+    @Inject
+    EmailAggregationRepository emailAggregationRepository;
+
+    @Inject
+    EmailAggregationStateRepository emailAggregationStateRepository;
+
+    @ConfigProperty(name = "notifications.get.aggregation.max.page.size", defaultValue = "10000")
+    int aggregationMaxPageSize;
+
+    /*
+     * The stored aggregations are folded at most once per fold delay for each key, and only once they are older than
+     * that delay. An aggregation committed after a more recent one was folded would be missing from the state, which
+     * the delay makes unlikely. The digest replaces the state if that happens anyway.
+     */
+    @ConfigProperty(name = "notifications.email-aggregation.incremental.fold-delay", defaultValue = "1M")
+    Duration foldDelay;
+
+    // Last fold attempt of each key on this pod. There are as many entries as rows in the email_aggregation_state table.
+    private final Map<EmailAggregationKey, Instant> lastFolds = new ConcurrentHashMap<>();
+
+    /**
+     * Folds the stored aggregations of the given key which were not folded yet into its state. This is called each
+     * time an aggregation is stored. It does nothing if the key was folded less than fold-delay ago or if the state is
+     * locked by another transaction, because the aggregations will be folded by a later call or by the digest anyway.
+     */
+    @Transactional
+    public void foldPending(EmailAggregationKey key) {
+        if (EmailPayloadAggregatorFactory.by(key) == null) {
+            return;
+        }
+        Instant now = Instant.now();
+        Instant lastFold = lastFolds.get(key);
+        if (lastFold != null && lastFold.plus(foldDelay).isAfter(now)) {
+            return;
+        }
+        lastFolds.put(key, now);
+
+        Optional<EmailAggregationState> state = emailAggregationStateRepository.tryLock(key, STATE_VERSION);
+        if (state.isPresent() && !state.get().isStale() && state.get().getVersion() == STATE_VERSION) {
+            foldUntil(key, state.get(), LocalDateTime.now(ZoneOffset.UTC).minus(foldDelay));
+        }
+    }
+
+    /**
+     * Empties the state of the given key and moves its watermark to the end of the purged digest period. This method
+     * has to be called after the aggregations of a digest period were purged. The remaining aggregations are folded
+     * later, so the state is only locked briefly.
+     * @param end the end of the purged digest period
+     */
+    @Transactional
+    public void reset(EmailAggregationKey key, LocalDateTime end) {
+        if (EmailPayloadAggregatorFactory.by(key) == null) {
+            return;
+        }
+        reset(emailAggregationStateRepository.lock(key, STATE_VERSION), end);
+    }
+
+    /**
+     * Folds the aggregations of the given digest period which were not folded yet, then returns the state of the given
+     * key if it contains exactly the aggregations of that period. A state which contains other aggregations is
+     * replaced with a state built from the aggregations of the period.
+     */
+    @Transactional
+    public Optional<Snapshot> getSnapshot(EmailAggregationKey key, LocalDateTime start, LocalDateTime end) {
+        if (EmailPayloadAggregatorFactory.by(key) == null) {
+            return Optional.empty();
+        }
+        long count = emailAggregationRepository.countEmailAggregation(key, start, end);
+        if (count == 0) {
+            return Optional.empty();
+        }
+        EmailAggregationState state = emailAggregationStateRepository.lock(key, STATE_VERSION);
+        boolean replaced = false;
+        if (!isWithinPeriod(state, start, end)) {
+            reset(state, start);
+            replaced = true;
+        }
+        Snapshot snapshot = foldUntil(key, state, end);
+        if (!replaced && (snapshot == null || state.getAggregationsCount() != count)) {
+            // An aggregation was committed after a more recent one was folded, or folding an aggregation failed.
+            reset(state, start);
+            snapshot = foldUntil(key, state, end);
+        }
+        if (snapshot == null || state.getAggregationsCount() != count) {
+            return Optional.empty();
+        }
+        return Optional.of(snapshot);
+    }
+
+    private static boolean isWithinPeriod(EmailAggregationState state, LocalDateTime start, LocalDateTime end) {
+        if (state.isStale() || state.getVersion() != STATE_VERSION || state.getAggregationsCount() == 0) {
+            // An empty state is reset so that its watermark is the start of the period.
+            return false;
+        }
+        return state.getFirstCreated().isAfter(start) && !state.getLastCreated().isAfter(end);
+    }
+
+    /*
+     * Folds the aggregations created after the watermark of the state and until the given date, with one restoration
+     * and one serialization of the state. Returns null if an aggregation could not be folded, in which case the state
+     * is marked as stale.
+     */
+    private Snapshot foldUntil(EmailAggregationKey key, EmailAggregationState state, LocalDateTime until) {
+        AbstractEmailPayloadAggregator aggregator = EmailPayloadAggregatorFactory.by(key);
+        JsonArray groups;
+        if (state.getState() == null) {
+            groups = new JsonArray();
+        } else {
+            aggregator.restoreState(state.getState().getJsonObject(AGGREGATOR_KEY));
+            groups = state.getState().getJsonArray(GROUPS_KEY).copy();
+        }
+
+        LocalDateTime start = state.getLastCreated() == null ? NO_WATERMARK : state.getLastCreated();
+        EmailAggregation lastAggregation = null;
+        if (state.getLastId() != null) {
+            // The aggregations created at the same time as the last folded one are folded if their ID is greater.
+            start = NO_WATERMARK;
+            lastAggregation = new EmailAggregation();
+            lastAggregation.setCreated(state.getLastCreated());
+            lastAggregation.setId(state.getLastId());
+        }
+        int foldedAggregations = 0;
+        List<EmailAggregation> aggregations;
+        do {
+            aggregations = emailAggregationRepository.getEmailAggregation(key, start, until, lastAggregation, aggregationMaxPageSize);
+            for (EmailAggregation aggregation : aggregations) {
+                if (!fold(key, aggregator, groups, aggregation)) {
+                    state.setStale(true);
+                    return null;
+                }
+                state.setAggregationsCount(state.getAggregationsCount() + 1);
+                if (state.getFirstCreated() == null) {
+                    state.setFirstCreated(aggregation.getCreated());
+                }
+                state.setLastCreated(aggregation.getCreated());
+                state.setLastId(aggregation.getId());
+            }
+            foldedAggregations += aggregations.size();
+            if (!aggregations.isEmpty()) {
+                lastAggregation = aggregations.get(aggregations.size() - 1);
+            }
+        } while (aggregations.size() == aggregationMaxPageSize);
+
+        if (foldedAggregations > 0) {
+            state.setState(new JsonObject()
+                    .put(AGGREGATOR_KEY, aggregator.saveState())
+                    .put(GROUPS_KEY, groups));
+            Log.debugf("%d aggregations folded into the email aggregation state of %s", foldedAggregations, key);
+        }
+        return new Snapshot(aggregator, groups);
+    }
+
+    private static boolean fold(EmailAggregationKey key, AbstractEmailPayloadAggregator aggregator, JsonArray groups, EmailAggregation aggregation) {
+        // The aggregation is managed by the current transaction, so the aggregator must not modify its payload.
+        JsonObject payload = aggregation.getPayload().copy();
+        EmailAggregation copy = new EmailAggregation();
+        copy.setOrgId(aggregation.getOrgId());
+        copy.setBundleName(aggregation.getBundleName());
+        copy.setApplicationName(aggregation.getApplicationName());
+        copy.setPayload(payload);
+        try {
+            aggregator.aggregate(copy);
+        } catch (Exception e) {
+            Log.debugf(e, "Aggregation %d could not be folded into the email aggregation state of %s", aggregation.getId(), key);
+            return false;
+        }
+
+        // The recipients of an aggregation only depend on its event type and on its recipients settings.
+        JsonObject group = new JsonObject()
+                .put(EVENT_TYPE_KEY, payload.getString(EVENT_TYPE_KEY))
+                .put(RECIPIENTS_KEY, payload.getJsonArray(RECIPIENTS_KEY, new JsonArray()));
+        if (!containsGroup(groups, group)) {
+            groups.add(group);
+        }
+        return true;
+    }
+
+    private static boolean containsGroup(JsonArray groups, JsonObject group) {
+        for (int i = 0; i < groups.size(); i++) {
+            if (groups.getJsonObject(i).equals(group)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static void reset(EmailAggregationState state, LocalDateTime watermark) {
+        state.setVersion(STATE_VERSION);
+        state.setState(null);
+        state.setAggregationsCount(0);
+        state.setFirstCreated(null);
+        state.setLastCreated(watermark);
+        state.setLastId(null);
+        state.setStale(false);
+    }
+
+    public static class Snapshot {
+
+        private final AbstractEmailPayloadAggregator aggregator;
+        private final JsonArray groups;
+
+        Snapshot(AbstractEmailPayloadAggregator aggregator, JsonArray groups) {
+            this.aggregator = aggregator;
+            this.groups = groups;
+        }
+
+        /**
+         * Returns an aggregator restored from the state, which contains all the aggregations of the digest period.
+         */
+        public AbstractEmailPayloadAggregator getAggregator() {
+            return aggregator;
+        }
+
+        /**
+         * Returns the distinct (event type, recipients settings) pairs of the aggregations of the digest period. Each
+         * group has the same "event_type" and "recipients" fields as the aggregation payloads.
+         */
+        public List<JsonObject> getGroups() {
+            List<JsonObject> result = new ArrayList<>();
+            for (int i = 0; i < groups.size(); i++) {
+                result.add(groups.getJsonObject(i));
+            }
+            return result;
+        }
+    }
+}
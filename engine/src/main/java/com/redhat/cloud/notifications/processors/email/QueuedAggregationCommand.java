@@ -0,0 +1,55 @@
+package com.redhat.cloud.notifications.processors.email;
+
+import com.redhat.cloud.notifications.models.AggregationCommand;
+import io.micrometer.core.instrument.Timer;
+import org.eclipse.microprofile.reactive.messaging.Message;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/*
+ * An aggregation command waiting for an aggregation worker. The commands with the largest estimated number of
+ * aggregations are processed first (longest-job-first), which shortens the time needed to process all the commands
+ * sent at once by the aggregator job. The commands with the same estimation are processed in the order they were
+ * received.
+ */
+final class QueuedAggregationCommand implements Runnable, Comparable<QueuedAggregationCommand> {
+
+    private static final AtomicLong SEQUENCE = new AtomicLong();
+
+    private final AggregationCommand aggregationCommand;
+    private final Message<?> message;
+    private final Timer.Sample queueWaitTimer;
+    private final Consumer<QueuedAggregationCommand> processor;
+    private final long sequence = SEQUENCE.getAndIncrement();
+
+    QueuedAggregationCommand(AggregationCommand aggregationCommand, Message<?> message, Timer.Sample queueWaitTimer, Consumer<QueuedAggregationCommand> processor) {
+        this.aggregationCommand = aggregationCommand;
+        this.message = message;
+        this.queueWaitTimer = queueWaitTimer;
+        this.processor = processor;
+    }
+
+    AggregationCommand getAggregationCommand() {
+        return aggregationCommand;
+    }
+
+    Message<?> getMessage() {
+        return message;
+    }
+
+    Timer.Sample getQueueWaitTimer() {
+        return queueWaitTimer;
+    }
+
+    @Override
+    public void run() {
+        processor.accept(this);
+    }
+
+    @Override
+    public int compareTo(QueuedAggregationCommand other) {
+        int comparison = Long.compare(other.aggregationCommand.getEstimatedAggregationsCount(), aggregationCommand.getEstimatedAggregationsCount());
+        return comparison != 0 ? comparison : Long.compare(sequence, other.sequence);
+    }
+}
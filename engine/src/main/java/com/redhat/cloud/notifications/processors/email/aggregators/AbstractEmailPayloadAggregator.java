@@ -8,8 +8,18 @@ import java.util.Map;
 
 public abstract class AbstractEmailPayloadAggregator {
 
+    /*
+     * Version of the format of the states returned by saveState. It has to be incremented whenever an aggregator is
+     * modified in a way that makes the previously saved states incompatible with restoreState.
+     */
+    public static final int STATE_VERSION = 1;
+
     private static final String START_TIME_KEY = "start_time";
     private static final String END_TIME_KEY = "end_time";
+    private static final String ORG_ID_KEY = "org_id";
+    private static final String PROCESSED_AGGREGATIONS_KEY = "processed_aggregations";
+    private static final String CONTEXT_KEY = "context";
+    private static final String EXTRA_STATE_KEY = "extra";
 
     private LocalDateTime startTime;
     private LocalDateTime endTime;
@@ -38,6 +48,42 @@ public abstract class AbstractEmailPayloadAggregator {
         return payload;
     }
 
+    /**
+     * Returns the state of this aggregator, which only contains JSON types. An aggregator restored from that state
+     * with {@link #restoreState(JsonObject)} produces exactly the same context as this aggregator, including when
+     * more aggregations are aggregated afterwards.
+     */
+    public JsonObject saveState() {
+        JsonObject extraState = new JsonObject();
+        saveExtraState(extraState);
+        return new JsonObject()
+                .put(ORG_ID_KEY, orgId)
+                .put(PROCESSED_AGGREGATIONS_KEY, processedAggregations)
+                // The context may contain Java objects (sets, maps, counters...) which are converted to JSON types here.
+                .put(CONTEXT_KEY, new JsonObject(context.encode()))
+                .put(EXTRA_STATE_KEY, extraState);
+    }
+
+    /**
+     * Restores a state returned by {@link #saveState()}. This method must be called on a new aggregator.
+     */
+    public void restoreState(JsonObject state) {
+        orgId = state.getString(ORG_ID_KEY);
+        processedAggregations = state.getInteger(PROCESSED_AGGREGATIONS_KEY);
+        context = state.getJsonObject(CONTEXT_KEY).copy();
+        restoreExtraState(state.getJsonObject(EXTRA_STATE_KEY));
+    }
+
+    /*
+     * The aggregators which keep data outside of the context or which keep references to objects from the context
+     * have to override these methods.
+     */
+    void saveExtraState(JsonObject extraState) {
+    }
+
+    void restoreExtraState(JsonObject extraState) {
+    }
+
     void copyStringField(JsonObject to, JsonObject from, final String field) {
         to.put(field, from.getString(field));
     }
@@ -129,7 +129,7 @@ public class AdvisorEmailAggregator extends AbstractEmailPayloadAggregator {
     private Map<String, Map<String, Object>> deactivatedRecommendations = new LinkedHashMap<>();
 
     // The updatable JSON object that is set in the context.
-    private final JsonObject advisorJson;
+    private JsonObject advisorJson;
 
     private final AtomicInteger incidentCounter = new AtomicInteger(0);
 
@@ -238,6 +238,34 @@ public class AdvisorEmailAggregator extends AbstractEmailPayloadAggregator {
         });
     }
 
+    @Override
+    void restoreExtraState(JsonObject extraState) {
+        // The restored context contains copies of the helpers, it has to contain the helpers themselves.
+        advisorJson = context.getJsonObject(ADVISOR_KEY);
+        incidentCounter.set(advisorJson.getInteger(TOTAL_INCIDENT));
+        recommendationCounter.set(advisorJson.getInteger(TOTAL_RECOMMENDATION));
+        advisorJson.put(TOTAL_INCIDENT, incidentCounter);
+        advisorJson.put(TOTAL_RECOMMENDATION, recommendationCounter);
+        if (advisorJson.containsKey(NEW_RECOMMENDATIONS)) {
+            newRecommendations = restoreRecommendations(advisorJson.getJsonObject(NEW_RECOMMENDATIONS));
+            advisorJson.put(NEW_RECOMMENDATIONS, newRecommendations);
+        }
+        if (advisorJson.containsKey(RESOLVED_RECOMMENDATIONS)) {
+            resolvedRecommendations = restoreRecommendations(advisorJson.getJsonObject(RESOLVED_RECOMMENDATIONS));
+            advisorJson.put(RESOLVED_RECOMMENDATIONS, resolvedRecommendations);
+        }
+        if (advisorJson.containsKey(DEACTIVATED_RECOMMENDATIONS)) {
+            deactivatedRecommendations = restoreRecommendations(advisorJson.getJsonObject(DEACTIVATED_RECOMMENDATIONS));
+            advisorJson.put(DEACTIVATED_RECOMMENDATIONS, deactivatedRecommendations);
+        }
+    }
+
+    private static Map<String, Map<String, Object>> restoreRecommendations(JsonObject recommendations) {
+        Map<String, Map<String, Object>> restored = new LinkedHashMap<>();
+        recommendations.forEach(entry -> restored.put(entry.getKey(), new HashMap<>(((JsonObject) entry.getValue()).getMap())));
+        return restored;
+    }
+
     private void countRecommendationsAndIncidents(String ruleIncident) {
         recommendationCounter.incrementAndGet();
         if (Boolean.valueOf(ruleIncident)) {
@@ -4,6 +4,7 @@ import com.redhat.cloud.notifications.models.EmailAggregation;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -26,6 +27,10 @@ public class DriftEmailPayloadAggregator extends AbstractEmailPayloadAggregator
     private static final String INVENTORY_ID = "inventory_id";
     private static final String TAGS = "tags";
 
+    // Extra state
+    private static final String UNIQUE_HOSTS_STATE = "unique_hosts";
+    private static final String UNIQUE_HOSTS_PER_BASELINE_STATE = "unique_hosts_per_baseline";
+
     private final Set<String> uniqueHosts = new HashSet<>();
     private final Map<String, HashSet<String>> uniqueHostPerBaseline = new HashMap<>();
 
@@ -74,6 +79,24 @@ public class DriftEmailPayloadAggregator extends AbstractEmailPayloadAggregator
         this.context.put(UNIQUE_SYSTEM_COUNT, this.uniqueHosts.size());
     }
 
+    @Override
+    void saveExtraState(JsonObject extraState) {
+        JsonObject hostsPerBaseline = new JsonObject();
+        uniqueHostPerBaseline.forEach((baselineId, hosts) -> hostsPerBaseline.put(baselineId, new JsonArray(new ArrayList<>(hosts))));
+        extraState.put(UNIQUE_HOSTS_STATE, new JsonArray(new ArrayList<>(uniqueHosts)));
+        extraState.put(UNIQUE_HOSTS_PER_BASELINE_STATE, hostsPerBaseline);
+    }
+
+    @Override
+    void restoreExtraState(JsonObject extraState) {
+        extraState.getJsonArray(UNIQUE_HOSTS_STATE).forEach(host -> uniqueHosts.add((String) host));
+        extraState.getJsonObject(UNIQUE_HOSTS_PER_BASELINE_STATE).forEach(entry -> {
+            HashSet<String> hosts = new HashSet<>();
+            ((JsonArray) entry.getValue()).forEach(host -> hosts.add((String) host));
+            uniqueHostPerBaseline.put(entry.getKey(), hosts);
+        });
+    }
+
     public Integer getUniqueHostCount() {
         return this.uniqueHosts.size();
     }
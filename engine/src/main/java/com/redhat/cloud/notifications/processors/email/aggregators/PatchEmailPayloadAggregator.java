@@ -88,4 +88,11 @@ public class PatchEmailPayloadAggregator extends AbstractEmailPayloadAggregator
             totalAdvisories.incrementAndGet();
         });
     }
+
+    @Override
+    void restoreExtraState(JsonObject extraState) {
+        // The restored context contains the value of the counter, it has to contain the counter itself.
+        totalAdvisories.set(context.getInteger(TOTAL_ADVISORIES));
+        context.put(TOTAL_ADVISORIES, totalAdvisories);
+    }
 }
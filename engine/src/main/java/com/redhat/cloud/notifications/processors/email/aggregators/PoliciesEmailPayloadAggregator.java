@@ -4,6 +4,7 @@ import com.redhat.cloud.notifications.models.EmailAggregation;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 
+import java.util.ArrayList;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.Map;
@@ -29,6 +30,10 @@ class PoliciesEmailPayloadAggregator extends AbstractEmailPayloadAggregator {
     private static final String INVENTORY_ID = "inventory_id";
     private static final String TAGS = "tags";
 
+    // Extra state
+    private static final String UNIQUE_HOSTS_STATE = "unique_hosts";
+    private static final String UNIQUE_HOSTS_PER_POLICY_STATE = "unique_hosts_per_policy";
+
     private final Set<String> uniqueHosts = new HashSet<>();
     private final Map<String, HashSet<String>> uniqueHostPerPolicy = new HashMap<>();
 
@@ -77,6 +82,24 @@ class PoliciesEmailPayloadAggregator extends AbstractEmailPayloadAggregator {
         this.context.put(UNIQUE_SYSTEM_COUNT, this.uniqueHosts.size());
     }
 
+    @Override
+    void saveExtraState(JsonObject extraState) {
+        JsonObject hostsPerPolicy = new JsonObject();
+        uniqueHostPerPolicy.forEach((policyId, hosts) -> hostsPerPolicy.put(policyId, new JsonArray(new ArrayList<>(hosts))));
+        extraState.put(UNIQUE_HOSTS_STATE, new JsonArray(new ArrayList<>(uniqueHosts)));
+        extraState.put(UNIQUE_HOSTS_PER_POLICY_STATE, hostsPerPolicy);
+    }
+
+    @Override
+    void restoreExtraState(JsonObject extraState) {
+        extraState.getJsonArray(UNIQUE_HOSTS_STATE).forEach(host -> uniqueHosts.add((String) host));
+        extraState.getJsonObject(UNIQUE_HOSTS_PER_POLICY_STATE).forEach(entry -> {
+            HashSet<String> hosts = new HashSet<>();
+            ((JsonArray) entry.getValue()).forEach(host -> hosts.add((String) host));
+            uniqueHostPerPolicy.put(entry.getKey(), hosts);
+        });
+    }
+
     Integer getUniqueHostCount() {
         return this.uniqueHosts.size();
     }
@@ -20,6 +20,9 @@ public class ResourceOptimizationPayloadAggregator extends AbstractEmailPayloadA
     public static final String STATE = "state";
     public static final String SYSTEM_COUNT = "system_count";
 
+    // Extra state
+    private static final String CURRENT_STATES_STATE = "current_states";
+
     private final Map</* inventory_id */ String, /* current_state */ String> currentStates = new HashMap<>();
 
     ResourceOptimizationPayloadAggregator() {
@@ -67,7 +70,10 @@ public class ResourceOptimizationPayloadAggregator extends AbstractEmailPayloadA
         }
 
         aggregatedData.put(SYSTEMS_TRIGGERED, currentStates.keySet().size());
+        putStates(aggregatedData);
+    }
 
+    private void putStates(JsonObject aggregatedData) {
         /*
          * This transforms the currentStates map into another map where each state becomes a key
          * and the associated value is the number of systems that currently are in that state.
@@ -87,4 +93,27 @@ public class ResourceOptimizationPayloadAggregator extends AbstractEmailPayloadA
         }
         aggregatedData.put(STATES, states);
     }
+
+    @Override
+    void saveExtraState(JsonObject extraState) {
+        // The inventory ID may be null, so the entries are saved as [inventory_id, current_state] pairs.
+        JsonArray states = new JsonArray();
+        currentStates.forEach((inventoryId, currentState) -> states.add(new JsonArray().add(inventoryId).add(currentState)));
+        extraState.put(CURRENT_STATES_STATE, states);
+    }
+
+    @Override
+    void restoreExtraState(JsonObject extraState) {
+        // The entries are added in the iteration order of the saved map, which restores the same iteration order.
+        JsonArray states = extraState.getJsonArray(CURRENT_STATES_STATE);
+        for (int i = 0; i < states.size(); i++) {
+            JsonArray entry = states.getJsonArray(i);
+            currentStates.put(entry.getString(0), entry.getString(1));
+        }
+        JsonObject aggregatedData = context.getJsonObject(AGGREGATED_DATA);
+        if (aggregatedData.containsKey(STATES)) {
+            // The system counts are longs which were restored as integers.
+            putStates(aggregatedData);
+        }
+    }
 }
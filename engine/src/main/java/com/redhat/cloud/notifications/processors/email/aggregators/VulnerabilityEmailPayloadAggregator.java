@@ -1,6 +1,7 @@
 package com.redhat.cloud.notifications.processors.email.aggregators;
 
 import com.redhat.cloud.notifications.models.EmailAggregation;
+import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 
 import java.util.Arrays;
@@ -57,4 +58,16 @@ public class VulnerabilityEmailPayloadAggregator extends AbstractEmailPayloadAgg
         });
         vulnerability.put(REPORTED_CVES, uniqueCves);
     }
+
+    @Override
+    void restoreExtraState(JsonObject extraState) {
+        // The restored context contains a copy of the CVEs, it has to contain the set itself.
+        JsonObject vulnerability = context.getJsonObject(VULNERABILITY_KEY);
+        JsonArray reportedCves = vulnerability.getJsonArray(REPORTED_CVES);
+        if (reportedCves != null) {
+            // The CVEs are added in the iteration order of the saved set, which restores the same iteration order.
+            reportedCves.forEach(cve -> uniqueCves.add((String) cve));
+            vulnerability.put(REPORTED_CVES, uniqueCves);
+        }
+    }
 }
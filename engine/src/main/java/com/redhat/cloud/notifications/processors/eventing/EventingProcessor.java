@@ -84,7 +84,7 @@ public class EventingProcessor extends EndpointTypeProcessor {
         getSecretToken(properties).ifPresent(secretToken -> metaData.put(TOKEN_HEADER, secretToken));
         getBasicAuth(properties).ifPresent(basicAuth -> metaData.put("basicAuth", basicAuth));
 
-        final JsonObject payload = baseTransformer.toJsonObject(event);
+        final JsonObject payload = baseTransformer.transform(event).copyJsonObject();
         payload.put(NOTIF_METADATA_KEY, metaData);
 
         return payload;
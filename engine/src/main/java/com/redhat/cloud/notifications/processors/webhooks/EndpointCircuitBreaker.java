@@ -0,0 +1,292 @@
+package com.redhat.cloud.notifications.processors.webhooks;
+
+import com.redhat.cloud.notifications.db.repositories.EndpointRepository;
+import com.redhat.cloud.notifications.events.IntegrationDisabledNotifier;
+import com.redhat.cloud.notifications.models.Endpoint;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.quarkus.logging.Log;
+import io.quarkus.runtime.ShutdownEvent;
+import io.quarkus.scheduler.Scheduled;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.annotation.PostConstruct;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import java.time.Duration;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+import static com.redhat.cloud.notifications.processors.webhooks.WebhookTypeProcessor.DISABLED_WEBHOOKS_COUNTER;
+import static com.redhat.cloud.notifications.processors.webhooks.WebhookTypeProcessor.ERROR_TYPE_TAG_KEY;
+import static com.redhat.cloud.notifications.processors.webhooks.WebhookTypeProcessor.SERVER_TAG_VALUE;
+import static io.quarkus.scheduler.Scheduled.ConcurrentExecution.SKIP;
+
+/**
+ * Keeps track of the webhook calls outcome in memory, per endpoint. When an endpoint fails too many times in a row,
+ * its circuit is opened and the calls to that endpoint are short-circuited until a trial call is allowed again.
+ * <p>
+ * The server errors are only written to the DB when a circuit changes state or periodically, as a delta. This
+ * replaces the "SELECT FOR UPDATE" which was previously executed on every 5xx response and serialized all engine
+ * threads on the same DB row when a popular endpoint was down.
+ * <p>
+ * All state changes happen inside {@link ConcurrentHashMap#compute} calls, which lock a single bin of the map and
+ * therefore never block the threads calling other endpoints. DB queries are always executed outside of these calls.
+ */
+@ApplicationScoped
+public class EndpointCircuitBreaker {
+
+    public static final String OPENED_CIRCUITS_COUNTER = "processor.webhook.circuit-breaker.opened";
+    public static final String SHORT_CIRCUITED_CALLS_COUNTER = "processor.webhook.circuit-breaker.short-circuited";
+
+    @ConfigProperty(name = "processor.webhook.circuit-breaker.failure-threshold", defaultValue = "5")
+    int failureThreshold;
+
+    @ConfigProperty(name = "processor.webhook.circuit-breaker.open-duration", defaultValue = "30S")
+    Duration openDuration;
+
+    @ConfigProperty(name = "processor.webhook.max-server-errors", defaultValue = "10")
+    int maxServerErrors;
+
+    @Inject
+    EndpointRepository endpointRepository;
+
+    @Inject
+    IntegrationDisabledNotifier integrationDisabledNotifier;
+
+    @Inject
+    MeterRegistry registry;
+
+    private final Map<UUID, Circuit> circuits = new ConcurrentHashMap<>();
+    private Counter openedCircuitsCount;
+    private Counter shortCircuitedCallsCount;
+    private Counter disabledWebhooksServerErrorCount;
+
+    @PostConstruct
+    void postConstruct() {
+        openedCircuitsCount = registry.counter(OPENED_CIRCUITS_COUNTER);
+        shortCircuitedCallsCount = registry.counter(SHORT_CIRCUITED_CALLS_COUNTER);
+        disabledWebhooksServerErrorCount = registry.counter(DISABLED_WEBHOOKS_COUNTER, ERROR_TYPE_TAG_KEY, SERVER_TAG_VALUE);
+    }
+
+    /**
+     * Returns {@code true} if the endpoint identified by the given ID can be called. When the circuit of the endpoint
+     * is open, a single trial call is allowed once the configured open duration has elapsed.
+     */
+    public boolean allowRequest(UUID endpointId) {
+        boolean[] allowed = {true};
+        circuits.computeIfPresent(endpointId, (id, circuit) -> {
+            allowed[0] = circuit.allowRequest(System.currentTimeMillis(), openDuration.toMillis());
+            return circuit;
+        });
+        if (!allowed[0]) {
+            shortCircuitedCallsCount.increment();
+        }
+        return allowed[0];
+    }
+
+    public void onSuccess(Endpoint endpoint) {
+        boolean[] closed = new boolean[1];
+        circuits.compute(endpoint.getId(), (id, circuit) -> {
+            if (circuit == null) {
+                circuit = new Circuit();
+            }
+            closed[0] = circuit.onSuccess(endpoint);
+            return circuit;
+        });
+        if (closed[0]) {
+            Log.debugf("The circuit of endpoint %s was closed", endpoint.getId());
+            flush(endpoint.getId());
+        }
+    }
+
+    /**
+     * Records a 5xx response from the given endpoint. Server errors are counted in the DB.
+     */
+    public void onServerError(Endpoint endpoint) {
+        onFailure(endpoint, true);
+    }
+
+    /**
+     * Records a failed call to the given endpoint which did not produce an HTTP response (timeout, connection reset...).
+     * These failures can open the circuit but they are not counted in the DB.
+     */
+    public void onFailure(Endpoint endpoint) {
+        onFailure(endpoint, false);
+    }
+
+    private void onFailure(Endpoint endpoint, boolean serverError) {
+        boolean[] opened = new boolean[1];
+        boolean[] flushNow = new boolean[1];
+        circuits.compute(endpoint.getId(), (id, circuit) -> {
+            if (circuit == null) {
+                circuit = new Circuit();
+            }
+            opened[0] = circuit.onFailure(endpoint, serverError, System.currentTimeMillis(), failureThreshold);
+            // The DB may need to disable the endpoint, there's no reason to wait for the next periodic flush.
+            flushNow[0] = opened[0] || circuit.pendingServerErrors > maxServerErrors;
+            return circuit;
+        });
+        if (opened[0]) {
+            openedCircuitsCount.increment();
+            Log.debugf("The circuit of endpoint %s was opened", endpoint.getId());
+        }
+        if (flushNow[0]) {
+            flush(endpoint.getId());
+        }
+    }
+
+    @Scheduled(every = "${processor.webhook.circuit-breaker.flush-period:10s}", concurrentExecution = SKIP)
+    public void flushAll() {
+        for (UUID endpointId : circuits.keySet()) {
+            flush(endpointId);
+        }
+    }
+
+    void onShutdown(@Observes ShutdownEvent event) {
+        flushAll();
+    }
+
+    private void flush(UUID endpointId) {
+        PendingWrites[] pendingWrites = new PendingWrites[1];
+        circuits.computeIfPresent(endpointId, (id, circuit) -> {
+            pendingWrites[0] = circuit.drain();
+            // Idle circuits are removed from the map to prevent memory leaks.
+            return circuit.isIdle() ? null : circuit;
+        });
+        if (pendingWrites[0] != null) {
+            try {
+                write(endpointId, pendingWrites[0]);
+            } catch (Exception e) {
+                Log.warnf(e, "Server errors flush failed for endpoint %s, it will be retried later", endpointId);
+                circuits.compute(endpointId, (id, circuit) -> {
+                    if (circuit == null) {
+                        circuit = new Circuit();
+                    }
+                    circuit.restore(pendingWrites[0]);
+                    return circuit;
+                });
+            }
+        }
+    }
+
+    private void write(UUID endpointId, PendingWrites pendingWrites) {
+        if (pendingWrites.reset) {
+            // The server errors which happened before the last successful call are no longer relevant.
+            endpointRepository.resetEndpointServerErrors(endpointId);
+        }
+        if (pendingWrites.serverErrors > 0) {
+            boolean disabled = endpointRepository.addEndpointServerErrors(endpointId, pendingWrites.serverErrors, maxServerErrors);
+            if (disabled) {
+                disabledWebhooksServerErrorCount.increment();
+                Log.infof("Endpoint %s was disabled because we received too many 5xx status while calling it", endpointId);
+                integrationDisabledNotifier.tooManyServerErrors(pendingWrites.endpoint, maxServerErrors);
+            }
+        }
+    }
+
+    enum State {
+        CLOSED,
+        OPEN,
+        HALF_OPEN
+    }
+
+    /*
+     * Instances of this class are only accessed from ConcurrentHashMap#compute calls, which are atomic.
+     */
+    static class Circuit {
+
+        Endpoint endpoint;
+        State state = State.CLOSED;
+        long stateChangedAt;
+        int consecutiveFailures;
+        int pendingServerErrors;
+        boolean pendingReset;
+
+        boolean allowRequest(long now, long openDurationMillis) {
+            if (state == State.CLOSED) {
+                return true;
+            }
+            /*
+             * A trial call is allowed when the open duration has elapsed. If the outcome of a trial call is never
+             * recorded, another trial call will be allowed after the same duration.
+             */
+            if (now - stateChangedAt >= openDurationMillis) {
+                state = State.HALF_OPEN;
+                stateChangedAt = now;
+                return true;
+            }
+            return false;
+        }
+
+        /**
+         * @return {@code true} if the circuit was closed by this call
+         */
+        boolean onSuccess(Endpoint endpoint) {
+            this.endpoint = endpoint;
+            boolean closed = state != State.CLOSED;
+            state = State.CLOSED;
+            consecutiveFailures = 0;
+            pendingServerErrors = 0;
+            pendingReset = true;
+            return closed;
+        }
+
+        /**
+         * @return {@code true} if the circuit was opened by this call
+         */
+        boolean onFailure(Endpoint endpoint, boolean serverError, long now, int failureThreshold) {
+            this.endpoint = endpoint;
+            consecutiveFailures++;
+            if (serverError) {
+                pendingServerErrors++;
+            }
+            if (state == State.HALF_OPEN || state == State.CLOSED && consecutiveFailures >= failureThreshold) {
+                state = State.OPEN;
+                stateChangedAt = now;
+                return true;
+            }
+            return false;
+        }
+
+        PendingWrites drain() {
+            if (!pendingReset && pendingServerErrors == 0) {
+                return null;
+            }
+            PendingWrites pendingWrites = new PendingWrites(endpoint, pendingReset, pendingServerErrors);
+            pendingReset = false;
+            pendingServerErrors = 0;
+            return pendingWrites;
+        }
+
+        void restore(PendingWrites pendingWrites) {
+            if (endpoint == null) {
+                endpoint = pendingWrites.endpoint;
+            }
+            // If a reset is already pending, the server errors that failed to be written are no longer relevant.
+            if (!pendingReset) {
+                pendingReset = pendingWrites.reset;
+                pendingServerErrors += pendingWrites.serverErrors;
+            }
+        }
+
+        boolean isIdle() {
+            return state == State.CLOSED && consecutiveFailures == 0 && !pendingReset && pendingServerErrors == 0;
+        }
+    }
+
+    static class PendingWrites {
+
+        final Endpoint endpoint;
+        final boolean reset;
+        final int serverErrors;
+
+        PendingWrites(Endpoint endpoint, boolean reset, int serverErrors) {
+            this.endpoint = endpoint;
+            this.reset = reset;
+            this.serverErrors = serverErrors;
+        }
+    }
+}
@@ -19,11 +19,15 @@ import dev.failsafe.Failsafe;
 import dev.failsafe.RetryPolicy;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
 import io.netty.channel.ConnectTimeoutException;
 import io.quarkus.logging.Log;
+import io.quarkus.runtime.ShutdownEvent;
+import io.smallrye.mutiny.infrastructure.Infrastructure;
 import io.vertx.core.VertxException;
 import io.vertx.core.http.HttpMethod;
 import io.vertx.core.json.JsonObject;
+import io.vertx.mutiny.core.Vertx;
 import io.vertx.mutiny.core.buffer.Buffer;
 import io.vertx.mutiny.ext.web.client.HttpRequest;
 import io.vertx.mutiny.ext.web.client.HttpResponse;
@@ -32,13 +36,24 @@ import org.eclipse.microprofile.config.inject.ConfigProperty;
 
 import javax.annotation.PostConstruct;
 import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
 import javax.inject.Inject;
 import java.io.IOException;
+import java.net.URI;
 import java.time.Duration;
+import java.util.ArrayDeque;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.redhat.cloud.notifications.events.EndpointProcessor.DELAYED_EXCEPTION_MSG;
 import static com.redhat.cloud.notifications.models.EndpointType.EMAIL_SUBSCRIPTION;
@@ -59,7 +74,12 @@ public class WebhookTypeProcessor extends EndpointTypeProcessor {
     public static final String ERROR_TYPE_TAG_KEY = "error_type";
     public static final String CLIENT_TAG_VALUE = "client";
     public static final String SERVER_TAG_VALUE = "server";
+    public static final String IN_FLIGHT_REQUESTS_GAUGE = "processor.webhook.async.in-flight";
+    public static final String PENDING_RETRIES_GAUGE = "processor.webhook.async.pending-retries";
+    public static final String PENDING_DELIVERIES_GAUGE = "processor.webhook.async.pending-deliveries";
     private static final String TOKEN_HEADER = "X-Insight-Token";
+    private static final String CONTENT_TYPE_HEADER = "Content-Type";
+    private static final String JSON_CONTENT_TYPE = "application/json";
     private static final String CONNECTION_CLOSED_MSG = "Connection was closed";
 
     @ConfigProperty(name = "processor.webhook.retry.max-attempts", defaultValue = "3")
@@ -77,6 +97,17 @@ public class WebhookTypeProcessor extends EndpointTypeProcessor {
     @ConfigProperty(name = "processor.webhook.max-server-errors", defaultValue = "10")
     int maxServerErrors;
 
+    // Max number of requests sent concurrently to all the hosts, the retries waiting for their back-off excluded.
+    @ConfigProperty(name = "processor.webhook.async.max-concurrent-deliveries", defaultValue = "500")
+    int maxConcurrentDeliveries;
+
+    @ConfigProperty(name = "processor.webhook.async.max-concurrent-requests-per-host", defaultValue = "20")
+    int maxConcurrentRequestsPerHost;
+
+    // New deliveries to a host which already has that many deliveries waiting are failed immediately.
+    @ConfigProperty(name = "processor.webhook.async.max-waiting-deliveries-per-host", defaultValue = "1000")
+    int maxWaitingDeliveriesPerHost;
+
     @Inject
     @SslVerificationEnabled
     WebClient securedWebClient;
@@ -103,6 +134,12 @@ public class WebhookTypeProcessor extends EndpointTypeProcessor {
     @Inject
     SecretUtils secretUtils;
 
+    @Inject
+    Vertx vertx;
+
+    @Inject
+    EndpointCircuitBreaker endpointCircuitBreaker;
+
     private Counter processedWebhookCount;
     private Counter failedWebhookCount;
     private Counter retriedWebhookCount;
@@ -114,6 +151,15 @@ public class WebhookTypeProcessor extends EndpointTypeProcessor {
     private Counter disabledWebhooksClientErrorCount;
     private Counter disabledWebhooksServerErrorCount;
     private RetryPolicy<Object> retryPolicy;
+    private Semaphore deliveryPermits;
+    private final Map<String, HostState> hostStates = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlightRequests = new AtomicInteger();
+    private final AtomicInteger pendingRetries = new AtomicInteger();
+    // Deliveries which have a host slot and are waiting for a global delivery permit.
+    private final Queue<WebhookDelivery> readyDeliveries = new ConcurrentLinkedQueue<>();
+    // Deliveries whose history is not persisted yet, including the queued ones and the ones waiting for a retry.
+    private final Set<WebhookDelivery> pendingDeliveries = ConcurrentHashMap.newKeySet();
+    private volatile boolean shuttingDown;
 
     @Inject
     ConnectorSender connectorSender;
@@ -137,6 +183,30 @@ public class WebhookTypeProcessor extends EndpointTypeProcessor {
                 .withBackoff(initialRetryBackOff, maxRetryBackOff)
                 .withMaxRetries(maxRetryAttempts)
                 .build();
+        deliveryPermits = new Semaphore(maxConcurrentDeliveries);
+        registry.gauge(IN_FLIGHT_REQUESTS_GAUGE, inFlightRequests);
+        registry.gauge(PENDING_RETRIES_GAUGE, pendingRetries);
+        registry.gaugeCollectionSize(PENDING_DELIVERIES_GAUGE, Tags.empty(), pendingDeliveries);
+    }
+
+    /*
+     * The Kafka records of the pending deliveries were already acknowledged. The deliveries are given some time to
+     * complete, then the remaining ones are persisted as failed so that they still appear in the event log.
+     */
+    void onShutdown(@Observes ShutdownEvent event) {
+        shuttingDown = true;
+        long deadline = System.nanoTime() + awaitTimeout.toNanos();
+        while (!pendingDeliveries.isEmpty() && System.nanoTime() < deadline) {
+            try {
+                TimeUnit.MILLISECONDS.sleep(100L);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        for (WebhookDelivery delivery : List.copyOf(pendingDeliveries)) {
+            abort(delivery, "The webhook was not delivered because the engine was stopped");
+        }
     }
 
     @Override
@@ -146,9 +216,11 @@ public class WebhookTypeProcessor extends EndpointTypeProcessor {
             return;
         }
         DelayedThrower.throwEventually(DELAYED_EXCEPTION_MSG, accumulator -> {
+            // The transformed event is encoded at most once, the same body is then sent to all the endpoints.
+            Buffer[] body = new Buffer[1];
             for (Endpoint endpoint : endpoints) {
                 try {
-                    process(event, endpoint);
+                    process(event, endpoint, body);
                 } catch (Exception e) {
                     accumulator.add(e);
                 }
@@ -156,12 +228,10 @@ public class WebhookTypeProcessor extends EndpointTypeProcessor {
         });
     }
 
-    private void process(Event event, Endpoint endpoint) {
+    private void process(Event event, Endpoint endpoint, Buffer[] body) {
 
         WebhookProperties properties = endpoint.getProperties(WebhookProperties.class);
 
-        final JsonObject payload = transformer.toJsonObject(event);
-
         /*
          * Get the basic authentication and secret token secrets from Sources.
          */
@@ -173,9 +243,12 @@ public class WebhookTypeProcessor extends EndpointTypeProcessor {
             final JsonObject connectorData = new JsonObject();
 
             connectorData.put("endpoint_properties", properties);
-            connectorData.put("payload", payload);
+            // The message is serialized later, so it needs its own copy of the shared transformed event.
+            connectorData.put("payload", transformer.transform(event).copyJsonObject());
 
             connectorSender.send(event, endpoint, connectorData);
+        } else if (isCircuitOpen(endpoint)) {
+            persistShortCircuitedHistory(event, endpoint, properties.getMethod().name(), properties.getUrl());
         } else {
             final HttpRequest<Buffer> req = getWebClient(properties.getDisableSslVerification())
                 .requestAbs(HttpMethod.valueOf(properties.getMethod().name()), properties.getUrl());
@@ -188,10 +261,47 @@ public class WebhookTypeProcessor extends EndpointTypeProcessor {
                 req.basicAuthentication(properties.getBasicAuthentication().getUsername(), properties.getBasicAuthentication().getPassword());
             }
 
-            doHttpRequest(event, endpoint, req, payload, properties.getMethod().name(), properties.getUrl(), true);
+            if (body[0] == null) {
+                /*
+                 * Each request sends its own slice of the buffer, so the buffer can be shared by requests sent
+                 * concurrently. The webhook payload is not needed as a JsonObject once it is encoded.
+                 */
+                body[0] = Buffer.buffer(transformer.transform(event).encode());
+            }
+            if (featureFlipper.isWebhookAsyncDeliveryEnabled()) {
+                dispatchHttpRequest(event, endpoint, req, null, body[0], properties.getMethod().name(), properties.getUrl());
+            } else {
+                doHttpRequest(event, endpoint, req, null, body[0], properties.getMethod().name(), properties.getUrl(), true);
+            }
         }
     }
 
+    private boolean isCircuitOpen(Endpoint endpoint) {
+        return isCircuitBreakerEnabled() && !endpointCircuitBreaker.allowRequest(endpoint.getId());
+    }
+
+    private boolean isCircuitBreakerEnabled() {
+        return featureFlipper.isDisableWebhookEndpointsOnFailure() && featureFlipper.isWebhookCircuitBreakerEnabled();
+    }
+
+    /*
+     * The endpoint is not called because it failed too many times recently. The event log still needs to show
+     * that the notification was not delivered.
+     */
+    private void persistShortCircuitedHistory(Event event, Endpoint endpoint, String method, String url) {
+        Log.debugf("Webhook request to %s was short-circuited", url);
+        NotificationHistory history = buildNotificationHistory(event, endpoint, System.currentTimeMillis());
+        incrementProcessedMetrics(false);
+        history.setStatus(NotificationStatus.FAILED_INTERNAL);
+        Map<String, Object> details = new HashMap<>();
+        details.put("url", url);
+        details.put("method", method);
+        details.put("error_message", "The endpoint was not called because it failed too many times recently");
+        history.setDetails(details);
+        updateMetrics(history.getStatus(), false);
+        persistNotificationHistory(history);
+    }
+
     private WebClient getWebClient(boolean disableSSLVerification) {
         if (disableSSLVerification) {
             return unsecuredWebClient;
@@ -201,6 +311,14 @@ public class WebhookTypeProcessor extends EndpointTypeProcessor {
     }
 
     public void doHttpRequest(Event event, Endpoint endpoint, HttpRequest<Buffer> req, JsonObject payload, String method, String url, boolean persistHistory) {
+        doHttpRequest(event, endpoint, req, payload, Buffer.newInstance(payload.toBuffer()), method, url, persistHistory);
+    }
+
+    /*
+     * The payload is only needed as a JsonObject by the email endpoints, it is null for the other endpoints. The body
+     * is the encoded payload.
+     */
+    private void doHttpRequest(Event event, Endpoint endpoint, HttpRequest<Buffer> req, JsonObject payload, Buffer body, String method, String url, boolean persistHistory) {
         final long startTime = System.currentTimeMillis();
         boolean isEmailEndpoint = endpoint.getType() == EMAIL_SUBSCRIPTION;
         final NotificationHistory history = buildNotificationHistory(event, endpoint, startTime);
@@ -213,122 +331,310 @@ public class WebhookTypeProcessor extends EndpointTypeProcessor {
                 }
 
                 // TODO NOTIF-488 We may want to move to a non-reactive HTTP client in the future.
-                HttpResponse<Buffer> resp = req.sendJsonObject(payload).await().atMost(awaitTimeout);
-
-                boolean serverError = false;
-                boolean shouldResetEndpointServerErrors = false;
-                Map<String, Object> details = new HashMap<>();
-                if (isEmailEndpoint) {
-                    if (featureFlipper.isSendSingleEmailForMultipleRecipientsEnabled()) {
-                        try {
-                            int totalRecipients = payload.getJsonArray("emails").getJsonObject(0).getJsonArray("bccList").size();
-                            details.put("total_recipients", totalRecipients);
-                            history.setDetails(details);
-                            if (totalRecipients > 0) {
-                                Log.infof("Payload sent to bop = %s", payload);
-                            }
-                        } catch (Exception ex) {
-                            Log.error("Could not set the total_recipients field in the history details", ex);
-                        }
-                    }
+                HttpResponse<Buffer> resp = req.putHeader(CONTENT_TYPE_HEADER, JSON_CONTENT_TYPE).sendBuffer(body).await().atMost(awaitTimeout);
+
+                if (handleResponse(endpoint, history, resp, payload, body, method, url, isEmailEndpoint)) {
+                    throw new ServerErrorException();
                 }
-                if (resp.statusCode() >= 200 && resp.statusCode() < 300) {
-                    // Accepted
-                    Log.debugf("Webhook request to %s was successful: %d", url, resp.statusCode());
-                    history.setStatus(NotificationStatus.SUCCESS);
-                    shouldResetEndpointServerErrors = true;
-                } else if (resp.statusCode() >= 500) {
-                    // Temporary error, allow retry
-                    serverError = true;
-                    Log.debugf("Webhook request to %s failed: %d %s", url, resp.statusCode(), resp.statusMessage());
-                    history.setStatus(NotificationStatus.FAILED_INTERNAL);
-                    if (featureFlipper.isDisableWebhookEndpointsOnFailure()) {
-                        if (!isEmailEndpoint) {
-                            /*
-                             * The target endpoint returned a 5xx status. That kind of error happens in case of remote
-                             * server failure, which is usually something temporary. Sending another notification to
-                             * the same endpoint may work in the future, so the endpoint is only disabled if the max
-                             * number of endpoint failures allowed from the configuration is exceeded.
-                             */
-                            boolean disabled = endpointRepository.incrementEndpointServerErrors(endpoint.getId(), maxServerErrors);
-                            if (disabled) {
-                                disabledWebhooksServerErrorCount.increment();
-                                Log.infof("Endpoint %s was disabled because we received too many 5xx status while calling it", endpoint.getId());
-                                integrationDisabledNotifier.tooManyServerErrors(endpoint, maxServerErrors);
-                            }
-                        }
-                    }
-                } else {
-                    // Redirects etc should have been followed by the vertx (test this)
-                    if (isEmailEndpoint) {
-                        Log.warnf("Webhook request to %s failed: %d %s %s", url, resp.statusCode(), resp.statusMessage(), payload);
-                    } else {
-                        Log.debugf("Webhook request to %s failed: %d %s %s", url, resp.statusCode(), resp.statusMessage(), payload);
+            });
+        } catch (Exception e) {
+            handleFailure(endpoint, history, e, method, url, isEmailEndpoint);
+        } finally {
+            updateMetrics(history.getStatus(), isEmailEndpoint);
+            if (persistHistory) {
+                persistNotificationHistory(history);
+            }
+        }
+    }
+
+    /**
+     * Dispatches the HTTP request without waiting for the remote server. The request is sent from the Vert.x event
+     * loop as soon as the concurrency limits allow it, the retries are scheduled with Vert.x timers and the
+     * notification history is persisted from a worker thread once the delivery is complete. A delivery only takes a
+     * global delivery permit when its request is sent, so the deliveries waiting for a slow host don't delay the
+     * deliveries to the other hosts.
+     */
+    void dispatchHttpRequest(Event event, Endpoint endpoint, HttpRequest<Buffer> req, JsonObject payload, Buffer body, String method, String url) {
+        boolean isEmailEndpoint = endpoint.getType() == EMAIL_SUBSCRIPTION;
+        NotificationHistory history = buildNotificationHistory(event, endpoint, System.currentTimeMillis());
+        incrementProcessedMetrics(isEmailEndpoint);
+
+        WebhookDelivery delivery = new WebhookDelivery(endpoint, req, payload, body, method, url, history, isEmailEndpoint);
+        pendingDeliveries.add(delivery);
+        if (shuttingDown) {
+            abort(delivery, "The webhook was not delivered because the engine was stopped");
+        } else {
+            submit(delivery);
+        }
+    }
+
+    private void submit(WebhookDelivery delivery) {
+        boolean[] hostSlot = new boolean[1];
+        boolean[] rejected = new boolean[1];
+        hostStates.compute(delivery.host, (host, state) -> {
+            if (state == null) {
+                state = new HostState();
+            }
+            if (state.inFlight < maxConcurrentRequestsPerHost) {
+                state.inFlight++;
+                hostSlot[0] = true;
+            } else if (delivery.attempts > 0 || state.waiting.size() < maxWaitingDeliveriesPerHost) {
+                // A retry is never rejected, it already waited for its turn.
+                state.waiting.add(delivery);
+            } else {
+                rejected[0] = true;
+            }
+            return state;
+        });
+        if (rejected[0]) {
+            abort(delivery, "The webhook was not delivered because too many deliveries to the same host are waiting");
+        } else if (hostSlot[0]) {
+            dispatch(delivery);
+        }
+    }
+
+    // The delivery has a host slot, it is sent as soon as a global delivery permit is available.
+    private void dispatch(WebhookDelivery delivery) {
+        if (deliveryPermits.tryAcquire()) {
+            send(delivery);
+        } else {
+            readyDeliveries.add(delivery);
+            // A permit may have been released since the tryAcquire call.
+            sendReadyDeliveries();
+        }
+    }
+
+    private void sendReadyDeliveries() {
+        while (!readyDeliveries.isEmpty() && deliveryPermits.tryAcquire()) {
+            WebhookDelivery next = readyDeliveries.poll();
+            if (next == null) {
+                deliveryPermits.release();
+                return;
+            }
+            send(next);
+        }
+    }
+
+    private void releaseSlots(String host) {
+        deliveryPermits.release();
+        sendReadyDeliveries();
+        WebhookDelivery[] next = new WebhookDelivery[1];
+        hostStates.computeIfPresent(host, (h, state) -> {
+            // The host slot is handed over to the next waiting delivery if there is one.
+            next[0] = state.waiting.poll();
+            if (next[0] == null) {
+                state.inFlight--;
+            }
+            return state.inFlight == 0 ? null : state;
+        });
+        if (next[0] != null) {
+            dispatch(next[0]);
+        }
+    }
+
+    private void send(WebhookDelivery delivery) {
+        if (delivery.completed.get()) {
+            // The delivery was aborted while it was waiting.
+            releaseSlots(delivery.host);
+            return;
+        }
+        if (delivery.attempts > 0) {
+            updateRetryMetrics(delivery.isEmailEndpoint);
+        }
+        delivery.attempts++;
+        inFlightRequests.incrementAndGet();
+        delivery.req.putHeader(CONTENT_TYPE_HEADER, JSON_CONTENT_TYPE);
+        delivery.req.sendBuffer(delivery.body)
+                .ifNoItem().after(awaitTimeout).fail()
+                // The response handling may block (DB queries), it can't happen on the event loop.
+                .emitOn(Infrastructure.getDefaultWorkerPool())
+                .subscribe().with(
+                    resp -> onAttemptCompleted(delivery, resp, null),
+                    failure -> onAttemptCompleted(delivery, null, failure)
+            );
+    }
+
+    private void onAttemptCompleted(WebhookDelivery delivery, HttpResponse<Buffer> resp, Throwable failure) {
+        inFlightRequests.decrementAndGet();
+        releaseSlots(delivery.host);
+
+        Throwable retryCause = failure;
+        try {
+            if (failure == null && handleResponse(delivery.endpoint, delivery.history, resp, delivery.payload, delivery.body, delivery.method, delivery.url, delivery.isEmailEndpoint)) {
+                retryCause = new ServerErrorException();
+            }
+        } catch (Exception e) {
+            retryCause = e;
+        }
+
+        if (retryCause != null && shouldRetry(retryCause) && delivery.attempts <= maxRetryAttempts && !shuttingDown) {
+            scheduleRetry(delivery);
+        } else if (delivery.completed.compareAndSet(false, true)) {
+            try {
+                if (retryCause != null) {
+                    handleFailure(delivery.endpoint, delivery.history, retryCause, delivery.method, delivery.url, delivery.isEmailEndpoint);
+                }
+                updateMetrics(delivery.history.getStatus(), delivery.isEmailEndpoint);
+                persistNotificationHistory(delivery.history);
+            } finally {
+                pendingDeliveries.remove(delivery);
+            }
+        }
+    }
+
+    // Persists the history of a delivery which will not be sent (again) as failed.
+    private void abort(WebhookDelivery delivery, String errorMessage) {
+        if (!delivery.completed.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            Log.debugf("Webhook request to %s was aborted: %s", delivery.url, errorMessage);
+            delivery.history.setStatus(NotificationStatus.FAILED_INTERNAL);
+            Map<String, Object> details = new HashMap<>();
+            details.put("url", delivery.url);
+            details.put("method", delivery.method);
+            details.put("error_message", errorMessage);
+            delivery.history.setDetails(details);
+            updateMetrics(delivery.history.getStatus(), delivery.isEmailEndpoint);
+            persistNotificationHistory(delivery.history);
+        } finally {
+            pendingDeliveries.remove(delivery);
+        }
+    }
+
+    private void scheduleRetry(WebhookDelivery delivery) {
+        // Same exponential back-off as the Failsafe retry policy used by the synchronous delivery.
+        long delay = Math.min(initialRetryBackOff.toMillis() << Math.min(delivery.attempts - 1, 30), maxRetryBackOff.toMillis());
+        pendingRetries.incrementAndGet();
+        vertx.setTimer(Math.max(delay, 1L), timerId -> {
+            pendingRetries.decrementAndGet();
+            if (!delivery.completed.get()) {
+                submit(delivery);
+            }
+        });
+    }
+
+    /**
+     * Updates the history, the endpoint and the metrics based on the response of the remote server.
+     * @return {@code true} if the remote server replied with a 5xx status and the request should be retried
+     */
+    private boolean handleResponse(Endpoint endpoint, NotificationHistory history, HttpResponse<Buffer> resp, JsonObject payload, Buffer body, String method, String url, boolean isEmailEndpoint) {
+        boolean serverError = false;
+        boolean shouldResetEndpointServerErrors = false;
+        Map<String, Object> details = new HashMap<>();
+        if (isEmailEndpoint) {
+            if (featureFlipper.isSendSingleEmailForMultipleRecipientsEnabled()) {
+                try {
+                    int totalRecipients = payload.getJsonArray("emails").getJsonObject(0).getJsonArray("bccList").size();
+                    details.put("total_recipients", totalRecipients);
+                    history.setDetails(details);
+                    if (totalRecipients > 0) {
+                        Log.infof("Payload sent to bop = %s", payload);
                     }
-                    history.setStatus(NotificationStatus.FAILED_INTERNAL);
-                    // TODO NOTIF-512 Should we disable endpoints in case of 3xx status code?
-                    if (featureFlipper.isDisableWebhookEndpointsOnFailure()) {
-                        if (!isEmailEndpoint && resp.statusCode() >= 400 && resp.statusCode() < 500) {
-                            /*
-                             * The target endpoint returned a 4xx status. That kind of error requires an update of the
-                             * endpoint settings (URL, secret token...). The endpoint will most likely never return a
-                             * successful status code with the current settings, so it is disabled immediately.
-                             */
-                            boolean disabled = endpointRepository.disableEndpoint(endpoint.getId());
-                            if (disabled) {
-                                disabledWebhooksClientErrorCount.increment();
-                                Log.infof("Endpoint %s was disabled because we received a 4xx status while calling it", endpoint.getId());
-                                integrationDisabledNotifier.clientError(endpoint, resp.statusCode());
-                            }
-                        } else {
-                            /*
-                             * 3xx status codes may be considered has a failure soon, but first we need to confirm
-                             * that Vert.x is correctly following the redirections.
-                             */
-                            shouldResetEndpointServerErrors = true;
-                        }
+                } catch (Exception ex) {
+                    Log.error("Could not set the total_recipients field in the history details", ex);
+                }
+            }
+        }
+        if (resp.statusCode() >= 200 && resp.statusCode() < 300) {
+            // Accepted
+            Log.debugf("Webhook request to %s was successful: %d", url, resp.statusCode());
+            history.setStatus(NotificationStatus.SUCCESS);
+            shouldResetEndpointServerErrors = true;
+        } else if (resp.statusCode() >= 500) {
+            // Temporary error, allow retry
+            serverError = true;
+            Log.debugf("Webhook request to %s failed: %d %s", url, resp.statusCode(), resp.statusMessage());
+            history.setStatus(NotificationStatus.FAILED_INTERNAL);
+            if (featureFlipper.isDisableWebhookEndpointsOnFailure()) {
+                if (!isEmailEndpoint && featureFlipper.isWebhookCircuitBreakerEnabled()) {
+                    // The server errors are counted in memory and flushed to the DB later.
+                    endpointCircuitBreaker.onServerError(endpoint);
+                } else if (!isEmailEndpoint) {
+                    /*
+                     * The target endpoint returned a 5xx status. That kind of error happens in case of remote
+                     * server failure, which is usually something temporary. Sending another notification to
+                     * the same endpoint may work in the future, so the endpoint is only disabled if the max
+                     * number of endpoint failures allowed from the configuration is exceeded.
+                     */
+                    boolean disabled = endpointRepository.incrementEndpointServerErrors(endpoint.getId(), maxServerErrors);
+                    if (disabled) {
+                        disabledWebhooksServerErrorCount.increment();
+                        Log.infof("Endpoint %s was disabled because we received too many 5xx status while calling it", endpoint.getId());
+                        integrationDisabledNotifier.tooManyServerErrors(endpoint, maxServerErrors);
                     }
                 }
-
-                if (featureFlipper.isDisableWebhookEndpointsOnFailure()) {
-                    if (!isEmailEndpoint && shouldResetEndpointServerErrors) {
-                        // When a target endpoint is successfully called, its server errors counter is reset in the DB.
-                        boolean reset = endpointRepository.resetEndpointServerErrors(endpoint.getId());
-                        if (reset) {
-                            Log.tracef("The server errors counter of endpoint %s was just reset", endpoint.getId());
-                        }
+            }
+        } else {
+            // Redirects etc should have been followed by the vertx (test this)
+            if (isEmailEndpoint) {
+                Log.warnf("Webhook request to %s failed: %d %s %s", url, resp.statusCode(), resp.statusMessage(), payload);
+            } else {
+                Log.debugf("Webhook request to %s failed: %d %s %s", url, resp.statusCode(), resp.statusMessage(), body);
+            }
+            history.setStatus(NotificationStatus.FAILED_INTERNAL);
+            // TODO NOTIF-512 Should we disable endpoints in case of 3xx status code?
+            if (featureFlipper.isDisableWebhookEndpointsOnFailure()) {
+                if (!isEmailEndpoint && resp.statusCode() >= 400 && resp.statusCode() < 500) {
+                    /*
+                     * The target endpoint returned a 4xx status. That kind of error requires an update of the
+                     * endpoint settings (URL, secret token...). The endpoint will most likely never return a
+                     * successful status code with the current settings, so it is disabled immediately.
+                     */
+                    boolean disabled = endpointRepository.disableEndpoint(endpoint.getId());
+                    if (disabled) {
+                        disabledWebhooksClientErrorCount.increment();
+                        Log.infof("Endpoint %s was disabled because we received a 4xx status while calling it", endpoint.getId());
+                        integrationDisabledNotifier.clientError(endpoint, resp.statusCode());
                     }
+                } else {
+                    /*
+                     * 3xx status codes may be considered has a failure soon, but first we need to confirm
+                     * that Vert.x is correctly following the redirections.
+                     */
+                    shouldResetEndpointServerErrors = true;
                 }
+            }
+        }
 
-                if (history.getStatus() == NotificationStatus.FAILED_INTERNAL) {
-                    details.put("url", url);
-                    details.put("method", method);
-                    details.put("code", resp.statusCode());
-                    details.put("response_body", resp.bodyAsString());
-                    history.setDetails(details);
+        if (featureFlipper.isDisableWebhookEndpointsOnFailure()) {
+            if (!isEmailEndpoint && shouldResetEndpointServerErrors && featureFlipper.isWebhookCircuitBreakerEnabled()) {
+                endpointCircuitBreaker.onSuccess(endpoint);
+            } else if (!isEmailEndpoint && shouldResetEndpointServerErrors) {
+                // When a target endpoint is successfully called, its server errors counter is reset in the DB.
+                boolean reset = endpointRepository.resetEndpointServerErrors(endpoint.getId());
+                if (reset) {
+                    Log.tracef("The server errors counter of endpoint %s was just reset", endpoint.getId());
                 }
+            }
+        }
 
-                if (serverError) {
-                    throw new ServerErrorException();
-                }
-            });
-        } catch (Exception e) {
-            if (!(e instanceof ServerErrorException)) {
-                history.setStatus(NotificationStatus.FAILED_INTERNAL);
+        if (history.getStatus() == NotificationStatus.FAILED_INTERNAL) {
+            details.put("url", url);
+            details.put("method", method);
+            details.put("code", resp.statusCode());
+            details.put("response_body", resp.bodyAsString());
+            history.setDetails(details);
+        }
 
-                Log.debugf("Failed: %s", e.getMessage());
+        return serverError;
+    }
 
-                Map<String, Object> details = new HashMap<>();
-                details.put("url", url);
-                details.put("method", method);
-                details.put("error_message", e.getMessage()); // TODO This message isn't always the most descriptive..
-                history.setDetails(details);
-            }
-        } finally {
-            updateMetrics(history.getStatus(), isEmailEndpoint);
-            if (persistHistory) {
-                persistNotificationHistory(history);
+    private void handleFailure(Endpoint endpoint, NotificationHistory history, Throwable t, String method, String url, boolean isEmailEndpoint) {
+        if (!(t instanceof ServerErrorException)) {
+            history.setStatus(NotificationStatus.FAILED_INTERNAL);
+
+            if (!isEmailEndpoint && isCircuitBreakerEnabled()) {
+                endpointCircuitBreaker.onFailure(endpoint);
             }
+
+            Log.debugf("Failed: %s", t.getMessage());
+
+            Map<String, Object> details = new HashMap<>();
+            details.put("url", url);
+            details.put("method", method);
+            details.put("error_message", t.getMessage()); // TODO This message isn't always the most descriptive..
+            history.setDetails(details);
         }
     }
 
@@ -383,4 +689,50 @@ public class WebhookTypeProcessor extends EndpointTypeProcessor {
                 throwable instanceof ConnectTimeoutException ||
                 throwable instanceof VertxException && CONNECTION_CLOSED_MSG.equals(throwable.getMessage());
     }
+
+    private static String getHost(String url) {
+        try {
+            String authority = URI.create(url).getAuthority();
+            return authority == null ? url : authority;
+        } catch (IllegalArgumentException e) {
+            return url;
+        }
+    }
+
+    static class WebhookDelivery {
+
+        final Endpoint endpoint;
+        final HttpRequest<Buffer> req;
+        final JsonObject payload;
+        final Buffer body;
+        final String method;
+        final String url;
+        final String host;
+        final NotificationHistory history;
+        final boolean isEmailEndpoint;
+        // Set once the history of the delivery is about to be persisted, the delivery is then never sent again.
+        final AtomicBoolean completed = new AtomicBoolean();
+        int attempts;
+
+        WebhookDelivery(Endpoint endpoint, HttpRequest<Buffer> req, JsonObject payload, Buffer body, String method, String url, NotificationHistory history, boolean isEmailEndpoint) {
+            this.endpoint = endpoint;
+            this.req = req;
+            this.payload = payload;
+            this.body = body;
+            this.method = method;
+            this.url = url;
+            this.host = getHost(url);
+            this.history = history;
+            this.isEmailEndpoint = isEmailEndpoint;
+        }
+    }
+
+    /*
+     * Instances of this class are only accessed from ConcurrentHashMap#compute calls, which are atomic.
+     */
+    static class HostState {
+
+        int inFlight;
+        final Queue<WebhookDelivery> waiting = new ArrayDeque<>();
+    }
 }
@@ -6,10 +6,10 @@ import io.micrometer.core.instrument.MeterRegistry;
 import javax.annotation.PostConstruct;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.concurrent.atomic.AtomicInteger;
-import java.util.stream.Collectors;
 
 @ApplicationScoped
 public class RecipientResolver {
@@ -28,18 +28,20 @@ public class RecipientResolver {
     }
 
     public Set<User> recipientUsers(String orgId, Set<RecipientSettings> requests, Set<String> subscribers) {
-        return requests.stream()
-            .flatMap(r -> recipientUsers(orgId, r, subscribers, true).stream())
-            .collect(Collectors.toSet());
+        return recipientUsers(orgId, requests, subscribers, true);
     }
 
     public Set<User> recipientUsers(String orgId, Set<RecipientSettings> requests, Set<String> subscribers, boolean isOptIn) {
-        return requests.stream()
-                .flatMap(r -> recipientUsers(orgId, r, subscribers, isOptIn).stream())
-                .collect(Collectors.toSet());
+        // The usernames are compared ignoring case. The subscribers index is built once and shared by all requests.
+        Set<String> subscribersIndex = buildUsernamesIndex(subscribers);
+        Set<User> users = new HashSet<>();
+        for (RecipientSettings request : requests) {
+            users.addAll(recipientUsers(orgId, request, subscribersIndex, isOptIn));
+        }
+        return users;
     }
 
-    private Set<User> recipientUsers(String orgId, RecipientSettings request, Set<String> subscribers, boolean isOptIn) {
+    private Set<User> recipientUsers(String orgId, RecipientSettings request, Set<String> subscribersIndex, boolean isOptIn) {
         List<User> rbacUsers;
         if (request.getGroupId() == null) {
             rbacUsers = rbacRecipientUsersProvider.getUsers(orgId, request.isOnlyAdmins());
@@ -47,27 +49,27 @@ public class RecipientResolver {
             rbacUsers = rbacRecipientUsersProvider.getGroupUsers(orgId, request.isOnlyAdmins(), request.getGroupId());
         }
 
-        // The base list of recipients comes from RBAC.
-        Set<User> users = Set.copyOf(rbacUsers);
-
         // If the request contains a list of users, then the recipients from RBAC who are not included in
         // the request users list are filtered out.
         // Otherwise, the full list of recipients from RBAC will be processed by the next step.
-        if (request.getUsers().size() > 0) {
-            users = filterUsers(users, request.getUsers());
-        }
-
-        // If the user preferences should be ignored, the recipients from RBAC (possibly filtered by the
-        // previous step) is returned without filtering out the users who didn't subscribe to the event type.
-        if (request.isIgnoreUserPreferences()) {
-            users = Set.copyOf(users);
-        } else {
-            if (isOptIn) {
-                // Otherwise, the recipients from RBAC who didn't subscribe to the event type are filtered out.
-                users = filterUsers(users, subscribers);
-            } else {
-                users = filterUnsubscribedUsers(users, subscribers);
+        Set<String> requestUsersIndex = request.getUsers().isEmpty() ? null : buildUsernamesIndex(request.getUsers());
+
+        // The base list of recipients comes from RBAC. The users are only materialized once they are selected.
+        RecipientUsers recipientUsers = RecipientUsers.of(rbacUsers);
+        Set<User> users = new HashSet<>();
+        for (int i = 0; i < recipientUsers.size(); i++) {
+            String username = recipientUsers.getNormalizedUsername(i);
+            if (requestUsersIndex != null && !requestUsersIndex.contains(username)) {
+                continue;
+            }
+            // If the user preferences should be ignored, the recipients from RBAC (possibly filtered by the
+            // previous step) are kept without filtering out the users who didn't subscribe to the event type.
+            // Otherwise, the recipients from RBAC who didn't subscribe (opt-in) or who unsubscribed (opt-out)
+            // from the event type are filtered out.
+            if (!request.isIgnoreUserPreferences() && subscribersIndex.contains(username) != isOptIn) {
+                continue;
             }
+            users.add(recipientUsers.get(i));
         }
 
         updateUsersUsedGauge(users.size());
@@ -75,24 +77,12 @@ public class RecipientResolver {
         return users;
     }
 
-    private Set<User> filterUsers(Set<User> users, Set<String> target) {
-        return users.stream()
-                .filter(
-                    user -> target
-                            .stream()
-                            .anyMatch(requested -> requested.equalsIgnoreCase(user.getUsername()))
-                )
-                .collect(Collectors.toSet());
-    }
-
-    private Set<User> filterUnsubscribedUsers(Set<User> users, Set<String> target) {
-        return users.stream()
-            .filter(
-                user -> target
-                    .stream()
-                    .noneMatch(requested -> requested.equalsIgnoreCase(user.getUsername()))
-            )
-            .collect(Collectors.toSet());
+    private static Set<String> buildUsernamesIndex(Set<String> usernames) {
+        Set<String> index = new HashSet<>(usernames.size() * 4 / 3 + 1);
+        for (String username : usernames) {
+            index.add(RecipientUsers.normalizeUsername(username));
+        }
+        return index;
     }
 
     private void updateUsersUsedGauge(int users) {
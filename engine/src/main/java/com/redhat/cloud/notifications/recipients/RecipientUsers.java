@@ -0,0 +1,108 @@
+package com.redhat.cloud.notifications.recipients;
+
+import java.util.AbstractList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.RandomAccess;
+
+/**
+ * Compact and immutable list of users, used to cache the users of the orgs. Only the data needed to resolve the
+ * recipients of an event is kept: the ids, the usernames and the admin and active flags, stored as bits. The ids and
+ * usernames are interned, so a user who belongs to several cached lists (all users, admins, groups...) is only stored
+ * once. The {@link User} instances are created on demand when an element of the list is read.
+ */
+public final class RecipientUsers extends AbstractList<User> implements RandomAccess {
+
+    private static final RecipientUsers EMPTY = new RecipientUsers(new String[0], new String[0], new String[0], new BitSet(), new BitSet());
+
+    private final String[] ids;
+    private final String[] usernames;
+    // Lower case usernames. They are the same instances as the usernames when these are already lower case.
+    private final String[] normalizedUsernames;
+    private final BitSet admins;
+    private final BitSet active;
+
+    private RecipientUsers(String[] ids, String[] usernames, String[] normalizedUsernames, BitSet admins, BitSet active) {
+        this.ids = ids;
+        this.usernames = usernames;
+        this.normalizedUsernames = normalizedUsernames;
+        this.admins = admins;
+        this.active = active;
+    }
+
+    public static RecipientUsers of(List<User> users) {
+        if (users instanceof RecipientUsers) {
+            return (RecipientUsers) users;
+        }
+        if (users.isEmpty()) {
+            return EMPTY;
+        }
+        String[] ids = new String[users.size()];
+        String[] usernames = new String[users.size()];
+        String[] normalizedUsernames = new String[users.size()];
+        BitSet admins = new BitSet(users.size());
+        BitSet active = new BitSet(users.size());
+        for (int i = 0; i < users.size(); i++) {
+            User user = users.get(i);
+            ids[i] = intern(user.getId());
+            usernames[i] = intern(user.getUsername());
+            normalizedUsernames[i] = intern(normalizeUsername(usernames[i]));
+            admins.set(i, Boolean.TRUE.equals(user.isAdmin()));
+            active.set(i, Boolean.TRUE.equals(user.isActive()));
+        }
+        return new RecipientUsers(ids, usernames, normalizedUsernames, admins, active);
+    }
+
+    private static String intern(String value) {
+        return value == null ? null : value.intern();
+    }
+
+    // toLowerCase returns the same instance when the username is already lower case.
+    static String normalizeUsername(String username) {
+        return username == null ? null : username.toLowerCase(Locale.ROOT);
+    }
+
+    @Override
+    public User get(int index) {
+        User user = new User();
+        user.setId(getId(index));
+        user.setUsername(getUsername(index));
+        user.setAdmin(isAdmin(index));
+        user.setActive(isActive(index));
+        return user;
+    }
+
+    @Override
+    public int size() {
+        return usernames.length;
+    }
+
+    public String getId(int index) {
+        return ids[index];
+    }
+
+    public String getUsername(int index) {
+        return usernames[index];
+    }
+
+    String getNormalizedUsername(int index) {
+        return normalizedUsernames[index];
+    }
+
+    public boolean isAdmin(int index) {
+        checkIndex(index);
+        return admins.get(index);
+    }
+
+    public boolean isActive(int index) {
+        checkIndex(index);
+        return active.get(index);
+    }
+
+    private void checkIndex(int index) {
+        if (index < 0 || index >= usernames.length) {
+            throw new IndexOutOfBoundsException("Index " + index + " out of bounds for length " + usernames.length);
+        }
+    }
+}
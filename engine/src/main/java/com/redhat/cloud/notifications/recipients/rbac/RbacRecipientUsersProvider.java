@@ -1,6 +1,10 @@
 package com.redhat.cloud.notifications.recipients.rbac;
 
+import com.github.benmanes.caffeine.cache.Caffeine;
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.Ticker;
 import com.redhat.cloud.notifications.config.FeatureFlipper;
+import com.redhat.cloud.notifications.recipients.RecipientUsers;
 import com.redhat.cloud.notifications.recipients.User;
 import com.redhat.cloud.notifications.recipients.itservice.ITUserService;
 import com.redhat.cloud.notifications.recipients.itservice.pojo.request.ITUserRequest;
@@ -17,28 +21,39 @@ import dev.failsafe.function.CheckedSupplier;
 import io.micrometer.core.instrument.Counter;
 import io.micrometer.core.instrument.MeterRegistry;
 import io.micrometer.core.instrument.Tag;
+import io.micrometer.core.instrument.Tags;
 import io.micrometer.core.instrument.Timer;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
 import io.netty.channel.ConnectTimeoutException;
-import io.quarkus.cache.CacheResult;
 import io.quarkus.logging.Log;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
 import org.eclipse.microprofile.rest.client.inject.RestClient;
 import org.jboss.resteasy.reactive.ClientWebApplicationException;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 import javax.enterprise.context.ApplicationScoped;
 import javax.inject.Inject;
 import javax.ws.rs.core.Response;
 import java.io.IOException;
 import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.concurrent.atomic.AtomicInteger;
 import java.util.function.Function;
+import java.util.function.IntFunction;
+import java.util.function.Supplier;
 import java.util.stream.Collectors;
 
 @ApplicationScoped
@@ -46,6 +61,15 @@ public class RbacRecipientUsersProvider {
 
     public static final String MBOP_SORT_ORDER = "asc";
     public static final String ORG_ADMIN_PERMISSION = "admin:org:all";
+    public static final String CACHE_LOAD_TIMER_NAME = "recipients-cache.load";
+    public static final String CACHE_STALENESS_TIMER_NAME = "recipients-cache.staleness";
+    public static final String CACHE_USERS_GAUGE_NAME = "recipients-cache.users";
+    public static final String PAGES_FETCH_TIMER_NAME = "recipients.pages.fetch";
+    public static final String PAGES_COUNT_SUMMARY_NAME = "recipients.pages.count";
+    public static final String SOURCE_TAG_KEY = "source";
+    public static final String RBAC_SOURCE = "rbac";
+    public static final String IT_SOURCE = "it";
+    public static final String MBOP_SOURCE = "mbop";
 
     @Inject
     @RestClient
@@ -67,6 +91,16 @@ public class RbacRecipientUsersProvider {
     @ConfigProperty(name = "recipient-provider.mbop.max-results-per-page", defaultValue = "1000")
     int MBOPMaxResultsPerPage;
 
+    // Maximum number of concurrent page requests sent to each upstream when the parallel page fetching is enabled.
+    @ConfigProperty(name = "recipient-provider.rbac.max-parallel-pages", defaultValue = "4")
+    int rbacMaxParallelPages;
+
+    @ConfigProperty(name = "recipient-provider.it.max-parallel-pages", defaultValue = "4")
+    int itMaxParallelPages;
+
+    @ConfigProperty(name = "recipient-provider.mbop.max-parallel-pages", defaultValue = "4")
+    int mbopMaxParallelPages;
+
     @ConfigProperty(name = "rbac.retry.max-attempts", defaultValue = "3")
     int maxRetryAttempts;
 
@@ -103,6 +137,31 @@ public class RbacRecipientUsersProvider {
     @ConfigProperty(name = "processor.email.bop_env")
     String bopEnv;
 
+    /*
+     * The cached users are reloaded in the background when they are requested after this duration. The previous
+     * users are returned until the reload is done.
+     */
+    @ConfigProperty(name = "recipient-provider.cache.refresh-after-write", defaultValue = "5M")
+    Duration cacheRefreshAfterWrite;
+
+    /*
+     * The cached users are evicted this duration after they were loaded or reloaded, whether they are requested or
+     * not. Only a request made after refresh-after-write triggers a reload, which restarts this delay.
+     */
+    @ConfigProperty(name = "recipient-provider.cache.expire-after-write", defaultValue = "10M")
+    Duration cacheExpireAfterWrite;
+
+    // Deprecated, expire-after-write applies to the group users too unless this is set.
+    @ConfigProperty(name = "recipient-provider.cache.group-users-expire-after-write")
+    Optional<Duration> groupUsersCacheExpireAfterWrite;
+
+    // Maximum number of users held by each cache, all orgs combined.
+    @ConfigProperty(name = "recipient-provider.cache.max-users", defaultValue = "1000000")
+    long cacheMaxUsers;
+
+    @ConfigProperty(name = "recipient-provider.cache.refresh-threads", defaultValue = "4")
+    int cacheRefreshThreads;
+
     @Inject
     MeterRegistry meterRegistry;
 
@@ -122,8 +181,27 @@ public class RbacRecipientUsersProvider {
 
     private Map</* orgId */ String, AtomicInteger> rbacUsers = new ConcurrentHashMap<>();
 
+    private ExecutorService cacheRefresher;
+    private final Map</* source */ String, PageFetcher> pageFetchers = new ConcurrentHashMap<>();
+    private LoadingCache<UsersKey, CachedUsers> usersCache;
+    private LoadingCache<GroupUsersKey, CachedUsers> groupUsersCache;
+
     @PostConstruct
     public void init() {
+        cacheRefresher = newDaemonThreadPool(cacheRefreshThreads, "recipients-cache-refresher-");
+        pageFetchers.put(RBAC_SOURCE, new PageFetcher(rbacMaxParallelPages, newDaemonThreadPool(rbacMaxParallelPages, "rbac-page-fetcher-")));
+        pageFetchers.put(IT_SOURCE, new PageFetcher(itMaxParallelPages, newDaemonThreadPool(itMaxParallelPages, "it-page-fetcher-")));
+        pageFetchers.put(MBOP_SOURCE, new PageFetcher(mbopMaxParallelPages, newDaemonThreadPool(mbopMaxParallelPages, "mbop-page-fetcher-")));
+        usersCache = buildCache(key -> load(getUsersSource(), () -> fetchUsers(key.orgId(), key.adminsOnly())),
+                cacheRefreshAfterWrite, cacheExpireAfterWrite, cacheMaxUsers, cacheRefresher, Ticker.systemTicker());
+        groupUsersCache = buildCache(key -> load(RBAC_SOURCE, () -> fetchGroupUsers(key.orgId(), key.adminsOnly(), key.groupId())),
+                cacheRefreshAfterWrite, groupUsersCacheExpireAfterWrite.orElse(cacheExpireAfterWrite), cacheMaxUsers, cacheRefresher, Ticker.systemTicker());
+        CaffeineCacheMetrics.monitor(meterRegistry, usersCache, "recipients-users");
+        CaffeineCacheMetrics.monitor(meterRegistry, groupUsersCache, "recipients-group-users");
+        for (String source : List.of(RBAC_SOURCE, IT_SOURCE, MBOP_SOURCE)) {
+            meterRegistry.gauge(CACHE_USERS_GAUGE_NAME, Tags.of(SOURCE_TAG_KEY, source), this, ignored -> countCachedUsers(source));
+        }
+
         rbacFailuresCounter = meterRegistry.counter("rbac.failures");
 
         rbacRetryPolicy = RetryPolicy.builder()
@@ -166,8 +244,92 @@ public class RbacRecipientUsersProvider {
             .build();
     }
 
-    @CacheResult(cacheName = "rbac-recipient-users-provider-get-users")
+    @PreDestroy
+    void shutdown() {
+        cacheRefresher.shutdown();
+        for (PageFetcher pageFetcher : pageFetchers.values()) {
+            pageFetcher.executor().shutdown();
+        }
+    }
+
+    private static ExecutorService newDaemonThreadPool(int threads, String threadNamePrefix) {
+        AtomicInteger threadCount = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, threadNamePrefix + threadCount.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /*
+     * The users are cached with a refresh-ahead policy: concurrent loads of the same key are coalesced into a single
+     * call to the users source and the entries that are still requested are reloaded in the background before they
+     * expire, so that large orgs don't block the event processing while their users are fetched again.
+     */
+    static <K> LoadingCache<K, CachedUsers> buildCache(Function<K, CachedUsers> loader, Duration refreshAfterWrite,
+            Duration expireAfterWrite, long maxUsers, Executor executor, Ticker ticker) {
+        return Caffeine.newBuilder()
+                .executor(executor)
+                .ticker(ticker)
+                .refreshAfterWrite(refreshAfterWrite)
+                .expireAfterWrite(expireAfterWrite)
+                .maximumWeight(maxUsers)
+                .weigher((K key, CachedUsers cachedUsers) -> Math.max(1, cachedUsers.users().size()))
+                .recordStats()
+                .build(loader::apply);
+    }
+
+    private CachedUsers load(String source, Supplier<List<User>> fetcher) {
+        Timer.Sample loadTimer = Timer.start(meterRegistry);
+        List<User> users = fetcher.get();
+        loadTimer.stop(meterRegistry.timer(CACHE_LOAD_TIMER_NAME, SOURCE_TAG_KEY, source));
+        // The users are cached in a compact form which only keeps the data needed to resolve the recipients.
+        return new CachedUsers(RecipientUsers.of(users), source, Instant.now());
+    }
+
+    private <K> List<User> getCachedUsers(LoadingCache<K, CachedUsers> cache, K key) {
+        CachedUsers cachedUsers = cache.get(key);
+        meterRegistry.timer(CACHE_STALENESS_TIMER_NAME, SOURCE_TAG_KEY, cachedUsers.source())
+                .record(Duration.between(cachedUsers.loaded(), Instant.now()));
+        return cachedUsers.users();
+    }
+
+    private long countCachedUsers(String source) {
+        long count = 0;
+        for (LoadingCache<?, CachedUsers> cache : List.of(usersCache, groupUsersCache)) {
+            for (CachedUsers cachedUsers : cache.asMap().values()) {
+                if (cachedUsers.source().equals(source)) {
+                    count += cachedUsers.users().size();
+                }
+            }
+        }
+        return count;
+    }
+
+    void clearCaches() {
+        usersCache.invalidateAll();
+        groupUsersCache.invalidateAll();
+    }
+
+    private String getUsersSource() {
+        if (featureFlipper.isUseRbacForFetchingUsers()) {
+            return RBAC_SOURCE;
+        } else if (featureFlipper.isUseMBOPForFetchingUsers()) {
+            return MBOP_SOURCE;
+        } else {
+            return IT_SOURCE;
+        }
+    }
+
     public List<User> getUsers(String orgId, boolean adminsOnly) {
+        return getCachedUsers(usersCache, new UsersKey(orgId, adminsOnly));
+    }
+
+    public List<User> getGroupUsers(String orgId, boolean adminOnly, UUID groupId) {
+        return getCachedUsers(groupUsersCache, new GroupUsersKey(orgId, adminOnly, groupId));
+    }
+
+    private List<User> fetchUsers(String orgId, boolean adminsOnly) {
         Timer.Sample getUsersTotalTimer = Timer.start(meterRegistry);
 
         List<User> users;
@@ -175,50 +337,30 @@ public class RbacRecipientUsersProvider {
             users = getWithPagination(
                     page -> retryOnRbacError(() -> rbacServiceToService.getUsers(orgId, adminsOnly, page * rbacElementsPerPage, rbacElementsPerPage)));
         } else if (this.featureFlipper.isUseMBOPForFetchingUsers()) {
-            final List<MBOPUser> mbopUsers = new ArrayList<>();
-
-            // Keep the offset to ask for more users in case we need it.
-            int offset = 0;
-            // The page size of the returned call. Used to see if we should
-            // keep calling for more users!
-            int pageSize;
-            do {
-                // Required variable since lambdas are not allowed to modify
-                // the captured variables.
-                int finalOffset = offset;
-                final List<MBOPUser> receivedUsers = this.retryOnMBOPError(() ->
-                    this.mbopService.getUsersByOrgId(
-                        this.bopApiToken,
-                        this.bopClientId,
-                        this.bopEnv,
-                        orgId,
-                        adminsOnly,
-                        MBOP_SORT_ORDER,
-                        this.MBOPMaxResultsPerPage,
-                        finalOffset
-                    )
-                );
-
-                mbopUsers.addAll(receivedUsers);
-
-                offset += receivedUsers.size();
-                pageSize = receivedUsers.size();
-            } while (pageSize == this.MBOPMaxResultsPerPage);
+            final List<MBOPUser> mbopUsers = this.fetchPages(MBOP_SOURCE, this.MBOPMaxResultsPerPage, page ->
+                new UpstreamPage<>(
+                    this.retryOnMBOPError(() ->
+                        this.mbopService.getUsersByOrgId(
+                            this.bopApiToken,
+                            this.bopClientId,
+                            this.bopEnv,
+                            orgId,
+                            adminsOnly,
+                            MBOP_SORT_ORDER,
+                            this.MBOPMaxResultsPerPage,
+                            page * this.MBOPMaxResultsPerPage
+                        )
+                    ),
+                    null
+                )
+            );
 
             users = this.transformMBOPUserToUser(mbopUsers);
         } else {
-            List<ITUserResponse> usersPaging;
-            List<ITUserResponse> usersTotal = new ArrayList<>();
-
-            int firstResult = 0;
-
-            do {
-                ITUserRequest request = new ITUserRequest(orgId, adminsOnly, firstResult, maxResultsPerPage);
-                usersPaging = retryOnItError(() -> itUserService.getUsers(request));
-                usersTotal.addAll(usersPaging);
-
-                firstResult += maxResultsPerPage;
-            } while (usersPaging.size() == maxResultsPerPage);
+            List<ITUserResponse> usersTotal = fetchPages(IT_SOURCE, maxResultsPerPage, page -> {
+                ITUserRequest request = new ITUserRequest(orgId, adminsOnly, page * maxResultsPerPage, maxResultsPerPage);
+                return new UpstreamPage<>(retryOnItError(() -> itUserService.getUsers(request)), null);
+            });
 
             users = transformToUser(usersTotal);
         }
@@ -238,8 +380,7 @@ public class RbacRecipientUsersProvider {
         });
     }
 
-    @CacheResult(cacheName = "rbac-recipient-users-provider-get-group-users")
-    public List<User> getGroupUsers(String orgId, boolean adminOnly, UUID groupId) {
+    private List<User> fetchGroupUsers(String orgId, boolean adminOnly, UUID groupId) {
         Timer.Sample getGroupUsersTotalTimer = Timer.start(meterRegistry);
         RbacGroup rbacGroup;
         try {
@@ -294,25 +435,99 @@ public class RbacRecipientUsersProvider {
     }
 
     private List<User> getWithPagination(Function<Integer, Page<RbacUser>> fetcher) {
-        List<User> users = new ArrayList<>();
-        int page = 0;
-        Page<RbacUser> rbacUsers;
-        do {
-            rbacUsers = fetcher.apply(page++);
-            for (RbacUser rbacUser : rbacUsers.getData()) {
-                User user = new User();
-                user.setUsername(rbacUser.getUsername());
-                user.setEmail(rbacUser.getEmail());
-                user.setAdmin(rbacUser.getOrgAdmin());
-                user.setActive(rbacUser.getActive());
-                user.setFirstName(rbacUser.getFirstName());
-                user.setLastName(rbacUser.getLastName());
-                users.add(user);
-            }
-        } while (rbacUsers.getData().size() == rbacElementsPerPage);
+        List<RbacUser> rbacUsers = fetchPages(RBAC_SOURCE, rbacElementsPerPage, page -> {
+            Page<RbacUser> rbacUsersPage = fetcher.apply(page);
+            Long count = rbacUsersPage.getMeta() == null ? null : rbacUsersPage.getMeta().getCount();
+            return new UpstreamPage<>(rbacUsersPage.getData(), count);
+        });
+        List<User> users = new ArrayList<>(rbacUsers.size());
+        for (RbacUser rbacUser : rbacUsers) {
+            User user = new User();
+            user.setUsername(rbacUser.getUsername());
+            user.setEmail(rbacUser.getEmail());
+            user.setAdmin(rbacUser.getOrgAdmin());
+            user.setActive(rbacUser.getActive());
+            user.setFirstName(rbacUser.getFirstName());
+            user.setLastName(rbacUser.getLastName());
+            users.add(user);
+        }
         return users;
     }
 
+    /*
+     * Fetches all pages from a paginated upstream API and returns their elements in order. The pages are fetched one
+     * by one until a page with less than pageSize elements is received, unless the parallel page fetching is enabled.
+     * In that case, the pages that follow the first one are fetched concurrently by waves of at most
+     * max-parallel-pages requests. When the upstream returns the total number of elements, the waves don't go beyond
+     * the last page. Otherwise, the pages are fetched speculatively until a page with less than pageSize elements is
+     * received. The retry policy of the upstream is applied to each page request.
+     */
+    private <T> List<T> fetchPages(String source, int pageSize, IntFunction<UpstreamPage<T>> pageFetcher) {
+        Timer.Sample fetchTimer = Timer.start(meterRegistry);
+        UpstreamPage<T> firstPage = pageFetcher.apply(0);
+        List<T> elements = new ArrayList<>(firstPage.elements());
+        int pageCount;
+        if (firstPage.elements().size() < pageSize) {
+            pageCount = 1;
+        } else if (featureFlipper.isRecipientsParallelPageFetchingEnabled()) {
+            pageCount = fetchRemainingPagesConcurrently(pageFetchers.get(source), pageSize, firstPage.totalCount(), pageFetcher, elements);
+        } else {
+            UpstreamPage<T> page;
+            pageCount = 1;
+            do {
+                page = pageFetcher.apply(pageCount++);
+                elements.addAll(page.elements());
+            } while (page.elements().size() == pageSize);
+        }
+        fetchTimer.stop(meterRegistry.timer(PAGES_FETCH_TIMER_NAME, SOURCE_TAG_KEY, source));
+        meterRegistry.summary(PAGES_COUNT_SUMMARY_NAME, SOURCE_TAG_KEY, source).record(pageCount);
+        return elements;
+    }
+
+    private static <T> int fetchRemainingPagesConcurrently(PageFetcher pageFetcher, int pageSize, Long totalCount,
+            IntFunction<UpstreamPage<T>> fetcher, List<T> elements) {
+        int lastPage = totalCount == null ? Integer.MAX_VALUE : (int) ((totalCount - 1) / pageSize);
+        int nextPage = 1;
+        while (true) {
+            int firstPageOfWave = nextPage;
+            List<Future<UpstreamPage<T>>> wave = new ArrayList<>();
+            // At least one page is requested in each wave in case the total count changed since the first page.
+            for (int i = 0; i < pageFetcher.maxParallelPages() && (i == 0 || nextPage <= lastPage); i++) {
+                int page = nextPage++;
+                wave.add(pageFetcher.executor().submit(() -> fetcher.apply(page)));
+            }
+            try {
+                for (int i = 0; i < wave.size(); i++) {
+                    UpstreamPage<T> page = await(wave.get(i));
+                    elements.addAll(page.elements());
+                    if (page.elements().size() < pageSize) {
+                        // Number of pages fetched, including the first one.
+                        return firstPageOfWave + i + 1;
+                    }
+                }
+            } finally {
+                // The speculative requests that follow the last page are no longer needed.
+                for (Future<UpstreamPage<T>> future : wave) {
+                    future.cancel(true);
+                }
+            }
+        }
+    }
+
+    private static <T> T await(Future<T> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while fetching the users", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new IllegalStateException("Users fetching failed", e.getCause());
+        }
+    }
+
     List<User> transformToUser(List<ITUserResponse> itUserResponses) {
         List<User> users = new ArrayList<>();
         for (ITUserResponse itUserResponse : itUserResponses) {
@@ -375,4 +590,14 @@ public class RbacRecipientUsersProvider {
 
         return users;
     }
+
+    private record UsersKey(String orgId, boolean adminsOnly) { }
+
+    private record GroupUsersKey(String orgId, boolean adminsOnly, UUID groupId) { }
+
+    record CachedUsers(List<User> users, String source, Instant loaded) { }
+
+    private record UpstreamPage<T>(List<T> elements, Long totalCount) { }
+
+    private record PageFetcher(int maxParallelPages, ExecutorService executor) { }
 }
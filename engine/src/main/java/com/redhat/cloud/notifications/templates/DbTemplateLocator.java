@@ -1,14 +1,11 @@
 package com.redhat.cloud.notifications.templates;
 
-import com.redhat.cloud.notifications.models.Template;
 import io.quarkus.logging.Log;
 import io.quarkus.qute.Locate;
 import io.quarkus.qute.TemplateLocator;
 import io.quarkus.qute.Variant;
 
 import javax.inject.Inject;
-import javax.persistence.EntityManager;
-import javax.persistence.NoResultException;
 import java.io.Reader;
 import java.io.StringReader;
 import java.util.Optional;
@@ -17,18 +14,19 @@ import java.util.Optional;
 public class DbTemplateLocator implements TemplateLocator {
 
     @Inject
-    EntityManager entityManager;
+    DbTemplateSnapshot dbTemplateSnapshot;
+
+    @Inject
+    TemplateService templateService;
 
     @Override
     public Optional<TemplateLocation> locate(String name) {
-        String hql = "FROM Template WHERE name = :name";
-        try {
-            Template template = entityManager.createQuery(hql, Template.class)
-                    .setParameter("name", name)
-                    .getSingleResult();
+        Optional<String> templateData = dbTemplateSnapshot.getTemplateData(name);
+        if (templateData.isPresent()) {
             Log.tracef("Template with [name=%s] found in the database", name);
-            return Optional.of(buildTemplateLocation(template.getData()));
-        } catch (NoResultException e) {
+            templateService.registerIncludes(name, templateData.get());
+            return Optional.of(buildTemplateLocation(templateData.get()));
+        } else {
             Log.tracef("Template with [name=%s] not found in the database", name);
             return Optional.empty();
         }
@@ -0,0 +1,199 @@
+package com.redhat.cloud.notifications.templates;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import io.quarkus.logging.Log;
+import io.quarkus.runtime.StartupEvent;
+import io.quarkus.scheduler.Scheduled;
+import org.eclipse.microprofile.config.inject.ConfigProperty;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.context.control.ActivateRequestContext;
+import javax.enterprise.event.Observes;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static io.quarkus.scheduler.Scheduled.ConcurrentExecution.SKIP;
+
+/**
+ * In-memory copy of the sources of all DB templates, indexed by template name. {@link DbTemplateLocator} reads it
+ * without ever querying the DB. The snapshot is loaded with a single query at startup, then refreshed periodically
+ * or on demand with the templates created or updated since the last refresh. The templates which no longer exist in
+ * the DB are removed from the snapshot, which is entirely reloaded if a template is still missing after that.
+ */
+@ApplicationScoped
+public class DbTemplateSnapshot {
+
+    public static final String SNAPSHOT_SIZE_GAUGE = "templates.snapshot.size";
+    public static final String SNAPSHOT_AGE_GAUGE = "templates.snapshot.age";
+
+    /*
+     * The timestamps are set by the application before the transaction is committed, so a template may become
+     * visible after a template with a more recent timestamp. The refresh query overlaps with the previous one
+     * to make sure such templates are not missed.
+     */
+    @ConfigProperty(name = "notifications.template-snapshot.refresh-overlap", defaultValue = "1M")
+    Duration refreshOverlap;
+
+    @Inject
+    EntityManager entityManager;
+
+    @Inject
+    MeterRegistry registry;
+
+    private volatile Snapshot snapshot = new Snapshot(Map.of(), null, Instant.now());
+    private final AtomicReference<CompletableFuture<Set<String>>> queuedRefresh = new AtomicReference<>();
+    private ExecutorService refresher;
+
+    @PostConstruct
+    void postConstruct() {
+        registry.gauge(SNAPSHOT_SIZE_GAUGE, this, ignored -> snapshot.templates.size());
+        TimeGauge.builder(SNAPSHOT_AGE_GAUGE, this, TimeUnit.MILLISECONDS,
+                ignored -> Duration.between(snapshot.refreshed, Instant.now()).toMillis())
+                .register(registry);
+        refresher = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "templates-snapshot-refresher");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @PreDestroy
+    void preDestroy() {
+        refresher.shutdownNow();
+    }
+
+    @ActivateRequestContext
+    void onStartup(@Observes StartupEvent event) {
+        reload();
+    }
+
+    public Optional<String> getTemplateData(String name) {
+        return Optional.ofNullable(snapshot.templates.get(name));
+    }
+
+    /**
+     * Loads the sources of all DB templates and replaces the current snapshot.
+     */
+    public synchronized void reload() {
+        List<Object[]> templates = entityManager.createQuery("SELECT name, data, created, updated FROM Template", Object[].class)
+                .getResultList();
+        snapshot = buildSnapshot(new HashMap<>(), templates, null);
+        Log.debugf("Templates snapshot loaded with %d templates", snapshot.templates.size());
+    }
+
+    @Scheduled(every = "${notifications.template-snapshot.refresh-period:10s}", concurrentExecution = SKIP)
+    void periodicRefresh() {
+        refresh();
+    }
+
+    /**
+     * Merges the templates which were created or updated since the last refresh into a new snapshot.
+     * @return the names of the templates which were created, modified or deleted
+     */
+    @ActivateRequestContext
+    public synchronized Set<String> refresh() {
+        Snapshot current = snapshot;
+        if (current.lastModified == null) {
+            reload();
+            return changedTemplates(current, snapshot);
+        }
+        LocalDateTime since = current.lastModified.minus(refreshOverlap);
+        List<Object[]> modifiedTemplates = entityManager.createQuery("SELECT name, data, created, updated FROM Template " +
+                        "WHERE created > :since OR updated > :since", Object[].class)
+                .setParameter("since", since)
+                .getResultList();
+        Set<String> names = new HashSet<>(entityManager.createQuery("SELECT name FROM Template", String.class)
+                .getResultList());
+        Map<String, String> templates = new HashMap<>(current.templates);
+        // The deleted and renamed templates are removed.
+        templates.keySet().retainAll(names);
+        Snapshot refreshed = buildSnapshot(templates, modifiedTemplates, current.lastModified);
+        if (refreshed.templates.size() != names.size()) {
+            // A template is missing from the snapshot, most likely because it was renamed without being updated.
+            reload();
+        } else {
+            snapshot = refreshed;
+        }
+        return changedTemplates(current, snapshot);
+    }
+
+    /**
+     * Refreshes the snapshot from a background thread. The current snapshot is served until the refresh is done.
+     * Requests submitted while a refresh is waiting to start are merged into that refresh.
+     * @return the names of the templates which were created, modified or deleted
+     */
+    public CompletableFuture<Set<String>> refreshAsync() {
+        CompletableFuture<Set<String>> future = new CompletableFuture<>();
+        CompletableFuture<Set<String>> queued = queuedRefresh.compareAndExchange(null, future);
+        if (queued != null) {
+            return queued;
+        }
+        refresher.execute(() -> {
+            queuedRefresh.compareAndSet(future, null);
+            try {
+                future.complete(refresh());
+            } catch (Exception e) {
+                Log.error("Templates snapshot refresh failed", e);
+                future.completeExceptionally(e);
+            }
+        });
+        return future;
+    }
+
+    private static Set<String> changedTemplates(Snapshot before, Snapshot after) {
+        Set<String> changedTemplates = new HashSet<>();
+        before.templates.forEach((name, data) -> {
+            if (!data.equals(after.templates.get(name))) {
+                changedTemplates.add(name);
+            }
+        });
+        after.templates.keySet().forEach(name -> {
+            if (!before.templates.containsKey(name)) {
+                changedTemplates.add(name);
+            }
+        });
+        return changedTemplates;
+    }
+
+    private static Snapshot buildSnapshot(Map<String, String> templates, List<Object[]> rows, LocalDateTime lastModified) {
+        for (Object[] row : rows) {
+            templates.put((String) row[0], (String) row[1]);
+            LocalDateTime modified = row[3] == null ? (LocalDateTime) row[2] : (LocalDateTime) row[3];
+            if (lastModified == null || modified.isAfter(lastModified)) {
+                lastModified = modified;
+            }
+        }
+        return new Snapshot(Map.copyOf(templates), lastModified, Instant.now());
+    }
+
+    private static class Snapshot {
+
+        private final Map<String, String> templates;
+        // Most recent creation or update timestamp of the templates from the snapshot.
+        private final LocalDateTime lastModified;
+        private final Instant refreshed;
+
+        Snapshot(Map<String, String> templates, LocalDateTime lastModified, Instant refreshed) {
+            this.templates = templates;
+            this.lastModified = lastModified;
+            this.refreshed = refreshed;
+        }
+    }
+}
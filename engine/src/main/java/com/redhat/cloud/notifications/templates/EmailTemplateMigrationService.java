@@ -4,6 +4,7 @@ import com.cronutils.utils.StringUtils;
 import com.redhat.cloud.notifications.config.FeatureFlipper;
 import com.redhat.cloud.notifications.models.AggregationEmailTemplate;
 import com.redhat.cloud.notifications.models.Application;
+import com.redhat.cloud.notifications.models.CacheInvalidation;
 import com.redhat.cloud.notifications.models.EventType;
 import com.redhat.cloud.notifications.models.InstantEmailTemplate;
 import com.redhat.cloud.notifications.models.Template;
@@ -28,6 +29,9 @@ import java.util.Optional;
 import static com.redhat.cloud.notifications.Constants.API_INTERNAL;
 import static com.redhat.cloud.notifications.events.ConnectorReceiver.INTEGRATION_FAILED_EVENT_TYPE;
 import static com.redhat.cloud.notifications.events.IntegrationDisabledNotifier.INTEGRATION_DISABLED_EVENT_TYPE;
+import static com.redhat.cloud.notifications.models.CacheInvalidation.COMPILED_TEMPLATES_CACHE_NAME;
+import static com.redhat.cloud.notifications.models.CacheInvalidation.EMAIL_AGGREGATION_SUPPORT_CACHE_NAME;
+import static com.redhat.cloud.notifications.models.CacheInvalidation.INSTANT_EMAIL_TEMPLATES_CACHE_NAME;
 import static com.redhat.cloud.notifications.models.EmailSubscriptionType.DAILY;
 import static com.redhat.cloud.notifications.processors.email.aggregators.AdvisorEmailAggregator.DEACTIVATED_RECOMMENDATION;
 import static com.redhat.cloud.notifications.processors.email.aggregators.AdvisorEmailAggregator.NEW_RECOMMENDATION;
@@ -56,6 +60,9 @@ public class EmailTemplateMigrationService {
         entityManager.createQuery("DELETE FROM InstantEmailTemplate").executeUpdate();
         entityManager.createQuery("DELETE FROM AggregationEmailTemplate").executeUpdate();
         entityManager.createQuery("DELETE FROM Template where id not in (select theTemplate.id from IntegrationTemplate)").executeUpdate();
+        entityManager.persist(new CacheInvalidation(COMPILED_TEMPLATES_CACHE_NAME));
+        entityManager.persist(new CacheInvalidation(INSTANT_EMAIL_TEMPLATES_CACHE_NAME));
+        entityManager.persist(new CacheInvalidation(EMAIL_AGGREGATION_SUPPORT_CACHE_NAME));
     }
 
     @PUT
@@ -442,6 +449,8 @@ public class EmailTemplateMigrationService {
 
             getOrCreateTemplate("Common/insightsEmailBody", "html", "Common Insights email body");
         }
+        entityManager.persist(new CacheInvalidation(INSTANT_EMAIL_TEMPLATES_CACHE_NAME));
+        entityManager.persist(new CacheInvalidation(EMAIL_AGGREGATION_SUPPORT_CACHE_NAME));
         Log.debug("Migration ended");
 
         return warnings;
@@ -464,6 +473,7 @@ public class EmailTemplateMigrationService {
             if (!template.getData().equals(templateFromFS)) {
                 template.setData(templateFromFS);
                 hasBeenUpdated = true;
+                entityManager.persist(new CacheInvalidation(COMPILED_TEMPLATES_CACHE_NAME, name));
             }
             Log.infof("Template found in DB: %s" + (hasBeenUpdated ? " has been updated" : StringUtils.EMPTY), name);
             return template;
@@ -474,6 +484,7 @@ public class EmailTemplateMigrationService {
             template.setDescription(description);
             template.setData(templateFromFS);
             entityManager.persist(template);
+            entityManager.persist(new CacheInvalidation(COMPILED_TEMPLATES_CACHE_NAME, name));
             return template;
         }
     }
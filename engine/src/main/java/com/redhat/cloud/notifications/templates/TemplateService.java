@@ -1,52 +1,211 @@
 package com.redhat.cloud.notifications.templates;
 
+import com.redhat.cloud.notifications.db.CacheInvalidationEvent;
 import com.redhat.cloud.notifications.models.Environment;
+import com.redhat.cloud.notifications.models.Template;
 import com.redhat.cloud.notifications.recipients.User;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import io.quarkus.cache.Cache;
+import io.quarkus.cache.CacheName;
+import io.quarkus.logging.Log;
 import io.quarkus.qute.Engine;
 import io.quarkus.qute.TemplateInstance;
-import io.quarkus.scheduler.Scheduled;
 
 import javax.enterprise.context.ApplicationScoped;
+import javax.enterprise.event.Observes;
 import javax.inject.Inject;
+import java.time.LocalDateTime;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import static com.redhat.cloud.notifications.models.CacheInvalidation.COMPILED_TEMPLATES_CACHE_NAME;
 
 @ApplicationScoped
 public class TemplateService {
 
+    public static final String PARSE_COUNTER_NAME = "templates.parse";
+    public static final String RENDER_TIMER_NAME = "templates.render";
+    private static final String TAG_KEY_TEMPLATE = "template";
+    private static final Pattern INCLUDE_PATTERN = Pattern.compile("\\{#include\\s+([^\\s}]+?)/?[\\s}]");
+
     @Inject
     Engine engine;
 
     @Inject
     Environment environment;
 
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    DbTemplateSnapshot dbTemplateSnapshot;
+
+    @CacheName(COMPILED_TEMPLATES_CACHE_NAME)
+    Cache compiledTemplates;
+
+    // Template name -> names of the templates which include it directly.
+    private final Map<String, Set<String>> includingTemplates = new ConcurrentHashMap<>();
+    // Template name -> key of the latest compiled version of that template.
+    private final Map<String, CompiledTemplateKey> compiledTemplateKeys = new ConcurrentHashMap<>();
+
     /*
      * When a DB template is modified (edited or deleted), its old version may still be included into another template
-     * because the Qute engine has an internal cache. This scheduled method clears that cache periodically. We may want
-     * to replace this with a better solution based on a Kafka topic and message broadcasting to all engine pods later.
+     * because the Qute engine has an internal cache. The compiled templates cache also contains the templates which
+     * include it. The backend records a cache invalidation for each modified template and this method evicts exactly
+     * the entries that depend on that template.
      */
-    @Scheduled(every = "${notifications.template-service.scheduled-clear.period:5m}", delayed = "${notifications.template-service.scheduled-clear.initial-delay:5m}")
+    void onCacheInvalidation(@Observes CacheInvalidationEvent event) {
+        if (COMPILED_TEMPLATES_CACHE_NAME.equals(event.getCacheName())) {
+            if (event.getCacheKey() == null) {
+                clearTemplates();
+            } else {
+                invalidate(event.getCacheKey());
+            }
+        }
+    }
+
     public void clearTemplates() {
+        dbTemplateSnapshot.reload();
         engine.clearTemplates();
+        compiledTemplates.invalidateAll().await().indefinitely();
+        compiledTemplateKeys.clear();
+    }
+
+    /**
+     * Evicts the given template and all the templates which include it, directly or not, from the Qute engine cache
+     * and from the compiled templates cache.
+     * @param templateName the name of the template that was modified
+     */
+    public void invalidate(String templateName) {
+        evict(Set.of(templateName));
+        /*
+         * The included templates are located from the snapshot, which is refreshed without blocking the caller. The
+         * templates compiled from the current snapshot in the meantime are evicted again once it is refreshed.
+         */
+        dbTemplateSnapshot.refreshAsync().thenAccept(changedTemplates -> {
+            if (!changedTemplates.isEmpty()) {
+                evict(changedTemplates);
+            }
+        });
+    }
+
+    private void evict(Set<String> templateNames) {
+        Set<String> affectedTemplates = new HashSet<>();
+        Deque<String> toVisit = new ArrayDeque<>(templateNames);
+        while (!toVisit.isEmpty()) {
+            String name = toVisit.poll();
+            if (affectedTemplates.add(name)) {
+                toVisit.addAll(includingTemplates.getOrDefault(name, Set.of()));
+            }
+        }
+        Log.debugf("Invalidating compiled templates %s", affectedTemplates);
+        engine.removeTemplates(affectedTemplates::contains);
+        for (String name : affectedTemplates) {
+            CompiledTemplateKey key = compiledTemplateKeys.remove(name);
+            if (key != null) {
+                compiledTemplates.invalidate(key).await().indefinitely();
+            }
+        }
+    }
+
+    /**
+     * Returns an instance of the given DB template. The template is only parsed when its current version is not
+     * available in the compiled templates cache.
+     */
+    public TemplateInstance compileTemplate(Template template) {
+        if (template.getId() == null) {
+            // The template is not persisted, so there's no reliable way to detect its modifications.
+            return compileTemplate(template.getData(), template.getName());
+        }
+        CompiledTemplateKey key = new CompiledTemplateKey(template.getId(), template.getUpdated());
+        CompiledTemplateKey previousKey = compiledTemplateKeys.put(template.getName(), key);
+        if (previousKey != null && !previousKey.equals(key)) {
+            // This pod loaded a new version of the template before the invalidation was polled.
+            invalidate(template.getName());
+            compiledTemplateKeys.put(template.getName(), key);
+        }
+        io.quarkus.qute.Template compiledTemplate = compiledTemplates.get(key, k -> parse(template.getData(), template.getName()))
+                .await().indefinitely();
+        return compiledTemplate.instance();
     }
 
     public TemplateInstance compileTemplate(String template, String name) {
-        return engine.parse(template, null, name).instance();
+        return parse(template, name).instance();
+    }
+
+    /*
+     * Included templates are loaded by the Qute engine through DbTemplateLocator, which calls this method so that
+     * they can be invalidated when the template they include is modified.
+     */
+    void registerIncludes(String templateName, String templateData) {
+        Matcher matcher = INCLUDE_PATTERN.matcher(templateData);
+        while (matcher.find()) {
+            includingTemplates.computeIfAbsent(matcher.group(1), ignored -> ConcurrentHashMap.newKeySet()).add(templateName);
+        }
+    }
+
+    private io.quarkus.qute.Template parse(String template, String name) {
+        registry.counter(PARSE_COUNTER_NAME, TAG_KEY_TEMPLATE, String.valueOf(name)).increment();
+        registerIncludes(name, template);
+        return engine.parse(template, null, name);
     }
 
     @Deprecated(forRemoval = true)
     public String renderTemplate(User user, Object event, TemplateInstance templateInstance) {
-        return templateInstance
+        return getRenderTimer(templateInstance).record(() -> templateInstance
                 .data("action", event)
                 .data("event", event)
                 .data("user", user)
                 .data("environment", environment)
-                .render();
+                .render());
     }
 
     public String renderTemplate(Object event, TemplateInstance templateInstance) {
-        return templateInstance
+        return getRenderTimer(templateInstance).record(() -> templateInstance
             .data("action", event)
             .data("event", event)
             .data("environment", environment)
-            .render();
+            .render());
+    }
+
+    private Timer getRenderTimer(TemplateInstance templateInstance) {
+        return registry.timer(RENDER_TIMER_NAME, TAG_KEY_TEMPLATE, String.valueOf(templateInstance.getTemplate().getId()));
+    }
+
+    static class CompiledTemplateKey {
+
+        private final UUID id;
+        private final LocalDateTime updated;
+
+        CompiledTemplateKey(UUID id, LocalDateTime updated) {
+            this.id = id;
+            this.updated = updated;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (o instanceof CompiledTemplateKey) {
+                CompiledTemplateKey other = (CompiledTemplateKey) o;
+                return Objects.equals(id, other.id) && Objects.equals(updated, other.updated);
+            }
+            return false;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(id, updated);
+        }
     }
 }
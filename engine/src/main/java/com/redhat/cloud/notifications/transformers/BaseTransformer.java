@@ -7,6 +7,7 @@ import com.redhat.cloud.notifications.events.EventWrapperCloudEvent;
 import com.redhat.cloud.notifications.ingress.Action;
 import com.redhat.cloud.notifications.models.Event;
 import com.redhat.cloud.notifications.models.NotificationsConsoleCloudEvent;
+import com.redhat.cloud.notifications.models.TransformedEvent;
 import io.vertx.core.json.JsonArray;
 import io.vertx.core.json.JsonObject;
 
@@ -35,6 +36,22 @@ public class BaseTransformer {
     public static final String SOURCE = "source";
     public static final String TIMESTAMP = "timestamp";
 
+    /**
+     * Transforms the given event once and shares the result with all the processors and endpoints of the event. The
+     * result is memoized in the event itself, so it is released with the event.
+     * @param event the {@link Event} to transform.
+     * @return the transformed event.
+     */
+    public TransformedEvent transform(final Event event) {
+        TransformedEvent transformedEvent = event.getTransformedEvent();
+        if (transformedEvent == null) {
+            // Concurrent callers may both transform the event, which is harmless.
+            transformedEvent = new TransformedEvent(toJsonObject(event), objectMapper);
+            event.setTransformedEvent(transformedEvent);
+        }
+        return transformedEvent;
+    }
+
     /**
      * Transforms the given event into a {@link JsonObject}.
      * @param event the {@link Event} to transform.
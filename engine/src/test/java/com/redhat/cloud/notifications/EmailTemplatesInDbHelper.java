@@ -1,6 +1,7 @@
 package com.redhat.cloud.notifications;
 
 import com.redhat.cloud.notifications.config.FeatureFlipper;
+import com.redhat.cloud.notifications.db.CacheInvalidationPoller;
 import com.redhat.cloud.notifications.db.ResourceHelpers;
 import com.redhat.cloud.notifications.db.repositories.TemplateRepository;
 import com.redhat.cloud.notifications.ingress.Action;
@@ -58,6 +59,9 @@ public abstract class EmailTemplatesInDbHelper {
     @Inject
     EmailTemplateMigrationService emailTemplateMigrationService;
 
+    @Inject
+    CacheInvalidationPoller cacheInvalidationPoller;
+
     protected final Map<String, UUID> eventTypes = new HashMap<>();
 
     @BeforeEach
@@ -93,6 +97,10 @@ public abstract class EmailTemplatesInDbHelper {
 
     protected void migrate() {
         emailTemplateMigrationService.migrate();
+        // The migration requested cache invalidations which have to be processed before the templates are used.
+        cacheInvalidationPoller.poll();
+        // The included templates are located from a snapshot which has to be reloaded after the migration.
+        templateService.clearTemplates();
     }
 
     @AfterEach
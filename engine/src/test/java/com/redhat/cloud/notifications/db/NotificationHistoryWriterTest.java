@@ -0,0 +1,148 @@
+package com.redhat.cloud.notifications.db;
+
+import com.redhat.cloud.notifications.TestLifecycleManager;
+import com.redhat.cloud.notifications.config.FeatureFlipper;
+import com.redhat.cloud.notifications.db.repositories.NotificationHistoryRepository;
+import com.redhat.cloud.notifications.models.Application;
+import com.redhat.cloud.notifications.models.Bundle;
+import com.redhat.cloud.notifications.models.Endpoint;
+import com.redhat.cloud.notifications.models.Event;
+import com.redhat.cloud.notifications.models.EventType;
+import com.redhat.cloud.notifications.models.NotificationHistory;
+import com.redhat.cloud.notifications.models.NotificationStatus;
+import com.redhat.cloud.notifications.processors.ConnectorSender;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.smallrye.reactive.messaging.ce.CloudEventMetadata;
+import io.smallrye.reactive.messaging.providers.connectors.InMemoryConnector;
+import io.smallrye.reactive.messaging.providers.connectors.InMemorySink;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.enterprise.inject.Any;
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+import java.security.SecureRandom;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static com.redhat.cloud.notifications.models.EndpointType.CAMEL;
+import static com.redhat.cloud.notifications.models.NotificationHistory.getHistoryStub;
+import static com.redhat.cloud.notifications.processors.ConnectorSender.TOCAMEL_CHANNEL;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@QuarkusTest
+@QuarkusTestResource(TestLifecycleManager.class)
+public class NotificationHistoryWriterTest {
+
+    @Inject
+    NotificationHistoryWriter notificationHistoryWriter;
+
+    @Inject
+    NotificationHistoryRepository notificationHistoryRepository;
+
+    @Inject
+    ResourceHelpers resourceHelpers;
+
+    @Inject
+    EntityManager entityManager;
+
+    @Inject
+    FeatureFlipper featureFlipper;
+
+    @Inject
+    ConnectorSender connectorSender;
+
+    @Inject
+    @Any
+    InMemoryConnector inMemoryConnector;
+
+    @BeforeEach
+    void beforeEach() {
+        featureFlipper.setHistoryBatchWriterEnabled(true);
+    }
+
+    @AfterEach
+    void afterEach() {
+        featureFlipper.setHistoryBatchWriterEnabled(false);
+    }
+
+    @Test
+    void testBufferedHistoriesArePersisted() {
+        Event event = createEvent();
+        Endpoint endpoint = resourceHelpers.createEndpoint(CAMEL, "slack", true, 0);
+
+        List<NotificationHistory> histories = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            NotificationHistory history = getHistoryStub(endpoint, event, 0L, UUID.randomUUID());
+            history.setStatus(NotificationStatus.PROCESSING);
+            notificationHistoryWriter.write(history);
+            histories.add(history);
+        }
+
+        for (NotificationHistory history : histories) {
+            notificationHistoryWriter.awaitPersisted(history.getId());
+            assertNotNull(entityManager.find(NotificationHistory.class, history.getId()));
+        }
+    }
+
+    @Test
+    void testConnectorUpdateFindsBufferedHistory() {
+        Event event = createEvent();
+        Endpoint endpoint = resourceHelpers.createEndpoint(CAMEL, "slack", true, 0);
+        NotificationHistory history = getHistoryStub(endpoint, event, 0L, UUID.randomUUID());
+        history.setStatus(NotificationStatus.PROCESSING);
+        notificationHistoryWriter.write(history);
+
+        // This is what happens when a connector replies before the history is flushed.
+        notificationHistoryWriter.awaitPersisted(history.getId());
+        NotificationHistory update = new NotificationHistory();
+        update.setId(history.getId());
+        update.setStatus(NotificationStatus.SUCCESS);
+        update.setDetails(Map.of("outcome", "ok"));
+        update.setInvocationTime(123L);
+        assertTrue(notificationHistoryRepository.updateHistoryItem(update));
+
+        entityManager.clear();
+        assertEquals(NotificationStatus.SUCCESS, entityManager.find(NotificationHistory.class, history.getId()).getStatus());
+    }
+
+    @Test
+    void testConnectorSenderCommitsHistoryBeforeSending() {
+        Event event = createEvent();
+        Endpoint endpoint = resourceHelpers.createEndpoint(CAMEL, "slack", true, 0);
+        InMemorySink<JsonObject> sink = inMemoryConnector.sink(TOCAMEL_CHANNEL);
+        sink.clear();
+
+        connectorSender.send(event, endpoint, new JsonObject());
+
+        /*
+         * The connector reply may be processed by another pod as soon as the message is sent, without waiting for
+         * the writer of this pod. The history has to be found anyway.
+         */
+        assertEquals(1, sink.received().size());
+        UUID historyId = UUID.fromString(sink.received().get(0).getMetadata(CloudEventMetadata.class).get().getId());
+        NotificationHistory update = new NotificationHistory();
+        update.setId(historyId);
+        update.setStatus(NotificationStatus.SUCCESS);
+        update.setDetails(Map.of("outcome", "ok"));
+        update.setInvocationTime(123L);
+        assertTrue(notificationHistoryRepository.updateHistoryItem(update));
+        sink.clear();
+    }
+
+    @Transactional
+    Event createEvent() {
+        Bundle bundle = resourceHelpers.createBundle("bundle-" + new SecureRandom().nextInt());
+        Application app = resourceHelpers.createApp(bundle.getId(), "app-" + new SecureRandom().nextInt());
+        EventType eventType = resourceHelpers.createEventType(app.getId(), "event-type-" + new SecureRandom().nextInt());
+        return resourceHelpers.createEvent(eventType);
+    }
+}
@@ -4,6 +4,7 @@ import com.redhat.cloud.notifications.db.repositories.EmailAggregationRepository
 import com.redhat.cloud.notifications.models.AggregationEmailTemplate;
 import com.redhat.cloud.notifications.models.Application;
 import com.redhat.cloud.notifications.models.Bundle;
+import com.redhat.cloud.notifications.models.CacheInvalidation;
 import com.redhat.cloud.notifications.models.EmailAggregation;
 import com.redhat.cloud.notifications.models.EmailSubscription;
 import com.redhat.cloud.notifications.models.EmailSubscriptionId;
@@ -16,6 +17,8 @@ import com.redhat.cloud.notifications.models.EventTypeEmailSubscription;
 import com.redhat.cloud.notifications.models.EventTypeEmailSubscriptionId;
 import com.redhat.cloud.notifications.models.InstantEmailTemplate;
 import com.redhat.cloud.notifications.models.Template;
+import io.quarkus.cache.Cache;
+import io.quarkus.cache.CacheName;
 import io.vertx.core.json.JsonObject;
 import org.apache.commons.lang3.StringUtils;
 
@@ -26,9 +29,12 @@ import javax.persistence.NoResultException;
 import javax.transaction.Transactional;
 
 import java.security.SecureRandom;
+import java.time.LocalDateTime;
 import java.util.UUID;
 
 import static com.redhat.cloud.notifications.TestConstants.DEFAULT_ORG_ID;
+import static com.redhat.cloud.notifications.models.CacheInvalidation.EMAIL_AGGREGATION_SUPPORT_CACHE_NAME;
+import static com.redhat.cloud.notifications.models.CacheInvalidation.INSTANT_EMAIL_TEMPLATES_CACHE_NAME;
 import static com.redhat.cloud.notifications.models.EmailSubscriptionType.DAILY;
 
 @ApplicationScoped
@@ -40,6 +46,12 @@ public class ResourceHelpers {
     @Inject
     EntityManager entityManager;
 
+    @CacheName(INSTANT_EMAIL_TEMPLATES_CACHE_NAME)
+    Cache instantEmailTemplates;
+
+    @CacheName(EMAIL_AGGREGATION_SUPPORT_CACHE_NAME)
+    Cache emailAggregationSupport;
+
     public Bundle findBundle(String name) {
         return entityManager.createQuery("FROM Bundle WHERE name = :name", Bundle.class)
             .setParameter("name", name)
@@ -162,6 +174,7 @@ public class ResourceHelpers {
         instantEmailTemplate.setBodyTemplate(entityManager.find(Template.class, bodyTemplateId));
         instantEmailTemplate.setBodyTemplateId(bodyTemplateId);
         entityManager.persist(instantEmailTemplate);
+        invalidateEmailTemplatesCaches();
         return instantEmailTemplate;
     }
 
@@ -176,6 +189,7 @@ public class ResourceHelpers {
         aggregationEmailTemplate.setBodyTemplateId(bodyTemplateId);
         aggregationEmailTemplate.setSubscriptionType(DAILY);
         entityManager.persist(aggregationEmailTemplate);
+        invalidateEmailTemplatesCaches();
         return aggregationEmailTemplate;
     }
 
@@ -210,6 +224,13 @@ public class ResourceHelpers {
     public void deleteEmailTemplatesById(UUID templateId) {
         entityManager.createQuery("DELETE FROM InstantEmailTemplate WHERE id = :id").setParameter("id", templateId).executeUpdate();
         entityManager.createQuery("DELETE FROM AggregationEmailTemplate WHERE id = :id").setParameter("id", templateId).executeUpdate();
+        invalidateEmailTemplatesCaches();
+    }
+
+    // The email templates were modified without the backend, which would have requested this invalidation.
+    public void invalidateEmailTemplatesCaches() {
+        instantEmailTemplates.invalidateAll().await().indefinitely();
+        emailAggregationSupport.invalidateAll().await().indefinitely();
     }
 
     @Transactional
@@ -219,6 +240,44 @@ public class ResourceHelpers {
                 .executeUpdate();
     }
 
+    @Transactional
+    public void deleteBundle(UUID id) {
+        entityManager.createQuery("DELETE FROM Bundle WHERE id = :id")
+                .setParameter("id", id)
+                .executeUpdate();
+    }
+
+    @Transactional
+    public void deleteEventType(UUID id) {
+        entityManager.createQuery("DELETE FROM EventType WHERE id = :id")
+                .setParameter("id", id)
+                .executeUpdate();
+    }
+
+    @Transactional
+    public void createCacheInvalidation(String cacheName) {
+        entityManager.persist(new CacheInvalidation(cacheName));
+    }
+
+    @Transactional
+    public void createCacheInvalidation(String cacheName, String cacheKey) {
+        entityManager.persist(new CacheInvalidation(cacheName, cacheKey));
+    }
+
+    public long reserveCacheInvalidationId() {
+        return ((Number) entityManager.createNativeQuery("SELECT nextval('cache_invalidation_id_seq')").getSingleResult()).longValue();
+    }
+
+    // Creates a cache invalidation with an ID and a timestamp set before other invalidations were committed.
+    @Transactional
+    public void createCacheInvalidation(long id, String cacheName, LocalDateTime created) {
+        entityManager.createNativeQuery("INSERT INTO cache_invalidation (id, cache_name, created) VALUES (:id, :cacheName, :created)")
+                .setParameter("id", id)
+                .setParameter("cacheName", cacheName)
+                .setParameter("created", created)
+                .executeUpdate();
+    }
+
     public AggregationEmailTemplate createBlankAggregationEmailTemplate(String bundleName, String appName) {
 
         Bundle bundle = null;
@@ -0,0 +1,125 @@
+package com.redhat.cloud.notifications.db.converters;
+
+import com.redhat.cloud.notifications.TestHelpers;
+import com.redhat.cloud.notifications.VulnerabilityTestHelpers;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import java.util.Base64;
+import java.util.List;
+
+import static com.redhat.cloud.notifications.TestConstants.DEFAULT_ORG_ID;
+import static com.redhat.cloud.notifications.db.converters.EmailAggregationPayloadConverter.DEFLATE_PREFIX;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+public class EmailAggregationPayloadConverterTest {
+
+    private final EmailAggregationPayloadConverter converter = new EmailAggregationPayloadConverter(() -> true);
+
+    @Test
+    void testCompressionDisabled() {
+        JsonObject payload = createPayload(20);
+        assertEquals(payload.encode(), new EmailAggregationPayloadConverter(() -> false).convertToDatabaseColumn(payload));
+    }
+
+    @Test
+    void testCompressedRoundTrip() {
+        JsonObject payload = createPayload(20);
+        String dbData = converter.convertToDatabaseColumn(payload);
+        assertTrue(dbData.startsWith(DEFLATE_PREFIX));
+        assertTrue(dbData.length() < payload.encode().length());
+        assertEquals(payload, converter.convertToEntityAttribute(dbData));
+    }
+
+    @Test
+    void testSmallPayloadIsNotCompressed() {
+        JsonObject payload = new JsonObject().put("event_type", "foo");
+        assertEquals(payload.encode(), converter.convertToDatabaseColumn(payload));
+    }
+
+    @Test
+    void testMixedFormats() {
+        // During the rollout, the table contains both plain and compressed payloads.
+        JsonObject plain = TestHelpers.createEmailAggregation(DEFAULT_ORG_ID, "rhel", "policies", "policy-1", "host-1").getPayload();
+        JsonObject compressed = VulnerabilityTestHelpers.createEmailAggregation("rhel", "vulnerability", "new-cve-severity", "CVE-2023-1").getPayload();
+        String plainDbData = plain.encode();
+        String compressedDbData = EmailAggregationPayloadConverter.compress(compressed.encode());
+
+        assertEquals(new JsonObject(plainDbData), converter.convertToEntityAttribute(plainDbData));
+        assertEquals(new JsonObject(compressed.encode()), converter.convertToEntityAttribute(compressedDbData));
+        assertNull(converter.convertToEntityAttribute(null));
+        assertNull(converter.convertToDatabaseColumn(null));
+    }
+
+    @Test
+    void testTruncatedPayload() {
+        String dbData = EmailAggregationPayloadConverter.compress(createPayload(20).encode());
+        assertThrows(IllegalArgumentException.class, () -> converter.convertToEntityAttribute(dbData.substring(0, dbData.length() / 2)));
+    }
+
+    /*
+     * Compares the write and read costs of both storage formats with the bytes saved by the compression. The timings
+     * depend on the machine, so this is not run with the other tests. The deflated size is the size the compressed
+     * payload would have in a binary column, without the prefix and the Base64 encoding.
+     */
+    @Test
+    @Disabled("Benchmark, run it manually to compare the storage formats")
+    void benchmark() {
+        for (int eventsCount : List.of(1, 10, 100)) {
+            JsonObject payload = createPayload(eventsCount);
+            String plain = payload.encode();
+            String compressed = EmailAggregationPayloadConverter.compress(plain);
+            int deflated = Base64.getDecoder().decode(compressed.substring(DEFLATE_PREFIX.length())).length;
+
+            int iterations = 2000;
+            long plainWrite = 0;
+            long compressedWrite = 0;
+            long plainRead = 0;
+            long compressedRead = 0;
+            // The first half of the iterations warms the JIT up.
+            for (int i = 0; i < iterations * 2; i++) {
+                boolean measured = i >= iterations;
+                long start = System.nanoTime();
+                payload.encode();
+                long afterPlainWrite = System.nanoTime();
+                converter.convertToDatabaseColumn(payload);
+                long afterCompressedWrite = System.nanoTime();
+                converter.convertToEntityAttribute(plain);
+                long afterPlainRead = System.nanoTime();
+                converter.convertToEntityAttribute(compressed);
+                long afterCompressedRead = System.nanoTime();
+                if (measured) {
+                    plainWrite += afterPlainWrite - start;
+                    compressedWrite += afterCompressedWrite - afterPlainWrite;
+                    plainRead += afterPlainRead - afterCompressedWrite;
+                    compressedRead += afterCompressedRead - afterPlainRead;
+                }
+            }
+
+            System.out.printf("%3d events: %6d -> %6d bytes (%4.1f%% saved, %6d bytes deflated), write %6.1f -> %6.1f us, read %6.1f -> %6.1f us%n",
+                    eventsCount, plain.length(), compressed.length(), 100.0 * (plain.length() - compressed.length()) / plain.length(), deflated,
+                    plainWrite / 1000.0 / iterations, compressedWrite / 1000.0 / iterations,
+                    plainRead / 1000.0 / iterations, compressedRead / 1000.0 / iterations);
+        }
+    }
+
+    private static JsonObject createPayload(int eventsCount) {
+        JsonObject payload = new JsonObject(TestHelpers.createEmailAggregation(DEFAULT_ORG_ID, "rhel", "policies", "policy-1", "host-1").getPayload().encode());
+        JsonArray events = new JsonArray();
+        for (int i = 0; i < eventsCount; i++) {
+            events.add(new JsonObject()
+                    .put("metadata", new JsonObject())
+                    .put("payload", new JsonObject()
+                            .put("policy_id", "policy-" + i)
+                            .put("policy_name", "Policy " + i)
+                            .put("policy_description", "Triggers when the host runs an outdated kernel")
+                            .put("policy_condition", "facts.kernel_version < '5.14.0-" + i + "'")));
+        }
+        return payload.put("events", events);
+    }
+}
@@ -0,0 +1,98 @@
+package com.redhat.cloud.notifications.db.repositories;
+
+import com.redhat.cloud.notifications.TestLifecycleManager;
+import com.redhat.cloud.notifications.models.AggregationCommand;
+import com.redhat.cloud.notifications.models.EmailAggregationKey;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.Test;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.UUID;
+
+import static com.redhat.cloud.notifications.models.EmailSubscriptionType.DAILY;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@QuarkusTest
+@QuarkusTestResource(TestLifecycleManager.class)
+public class AggregationCommandClaimRepositoryTest {
+
+    private static final Duration LEASE = Duration.ofHours(1L);
+
+    @Inject
+    EntityManager entityManager;
+
+    @Inject
+    AggregationCommandClaimRepository aggregationCommandClaimRepository;
+
+    @Test
+    void testCompletedCommandIsNeverClaimedAgain() {
+        AggregationCommand aggregationCommand = buildAggregationCommand(now().minusDays(1L), now());
+
+        assertTrue(aggregationCommandClaimRepository.claim(aggregationCommand, LEASE));
+        // The command is being processed.
+        assertFalse(aggregationCommandClaimRepository.claim(aggregationCommand, LEASE));
+
+        aggregationCommandClaimRepository.complete(aggregationCommand);
+        assertFalse(aggregationCommandClaimRepository.claim(aggregationCommand, LEASE));
+        assertFalse(aggregationCommandClaimRepository.claim(aggregationCommand, Duration.ZERO));
+        // A completed claim is not released.
+        aggregationCommandClaimRepository.release(aggregationCommand);
+        assertFalse(aggregationCommandClaimRepository.claim(aggregationCommand, LEASE));
+
+        // The same key with another period is a different command.
+        assertTrue(aggregationCommandClaimRepository.claim(buildAggregationCommand(aggregationCommand.getAggregationKey(), now(), now().plusDays(1L)), LEASE));
+    }
+
+    @Test
+    void testReleasedOrExpiredClaimIsTakenOver() {
+        AggregationCommand aggregationCommand = buildAggregationCommand(now().minusDays(1L), now());
+
+        assertTrue(aggregationCommandClaimRepository.claim(aggregationCommand, LEASE));
+        aggregationCommandClaimRepository.release(aggregationCommand);
+        assertTrue(aggregationCommandClaimRepository.claim(aggregationCommand, LEASE));
+
+        // The claim of a worker which stopped while it was processing the command expires after the lease.
+        assertTrue(aggregationCommandClaimRepository.claim(aggregationCommand, Duration.ZERO));
+    }
+
+    @Test
+    @Transactional
+    void testPostgresStoredProcedure() {
+        AggregationCommand oldCommand = buildAggregationCommand(now().minusDays(9L), now().minusDays(8L));
+        AggregationCommand recentCommand = buildAggregationCommand(now().minusDays(1L), now());
+        entityManager.createNativeQuery("DELETE FROM aggregation_command_claim").executeUpdate();
+        aggregationCommandClaimRepository.claim(oldCommand, LEASE);
+        aggregationCommandClaimRepository.claim(recentCommand, LEASE);
+        entityManager.createNativeQuery("UPDATE aggregation_command_claim SET claimed = :claimed WHERE end_time = :end")
+                .setParameter("claimed", now().minusDays(8L))
+                .setParameter("end", oldCommand.getEnd())
+                .executeUpdate();
+        assertEquals(2L, count());
+        entityManager.createNativeQuery("CALL cleanAggregationCommandClaims()").executeUpdate();
+        assertEquals(1L, count());
+    }
+
+    private Long count() {
+        return ((Number) entityManager.createNativeQuery("SELECT COUNT(*) FROM aggregation_command_claim").getSingleResult()).longValue();
+    }
+
+    private static AggregationCommand buildAggregationCommand(LocalDateTime start, LocalDateTime end) {
+        return buildAggregationCommand(new EmailAggregationKey(UUID.randomUUID().toString(), "rhel", "policies"), start, end);
+    }
+
+    private static AggregationCommand buildAggregationCommand(EmailAggregationKey key, LocalDateTime start, LocalDateTime end) {
+        return new AggregationCommand(key, start, end, DAILY);
+    }
+
+    private static LocalDateTime now() {
+        return LocalDateTime.now(ZoneOffset.UTC);
+    }
+}
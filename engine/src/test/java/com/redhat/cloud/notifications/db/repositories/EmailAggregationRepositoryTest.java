@@ -18,6 +18,7 @@ import java.time.ZoneId;
 import java.util.List;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -54,7 +55,7 @@ public class EmailAggregationRepositoryTest {
         resourceHelpers.addEmailAggregation(ORG_ID, "other-bundle", APP_NAME, PAYLOAD2);
         resourceHelpers.addEmailAggregation(ORG_ID, BUNDLE_NAME, "other-app", PAYLOAD2);
 
-        List<EmailAggregation> aggregations = emailAggregationRepository.getEmailAggregation(key, start, end, 0, 10);
+        List<EmailAggregation> aggregations = emailAggregationRepository.getEmailAggregation(key, start, end, null, 10);
         assertEquals(2, aggregations.size());
         assertTrue(aggregations.stream().map(EmailAggregation::getOrgId).allMatch(ORG_ID::equals));
         assertTrue(aggregations.stream().map(EmailAggregation::getBundleName).allMatch(BUNDLE_NAME::equals));
@@ -70,12 +71,49 @@ public class EmailAggregationRepositoryTest {
         assertEquals(APP_NAME, keys.get(0).getApplication());
 
         assertEquals(2, emailAggregationRepository.purgeOldAggregation(key, end));
-        assertEquals(0, emailAggregationRepository.getEmailAggregation(key, start, end, 0, 10).size());
+        assertEquals(0, emailAggregationRepository.getEmailAggregation(key, start, end, null, 10).size());
         assertEquals(3, getApplicationsWithPendingAggregation(start, end).size());
 
         clearEmailAggregations();
     }
 
+    @Test
+    void testKeysetPagination() {
+        LocalDateTime start = LocalDateTime.now(UTC).minusHours(1L);
+        LocalDateTime end = LocalDateTime.now(UTC).plusHours(1L);
+        EmailAggregationKey key = new EmailAggregationKey(ORG_ID, BUNDLE_NAME, APP_NAME);
+        int rows = 300_000;
+        int pageSize = 10_000;
+
+        clearEmailAggregations();
+        // Many aggregations share the same creation date, the pagination has to rely on the ID to separate them.
+        insertSyntheticEmailAggregations(key, start.plusMinutes(1L), rows);
+
+        int total = 0;
+        int pages = 0;
+        EmailAggregation previous = null;
+        List<EmailAggregation> aggregations;
+        do {
+            aggregations = emailAggregationRepository.getEmailAggregation(key, start, end, previous, pageSize);
+            for (EmailAggregation aggregation : aggregations) {
+                if (previous != null) {
+                    int comparison = previous.getCreated().compareTo(aggregation.getCreated());
+                    assertTrue(comparison < 0 || (comparison == 0 && previous.getId() < aggregation.getId()));
+                }
+                // The aggregations are detached, they are not retained by the persistence context.
+                assertFalse(entityManager.contains(aggregation));
+                previous = aggregation;
+            }
+            total += aggregations.size();
+            pages++;
+        } while (aggregations.size() == pageSize);
+
+        assertEquals(rows, total);
+        assertEquals(rows / pageSize + 1, pages);
+
+        clearEmailAggregations();
+    }
+
     @Test
     void addEmailAggregationWithConstraintViolations() {
         // Quarkus wraps a ConstraintViolationException into an ArcUndeclaredThrowableException.
@@ -94,6 +132,21 @@ public class EmailAggregationRepositoryTest {
                 .getResultList();
     }
 
+    @Transactional
+    void insertSyntheticEmailAggregations(EmailAggregationKey key, LocalDateTime created, int rows) {
+        String query = "INSERT INTO email_aggregation (id, org_id, bundle, application, created, payload) " +
+                "SELECT nextval('email_aggregation_id_seq'), :orgId, :bundleName, :applicationName, " +
+                "CAST(:created AS TIMESTAMP) + (n / 100) * INTERVAL '1 millisecond', '{\"n\":' || n || '}' " +
+                "FROM generate_series(1, :rows) n";
+        entityManager.createNativeQuery(query)
+                .setParameter("orgId", key.getOrgId())
+                .setParameter("bundleName", key.getBundle())
+                .setParameter("applicationName", key.getApplication())
+                .setParameter("created", created)
+                .setParameter("rows", rows)
+                .executeUpdate();
+    }
+
     @Transactional
     void clearEmailAggregations() {
         entityManager.createQuery("DELETE FROM EmailAggregation")
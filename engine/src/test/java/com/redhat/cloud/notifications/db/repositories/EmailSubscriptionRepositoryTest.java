@@ -1,6 +1,8 @@
 package com.redhat.cloud.notifications.db.repositories;
 
 import com.redhat.cloud.notifications.TestLifecycleManager;
+import com.redhat.cloud.notifications.config.FeatureFlipper;
+import com.redhat.cloud.notifications.db.CacheInvalidationPoller;
 import com.redhat.cloud.notifications.db.ResourceHelpers;
 import com.redhat.cloud.notifications.models.Application;
 import com.redhat.cloud.notifications.models.Bundle;
@@ -10,9 +12,11 @@ import io.quarkus.test.common.QuarkusTestResource;
 import io.quarkus.test.junit.QuarkusTest;
 import org.junit.jupiter.api.Test;
 import javax.inject.Inject;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
+import static com.redhat.cloud.notifications.models.CacheInvalidation.EMAIL_SUBSCRIBERS_CACHE_NAME;
 import static org.junit.jupiter.api.Assertions.*;
 
 @QuarkusTest
@@ -29,6 +33,12 @@ public class EmailSubscriptionRepositoryTest {
     @Inject
     EmailSubscriptionRepository emailSubscriptionRepository;
 
+    @Inject
+    CacheInvalidationPoller cacheInvalidationPoller;
+
+    @Inject
+    FeatureFlipper featureFlipper;
+
     @Test
     void testEmailSubscribersUserIdGroupedByEventType() {
         Bundle bundle = resourceHelpers.createBundle(BUNDLE_NAME);
@@ -50,4 +60,36 @@ public class EmailSubscriptionRepositoryTest {
         assertTrue(mapUsersByEventType.get("event-type-a").contains("User-02"));
         assertFalse(mapUsersByEventType.get("event-type-a").contains("User-03"));
     }
+
+    @Test
+    void testSubscribersCacheIsInvalidatedByOrg() {
+        String orgId = "cached-subscribers-org";
+        String otherOrgId = "other-cached-subscribers-org";
+        Bundle bundle = resourceHelpers.createBundle("cached-subscribers-bundle");
+        Application application = resourceHelpers.createApp(bundle.getId(), "cached-subscribers-app");
+        EventType eventType = resourceHelpers.createEventType(application.getId(), "cached-subscribers-event-type");
+
+        featureFlipper.setEmailSubscribersCacheEnabled(true);
+        try {
+            resourceHelpers.createEventTypeEmailSubscription(orgId, "user-1", eventType, EmailSubscriptionType.INSTANT);
+            resourceHelpers.createEventTypeEmailSubscription(otherOrgId, "user-1", eventType, EmailSubscriptionType.INSTANT);
+            assertEquals(List.of("user-1"), emailSubscriptionRepository.getSubscribersByEventType(orgId, eventType.getId(), EmailSubscriptionType.INSTANT));
+            assertEquals(List.of("user-1"), emailSubscriptionRepository.getSubscribersByEventType(otherOrgId, eventType.getId(), EmailSubscriptionType.INSTANT));
+
+            resourceHelpers.createEventTypeEmailSubscription(orgId, "user-2", eventType, EmailSubscriptionType.INSTANT);
+            resourceHelpers.createEventTypeEmailSubscription(otherOrgId, "user-2", eventType, EmailSubscriptionType.INSTANT);
+            // The new subscriptions are not returned until the cache is invalidated.
+            assertEquals(List.of("user-1"), emailSubscriptionRepository.getSubscribersByEventType(orgId, eventType.getId(), EmailSubscriptionType.INSTANT));
+
+            // This is what the backend does when the preferences of a user are saved.
+            resourceHelpers.createCacheInvalidation(EMAIL_SUBSCRIBERS_CACHE_NAME, orgId);
+            cacheInvalidationPoller.poll();
+
+            assertEquals(Set.of("user-1", "user-2"), Set.copyOf(emailSubscriptionRepository.getSubscribersByEventType(orgId, eventType.getId(), EmailSubscriptionType.INSTANT)));
+            // The subscribers of the other orgs are still cached.
+            assertEquals(List.of("user-1"), emailSubscriptionRepository.getSubscribersByEventType(otherOrgId, eventType.getId(), EmailSubscriptionType.INSTANT));
+        } finally {
+            featureFlipper.setEmailSubscribersCacheEnabled(false);
+        }
+    }
 }
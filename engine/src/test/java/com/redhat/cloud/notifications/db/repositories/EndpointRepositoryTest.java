@@ -2,10 +2,22 @@ package com.redhat.cloud.notifications.db.repositories;
 
 import com.redhat.cloud.notifications.TestLifecycleManager;
 import com.redhat.cloud.notifications.config.FeatureFlipper;
+import com.redhat.cloud.notifications.db.CacheInvalidationPoller;
 import com.redhat.cloud.notifications.db.ResourceHelpers;
+import com.redhat.cloud.notifications.models.Application;
+import com.redhat.cloud.notifications.models.BehaviorGroup;
+import com.redhat.cloud.notifications.models.BehaviorGroupAction;
+import com.redhat.cloud.notifications.models.BehaviorGroupActionId;
+import com.redhat.cloud.notifications.models.Bundle;
 import com.redhat.cloud.notifications.models.Endpoint;
+import com.redhat.cloud.notifications.models.EventType;
+import com.redhat.cloud.notifications.models.EventTypeBehavior;
+import com.redhat.cloud.notifications.models.EventTypeBehaviorId;
 import com.redhat.cloud.notifications.models.HttpType;
 import com.redhat.cloud.notifications.models.WebhookProperties;
+import io.quarkus.cache.Cache;
+import io.quarkus.cache.CacheName;
+import io.quarkus.cache.CaffeineCache;
 import io.quarkus.test.common.QuarkusTestResource;
 import io.quarkus.test.junit.QuarkusTest;
 import org.junit.jupiter.api.AfterEach;
@@ -21,9 +33,12 @@ import java.security.SecureRandom;
 import java.time.LocalDateTime;
 import java.util.UUID;
 
+import static com.redhat.cloud.notifications.models.CacheInvalidation.TARGET_ENDPOINTS_CACHE_NAME;
+import static com.redhat.cloud.notifications.models.EndpointStatus.READY;
 import static com.redhat.cloud.notifications.models.EndpointType.WEBHOOK;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @QuarkusTest
@@ -44,6 +59,12 @@ public class EndpointRepositoryTest {
     @Inject
     FeatureFlipper featureFlipper;
 
+    @Inject
+    CacheInvalidationPoller cacheInvalidationPoller;
+
+    @CacheName(TARGET_ENDPOINTS_CACHE_NAME)
+    Cache targetEndpointsCache;
+
     @BeforeEach
     void beforeEach() {
         featureFlipper.setDisableWebhookEndpointsOnFailure(true);
@@ -70,6 +91,29 @@ public class EndpointRepositoryTest {
         }
     }
 
+    @Test
+    void testAddEndpointServerErrors() {
+        Endpoint endpoint = resourceHelpers.createEndpoint(WEBHOOK, null, true, 0);
+
+        assertFalse(endpointRepository.addEndpointServerErrors(endpoint.getId(), MAX_SERVER_ERRORS, MAX_SERVER_ERRORS));
+        entityManager.clear(); // The Hibernate L1 cache contains outdated data and needs to be cleared.
+        Endpoint ep = getEndpoint(endpoint.getId());
+        assertTrue(ep.isEnabled());
+        assertEquals(MAX_SERVER_ERRORS, ep.getServerErrors());
+
+        long invalidations = countTargetEndpointsInvalidations();
+        assertTrue(endpointRepository.addEndpointServerErrors(endpoint.getId(), 1, MAX_SERVER_ERRORS));
+        entityManager.clear();
+        ep = getEndpoint(endpoint.getId());
+        assertFalse(ep.isEnabled());
+        // The server errors counter is not incremented when the endpoint is disabled.
+        assertEquals(MAX_SERVER_ERRORS, ep.getServerErrors());
+        assertEquals(invalidations + 1, countTargetEndpointsInvalidations());
+
+        // The endpoint is already disabled, nothing should happen.
+        assertFalse(endpointRepository.addEndpointServerErrors(endpoint.getId(), 1, MAX_SERVER_ERRORS));
+    }
+
     @Test
     void testIncrementEndpointServerErrorsWithUnknownId() {
         assertFalse(endpointRepository.incrementEndpointServerErrors(UUID.randomUUID(), 10));
@@ -104,6 +148,18 @@ public class EndpointRepositoryTest {
         assertFalse(getEndpoint(endpoint.getId()).isEnabled());
     }
 
+    @Test
+    void testDisableEndpointInvalidatesTargetEndpoints() {
+        Endpoint endpoint = resourceHelpers.createEndpoint(WEBHOOK, null, true, 0);
+        long invalidations = countTargetEndpointsInvalidations();
+        assertTrue(endpointRepository.disableEndpoint(endpoint.getId()));
+        assertEquals(invalidations + 1, countTargetEndpointsInvalidations());
+
+        // Nothing changed, the cache must not be invalidated.
+        assertFalse(endpointRepository.disableEndpoint(endpoint.getId()));
+        assertEquals(invalidations + 1, countTargetEndpointsInvalidations());
+    }
+
     @Test
     void testDisableEndpointWithDisabledEndpoint() {
         Endpoint endpoint = resourceHelpers.createEndpoint(WEBHOOK, null, false, 0);
@@ -117,6 +173,98 @@ public class EndpointRepositoryTest {
         assertFalse(endpointRepository.disableEndpoint(UUID.randomUUID()));
     }
 
+    @Test
+    void testTargetEndpointsAreCopies() {
+        Bundle bundle = resourceHelpers.createBundle("target-endpoints-copies-bundle");
+        Application app = resourceHelpers.createApp(bundle.getId(), "target-endpoints-copies-app");
+        EventType eventType = resourceHelpers.createEventType(app.getId(), "target-endpoints-copies-event-type");
+        try {
+            createTargetEndpoint("target-endpoints-copies-org", bundle, eventType);
+
+            Endpoint first = endpointRepository.getTargetEndpoints("target-endpoints-copies-org", eventType).get(0);
+            first.setName("modified");
+            first.getProperties(WebhookProperties.class).setSecretToken("modified");
+
+            // The endpoints are loaded from the cache, the modifications of the previous caller must not be visible.
+            Endpoint second = endpointRepository.getTargetEndpoints("target-endpoints-copies-org", eventType).get(0);
+            assertNotSame(first, second);
+            assertEquals("target-endpoint", second.getName());
+            assertEquals("secret-token", second.getProperties(WebhookProperties.class).getSecretToken());
+        } finally {
+            resourceHelpers.deleteBundle(bundle.getId());
+            targetEndpointsCache.invalidateAll().await().indefinitely();
+        }
+    }
+
+    @Test
+    void testTargetEndpointsInvalidationIsOrgScoped() {
+        Bundle bundle = resourceHelpers.createBundle("target-endpoints-invalidation-bundle");
+        Application app = resourceHelpers.createApp(bundle.getId(), "target-endpoints-invalidation-app");
+        EventType eventType = resourceHelpers.createEventType(app.getId(), "target-endpoints-invalidation-event-type");
+        try {
+            targetEndpointsCache.invalidateAll().await().indefinitely();
+            createTargetEndpoint("target-endpoints-invalidation-org-1", bundle, eventType);
+            createTargetEndpoint("target-endpoints-invalidation-org-2", bundle, eventType);
+            endpointRepository.getTargetEndpoints("target-endpoints-invalidation-org-1", eventType);
+            endpointRepository.getTargetEndpoints("target-endpoints-invalidation-org-2", eventType);
+            assertEquals(2, targetEndpointsCache.as(CaffeineCache.class).keySet().size());
+
+            resourceHelpers.createCacheInvalidation(TARGET_ENDPOINTS_CACHE_NAME, "target-endpoints-invalidation-org-1");
+            cacheInvalidationPoller.poll();
+
+            // Only the entries of the first org were evicted.
+            assertEquals(1, targetEndpointsCache.as(CaffeineCache.class).keySet().size());
+        } finally {
+            resourceHelpers.deleteBundle(bundle.getId());
+            targetEndpointsCache.invalidateAll().await().indefinitely();
+        }
+    }
+
+    @Transactional
+    void createTargetEndpoint(String orgId, Bundle bundle, EventType eventType) {
+        BehaviorGroup behaviorGroup = new BehaviorGroup();
+        behaviorGroup.setOrgId(orgId);
+        behaviorGroup.setDisplayName("Behavior group");
+        behaviorGroup.setBundle(entityManager.find(Bundle.class, bundle.getId()));
+        behaviorGroup.setBundleId(bundle.getId());
+        entityManager.persist(behaviorGroup);
+
+        Endpoint endpoint = new Endpoint();
+        endpoint.setOrgId(orgId);
+        endpoint.setType(WEBHOOK);
+        endpoint.setName("target-endpoint");
+        endpoint.setDescription("Endpoint description");
+        endpoint.setEnabled(true);
+        endpoint.setStatus(READY);
+        WebhookProperties properties = new WebhookProperties();
+        properties.setMethod(HttpType.POST);
+        properties.setUrl("https://example.org");
+        properties.setSecretToken("secret-token");
+        properties.setEndpoint(endpoint);
+        endpoint.setProperties(properties);
+        entityManager.persist(endpoint);
+        entityManager.persist(properties);
+
+        BehaviorGroupAction action = new BehaviorGroupAction();
+        action.setId(new BehaviorGroupActionId());
+        action.setBehaviorGroup(behaviorGroup);
+        action.setEndpoint(endpoint);
+        entityManager.persist(action);
+
+        EventTypeBehavior behavior = new EventTypeBehavior();
+        behavior.setId(new EventTypeBehaviorId());
+        behavior.setEventType(entityManager.find(EventType.class, eventType.getId()));
+        behavior.setBehaviorGroup(behaviorGroup);
+        entityManager.persist(behavior);
+    }
+
+    long countTargetEndpointsInvalidations() {
+        String hql = "SELECT COUNT(*) FROM CacheInvalidation WHERE cacheName = :cacheName";
+        return entityManager.createQuery(hql, Long.class)
+                .setParameter("cacheName", TARGET_ENDPOINTS_CACHE_NAME)
+                .getSingleResult();
+    }
+
     Endpoint getEndpoint(UUID id) {
         String hql = "FROM Endpoint WHERE id = :id";
         return entityManager.createQuery(hql, Endpoint.class)
@@ -0,0 +1,134 @@
+package com.redhat.cloud.notifications.db.repositories;
+
+import com.redhat.cloud.notifications.MicrometerAssertionHelper;
+import com.redhat.cloud.notifications.TestLifecycleManager;
+import com.redhat.cloud.notifications.db.CacheInvalidationPoller;
+import com.redhat.cloud.notifications.db.ResourceHelpers;
+import com.redhat.cloud.notifications.models.Application;
+import com.redhat.cloud.notifications.models.Bundle;
+import com.redhat.cloud.notifications.models.EventType;
+import com.redhat.cloud.notifications.models.EventTypeKey;
+import com.redhat.cloud.notifications.models.EventTypeKeyBundleAppEventTriplet;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.persistence.NoResultException;
+import javax.transaction.Transactional;
+import java.time.LocalDateTime;
+
+import static com.redhat.cloud.notifications.db.CacheInvalidationPoller.INVALIDATIONS_COUNTER_NAME;
+import static com.redhat.cloud.notifications.models.CacheInvalidation.EVENT_TYPES_CACHE_NAME;
+import static java.time.ZoneOffset.UTC;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+@QuarkusTest
+@QuarkusTestResource(TestLifecycleManager.class)
+public class EventTypeRepositoryTest {
+
+    private static final String BUNDLE_NAME = "test-engine-event-type-repository-bundle";
+    private static final String APP_NAME = "test-engine-event-type-repository-application";
+    private static final String EVENT_TYPE_NAME = "test-engine-event-type-repository-event-type";
+
+    @Inject
+    EntityManager entityManager;
+
+    @Inject
+    EventTypeRepository eventTypeRepository;
+
+    @Inject
+    CacheInvalidationPoller cacheInvalidationPoller;
+
+    @Inject
+    ResourceHelpers resourceHelpers;
+
+    @Inject
+    MicrometerAssertionHelper micrometerAssertionHelper;
+
+    private Bundle bundle;
+    private Application app;
+
+    @BeforeEach
+    void beforeEach() {
+        bundle = resourceHelpers.createBundle(BUNDLE_NAME);
+        app = resourceHelpers.createApp(bundle.getId(), APP_NAME);
+    }
+
+    @AfterEach
+    @Transactional
+    void afterEach() {
+        entityManager.createQuery("DELETE FROM EventType WHERE application.id = :appId").setParameter("appId", app.getId()).executeUpdate();
+        entityManager.createQuery("DELETE FROM Application WHERE id = :id").setParameter("id", app.getId()).executeUpdate();
+        entityManager.createQuery("DELETE FROM Bundle WHERE id = :id").setParameter("id", bundle.getId()).executeUpdate();
+        invalidateEventTypesCache();
+    }
+
+    @Test
+    void testUnknownEventTypeIsCachedUntilInvalidation() {
+        EventTypeKey key = new EventTypeKeyBundleAppEventTriplet(BUNDLE_NAME, APP_NAME, EVENT_TYPE_NAME);
+        assertThrows(NoResultException.class, () -> eventTypeRepository.getEventType(key));
+
+        EventType created = resourceHelpers.createEventType(app.getId(), EVENT_TYPE_NAME);
+
+        // The absence of the event type was cached.
+        assertThrows(NoResultException.class, () -> eventTypeRepository.getEventType(key));
+
+        invalidateEventTypesCache();
+
+        EventType found = eventTypeRepository.getEventType(key);
+        assertEquals(created.getId(), found.getId());
+        assertEquals(APP_NAME, found.getApplication().getName());
+        assertEquals(BUNDLE_NAME, found.getApplication().getBundle().getName());
+    }
+
+    @Test
+    void testKnownEventTypeIsCached() {
+        EventTypeKey key = new EventTypeKeyBundleAppEventTriplet(BUNDLE_NAME, APP_NAME, EVENT_TYPE_NAME);
+        EventType created = resourceHelpers.createEventType(app.getId(), EVENT_TYPE_NAME);
+        EventType found = eventTypeRepository.getEventType(key);
+
+        resourceHelpers.deleteEventType(created.getId());
+
+        // The deleted event type is still returned until the cache is invalidated.
+        assertEquals(found.getId(), eventTypeRepository.getEventType(key).getId());
+
+        invalidateEventTypesCache();
+        assertThrows(NoResultException.class, () -> eventTypeRepository.getEventType(key));
+    }
+
+    @Test
+    void testInvalidationCommittedOutOfOrder() {
+        EventTypeKey key = new EventTypeKeyBundleAppEventTriplet(BUNDLE_NAME, APP_NAME, EVENT_TYPE_NAME);
+        assertThrows(NoResultException.class, () -> eventTypeRepository.getEventType(key));
+
+        // A backend transaction gets its invalidation ID and timestamp, then another transaction commits a later invalidation first.
+        long earlierId = resourceHelpers.reserveCacheInvalidationId();
+        LocalDateTime earlierCreated = LocalDateTime.now(UTC).minusSeconds(30L);
+        invalidateEventTypesCache();
+
+        EventType created = resourceHelpers.createEventType(app.getId(), EVENT_TYPE_NAME);
+        assertThrows(NoResultException.class, () -> eventTypeRepository.getEventType(key));
+
+        // The earlier invalidation is committed after the later one was polled, within the overlap window.
+        micrometerAssertionHelper.saveCounterValueFilteredByTagsBeforeTest(INVALIDATIONS_COUNTER_NAME, "cache", EVENT_TYPES_CACHE_NAME);
+        resourceHelpers.createCacheInvalidation(earlierId, EVENT_TYPES_CACHE_NAME, earlierCreated);
+        cacheInvalidationPoller.poll();
+        assertEquals(created.getId(), eventTypeRepository.getEventType(key).getId());
+
+        // The invalidation is read again by the next poll, but it is only applied once.
+        cacheInvalidationPoller.poll();
+        micrometerAssertionHelper.assertCounterValueFilteredByTagsIncrement(INVALIDATIONS_COUNTER_NAME, "cache", EVENT_TYPES_CACHE_NAME, 1);
+        micrometerAssertionHelper.clearSavedValues();
+    }
+
+    private void invalidateEventTypesCache() {
+        // This is what the backend does when an event type is modified.
+        resourceHelpers.createCacheInvalidation(EVENT_TYPES_CACHE_NAME);
+        cacheInvalidationPoller.poll();
+    }
+}
@@ -3,6 +3,8 @@ package com.redhat.cloud.notifications.db.repositories;
 import com.redhat.cloud.notifications.TestLifecycleManager;
 import com.redhat.cloud.notifications.models.IntegrationTemplate;
 import com.redhat.cloud.notifications.models.Template;
+import io.quarkus.cache.Cache;
+import io.quarkus.cache.CacheName;
 import io.quarkus.test.common.QuarkusTestResource;
 import io.quarkus.test.junit.QuarkusTest;
 import org.junit.jupiter.api.Test;
@@ -12,6 +14,7 @@ import javax.persistence.EntityManager;
 import javax.transaction.Transactional;
 import java.util.Optional;
 
+import static com.redhat.cloud.notifications.models.CacheInvalidation.INTEGRATION_TEMPLATES_CACHE_NAME;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -29,6 +32,9 @@ public class IntegrationTemplateRepositoryTest {
     @Inject
     TemplateRepository templateRepository;
 
+    @CacheName(INTEGRATION_TEMPLATES_CACHE_NAME)
+    Cache integrationTemplates;
+
     @Test
     void testMostSpecificOneIsUsed() {
         Template specificTemplate = createTemplate(SPECIFIC_TEMPLATE, "Just a test", "Li la lu");
@@ -123,5 +129,7 @@ public class IntegrationTemplateRepositoryTest {
                 .createQuery(hql)
                 .setParameter("integrationType", INTEGRATION_TYPE)
                 .executeUpdate();
+        // The integration templates were deleted without requesting a cache invalidation.
+        integrationTemplates.invalidateAll().await().indefinitely();
     }
 }
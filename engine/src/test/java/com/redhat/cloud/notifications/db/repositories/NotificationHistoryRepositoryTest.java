@@ -19,7 +19,9 @@ import javax.persistence.EntityManager;
 import javax.transaction.Transactional;
 
 import java.security.SecureRandom;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
 import static com.redhat.cloud.notifications.models.EndpointType.CAMEL;
@@ -78,6 +80,59 @@ public class NotificationHistoryRepositoryTest {
         assertEquals(history.getDetails(), persistedHistory.getDetails());
     }
 
+    @Test
+    void testCreateHistories() {
+        NotificationHistory history1 = initData(123L, NotificationStatus.SUCCESS, WEBHOOK, null, Map.of("alpha", "bravo"));
+        NotificationHistory history2 = initData(456L, NotificationStatus.FAILED_INTERNAL, CAMEL, "slack", null);
+        deleteEndpoint(history2.getEndpoint().getId());
+
+        repository.createNotificationHistories(List.of(history1, history2));
+
+        NotificationHistory persistedHistory1 = entityManager.find(NotificationHistory.class, history1.getId());
+        assertEquals(history1.getInvocationTime(), persistedHistory1.getInvocationTime());
+        assertEquals(history1.getStatus(), persistedHistory1.getStatus());
+        assertEquals(history1.getEndpoint(), persistedHistory1.getEndpoint());
+        assertEquals(history1.getDetails(), persistedHistory1.getDetails());
+
+        NotificationHistory persistedHistory2 = entityManager.find(NotificationHistory.class, history2.getId());
+        assertEquals(history2.getInvocationTime(), persistedHistory2.getInvocationTime());
+        assertEquals(history2.getStatus(), persistedHistory2.getStatus());
+        assertNull(persistedHistory2.getEndpoint());
+        assertEquals(history2.getEndpointSubType(), persistedHistory2.getEndpointSubType());
+    }
+
+    @Test
+    void testUpdateHistoryItems() {
+        NotificationHistory history1 = initData(0L, NotificationStatus.PROCESSING, CAMEL, "slack", null);
+        NotificationHistory history2 = initData(0L, NotificationStatus.PROCESSING, CAMEL, "teams", null);
+        repository.createNotificationHistories(List.of(history1, history2));
+
+        NotificationHistory update1 = buildHistoryUpdate(history1.getId(), NotificationStatus.SUCCESS, 123L, Map.of("outcome", "ok"));
+        NotificationHistory update2 = buildHistoryUpdate(history2.getId(), NotificationStatus.FAILED_EXTERNAL, 456L, Map.of("outcome", "ko"));
+        NotificationHistory unknownUpdate = buildHistoryUpdate(UUID.randomUUID(), NotificationStatus.SUCCESS, 789L, Map.of());
+
+        Set<UUID> updatedIds = repository.updateHistoryItems(List.of(update1, update2, unknownUpdate));
+        assertEquals(Set.of(history1.getId(), history2.getId()), updatedIds);
+
+        entityManager.clear();
+        for (NotificationHistory update : List.of(update1, update2)) {
+            NotificationHistory persistedHistory = entityManager.find(NotificationHistory.class, update.getId());
+            assertEquals(update.getStatus(), persistedHistory.getStatus());
+            assertEquals(update.isInvocationResult(), persistedHistory.isInvocationResult());
+            assertEquals(update.getInvocationTime(), persistedHistory.getInvocationTime());
+            assertEquals(update.getDetails(), persistedHistory.getDetails());
+        }
+    }
+
+    private static NotificationHistory buildHistoryUpdate(UUID id, NotificationStatus status, long invocationTime, Map<String, Object> details) {
+        NotificationHistory history = new NotificationHistory();
+        history.setId(id);
+        history.setStatus(status);
+        history.setInvocationTime(invocationTime);
+        history.setDetails(details);
+        return history;
+    }
+
     @Transactional
     NotificationHistory initData(Long invocationTime, NotificationStatus status, EndpointType endpointType,
             String endpointSubType, Map<String, Object> details) {
@@ -14,12 +14,17 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import javax.transaction.Transactional;
 
+import java.time.Duration;
 import java.util.List;
 import java.util.Optional;
 import java.util.UUID;
 
+import static com.redhat.cloud.notifications.models.CacheInvalidation.INSTANT_EMAIL_TEMPLATES_CACHE_NAME;
 import static com.redhat.cloud.notifications.models.EmailSubscriptionType.DAILY;
+import static org.awaitility.Awaitility.await;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -33,6 +38,9 @@ public class TemplateRepositoryTest {
     @Inject
     ResourceHelpers resourceHelpers;
 
+    @Inject
+    EntityManager entityManager;
+
     private Bundle bundle;
     private Application app1;
     private Application app2;
@@ -98,6 +106,34 @@ public class TemplateRepositoryTest {
         resourceHelpers.deleteEmailTemplatesById(createdTemplate.getId());
     }
 
+    @Test
+    void testInstantEmailTemplateCreationIsVisibleInBoundedTime() {
+        // The missing template is cached.
+        assertTrue(templateRepository.findInstantEmailTemplate(eventType1.getId()).isEmpty());
+
+        InstantEmailTemplate createdTemplate = createInstantEmailTemplate(eventType1.getId());
+        assertTrue(templateRepository.findInstantEmailTemplate(eventType1.getId()).isEmpty());
+
+        // This is what the backend does when an instant email template is created.
+        resourceHelpers.createCacheInvalidation(INSTANT_EMAIL_TEMPLATES_CACHE_NAME);
+
+        // The cache invalidations are polled every 10 seconds by default.
+        await().atMost(Duration.ofSeconds(20L))
+                .until(() -> templateRepository.findInstantEmailTemplate(eventType1.getId()).isPresent());
+
+        resourceHelpers.deleteEmailTemplatesById(createdTemplate.getId());
+    }
+
+    @Transactional
+    InstantEmailTemplate createInstantEmailTemplate(UUID eventTypeId) {
+        InstantEmailTemplate instantEmailTemplate = new InstantEmailTemplate();
+        instantEmailTemplate.setEventType(entityManager.find(EventType.class, eventTypeId));
+        instantEmailTemplate.setSubjectTemplate(entityManager.find(Template.class, subjectTemplate.getId()));
+        instantEmailTemplate.setBodyTemplate(entityManager.find(Template.class, bodyTemplate.getId()));
+        entityManager.persist(instantEmailTemplate);
+        return instantEmailTemplate;
+    }
+
     @Test
     void testFindAggregationEmailTemplate() {
         // First, none of the applications are linked with an aggregation email template.
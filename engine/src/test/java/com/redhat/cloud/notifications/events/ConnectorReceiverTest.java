@@ -20,16 +20,22 @@ import javax.enterprise.inject.Any;
 import javax.inject.Inject;
 
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
 
 import static com.redhat.cloud.notifications.events.ConnectorReceiver.FROMCAMEL_CHANNEL;
 import static com.redhat.cloud.notifications.events.ConnectorReceiver.MESSAGES_ERROR_COUNTER_NAME;
 import static com.redhat.cloud.notifications.events.ConnectorReceiver.MESSAGES_PROCESSED_COUNTER_NAME;
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.verifyNoInteractions;
 import static org.mockito.Mockito.verifyNoMoreInteractions;
+import static org.mockito.Mockito.when;
 
 @QuarkusTest
 @QuarkusTestResource(TestLifecycleManager.class)
@@ -48,6 +54,9 @@ public class ConnectorReceiverTest {
     @InjectSpy
     CamelHistoryFillerHelper camelHistoryFillerHelper;
 
+    @Inject
+    ConnectorReceiver connectorReceiver;
+
     @BeforeEach
     void beforeEach() {
         micrometerAssertionHelper.saveCounterValuesBeforeTest(
@@ -102,6 +111,64 @@ public class ConnectorReceiverTest {
         testPayload(true, 2147483600000L, null, NotificationStatus.SUCCESS);
     }
 
+    @Test
+    void testBatch() {
+        UUID historyId1 = UUID.randomUUID();
+        UUID historyId2 = UUID.randomUUID();
+        when(notificationHistoryRepository.updateHistoryItems(anyList())).thenReturn(Set.of(historyId1, historyId2));
+
+        connectorReceiver.processBatch(List.of(
+                buildBatchPayload(historyId1, true),
+                "I am not valid!",
+                buildBatchPayload(historyId2, true)
+        ));
+
+        micrometerAssertionHelper.assertCounterIncrement(MESSAGES_PROCESSED_COUNTER_NAME, 3);
+        micrometerAssertionHelper.assertCounterIncrement(MESSAGES_ERROR_COUNTER_NAME, 1);
+
+        ArgumentCaptor<List<NotificationHistory>> nhUpdates = ArgumentCaptor.forClass(List.class);
+        verify(notificationHistoryRepository, times(1)).updateHistoryItems(nhUpdates.capture());
+        verifyNoMoreInteractions(notificationHistoryRepository);
+
+        assertEquals(2, nhUpdates.getValue().size());
+        assertEquals(historyId1, nhUpdates.getValue().get(0).getId());
+        assertEquals(historyId2, nhUpdates.getValue().get(1).getId());
+        assertEquals(NotificationStatus.SUCCESS, nhUpdates.getValue().get(0).getStatus());
+    }
+
+    @Test
+    void testBatchFallsBackToSingleUpdates() {
+        UUID historyId1 = UUID.randomUUID();
+        UUID historyId2 = UUID.randomUUID();
+        when(notificationHistoryRepository.updateHistoryItems(anyList())).thenThrow(new RuntimeException("Batch failure"));
+        when(notificationHistoryRepository.updateHistoryItem(any(NotificationHistory.class))).thenReturn(true);
+
+        connectorReceiver.processBatch(List.of(
+                buildBatchPayload(historyId1, true),
+                buildBatchPayload(historyId2, true)
+        ));
+
+        micrometerAssertionHelper.assertCounterIncrement(MESSAGES_PROCESSED_COUNTER_NAME, 2);
+        micrometerAssertionHelper.assertCounterIncrement(MESSAGES_ERROR_COUNTER_NAME, 0);
+        verify(notificationHistoryRepository, times(2)).updateHistoryItem(any(NotificationHistory.class));
+    }
+
+    private static String buildBatchPayload(UUID historyId, boolean isSuccessful) {
+        Map<String, Object> dataMap = new HashMap<>(Map.of(
+                "duration", 15,
+                "details", Map.of("type", "com.redhat.console.notification.toCamel.slack"),
+                "successful", isSuccessful
+        ));
+        return Json.encode(Map.of(
+                "specversion", "1.0",
+                "source", "demo-log",
+                "type", "com.redhat.cloud.notifications.history",
+                "id", historyId.toString(),
+                "content-type", "application/json",
+                "data", Json.encode(dataMap)
+        ));
+    }
+
     private void testPayload(boolean isSuccessful, long expectedDuration, String expectedOutcome, NotificationStatus expectedNotificationStatus) {
         String expectedHistoryId = "e3c90a94-751b-4ce1-b345-b85d825795a4";
         String expectedDetailsType = "com.redhat.console.notification.toCamel.tower";
@@ -1,5 +1,7 @@
 package com.redhat.cloud.notifications.events;
 
+import com.redhat.cloud.notifications.DelayedException;
+import com.redhat.cloud.notifications.config.FeatureFlipper;
 import com.redhat.cloud.notifications.db.repositories.EndpointRepository;
 import com.redhat.cloud.notifications.ingress.Action;
 import com.redhat.cloud.notifications.ingress.Context;
@@ -13,6 +15,8 @@ import com.redhat.cloud.notifications.models.EventType;
 import com.redhat.cloud.notifications.models.event.TestEventHelper;
 import com.redhat.cloud.notifications.processors.camel.slack.SlackProcessor;
 import com.redhat.cloud.notifications.processors.webhooks.WebhookTypeProcessor;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
 import io.quarkus.test.junit.QuarkusTest;
 import io.quarkus.test.junit.mockito.InjectMock;
 import org.junit.jupiter.api.Test;
@@ -21,9 +25,15 @@ import org.mockito.Mockito;
 import javax.inject.Inject;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
+import static com.redhat.cloud.notifications.events.EndpointProcessor.PROCESSOR_DURATION_TIMER_NAME;
 import static java.time.ZoneOffset.UTC;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @QuarkusTest
 public class EndpointProcessorTest {
@@ -44,6 +54,12 @@ public class EndpointProcessorTest {
     @InjectMock
     EndpointRepository endpointRepository;
 
+    @Inject
+    FeatureFlipper featureFlipper;
+
+    @Inject
+    MeterRegistry registry;
+
     /**
      * Tests that when an "integration customer test" event is processed, the
      * corresponding endpoint is fetched by the UUID that gets set in the
@@ -170,4 +186,67 @@ public class EndpointProcessorTest {
         Mockito.verify(this.endpointRepository, Mockito.times(1)).getTargetEndpoints(Mockito.anyString(), Mockito.any(EventType.class));
         Mockito.verify(this.webhookProcessor, Mockito.times(1)).process(Mockito.eq(event), Mockito.anyList());
     }
+
+    /**
+     * Tests that when the fan-out is enabled, the processors are invoked from the fan-out executor and that all
+     * failures are still aggregated into a single {@link DelayedException}.
+     */
+    @Test
+    void testFanOutAggregatesFailures() {
+        final String orgId = "fan-out-org-id";
+
+        final Endpoint webhookEndpoint = new Endpoint();
+        webhookEndpoint.setId(UUID.randomUUID());
+        webhookEndpoint.setOrgId(orgId);
+        webhookEndpoint.setType(EndpointType.WEBHOOK);
+
+        final Endpoint slackEndpoint = new Endpoint();
+        slackEndpoint.setId(UUID.randomUUID());
+        slackEndpoint.setOrgId(orgId);
+        slackEndpoint.setSubType("slack");
+        slackEndpoint.setType(EndpointType.CAMEL);
+
+        final EventType eventType = new EventType();
+        eventType.setId(UUID.randomUUID());
+
+        final Event event = new Event();
+        event.setId(UUID.randomUUID());
+        event.setEventType(eventType);
+        event.setOrgId(orgId);
+
+        Mockito.when(this.endpointRepository.getTargetEndpoints(orgId, eventType)).thenReturn(List.of(webhookEndpoint, slackEndpoint));
+
+        final Set<String> processorThreads = ConcurrentHashMap.newKeySet();
+        Mockito.doAnswer(invocation -> {
+            processorThreads.add(Thread.currentThread().getName());
+            throw new RuntimeException("I am a forced exception!");
+        }).when(this.webhookProcessor).process(Mockito.eq(event), Mockito.anyList());
+        Mockito.doAnswer(invocation -> {
+            processorThreads.add(Thread.currentThread().getName());
+            return null;
+        }).when(this.slackProcessor).process(Mockito.eq(event), Mockito.anyList());
+
+        final long webhookTimerCount = getProcessorTimer("webhook").count();
+        final long slackTimerCount = getProcessorTimer("slack").count();
+
+        featureFlipper.setEndpointProcessorFanOutEnabled(true);
+        try {
+            final DelayedException exception = assertThrows(DelayedException.class, () -> this.endpointProcessor.process(event));
+            assertEquals(1, exception.getSuppressed().length);
+            assertEquals("I am a forced exception!", exception.getSuppressed()[0].getMessage());
+        } finally {
+            featureFlipper.setEndpointProcessorFanOutEnabled(false);
+        }
+
+        Mockito.verify(this.webhookProcessor, Mockito.times(1)).process(Mockito.eq(event), Mockito.eq(List.of(webhookEndpoint)));
+        Mockito.verify(this.slackProcessor, Mockito.times(1)).process(Mockito.eq(event), Mockito.eq(List.of(slackEndpoint)));
+        assertEquals(2, processorThreads.size());
+        assertTrue(processorThreads.stream().allMatch(thread -> thread.startsWith("endpoint-processor-fan-out-")));
+        assertEquals(webhookTimerCount + 1, getProcessorTimer("webhook").count());
+        assertEquals(slackTimerCount + 1, getProcessorTimer("slack").count());
+    }
+
+    private Timer getProcessorTimer(String processor) {
+        return registry.timer(PROCESSOR_DURATION_TIMER_NAME, "processor", processor);
+    }
 }
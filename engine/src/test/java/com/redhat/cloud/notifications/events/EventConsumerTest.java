@@ -37,6 +37,7 @@ import java.util.UUID;
 import static com.redhat.cloud.notifications.TestConstants.DEFAULT_ACCOUNT_ID;
 import static com.redhat.cloud.notifications.TestConstants.DEFAULT_ORG_ID;
 import static com.redhat.cloud.notifications.TestHelpers.serializeAction;
+import static com.redhat.cloud.notifications.events.EventConsumer.BATCH_CONSUMED_TIMER_NAME;
 import static com.redhat.cloud.notifications.events.EventConsumer.CONSUMED_TIMER_NAME;
 import static com.redhat.cloud.notifications.events.EventConsumer.DUPLICATE_COUNTER_NAME;
 import static com.redhat.cloud.notifications.events.EventConsumer.INGRESS_CHANNEL;
@@ -46,6 +47,8 @@ import static com.redhat.cloud.notifications.events.EventConsumer.REJECTED_COUNT
 import static com.redhat.cloud.notifications.events.EventConsumer.TAG_KEY_APPLICATION;
 import static com.redhat.cloud.notifications.events.EventConsumer.TAG_KEY_BUNDLE;
 import static com.redhat.cloud.notifications.events.EventConsumer.TAG_KEY_EVENT_TYPE_FQN;
+import static com.redhat.cloud.notifications.events.KafkaMessageDeduplicator.FILTER_HIT_COUNTER_NAME;
+import static com.redhat.cloud.notifications.events.KafkaMessageDeduplicator.FILTER_MISS_COUNTER_NAME;
 import static com.redhat.cloud.notifications.events.KafkaMessageDeduplicator.MESSAGE_ID_HEADER;
 import static com.redhat.cloud.notifications.events.KafkaMessageDeduplicator.MESSAGE_ID_INVALID_COUNTER_NAME;
 import static com.redhat.cloud.notifications.events.KafkaMessageDeduplicator.MESSAGE_ID_MISSING_COUNTER_NAME;
@@ -54,6 +57,7 @@ import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNull;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.never;
@@ -91,6 +95,11 @@ public class EventConsumerTest {
     @Inject
     MeterRegistry registry;
 
+    @Inject
+    EventConsumer eventConsumer;
+
+    private long batchTimerCountBeforeTest;
+
     @BeforeEach
     void beforeEach() {
         micrometerAssertionHelper.saveCounterValuesBeforeTest(
@@ -100,12 +109,16 @@ public class EventConsumerTest {
                 DUPLICATE_COUNTER_NAME,
                 MESSAGE_ID_VALID_COUNTER_NAME,
                 MESSAGE_ID_INVALID_COUNTER_NAME,
-                MESSAGE_ID_MISSING_COUNTER_NAME
+                MESSAGE_ID_MISSING_COUNTER_NAME,
+                FILTER_HIT_COUNTER_NAME,
+                FILTER_MISS_COUNTER_NAME
         );
         micrometerAssertionHelper.removeDynamicTimer(CONSUMED_TIMER_NAME);
+        batchTimerCountBeforeTest = registry.timer(BATCH_CONSUMED_TIMER_NAME).count();
 
         // Connect the real method for all tests - this test only does the wiring for the cloud-events and the regular notification
         when(eventTypeRepository.getEventType((EventTypeKey) any())).thenCallRealMethod();
+        when(eventTypeRepository.findEventType(any())).thenCallRealMethod();
     }
 
     @AfterEach
@@ -139,7 +152,7 @@ public class EventConsumerTest {
                 MESSAGE_ID_MISSING_COUNTER_NAME
         );
         verifyExactlyOneProcessing(eventType, payload, action, true);
-        verify(kafkaMessageDeduplicator, times(1)).registerMessageId(messageId);
+        verify(kafkaMessageDeduplicator, times(1)).claim(messageId);
     }
 
     @Test
@@ -165,7 +178,7 @@ public class EventConsumerTest {
                 MESSAGE_ID_INVALID_COUNTER_NAME
         );
         verifyExactlyOneProcessing(eventType, payload, action, false);
-        verify(kafkaMessageDeduplicator, times(1)).registerMessageId(null);
+        verify(kafkaMessageDeduplicator, times(1)).claim((UUID) null);
     }
 
     @Test
@@ -189,7 +202,7 @@ public class EventConsumerTest {
                 MESSAGE_ID_MISSING_COUNTER_NAME
         );
         verify(endpointProcessor, never()).process(any(Event.class));
-        verify(kafkaMessageDeduplicator, never()).registerMessageId(any(UUID.class));
+        verify(kafkaMessageDeduplicator, never()).claim(any(UUID.class));
     }
 
     @Test
@@ -215,7 +228,7 @@ public class EventConsumerTest {
                 MESSAGE_ID_INVALID_COUNTER_NAME
         );
         verify(endpointProcessor, never()).process(any(Event.class));
-        verify(kafkaMessageDeduplicator, times(1)).registerMessageId(null);
+        verify(kafkaMessageDeduplicator, times(1)).claim((UUID) null);
     }
 
     @Test
@@ -241,7 +254,7 @@ public class EventConsumerTest {
                 MESSAGE_ID_INVALID_COUNTER_NAME
         );
         verifyExactlyOneProcessing(eventType, payload, action, false);
-        verify(kafkaMessageDeduplicator, times(1)).registerMessageId(null);
+        verify(kafkaMessageDeduplicator, times(1)).claim((UUID) null);
     }
 
     @Test
@@ -262,6 +275,9 @@ public class EventConsumerTest {
         ).count());
         micrometerAssertionHelper.assertCounterIncrement(MESSAGE_ID_VALID_COUNTER_NAME, 2);
         micrometerAssertionHelper.assertCounterIncrement(DUPLICATE_COUNTER_NAME, 1);
+        // The second message is identified as a duplicate by the in-memory filter, without any DB query.
+        micrometerAssertionHelper.assertCounterIncrement(FILTER_MISS_COUNTER_NAME, 1);
+        micrometerAssertionHelper.assertCounterIncrement(FILTER_HIT_COUNTER_NAME, 1);
         assertNoCounterIncrement(
                 REJECTED_COUNTER_NAME,
                 PROCESSING_ERROR_COUNTER_NAME,
@@ -270,7 +286,7 @@ public class EventConsumerTest {
                 MESSAGE_ID_MISSING_COUNTER_NAME
         );
         verifyExactlyOneProcessing(eventType, payload, action, false);
-        verify(kafkaMessageDeduplicator, times(1)).registerMessageId(messageId);
+        verify(kafkaMessageDeduplicator, times(2)).claim(messageId);
     }
 
     @Test
@@ -297,7 +313,7 @@ public class EventConsumerTest {
                 MESSAGE_ID_MISSING_COUNTER_NAME
         );
         verifyExactlyOneProcessing(eventType, payload, action, false);
-        verify(kafkaMessageDeduplicator, times(1)).registerMessageId(null);
+        verify(kafkaMessageDeduplicator, times(1)).claim((UUID) null);
     }
 
     @Test
@@ -324,7 +340,63 @@ public class EventConsumerTest {
                 MESSAGE_ID_MISSING_COUNTER_NAME
         );
         verifyExactlyOneProcessing(eventType, payload, action, false);
-        verify(kafkaMessageDeduplicator, times(1)).registerMessageId(null);
+        verify(kafkaMessageDeduplicator, times(1)).claim((UUID) null);
+    }
+
+    @Test
+    void testBatchProcessing() {
+        EventType eventType = mockGetEventTypeAndCreateEvent();
+        Action action = buildValidAction(false);
+        String payload = serializeAction(action);
+        UUID messageId = UUID.randomUUID();
+        Message<String> message = buildMessageWithId(messageId.toString().getBytes(UTF_8), payload);
+
+        // The first message is duplicated within the batch, the third one is invalid and the last one has no message ID.
+        eventConsumer.processBatch(List.of(message, message, Message.of("I am not a valid payload!"), Message.of(payload)));
+
+        micrometerAssertionHelper.assertCounterIncrement(MESSAGE_ID_VALID_COUNTER_NAME, 2);
+        micrometerAssertionHelper.assertCounterIncrement(MESSAGE_ID_MISSING_COUNTER_NAME, 1);
+        micrometerAssertionHelper.assertCounterIncrement(DUPLICATE_COUNTER_NAME, 1);
+        micrometerAssertionHelper.assertCounterIncrement(REJECTED_COUNTER_NAME, 1);
+        micrometerAssertionHelper.assertCounterIncrement(PROCESSING_EXCEPTION_COUNTER_NAME, 1);
+        assertNoCounterIncrement(
+                PROCESSING_ERROR_COUNTER_NAME,
+                MESSAGE_ID_INVALID_COUNTER_NAME
+        );
+        assertEquals(1L, registry.timer(BATCH_CONSUMED_TIMER_NAME).count() - batchTimerCountBeforeTest);
+
+        // All message IDs of the batch are claimed at once.
+        verify(kafkaMessageDeduplicator, times(1)).claim(anyCollection());
+        micrometerAssertionHelper.assertCounterIncrement(FILTER_MISS_COUNTER_NAME, 1);
+        // The event type is only retrieved once for the whole batch.
+        verify(eventTypeRepository, times(1)).getEventType(eq(BUNDLE), eq(APP), eq(EVENT_TYPE));
+
+        ArgumentCaptor<List<Event>> eventsCaptor = ArgumentCaptor.forClass(List.class);
+        verify(eventRepository, times(1)).createAll(eventsCaptor.capture());
+        assertEquals(2, eventsCaptor.getValue().size());
+
+        ArgumentCaptor<Event> argumentCaptor = ArgumentCaptor.forClass(Event.class);
+        verify(endpointProcessor, times(2)).process(argumentCaptor.capture());
+        for (Event event : argumentCaptor.getAllValues()) {
+            assertEquals(eventType, event.getEventType());
+            assertEquals(payload, event.getPayload());
+        }
+        assertEquals(messageId, argumentCaptor.getAllValues().get(0).getId());
+    }
+
+    @Test
+    void testBatchProcessingErrorIsIsolated() {
+        mockGetEventTypeAndCreateEvent();
+        doThrow(new RuntimeException("I am a forced exception!"))
+                .doNothing()
+                .when(endpointProcessor).process(any(Event.class));
+        String payload = serializeAction(buildValidAction(false));
+
+        eventConsumer.processBatch(List.of(Message.of(payload), Message.of(payload)));
+
+        micrometerAssertionHelper.assertCounterIncrement(PROCESSING_ERROR_COUNTER_NAME, 1);
+        micrometerAssertionHelper.assertCounterIncrement(PROCESSING_EXCEPTION_COUNTER_NAME, 1);
+        verify(endpointProcessor, times(2)).process(any(Event.class));
     }
 
     private EventType mockGetEventTypeAndCreateEvent() {
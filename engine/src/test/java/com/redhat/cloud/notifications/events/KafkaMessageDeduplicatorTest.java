@@ -0,0 +1,90 @@
+package com.redhat.cloud.notifications.events;
+
+import com.redhat.cloud.notifications.MicrometerAssertionHelper;
+import com.redhat.cloud.notifications.TestLifecycleManager;
+import io.quarkus.cache.Cache;
+import io.quarkus.cache.CacheName;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.inject.Inject;
+import java.util.Arrays;
+import java.util.Set;
+import java.util.UUID;
+
+import static com.redhat.cloud.notifications.events.KafkaMessageDeduplicator.FILTER_HIT_COUNTER_NAME;
+import static com.redhat.cloud.notifications.events.KafkaMessageDeduplicator.FILTER_MISS_COUNTER_NAME;
+import static com.redhat.cloud.notifications.events.KafkaMessageDeduplicator.RECENT_MESSAGE_IDS_CACHE_NAME;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+@QuarkusTest
+@QuarkusTestResource(TestLifecycleManager.class)
+public class KafkaMessageDeduplicatorTest {
+
+    @Inject
+    KafkaMessageDeduplicator kafkaMessageDeduplicator;
+
+    @Inject
+    MicrometerAssertionHelper micrometerAssertionHelper;
+
+    @CacheName(RECENT_MESSAGE_IDS_CACHE_NAME)
+    Cache recentMessageIds;
+
+    @BeforeEach
+    void beforeEach() {
+        micrometerAssertionHelper.saveCounterValuesBeforeTest(FILTER_HIT_COUNTER_NAME, FILTER_MISS_COUNTER_NAME);
+    }
+
+    @AfterEach
+    void afterEach() {
+        micrometerAssertionHelper.clearSavedValues();
+    }
+
+    @Test
+    void testNullMessageIdIsAlwaysClaimed() {
+        assertTrue(kafkaMessageDeduplicator.claim((UUID) null));
+        assertTrue(kafkaMessageDeduplicator.claim((UUID) null));
+        micrometerAssertionHelper.assertCounterIncrement(FILTER_HIT_COUNTER_NAME, 0);
+        micrometerAssertionHelper.assertCounterIncrement(FILTER_MISS_COUNTER_NAME, 0);
+    }
+
+    @Test
+    void testRedeliveryIsCaughtByInMemoryFilter() {
+        UUID messageId = UUID.randomUUID();
+        assertTrue(kafkaMessageDeduplicator.claim(messageId));
+        assertFalse(kafkaMessageDeduplicator.claim(messageId));
+        micrometerAssertionHelper.assertCounterIncrement(FILTER_MISS_COUNTER_NAME, 1);
+        micrometerAssertionHelper.assertCounterIncrement(FILTER_HIT_COUNTER_NAME, 1);
+    }
+
+    @Test
+    void testClaimIsAtomicInDatabase() {
+        UUID messageId = UUID.randomUUID();
+        assertTrue(kafkaMessageDeduplicator.claim(messageId));
+
+        // Another pod does not share the in-memory filter, the DB has to reject the claim.
+        recentMessageIds.invalidateAll().await().indefinitely();
+        assertFalse(kafkaMessageDeduplicator.claim(messageId));
+        micrometerAssertionHelper.assertCounterIncrement(FILTER_MISS_COUNTER_NAME, 2);
+        micrometerAssertionHelper.assertCounterIncrement(FILTER_HIT_COUNTER_NAME, 0);
+    }
+
+    @Test
+    void testBatchClaim() {
+        UUID knownMessageId = UUID.randomUUID();
+        assertTrue(kafkaMessageDeduplicator.claim(knownMessageId));
+
+        UUID newMessageId1 = UUID.randomUUID();
+        UUID newMessageId2 = UUID.randomUUID();
+        Set<UUID> claimed = kafkaMessageDeduplicator.claim(Arrays.asList(knownMessageId, newMessageId1, null, newMessageId2));
+
+        assertEquals(Set.of(newMessageId1, newMessageId2), claimed);
+        micrometerAssertionHelper.assertCounterIncrement(FILTER_HIT_COUNTER_NAME, 1);
+        micrometerAssertionHelper.assertCounterIncrement(FILTER_MISS_COUNTER_NAME, 3);
+    }
+}
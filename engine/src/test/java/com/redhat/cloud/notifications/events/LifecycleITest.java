@@ -30,6 +30,8 @@ import com.redhat.cloud.notifications.models.WebhookProperties;
 import com.redhat.cloud.notifications.processors.email.EmailSender;
 import com.redhat.cloud.notifications.recipients.User;
 import com.redhat.cloud.notifications.recipients.rbac.RbacRecipientUsersProvider;
+import io.quarkus.cache.Cache;
+import io.quarkus.cache.CacheName;
 import io.quarkus.test.common.QuarkusTestResource;
 import io.quarkus.test.junit.QuarkusTest;
 import io.quarkus.test.junit.mockito.InjectMock;
@@ -62,6 +64,7 @@ import static com.redhat.cloud.notifications.events.EndpointProcessor.PROCESSED_
 import static com.redhat.cloud.notifications.events.EndpointProcessor.PROCESSED_MESSAGES_COUNTER_NAME;
 import static com.redhat.cloud.notifications.events.EventConsumer.PROCESSING_EXCEPTION_COUNTER_NAME;
 import static com.redhat.cloud.notifications.events.EventConsumer.REJECTED_COUNTER_NAME;
+import static com.redhat.cloud.notifications.models.CacheInvalidation.TARGET_ENDPOINTS_CACHE_NAME;
 import static com.redhat.cloud.notifications.models.EmailSubscriptionType.INSTANT;
 import static com.redhat.cloud.notifications.models.EndpointStatus.READY;
 import static com.redhat.cloud.notifications.models.EndpointType.EMAIL_SUBSCRIPTION;
@@ -112,6 +115,9 @@ public class LifecycleITest {
     @Inject
     ResourceHelpers resourceHelpers;
 
+    @CacheName(TARGET_ENDPOINTS_CACHE_NAME)
+    Cache targetEndpoints;
+
     @Test
     void test() {
         final String accountId = "tenant";
@@ -301,6 +307,8 @@ public class LifecycleITest {
      */
     private void pushMessage(int expectedWebhookCalls, int expectedEmailEndpoints, int expectedSentEmails, int expectedExceptionCount) {
         entityManager.clear(); // The Hibernate L1 cache contains outdated data and needs to be cleared.
+        // The behavior groups were modified without the backend, which would have requested this invalidation.
+        targetEndpoints.invalidateAll().await().indefinitely();
 
         micrometerAssertionHelper.saveCounterValuesBeforeTest(REJECTED_COUNTER_NAME, PROCESSING_EXCEPTION_COUNTER_NAME, PROCESSED_MESSAGES_COUNTER_NAME, PROCESSED_ENDPOINTS_COUNTER_NAME);
 
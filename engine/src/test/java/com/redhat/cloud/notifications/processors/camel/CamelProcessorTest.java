@@ -1,5 +1,6 @@
 package com.redhat.cloud.notifications.processors.camel;
 
+import com.redhat.cloud.notifications.MicrometerAssertionHelper;
 import com.redhat.cloud.notifications.db.repositories.NotificationHistoryRepository;
 import com.redhat.cloud.notifications.db.repositories.TemplateRepository;
 import com.redhat.cloud.notifications.events.EventWrapperAction;
@@ -37,6 +38,7 @@ import static com.redhat.cloud.notifications.models.EndpointType.CAMEL;
 import static com.redhat.cloud.notifications.processors.ConnectorSender.CLOUD_EVENT_TYPE_PREFIX;
 import static com.redhat.cloud.notifications.processors.ConnectorSender.TOCAMEL_CHANNEL;
 import static com.redhat.cloud.notifications.processors.ConnectorSender.X_RH_NOTIFICATIONS_CONNECTOR_HEADER;
+import static com.redhat.cloud.notifications.processors.camel.CamelProcessor.AVOIDED_RENDERS_COUNTER_NAME;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.time.ZoneOffset.UTC;
 import static org.awaitility.Awaitility.await;
@@ -61,6 +63,9 @@ public abstract class CamelProcessorTest {
     @Any
     InMemoryConnector inMemoryConnector;
 
+    @Inject
+    MicrometerAssertionHelper micrometerAssertionHelper;
+
     protected InMemorySink<JsonObject> inMemorySink;
 
     @PostConstruct
@@ -69,9 +74,15 @@ public abstract class CamelProcessorTest {
     }
 
     @BeforeEach
+    void beforeEach() {
+        inMemorySink.clear();
+        micrometerAssertionHelper.saveCounterValueWithTagsBeforeTest(AVOIDED_RENDERS_COUNTER_NAME, "subType");
+    }
+
     @AfterEach
-    void clearInMemorySink() {
+    void afterEach() {
         inMemorySink.clear();
+        micrometerAssertionHelper.clearSavedValues();
     }
 
     protected abstract String getQuteTemplate();
@@ -92,6 +103,22 @@ public abstract class CamelProcessorTest {
         verify(templateRepository, times(1)).findIntegrationTemplate(any(), any(), any(), any());
         verify(notificationHistoryRepository, times(1)).createNotificationHistory(any(NotificationHistory.class));
         verifyKafkaMessage();
+        micrometerAssertionHelper.assertCounterIncrement(AVOIDED_RENDERS_COUNTER_NAME, 0, "subType", getSubType());
+    }
+
+    @Test
+    void testMessageIsRenderedOnceForAllEndpoints() {
+        mockTemplate();
+        Event event = buildEvent();
+        getCamelProcessor().process(event, List.of(buildEndpoint(), buildEndpoint(), buildEndpoint()));
+
+        verify(templateRepository, times(1)).findIntegrationTemplate(any(), any(), any(), any());
+        verify(notificationHistoryRepository, times(3)).createNotificationHistory(any(NotificationHistory.class));
+        await().until(() -> inMemorySink.received().size() == 3);
+        for (Message<JsonObject> message : inMemorySink.received()) {
+            assertEquals(getExpectedMessage(), message.getPayload().getString("message"));
+        }
+        micrometerAssertionHelper.assertCounterIncrement(AVOIDED_RENDERS_COUNTER_NAME, 2, "subType", getSubType());
     }
 
     protected void verifyKafkaMessage() {
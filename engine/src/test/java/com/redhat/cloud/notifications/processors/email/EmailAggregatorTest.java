@@ -6,12 +6,16 @@ import com.redhat.cloud.notifications.db.ResourceHelpers;
 import com.redhat.cloud.notifications.db.repositories.EmailAggregationRepository;
 import com.redhat.cloud.notifications.db.repositories.EndpointRepository;
 import com.redhat.cloud.notifications.models.Application;
+import com.redhat.cloud.notifications.models.EmailAggregation;
 import com.redhat.cloud.notifications.models.EmailAggregationKey;
+import com.redhat.cloud.notifications.models.EmailAggregationState;
+import com.redhat.cloud.notifications.models.EmailAggregationStateId;
 import com.redhat.cloud.notifications.models.Endpoint;
 import com.redhat.cloud.notifications.models.EndpointType;
 import com.redhat.cloud.notifications.models.EventType;
 import com.redhat.cloud.notifications.models.SystemSubscriptionProperties;
 import com.redhat.cloud.notifications.recipients.RecipientResolver;
+import com.redhat.cloud.notifications.recipients.RecipientSettings;
 import com.redhat.cloud.notifications.recipients.User;
 import io.quarkus.test.junit.QuarkusTest;
 import io.quarkus.test.junit.mockito.InjectMock;
@@ -21,6 +25,8 @@ import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.HashMap;
@@ -29,6 +35,7 @@ import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 import static com.redhat.cloud.notifications.models.EmailSubscriptionType.DAILY;
 import static org.junit.jupiter.api.Assertions.*;
@@ -36,6 +43,7 @@ import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anyString;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.reset;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -62,16 +70,25 @@ class EmailAggregatorTest {
     @InjectMock
     EndpointRepository endpointRepository;
 
+    @Inject
+    IncrementalEmailAggregator incrementalEmailAggregator;
+
+    @Inject
+    EntityManager entityManager;
+
     final EmailAggregationKey aggregationKey = new EmailAggregationKey("org-1", "rhel", "policies");
 
     @AfterEach
     void afterEach() {
         featureFlipper.setUseEventTypeForSubscriptionEnabled(false);
+        featureFlipper.setIncrementalEmailAggregationEnabled(false);
     }
 
     @BeforeEach
     void beforeEach() {
         emailAggregator.aggregationMaxPageSize = 5;
+        incrementalEmailAggregator.aggregationMaxPageSize = 5;
+        incrementalEmailAggregator.foldDelay = Duration.ZERO;
     }
 
     @Test
@@ -107,16 +124,19 @@ class EmailAggregatorTest {
         assertTrue(result.keySet().stream().filter(usr -> usr.getEmail().equals("user-1")).count() == 1);
         User user = result.keySet().stream().findFirst().get();
         assertEquals(4, ((LinkedHashMap) result.get(user).get("policies")).size());
-        verify(emailAggregationRepository, times(1)).getEmailAggregation(any(EmailAggregationKey.class), any(LocalDateTime.class), any(LocalDateTime.class), anyInt(), anyInt());
-        verify(emailAggregationRepository, times(1)).getEmailAggregation(any(EmailAggregationKey.class), any(LocalDateTime.class), any(LocalDateTime.class), eq(0), eq(emailAggregator.aggregationMaxPageSize));
+        // The 4 aggregations share the same event type and recipient settings, they are resolved only once.
+        verify(endpointRepository, times(1)).getTargetEmailSubscriptionEndpoints(anyString(), anyString(), anyString(), anyString());
+        verify(recipientResolver, times(1)).recipientUsers(anyString(), any(), any());
+        verify(emailAggregationRepository, times(1)).getEmailAggregation(any(EmailAggregationKey.class), any(LocalDateTime.class), any(LocalDateTime.class), any(), anyInt());
+        verify(emailAggregationRepository, times(1)).getEmailAggregation(any(EmailAggregationKey.class), any(LocalDateTime.class), any(LocalDateTime.class), isNull(), eq(emailAggregator.aggregationMaxPageSize));
         emailAggregationRepository.purgeOldAggregation(aggregationKey, LocalDateTime.now(ZoneOffset.UTC));
         reset(emailAggregationRepository); // just reset mockito counter
 
         // Test user subscription based on event type
         featureFlipper.setUseEventTypeForSubscriptionEnabled(true);
         result = aggregate();
-        verify(emailAggregationRepository, times(1)).getEmailAggregation(any(EmailAggregationKey.class), any(LocalDateTime.class), any(LocalDateTime.class), anyInt(), anyInt());
-        verify(emailAggregationRepository, times(1)).getEmailAggregation(any(EmailAggregationKey.class), any(LocalDateTime.class), any(LocalDateTime.class), eq(0), eq(emailAggregator.aggregationMaxPageSize));
+        verify(emailAggregationRepository, times(1)).getEmailAggregation(any(EmailAggregationKey.class), any(LocalDateTime.class), any(LocalDateTime.class), any(), anyInt());
+        verify(emailAggregationRepository, times(1)).getEmailAggregation(any(EmailAggregationKey.class), any(LocalDateTime.class), any(LocalDateTime.class), isNull(), eq(emailAggregator.aggregationMaxPageSize));
         reset(emailAggregationRepository); // just reset mockito counter
 
         // nobody subscribed to the right event type yet
@@ -125,9 +145,9 @@ class EmailAggregatorTest {
         resourceHelpers.createEventTypeEmailSubscription("org-1", "user-2", eventType1, DAILY);
         // because after the previous aggregate() call the email_aggregation DB table was not purged, we already have 4 records on database
         result = aggregate();
-        verify(emailAggregationRepository, times(2)).getEmailAggregation(any(EmailAggregationKey.class), any(LocalDateTime.class), any(LocalDateTime.class), anyInt(), anyInt());
-        verify(emailAggregationRepository, times(1)).getEmailAggregation(any(EmailAggregationKey.class), any(LocalDateTime.class), any(LocalDateTime.class), eq(0), eq(emailAggregator.aggregationMaxPageSize));
-        verify(emailAggregationRepository, times(1)).getEmailAggregation(any(EmailAggregationKey.class), any(LocalDateTime.class), any(LocalDateTime.class), eq(5), eq(emailAggregator.aggregationMaxPageSize));
+        verify(emailAggregationRepository, times(2)).getEmailAggregation(any(EmailAggregationKey.class), any(LocalDateTime.class), any(LocalDateTime.class), any(), anyInt());
+        verify(emailAggregationRepository, times(1)).getEmailAggregation(any(EmailAggregationKey.class), any(LocalDateTime.class), any(LocalDateTime.class), isNull(), eq(emailAggregator.aggregationMaxPageSize));
+        verify(emailAggregationRepository, times(1)).getEmailAggregation(any(EmailAggregationKey.class), any(LocalDateTime.class), any(LocalDateTime.class), any(EmailAggregation.class), eq(emailAggregator.aggregationMaxPageSize));
         assertEquals(1, result.size());
         user = result.keySet().stream().findFirst().get();
         assertTrue(user.getEmail().equals("user-2"));
@@ -135,6 +155,78 @@ class EmailAggregatorTest {
 
     }
 
+    @Test
+    void testIncrementalAggregationMatchesReplay() {
+        EmailAggregationKey key = new EmailAggregationKey("org-incremental", "rhel", "policies");
+        Application application = resourceHelpers.findApp("rhel", "policies");
+        resourceHelpers.createEmailSubscription(key.getOrgId(), "user-1", application, DAILY);
+
+        Endpoint endpoint = new Endpoint();
+        endpoint.setProperties(new SystemSubscriptionProperties());
+        endpoint.setType(EndpointType.EMAIL_SUBSCRIPTION);
+        when(endpointRepository.getTargetEmailSubscriptionEndpoints(anyString(), anyString(), anyString(), anyString())).thenReturn(List.of(endpoint));
+
+        // The subscribers and the extra recipients of the aggregations receive the email.
+        when(recipientResolver.recipientUsers(anyString(), any(), any())).then(parameters -> {
+            Set<RecipientSettings> recipientSettings = parameters.getArgument(1);
+            Set<String> subscribers = parameters.getArgument(2);
+            return Stream.concat(subscribers.stream(), recipientSettings.stream().flatMap(settings -> settings.getUsers().stream()))
+                    .map(username -> {
+                        User user = new User();
+                        user.setUsername(username);
+                        user.setEmail(username);
+                        return user;
+                    }).collect(Collectors.toSet());
+        });
+
+        featureFlipper.setIncrementalEmailAggregationEnabled(true);
+        LocalDateTime start = LocalDateTime.now(ZoneOffset.UTC).minusMinutes(1);
+        for (int i = 0; i < 12; i++) {
+            // user-2 only receives some of the aggregations, so they have to be replayed for that user.
+            String extraRecipient = i % 4 == 0 ? "user-2" : null;
+            EmailAggregation aggregation = TestHelpers.createEmailAggregation(key.getOrgId(), key.getBundle(), key.getApplication(), "policy-" + i % 3, "host-" + i, extraRecipient);
+            assertTrue(emailAggregationRepository.addEmailAggregation(aggregation));
+            incrementalEmailAggregator.foldPending(key);
+        }
+        LocalDateTime end = LocalDateTime.now(ZoneOffset.UTC).plusMinutes(1);
+
+        assertTrue(incrementalEmailAggregator.getSnapshot(key, start, end).isPresent());
+        Map<User, Map<String, Object>> incremental = emailAggregator.getAggregated(key, DAILY, start, end);
+
+        featureFlipper.setIncrementalEmailAggregationEnabled(false);
+        Map<User, Map<String, Object>> replayed = emailAggregator.getAggregated(key, DAILY, start, end);
+
+        assertEquals(2, replayed.size());
+        assertEquals(replayed, incremental);
+
+        // The state of the next period starts empty once the aggregations of the current period are purged.
+        emailAggregationRepository.purgeOldAggregation(key, end);
+        incrementalEmailAggregator.reset(key, end);
+        assertTrue(incrementalEmailAggregator.getSnapshot(key, end, end.plusDays(1L)).isEmpty());
+    }
+
+    @Test
+    void testIncrementalAggregationResetDuringIngestion() {
+        EmailAggregationKey key = new EmailAggregationKey("org-incremental-reset", "rhel", "policies");
+        featureFlipper.setIncrementalEmailAggregationEnabled(true);
+        LocalDateTime start = LocalDateTime.now(ZoneOffset.UTC).minusMinutes(1);
+        for (int i = 0; i < 6; i++) {
+            if (i == 3) {
+                // The previous digest period is purged while the aggregations of the current one are folded.
+                incrementalEmailAggregator.reset(key, start);
+            }
+            assertTrue(emailAggregationRepository.addEmailAggregation(TestHelpers.createEmailAggregation(key.getOrgId(), key.getBundle(), key.getApplication(), "policy-" + i, "host-" + i)));
+            incrementalEmailAggregator.foldPending(key);
+        }
+        LocalDateTime end = LocalDateTime.now(ZoneOffset.UTC).plusMinutes(1);
+
+        // The aggregations stored before the reset were folded again after it.
+        EmailAggregationState state = entityManager.find(EmailAggregationState.class, new EmailAggregationStateId(key));
+        assertFalse(state.isStale());
+        assertEquals(6, state.getAggregationsCount());
+        assertTrue(incrementalEmailAggregator.getSnapshot(key, start, end).isPresent());
+    }
+
     private Map<User, Map<String, Object>> aggregate() {
         Map<User, Map<String, Object>> result = new HashMap<>();
         emailAggregationRepository.addEmailAggregation(TestHelpers.createEmailAggregation("org-1", "rhel", "policies", RandomStringUtils.random(10), RandomStringUtils.random(10)));
@@ -31,6 +31,7 @@ import io.quarkus.test.junit.mockito.InjectMock;
 import io.quarkus.test.junit.mockito.InjectSpy;
 import io.smallrye.reactive.messaging.providers.connectors.InMemoryConnector;
 import org.apache.commons.lang3.RandomStringUtils;
+import org.eclipse.microprofile.reactive.messaging.Message;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
@@ -38,22 +39,30 @@ import javax.enterprise.inject.Any;
 import javax.inject.Inject;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import static com.redhat.cloud.notifications.models.EmailSubscriptionType.DAILY;
 import static com.redhat.cloud.notifications.processors.email.EmailSubscriptionTypeProcessor.AGGREGATION_CHANNEL;
+import static com.redhat.cloud.notifications.processors.email.EmailSubscriptionTypeProcessor.AGGREGATION_COMMAND_DUPLICATE_COUNTER_NAME;
 import static com.redhat.cloud.notifications.processors.email.EmailSubscriptionTypeProcessor.AGGREGATION_COMMAND_ERROR_COUNTER_NAME;
 import static com.redhat.cloud.notifications.processors.email.EmailSubscriptionTypeProcessor.AGGREGATION_COMMAND_PROCESSED_COUNTER_NAME;
+import static com.redhat.cloud.notifications.processors.email.EmailSubscriptionTypeProcessor.AGGREGATION_COMMAND_QUEUE_WAIT_TIMER_NAME;
 import static com.redhat.cloud.notifications.processors.email.EmailSubscriptionTypeProcessor.AGGREGATION_COMMAND_REJECTED_COUNTER_NAME;
 import static com.redhat.cloud.notifications.processors.email.EmailSubscriptionTypeProcessor.AGGREGATION_CONSUMED_TIMER_NAME;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyBoolean;
 import static org.mockito.ArgumentMatchers.anyInt;
 import static org.mockito.ArgumentMatchers.anySet;
 import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.never;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
@@ -93,6 +102,7 @@ class EmailSubscriptionTypeProcessorTest {
     @BeforeEach
     void beforeEach() {
         micrometerAssertionHelper.removeDynamicTimer(AGGREGATION_CONSUMED_TIMER_NAME);
+        micrometerAssertionHelper.removeDynamicTimer(AGGREGATION_COMMAND_QUEUE_WAIT_TIMER_NAME);
         featureFlipper.setUseDefaultTemplate(false);
     }
 
@@ -172,6 +182,9 @@ class EmailSubscriptionTypeProcessorTest {
 
             micrometerAssertionHelper.awaitAndAssertTimerIncrement(AGGREGATION_CONSUMED_TIMER_NAME, 1);
             micrometerAssertionHelper.awaitAndAssertCounterIncrement(AGGREGATION_COMMAND_PROCESSED_COUNTER_NAME, 2);
+            // The commands are processed concurrently, both of them have to be completed before the verifications.
+            micrometerAssertionHelper.awaitAndAssertTotalTimerIncrement(AGGREGATION_CONSUMED_TIMER_NAME, 2);
+            micrometerAssertionHelper.awaitAndAssertTotalTimerIncrement(AGGREGATION_COMMAND_QUEUE_WAIT_TIMER_NAME, 2);
             micrometerAssertionHelper.assertCounterIncrement(AGGREGATION_COMMAND_REJECTED_COUNTER_NAME, 0);
             micrometerAssertionHelper.assertCounterIncrement(AGGREGATION_COMMAND_ERROR_COUNTER_NAME, 0);
 
@@ -180,7 +193,7 @@ class EmailSubscriptionTypeProcessorTest {
                 eq(aggregationCommand1.getAggregationKey()),
                 eq(aggregationCommand1.getStart()),
                 eq(aggregationCommand1.getEnd()),
-                eq(0),
+                isNull(),
                 anyInt()
             );
 
@@ -192,7 +205,7 @@ class EmailSubscriptionTypeProcessorTest {
                 eq(aggregationCommand2.getAggregationKey()),
                 eq(aggregationCommand2.getStart()),
                 eq(aggregationCommand2.getEnd()),
-                eq(0),
+                isNull(),
                 anyInt()
             );
             verify(emailAggregationRepository, times(1)).purgeOldAggregation(
@@ -295,6 +308,105 @@ class EmailSubscriptionTypeProcessorTest {
         }
     }
 
+    @Test
+    void shouldSkipRedeliveredAggregationCommands() {
+        micrometerAssertionHelper.saveCounterValuesBeforeTest(AGGREGATION_COMMAND_PROCESSED_COUNTER_NAME, AGGREGATION_COMMAND_DUPLICATE_COUNTER_NAME, AGGREGATION_COMMAND_ERROR_COUNTER_NAME);
+
+        User user = new User();
+        user.setUsername("foo");
+        when(emailSubscriptionRepository.getEmailSubscribersUserId(any(), any(), any(), any()))
+            .thenReturn(List.of(user.getUsername()));
+        when(recipientResolver.recipientUsers(any(), anySet(), any()))
+            .thenReturn(Set.of(user));
+
+        // The largest command is processed first, so the commands are not acknowledged in the order they were sent.
+        List<AggregationCommand> aggregationCommands = new ArrayList<>();
+        for (long estimatedAggregationsCount : new long[] {1L, 100L}) {
+            String orgId = "org-" + UUID.randomUUID();
+            emailAggregationRepository.addEmailAggregation(TestHelpers.createEmailAggregation(orgId, "rhel", "policies", RandomStringUtils.random(10), RandomStringUtils.random(10)));
+            AggregationCommand aggregationCommand = new AggregationCommand(
+                new EmailAggregationKey(orgId, "rhel", "policies"),
+                LocalDateTime.now(ZoneOffset.UTC).minusDays(1),
+                LocalDateTime.now(ZoneOffset.UTC).plusDays(1),
+                DAILY
+            );
+            aggregationCommand.setEstimatedAggregationsCount(estimatedAggregationsCount);
+            aggregationCommands.add(aggregationCommand);
+        }
+
+        ConcurrentLinkedQueue<AggregationCommand> acknowledged = new ConcurrentLinkedQueue<>();
+        sendAggregationCommands(aggregationCommands, acknowledged);
+        await().until(() -> acknowledged.size() == 2);
+        micrometerAssertionHelper.assertCounterIncrement(AGGREGATION_COMMAND_PROCESSED_COUNTER_NAME, 2);
+        micrometerAssertionHelper.assertCounterIncrement(AGGREGATION_COMMAND_DUPLICATE_COUNTER_NAME, 0);
+        // Each command is acknowledged after its digest was sent.
+        verify(sender, times(2)).sendEmail(eq(user), any(Event.class), any(TemplateInstance.class), any(TemplateInstance.class), eq(false));
+
+        /*
+         * Whatever the order of the acknowledgements, the offset of the first command may not be committed when the
+         * engine stops. Both commands are then delivered again, and the aggregator job may send them again too.
+         */
+        sendAggregationCommands(aggregationCommands, acknowledged);
+        await().until(() -> acknowledged.size() == 4);
+        micrometerAssertionHelper.assertCounterIncrement(AGGREGATION_COMMAND_PROCESSED_COUNTER_NAME, 2);
+        micrometerAssertionHelper.assertCounterIncrement(AGGREGATION_COMMAND_DUPLICATE_COUNTER_NAME, 2);
+        micrometerAssertionHelper.assertCounterIncrement(AGGREGATION_COMMAND_ERROR_COUNTER_NAME, 0);
+        assertEquals(4, acknowledged.size());
+
+        // The redelivered commands did not send the digests again.
+        verify(sender, times(2)).sendEmail(eq(user), any(Event.class), any(TemplateInstance.class), any(TemplateInstance.class), eq(false));
+        for (AggregationCommand aggregationCommand : aggregationCommands) {
+            verify(emailAggregationRepository, times(1)).purgeOldAggregation(
+                eq(aggregationCommand.getAggregationKey()),
+                eq(aggregationCommand.getEnd())
+            );
+        }
+
+        micrometerAssertionHelper.clearSavedValues();
+    }
+
+    @Test
+    void shouldProcessConcurrentDuplicateCommandsOnce() {
+        micrometerAssertionHelper.saveCounterValuesBeforeTest(AGGREGATION_COMMAND_PROCESSED_COUNTER_NAME, AGGREGATION_COMMAND_DUPLICATE_COUNTER_NAME, AGGREGATION_COMMAND_ERROR_COUNTER_NAME);
+
+        User user = new User();
+        user.setUsername("foo");
+        when(emailSubscriptionRepository.getEmailSubscribersUserId(any(), any(), any(), any()))
+            .thenReturn(List.of(user.getUsername()));
+        when(recipientResolver.recipientUsers(any(), anySet(), any()))
+            .thenReturn(Set.of(user));
+
+        String orgId = "org-" + UUID.randomUUID();
+        emailAggregationRepository.addEmailAggregation(TestHelpers.createEmailAggregation(orgId, "rhel", "policies", RandomStringUtils.random(10), RandomStringUtils.random(10)));
+        AggregationCommand aggregationCommand = new AggregationCommand(
+            new EmailAggregationKey(orgId, "rhel", "policies"),
+            LocalDateTime.now(ZoneOffset.UTC).minusDays(1),
+            LocalDateTime.now(ZoneOffset.UTC).plusDays(1),
+            DAILY
+        );
+
+        // The aggregator job resumed its run and sent the command again while the original command is still queued.
+        ConcurrentLinkedQueue<AggregationCommand> acknowledged = new ConcurrentLinkedQueue<>();
+        sendAggregationCommands(List.of(aggregationCommand, aggregationCommand), acknowledged);
+        await().until(() -> acknowledged.size() == 2);
+
+        micrometerAssertionHelper.assertCounterIncrement(AGGREGATION_COMMAND_PROCESSED_COUNTER_NAME, 1);
+        micrometerAssertionHelper.assertCounterIncrement(AGGREGATION_COMMAND_DUPLICATE_COUNTER_NAME, 1);
+        micrometerAssertionHelper.assertCounterIncrement(AGGREGATION_COMMAND_ERROR_COUNTER_NAME, 0);
+        verify(sender, times(1)).sendEmail(eq(user), any(Event.class), any(TemplateInstance.class), any(TemplateInstance.class), eq(false));
+
+        micrometerAssertionHelper.clearSavedValues();
+    }
+
+    private void sendAggregationCommands(List<AggregationCommand> aggregationCommands, ConcurrentLinkedQueue<AggregationCommand> acknowledged) {
+        for (AggregationCommand aggregationCommand : aggregationCommands) {
+            inMemoryConnector.source(AGGREGATION_CHANNEL).send(Message.of(Json.encode(aggregationCommand), () -> {
+                acknowledged.add(aggregationCommand);
+                return CompletableFuture.completedFuture(null);
+            }));
+        }
+    }
+
     @Test
     void consumeEmailAggregationsShouldNotThrowInCaseOfInvalidPayload() {
         micrometerAssertionHelper.saveCounterValuesBeforeTest(AGGREGATION_COMMAND_REJECTED_COUNTER_NAME, AGGREGATION_COMMAND_PROCESSED_COUNTER_NAME, AGGREGATION_COMMAND_ERROR_COUNTER_NAME);
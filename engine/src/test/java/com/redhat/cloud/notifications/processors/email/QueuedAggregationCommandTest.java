@@ -0,0 +1,40 @@
+package com.redhat.cloud.notifications.processors.email;
+
+import com.redhat.cloud.notifications.models.AggregationCommand;
+import com.redhat.cloud.notifications.models.EmailAggregationKey;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.PriorityBlockingQueue;
+
+import static com.redhat.cloud.notifications.models.EmailSubscriptionType.DAILY;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class QueuedAggregationCommandTest {
+
+    @Test
+    void testLargestCommandsAreProcessedFirst() {
+        PriorityBlockingQueue<QueuedAggregationCommand> queue = new PriorityBlockingQueue<>();
+        queue.add(createQueuedCommand("small-org", 10L));
+        queue.add(createQueuedCommand("unknown-org-1", 0L));
+        queue.add(createQueuedCommand("large-org", 50000L));
+        queue.add(createQueuedCommand("unknown-org-2", 0L));
+        queue.add(createQueuedCommand("medium-org", 1000L));
+
+        List<String> orgIds = new ArrayList<>();
+        while (!queue.isEmpty()) {
+            orgIds.add(queue.poll().getAggregationCommand().getAggregationKey().getOrgId());
+        }
+
+        // The commands without estimation are processed last, in the order they were received.
+        assertEquals(List.of("large-org", "medium-org", "small-org", "unknown-org-1", "unknown-org-2"), orgIds);
+    }
+
+    private static QueuedAggregationCommand createQueuedCommand(String orgId, long estimatedAggregationsCount) {
+        AggregationCommand aggregationCommand = new AggregationCommand(new EmailAggregationKey(orgId, "rhel", "policies"), LocalDateTime.now(), LocalDateTime.now(), DAILY);
+        aggregationCommand.setEstimatedAggregationsCount(estimatedAggregationsCount);
+        return new QueuedAggregationCommand(aggregationCommand, null, null, ignored -> { });
+    }
+}
@@ -0,0 +1,178 @@
+package com.redhat.cloud.notifications.processors.email.aggregators;
+
+import com.redhat.cloud.notifications.AdvisorTestHelpers;
+import com.redhat.cloud.notifications.ComplianceTestHelpers;
+import com.redhat.cloud.notifications.DriftTestHelpers;
+import com.redhat.cloud.notifications.InventoryTestHelpers;
+import com.redhat.cloud.notifications.PatchTestHelpers;
+import com.redhat.cloud.notifications.TestHelpers;
+import com.redhat.cloud.notifications.VulnerabilityTestHelpers;
+import com.redhat.cloud.notifications.models.EmailAggregation;
+import io.vertx.core.json.JsonArray;
+import io.vertx.core.json.JsonObject;
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Supplier;
+
+import static com.redhat.cloud.notifications.TestConstants.DEFAULT_ORG_ID;
+import static com.redhat.cloud.notifications.processors.email.aggregators.AdvisorEmailAggregator.DEACTIVATED_RECOMMENDATION;
+import static com.redhat.cloud.notifications.processors.email.aggregators.AdvisorEmailAggregator.HAS_INCIDENT;
+import static com.redhat.cloud.notifications.processors.email.aggregators.AdvisorEmailAggregator.NEW_RECOMMENDATION;
+import static com.redhat.cloud.notifications.processors.email.aggregators.AdvisorEmailAggregator.RESOLVED_RECOMMENDATION;
+import static com.redhat.cloud.notifications.processors.email.aggregators.AdvisorEmailAggregator.RULE_DESCRIPTION;
+import static com.redhat.cloud.notifications.processors.email.aggregators.AdvisorEmailAggregator.RULE_ID;
+import static com.redhat.cloud.notifications.processors.email.aggregators.AdvisorEmailAggregator.RULE_URL;
+import static com.redhat.cloud.notifications.processors.email.aggregators.AdvisorEmailAggregator.TOTAL_RISK;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/*
+ * The incremental aggregation folds each aggregation into a saved state as soon as it is received. These tests make
+ * sure that the context built that way is identical to the context built by replaying all aggregations at once.
+ */
+public class EmailPayloadAggregatorStateTest {
+
+    private static final LocalDateTime START = LocalDateTime.of(2023, 1, 1, 0, 0);
+    private static final LocalDateTime END = START.plusDays(1L);
+
+    @Test
+    void testAdvisor() {
+        List<EmailAggregation> aggregations = new ArrayList<>();
+        String[] eventTypes = {NEW_RECOMMENDATION, RESOLVED_RECOMMENDATION, DEACTIVATED_RECOMMENDATION};
+        for (int i = 0; i < 30; i++) {
+            // There are more rules than the maximum number of rules included in the email.
+            int rule = i % 8;
+            aggregations.add(AdvisorTestHelpers.createEmailAggregation(eventTypes[i % eventTypes.length], Map.of(
+                    RULE_ID, "rule-" + rule,
+                    RULE_DESCRIPTION, "Rule " + rule,
+                    TOTAL_RISK, String.valueOf(rule % 4 + 1),
+                    HAS_INCIDENT, String.valueOf(rule % 2 == 0),
+                    RULE_URL, "https://example.com/rules/" + rule
+            )));
+        }
+        assertStateRestoresSameContext(AdvisorEmailAggregator::new, aggregations);
+    }
+
+    @Test
+    void testCompliance() {
+        List<EmailAggregation> aggregations = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            String eventType = i % 2 == 0 ? "report-upload-failed" : "compliance-below-threshold";
+            aggregations.add(ComplianceTestHelpers.createEmailAggregation("rhel", "compliance", eventType, "policy-" + i % 3, "host-" + i));
+        }
+        assertStateRestoresSameContext(ComplianceEmailAggregator::new, aggregations);
+    }
+
+    @Test
+    void testDrift() {
+        List<EmailAggregation> aggregations = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            aggregations.add(DriftTestHelpers.createEmailAggregation("rhel", "drift", "baseline-" + i % 3, "Baseline " + i % 3, "host-" + i % 4, "Host " + i % 4));
+        }
+        assertStateRestoresSameContext(DriftEmailPayloadAggregator::new, aggregations);
+    }
+
+    @Test
+    void testImageBuilder() {
+        List<EmailAggregation> aggregations = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            aggregations.add(TestHelpers.createImageBuilderAggregation(i % 3 == 0 ? "launch-failed" : "launch-success"));
+        }
+        assertStateRestoresSameContext(ImageBuilderAggregator::new, aggregations);
+    }
+
+    @Test
+    void testInventory() {
+        List<EmailAggregation> aggregations = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            aggregations.add(InventoryTestHelpers.createEmailAggregation(DEFAULT_ORG_ID, "rhel", "inventory", "validation-error"));
+        }
+        assertStateRestoresSameContext(InventoryEmailAggregator::new, aggregations);
+    }
+
+    @Test
+    void testPatch() {
+        List<EmailAggregation> aggregations = new ArrayList<>();
+        String[] advisoryTypes = {"enhancement", "bugfix", "security", "unspecified", "unknown"};
+        for (int i = 0; i < 10; i++) {
+            aggregations.add(PatchTestHelpers.createEmailAggregation("rhel", "patch", "advisory-" + i, "Synopsis " + i, advisoryTypes[i % advisoryTypes.length], "host-" + i % 3));
+        }
+        aggregations.add(PatchTestHelpers.createEmailAggregationMultipleEvents("rhel", "patch"));
+        assertStateRestoresSameContext(PatchEmailPayloadAggregator::new, aggregations);
+    }
+
+    @Test
+    void testPolicies() {
+        List<EmailAggregation> aggregations = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            aggregations.add(TestHelpers.createEmailAggregation(DEFAULT_ORG_ID, "rhel", "policies", "policy-" + i % 3, "host-" + i % 4));
+        }
+        assertStateRestoresSameContext(PoliciesEmailPayloadAggregator::new, aggregations);
+    }
+
+    @Test
+    void testResourceOptimization() {
+        List<EmailAggregation> aggregations = new ArrayList<>();
+        String[] states = {"IDLING", "UNDER_PRESSURE", "UNKNOWN"};
+        for (int i = 0; i < 20; i++) {
+            aggregations.add(createResourceOptimizationAggregation(100 + i, "host-" + i % 7, states[i % states.length]));
+        }
+        assertStateRestoresSameContext(ResourceOptimizationPayloadAggregator::new, aggregations);
+    }
+
+    @Test
+    void testVulnerability() {
+        List<EmailAggregation> aggregations = new ArrayList<>();
+        for (int i = 0; i < 40; i++) {
+            aggregations.add(VulnerabilityTestHelpers.createEmailAggregation("rhel", "vulnerability", "new-cve-severity", "CVE-2023-" + i % 25));
+        }
+        assertStateRestoresSameContext(VulnerabilityEmailPayloadAggregator::new, aggregations);
+    }
+
+    private static void assertStateRestoresSameContext(Supplier<AbstractEmailPayloadAggregator> aggregatorSupplier, List<EmailAggregation> aggregations) {
+        // The aggregations are read from the DB during the replay, so their payloads only contain JSON types.
+        aggregations.forEach(aggregation -> aggregation.setPayload(new JsonObject(aggregation.getPayload().encode())));
+
+        AbstractEmailPayloadAggregator replayed = aggregatorSupplier.get();
+        aggregations.forEach(replayed::aggregate);
+
+        // The state is saved in the DB and restored into a new aggregator for each aggregation.
+        String state = null;
+        for (EmailAggregation aggregation : aggregations) {
+            AbstractEmailPayloadAggregator folded = aggregatorSupplier.get();
+            if (state != null) {
+                folded.restoreState(new JsonObject(state));
+            }
+            folded.aggregate(aggregation);
+            state = folded.saveState().encode();
+        }
+        AbstractEmailPayloadAggregator restored = aggregatorSupplier.get();
+        restored.restoreState(new JsonObject(state));
+
+        replayed.setStartTime(START);
+        replayed.setEndTimeKey(END);
+        restored.setStartTime(START);
+        restored.setEndTimeKey(END);
+        assertEquals(replayed.getContext(), restored.getContext());
+        assertEquals(replayed.getProcessedAggregations(), restored.getProcessedAggregations());
+    }
+
+    private static EmailAggregation createResourceOptimizationAggregation(int systemsWithSuggestions, String inventoryId, String currentState) {
+        JsonObject payload = new JsonObject()
+                .put("event_type", "new-suggestion")
+                .put("context", new JsonObject().put("systems_with_suggestions", systemsWithSuggestions))
+                .put("events", new JsonArray().add(new JsonObject().put("payload", new JsonObject()
+                        .put("inventory_id", inventoryId)
+                        .put("current_state", currentState))));
+
+        EmailAggregation aggregation = new EmailAggregation();
+        aggregation.setBundleName("rhel");
+        aggregation.setApplicationName("resource-optimization");
+        aggregation.setOrgId(DEFAULT_ORG_ID);
+        aggregation.setPayload(payload);
+        return aggregation;
+    }
+}
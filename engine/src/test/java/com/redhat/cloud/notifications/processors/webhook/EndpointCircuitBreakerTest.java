@@ -0,0 +1,139 @@
+package com.redhat.cloud.notifications.processors.webhook;
+
+import com.redhat.cloud.notifications.MicrometerAssertionHelper;
+import com.redhat.cloud.notifications.TestLifecycleManager;
+import com.redhat.cloud.notifications.db.ResourceHelpers;
+import com.redhat.cloud.notifications.events.IntegrationDisabledNotifier;
+import com.redhat.cloud.notifications.models.Endpoint;
+import com.redhat.cloud.notifications.processors.webhooks.EndpointCircuitBreaker;
+import io.quarkus.test.common.QuarkusTestResource;
+import io.quarkus.test.junit.QuarkusTest;
+import io.quarkus.test.junit.mockito.InjectMock;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import javax.inject.Inject;
+import javax.persistence.EntityManager;
+import java.util.UUID;
+
+import static com.redhat.cloud.notifications.models.EndpointType.WEBHOOK;
+import static com.redhat.cloud.notifications.processors.webhooks.EndpointCircuitBreaker.OPENED_CIRCUITS_COUNTER;
+import static com.redhat.cloud.notifications.processors.webhooks.EndpointCircuitBreaker.SHORT_CIRCUITED_CALLS_COUNTER;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@QuarkusTest
+@QuarkusTestResource(TestLifecycleManager.class)
+public class EndpointCircuitBreakerTest {
+
+    // Default values from EndpointCircuitBreaker.
+    private static final int FAILURE_THRESHOLD = 5;
+    private static final int MAX_SERVER_ERRORS = 10;
+
+    @Inject
+    EndpointCircuitBreaker endpointCircuitBreaker;
+
+    @Inject
+    ResourceHelpers resourceHelpers;
+
+    @Inject
+    EntityManager entityManager;
+
+    @Inject
+    MicrometerAssertionHelper micrometerAssertionHelper;
+
+    @InjectMock
+    IntegrationDisabledNotifier integrationDisabledNotifier;
+
+    @BeforeEach
+    void beforeEach() {
+        micrometerAssertionHelper.saveCounterValuesBeforeTest(OPENED_CIRCUITS_COUNTER, SHORT_CIRCUITED_CALLS_COUNTER);
+    }
+
+    @AfterEach
+    void afterEach() {
+        micrometerAssertionHelper.clearSavedValues();
+    }
+
+    @Test
+    void testCircuitOpensAndFlushesServerErrors() {
+        Endpoint endpoint = resourceHelpers.createEndpoint(WEBHOOK, null, true, 0);
+
+        for (int i = 1; i < FAILURE_THRESHOLD; i++) {
+            endpointCircuitBreaker.onServerError(endpoint);
+            assertTrue(endpointCircuitBreaker.allowRequest(endpoint.getId()));
+        }
+        // Nothing is written to the DB until the circuit changes state or the periodic flush happens.
+        assertEquals(0, getServerErrors(endpoint.getId()));
+
+        endpointCircuitBreaker.onServerError(endpoint);
+        assertFalse(endpointCircuitBreaker.allowRequest(endpoint.getId()));
+        assertEquals(FAILURE_THRESHOLD, getServerErrors(endpoint.getId()));
+        micrometerAssertionHelper.assertCounterIncrement(OPENED_CIRCUITS_COUNTER, 1);
+        micrometerAssertionHelper.assertCounterIncrement(SHORT_CIRCUITED_CALLS_COUNTER, 1);
+    }
+
+    @Test
+    void testSuccessResetsServerErrors() {
+        Endpoint endpoint = resourceHelpers.createEndpoint(WEBHOOK, null, true, 3);
+
+        endpointCircuitBreaker.onServerError(endpoint);
+        endpointCircuitBreaker.onSuccess(endpoint);
+        endpointCircuitBreaker.onServerError(endpoint);
+        endpointCircuitBreaker.flushAll();
+
+        // Only the server error which happened after the successful call is counted.
+        assertEquals(1, getServerErrors(endpoint.getId()));
+        assertTrue(endpointCircuitBreaker.allowRequest(endpoint.getId()));
+    }
+
+    @Test
+    void testFailuresWithoutResponseAreNotCounted() {
+        Endpoint endpoint = resourceHelpers.createEndpoint(WEBHOOK, null, true, 0);
+
+        for (int i = 0; i < FAILURE_THRESHOLD; i++) {
+            endpointCircuitBreaker.onFailure(endpoint);
+        }
+
+        assertFalse(endpointCircuitBreaker.allowRequest(endpoint.getId()));
+        assertEquals(0, getServerErrors(endpoint.getId()));
+    }
+
+    @Test
+    void testEndpointIsDisabledOnce() {
+        Endpoint endpoint = resourceHelpers.createEndpoint(WEBHOOK, null, true, MAX_SERVER_ERRORS);
+
+        for (int i = 0; i < FAILURE_THRESHOLD; i++) {
+            endpointCircuitBreaker.onServerError(endpoint);
+        }
+        endpointCircuitBreaker.flushAll();
+
+        entityManager.clear(); // The Hibernate L1 cache contains outdated data and needs to be cleared.
+        assertFalse(getEndpoint(endpoint.getId()).isEnabled());
+        verify(integrationDisabledNotifier, times(1)).tooManyServerErrors(any(Endpoint.class), anyInt());
+    }
+
+    @Test
+    void testUnknownEndpointIsAllowed() {
+        assertTrue(endpointCircuitBreaker.allowRequest(UUID.randomUUID()));
+        verify(integrationDisabledNotifier, never()).tooManyServerErrors(any(Endpoint.class), anyInt());
+    }
+
+    private int getServerErrors(UUID endpointId) {
+        entityManager.clear();
+        return getEndpoint(endpointId).getServerErrors();
+    }
+
+    private Endpoint getEndpoint(UUID endpointId) {
+        return entityManager.createQuery("FROM Endpoint WHERE id = :id", Endpoint.class)
+                .setParameter("id", endpointId)
+                .getSingleResult();
+    }
+}
@@ -70,6 +70,7 @@ import static org.junit.jupiter.api.Assertions.fail;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.Mockito.mockStatic;
+import static org.mockito.Mockito.timeout;
 import static org.mockito.Mockito.times;
 import static org.mockito.Mockito.verify;
 import static org.mockserver.model.HttpResponse.response;
@@ -266,6 +267,44 @@ public class WebhookTest {
         validateCounters(0, 1, 0, 0, 0, 1, 0, MAX_RETRIES);
     }
 
+    @Test
+    void testAsyncDeliveryRetryWithFinalSuccess() {
+        featureFlipper.setWebhookAsyncDeliveryEnabled(true);
+
+        String url = getMockServerUrl() + "/async";
+
+        AtomicInteger callsCounter = new AtomicInteger();
+        ExpectationResponseCallback expectationResponseCallback = request -> {
+            if (callsCounter.incrementAndGet() == MAX_ATTEMPTS) {
+                return response().withStatusCode(200);
+            } else {
+                return response().withStatusCode(500);
+            }
+        };
+
+        HttpRequest mockServerRequest = getMockHttpRequest("/async", expectationResponseCallback);
+        try {
+            Action action = buildWebhookAction();
+            Event event = new Event();
+            event.setEventWrapper(new EventWrapperAction(action));
+            webhookTypeProcessor.process(event, List.of(buildWebhookEndpoint(url)));
+
+            // The history is persisted asynchronously once the delivery is complete.
+            ArgumentCaptor<NotificationHistory> historyArgumentCaptor = ArgumentCaptor.forClass(NotificationHistory.class);
+            verify(notificationHistoryRepository, timeout(10000L).times(1)).createNotificationHistory(historyArgumentCaptor.capture());
+            NotificationHistory history = historyArgumentCaptor.getAllValues().get(0);
+
+            assertTrue(history.isInvocationResult());
+            assertEquals(NotificationStatus.SUCCESS, history.getStatus());
+            assertEquals(MAX_ATTEMPTS, callsCounter.get());
+            validateCounters(1, 0, 1, 0, 0, 0, MAX_RETRIES, 0);
+        } finally {
+            // Remove expectations
+            MockServerLifecycleManager.getClient().clear(mockServerRequest);
+            featureFlipper.setWebhookAsyncDeliveryEnabled(false);
+        }
+    }
+
     @Test
     void testFailuresAsException() {
         // Mocks the static Failsafe method "with" to trigger a synthetic runtime exception
@@ -4,8 +4,11 @@ import com.redhat.cloud.notifications.recipients.rbac.RbacRecipientUsersProvider
 import io.quarkus.test.junit.QuarkusTest;
 import io.quarkus.test.junit.mockito.InjectMock;
 import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Set;
 import java.util.UUID;
@@ -652,6 +655,85 @@ public class RecipientResolverTest {
 
     }
 
+    @Test
+    public void testUsernamesAreComparedIgnoringCase() {
+
+        Set<String> subscribers = Set.of("USER1", "Admin1");
+
+        // Opt-in
+        Set<User> users = recipientResolver.recipientUsers(
+            ORG_ID,
+            Set.of(
+                new TestRecipientSettings(false, false, null, Set.of("User1", "user2", "ADMIN1"))
+            ),
+            subscribers
+        );
+        assertEquals(Set.of(user1, admin1), users);
+
+        // Opt-out
+        users = recipientResolver.recipientUsers(
+            ORG_ID,
+            Set.of(
+                new TestRecipientSettings(false, false, null, Set.of())
+            ),
+            subscribers,
+            false
+        );
+        assertEquals(Set.of(user2, user3, admin2), users);
+    }
+
+    /*
+     * Measures how long the recipients of an event take to be resolved for orgs of growing sizes, with the subscribers
+     * and the requested users spelled with another case than the RBAC usernames. The timings depend on the machine, so
+     * this is not run with the other tests.
+     */
+    @Test
+    @Disabled("Benchmark, run it manually to measure the recipients resolution")
+    public void benchmark() {
+        for (int usersCount : List.of(1_000, 10_000, 50_000)) {
+            List<User> rbacUsers = new ArrayList<>(usersCount);
+            Set<String> subscribers = new HashSet<>();
+            Set<String> requestUsers = new HashSet<>();
+            for (int i = 0; i < usersCount; i++) {
+                User user = createUser("user-" + i, i % 10 == 0);
+                rbacUsers.add(user);
+                if (i % 2 == 0) {
+                    subscribers.add(user.getUsername().toUpperCase());
+                }
+                if (i % 3 == 0) {
+                    requestUsers.add(user.getUsername().toUpperCase());
+                }
+            }
+            // The users are cached in the same representation.
+            when(rbacRecipientUsersProvider.getUsers(eq(ORG_ID), eq(false))).thenReturn(RecipientUsers.of(rbacUsers));
+            Set<RecipientSettings> allUsersRequest = Set.of(new TestRecipientSettings(false, false, null, Set.of()));
+            Set<RecipientSettings> requestedUsersRequest = Set.of(new TestRecipientSettings(false, false, null, requestUsers));
+
+            int iterations = Math.max(10, 1_000_000 / usersCount);
+            long allUsers = 0;
+            long requestedUsers = 0;
+            int allUsersRecipients = 0;
+            int requestedUsersRecipients = 0;
+            // The first half of the iterations warms the JIT up.
+            for (int i = 0; i < iterations * 2; i++) {
+                boolean measured = i >= iterations;
+                long start = System.nanoTime();
+                allUsersRecipients = recipientResolver.recipientUsers(ORG_ID, allUsersRequest, subscribers).size();
+                long afterAllUsers = System.nanoTime();
+                requestedUsersRecipients = recipientResolver.recipientUsers(ORG_ID, requestedUsersRequest, subscribers).size();
+                long afterRequestedUsers = System.nanoTime();
+                if (measured) {
+                    allUsers += afterAllUsers - start;
+                    requestedUsers += afterRequestedUsers - afterAllUsers;
+                }
+            }
+
+            System.out.printf("%6d users: all users %8.3f ms (%5d recipients), requested users %8.3f ms (%5d recipients)%n",
+                    usersCount, allUsers / 1_000_000.0 / iterations, allUsersRecipients,
+                    requestedUsers / 1_000_000.0 / iterations, requestedUsersRecipients);
+        }
+    }
+
     public User createUser(String username, boolean isAdmin) {
         User user = new User();
         user.setUsername(username);
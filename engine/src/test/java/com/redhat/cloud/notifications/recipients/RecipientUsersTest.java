@@ -0,0 +1,122 @@
+package com.redhat.cloud.notifications.recipients;
+
+import org.junit.jupiter.api.Disabled;
+import org.junit.jupiter.api.Test;
+
+import java.lang.ref.Reference;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RecipientUsersTest {
+
+    @Test
+    void testUsersAreReadInOrder() {
+        RecipientUsers recipientUsers = RecipientUsers.of(List.of(
+                createUser("id-1", "John", true, false),
+                createUser("id-2", "jane", false, true)
+        ));
+
+        assertEquals(2, recipientUsers.size());
+
+        User john = recipientUsers.get(0);
+        assertEquals("id-1", john.getId());
+        assertEquals("John", john.getUsername());
+        assertTrue(john.isAdmin());
+        assertFalse(john.isActive());
+        assertEquals("john", recipientUsers.getNormalizedUsername(0));
+
+        User jane = recipientUsers.get(1);
+        assertEquals("id-2", jane.getId());
+        assertEquals("jane", jane.getUsername());
+        assertFalse(jane.isAdmin());
+        assertTrue(jane.isActive());
+        assertSame(recipientUsers.getUsername(1), recipientUsers.getNormalizedUsername(1));
+
+        assertThrows(IndexOutOfBoundsException.class, () -> recipientUsers.get(2));
+    }
+
+    @Test
+    void testUsernamesAreShared() {
+        // The usernames are built at runtime, like the ones deserialized from the RBAC responses.
+        RecipientUsers allUsers = RecipientUsers.of(List.of(createUser(null, new StringBuilder("john").toString(), false, true)));
+        RecipientUsers admins = RecipientUsers.of(List.of(createUser(null, new StringBuilder("john").toString(), true, true)));
+
+        assertSame(allUsers.getUsername(0), admins.getUsername(0));
+        assertSame(admins, RecipientUsers.of(admins));
+    }
+
+    @Test
+    void testUsersCannotBeModified() {
+        RecipientUsers recipientUsers = RecipientUsers.of(List.of(createUser("id-1", "john", false, true)));
+
+        assertThrows(UnsupportedOperationException.class, () -> recipientUsers.add(new User()));
+        assertThrows(UnsupportedOperationException.class, () -> recipientUsers.remove(0));
+    }
+
+    /*
+     * Compares the heap retained by the cached users of an org: all the users and a group which contains half of them,
+     * fetched separately from RBAC. The sizes are measured from the used heap after garbage collections, so they depend
+     * on the JVM and are only approximate. This is not run with the other tests.
+     */
+    @Test
+    @Disabled("Benchmark, run it manually to compare the heap footprints of the cached users")
+    void benchmark() {
+        for (int usersCount : List.of(1_000, 10_000, 50_000)) {
+            long users = 0;
+            long recipientUsers = 0;
+            // The first measures warm the JVM up.
+            for (int i = 0; i < 2; i++) {
+                users = retainedHeap(() -> List.of(fetchUsers(usersCount, 1), fetchUsers(usersCount, 2)));
+                recipientUsers = retainedHeap(() -> List.of(RecipientUsers.of(fetchUsers(usersCount, 1)), RecipientUsers.of(fetchUsers(usersCount, 2))));
+            }
+            System.out.printf("%6d users: List<User> %8.1f KiB, RecipientUsers %8.1f KiB (%4.1f%% saved)%n",
+                    usersCount, users / 1024.0, recipientUsers / 1024.0, 100.0 * (users - recipientUsers) / users);
+        }
+    }
+
+    // Each call returns new instances of every user, like the deserialized RBAC responses.
+    private static List<User> fetchUsers(int usersCount, int step) {
+        List<User> users = new ArrayList<>();
+        for (int i = 0; i < usersCount; i += step) {
+            User user = createUser(new UUID(0L, i).toString(), "user-" + i, i % 10 == 0, true);
+            user.setEmail("user-" + i + "@example.com");
+            user.setFirstName("First" + i);
+            user.setLastName("Last" + i);
+            users.add(user);
+        }
+        return users;
+    }
+
+    private static long retainedHeap(Supplier<Object> supplier) {
+        long before = usedHeap();
+        Object retained = supplier.get();
+        long after = usedHeap();
+        Reference.reachabilityFence(retained);
+        return after - before;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    private static User createUser(String id, String username, boolean admin, boolean active) {
+        User user = new User();
+        user.setId(id);
+        user.setUsername(username);
+        user.setAdmin(admin);
+        user.setActive(active);
+        return user;
+    }
+}
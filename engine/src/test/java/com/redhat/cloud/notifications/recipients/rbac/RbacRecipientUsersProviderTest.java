@@ -15,7 +15,6 @@ import com.redhat.cloud.notifications.recipients.mbop.MBOPService;
 import com.redhat.cloud.notifications.recipients.mbop.MBOPUser;
 import com.redhat.cloud.notifications.routers.models.Meta;
 import com.redhat.cloud.notifications.routers.models.Page;
-import io.quarkus.cache.CacheInvalidateAll;
 import io.quarkus.test.junit.QuarkusTest;
 import io.quarkus.test.junit.mockito.InjectMock;
 import org.eclipse.microprofile.config.inject.ConfigProperty;
@@ -296,6 +295,44 @@ public class RbacRecipientUsersProviderTest {
         assertEquals(updatedSize, users.size());
     }
 
+    @Test
+    public void getAllUsersWithParallelPageFetching() {
+        try {
+            featureFlipper.setRecipientsParallelPageFetchingEnabled(true);
+            int elements = maxResultsPerPage * 9 + 17;
+            mockGetUsers(elements, false);
+
+            List<User> users = rbacRecipientUsersProvider.getUsers(TestConstants.DEFAULT_ORG_ID, false);
+            // The pages are fetched concurrently but the users order must be preserved.
+            assertEquals(elements, users.size());
+            for (int i = 0; i < elements; ++i) {
+                assertEquals(String.format("username-%d", i), users.get(i).getUsername());
+            }
+        } finally {
+            featureFlipper.setRecipientsParallelPageFetchingEnabled(false);
+        }
+    }
+
+    @Test
+    public void getAllUsersWithParallelPageFetchingRBAC() {
+        try {
+            featureFlipper.setRecipientsParallelPageFetchingEnabled(true);
+            featureFlipper.setUseRbacForFetchingUsers(true);
+            // The last page is full, so an empty page has to be fetched to detect the end of the users.
+            int elements = rbacMaxResultsPerPage * 6;
+            mockGetUsersRBAC(elements, false);
+
+            List<User> users = rbacRecipientUsersProvider.getUsers(TestConstants.DEFAULT_ORG_ID, false);
+            assertEquals(elements, users.size());
+            for (int i = 0; i < elements; ++i) {
+                assertEquals(String.format("username-%d", i), users.get(i).getUsername());
+            }
+        } finally {
+            featureFlipper.setRecipientsParallelPageFetchingEnabled(false);
+            featureFlipper.setUseRbacForFetchingUsers(false);
+        }
+    }
+
     /**
      * Tests that calling MBOP for users works as expected.
      */
@@ -428,14 +465,11 @@ public class RbacRecipientUsersProviderTest {
 
     /*
      * This would normally happen after a certain duration fixed in application.properties with the
-     * quarkus.cache.caffeine.rbac-recipient-users-provider-get-group-users.expire-after-write
-     * and
-     * quarkus.cache.caffeine.rbac-recipient-users-provider-get-users.expire-after-write key.
+     * recipient-provider.cache.expire-after-write key.
      */
-    @CacheInvalidateAll(cacheName = "rbac-recipient-users-provider-get-users")
-    @CacheInvalidateAll(cacheName = "rbac-recipient-users-provider-get-group-users")
     @BeforeEach
     void clearCached() {
+        rbacRecipientUsersProvider.clearCaches();
     }
 
     class MockedUserAnswer {
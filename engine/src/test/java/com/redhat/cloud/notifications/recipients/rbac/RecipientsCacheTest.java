@@ -0,0 +1,128 @@
+package com.redhat.cloud.notifications.recipients.rbac;
+
+import com.github.benmanes.caffeine.cache.LoadingCache;
+import com.github.benmanes.caffeine.cache.Ticker;
+import com.redhat.cloud.notifications.recipients.User;
+import com.redhat.cloud.notifications.recipients.rbac.RbacRecipientUsersProvider.CachedUsers;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static com.redhat.cloud.notifications.recipients.rbac.RbacRecipientUsersProvider.RBAC_SOURCE;
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+public class RecipientsCacheTest {
+
+    private static final Duration REFRESH_AFTER_WRITE = Duration.ofMinutes(5);
+    private static final Duration EXPIRE_AFTER_WRITE = Duration.ofMinutes(10);
+    private static final String ORG_ID = "org-id";
+
+    private final AtomicLong nanos = new AtomicLong();
+    private final Ticker ticker = nanos::get;
+    // The background reloads are only run when the test asks for it.
+    private final Queue<Runnable> refreshTasks = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger loads = new AtomicInteger();
+
+    @Test
+    void testRefreshAhead() {
+        LoadingCache<String, CachedUsers> cache = buildCache();
+
+        assertEquals("user-1", getUsername(cache));
+        assertEquals(1, loads.get());
+
+        advance(Duration.ofMinutes(6));
+        // The stale users are served while they are reloaded in the background.
+        assertEquals("user-1", getUsername(cache));
+        assertEquals("user-1", getUsername(cache));
+        assertEquals(1, loads.get());
+
+        runRefreshTasks();
+        assertEquals(2, loads.get());
+        assertEquals("user-2", getUsername(cache));
+
+        // The reload restarted the expiration delay.
+        advance(Duration.ofMinutes(6));
+        assertEquals("user-2", getUsername(cache));
+        runRefreshTasks();
+        assertEquals(3, loads.get());
+        assertEquals("user-3", getUsername(cache));
+    }
+
+    @Test
+    void testExpirationIsBasedOnWrites() {
+        LoadingCache<String, CachedUsers> cache = buildCache();
+
+        assertEquals("user-1", getUsername(cache));
+        // A request made before refresh-after-write does not extend the entry lifetime.
+        advance(Duration.ofMinutes(4));
+        assertEquals("user-1", getUsername(cache));
+
+        advance(Duration.ofMinutes(7));
+        // The entry expired, so the users are loaded again by the caller instead of being served stale.
+        assertEquals("user-2", getUsername(cache));
+        assertEquals(2, loads.get());
+    }
+
+    @Test
+    void testConcurrentLoadsAreCoalesced() throws InterruptedException {
+        CountDownLatch loading = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        LoadingCache<String, CachedUsers> cache = RbacRecipientUsersProvider.buildCache(orgId -> {
+            loading.countDown();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return newCachedUsers();
+        }, REFRESH_AFTER_WRITE, EXPIRE_AFTER_WRITE, 100L, refreshTasks::add, ticker);
+
+        CompletableFuture<String> firstGet = CompletableFuture.supplyAsync(() -> getUsername(cache));
+        loading.await(10, TimeUnit.SECONDS);
+        Thread secondGetThread = new Thread(() -> getUsername(cache));
+        secondGetThread.start();
+        // The second get waits for the load started by the first one.
+        await().until(() -> secondGetThread.getState() == Thread.State.BLOCKED || secondGetThread.getState() == Thread.State.WAITING);
+        release.countDown();
+
+        assertEquals("user-1", firstGet.join());
+        secondGetThread.join(10_000L);
+        assertEquals(1, loads.get());
+    }
+
+    private LoadingCache<String, CachedUsers> buildCache() {
+        return RbacRecipientUsersProvider.buildCache(orgId -> newCachedUsers(), REFRESH_AFTER_WRITE, EXPIRE_AFTER_WRITE, 100L,
+                refreshTasks::add, ticker);
+    }
+
+    private CachedUsers newCachedUsers() {
+        User user = new User();
+        user.setUsername("user-" + loads.incrementAndGet());
+        return new CachedUsers(List.of(user), RBAC_SOURCE, Instant.now());
+    }
+
+    private static String getUsername(LoadingCache<String, CachedUsers> cache) {
+        return cache.get(ORG_ID).users().get(0).getUsername();
+    }
+
+    private void advance(Duration duration) {
+        nanos.addAndGet(duration.toNanos());
+    }
+
+    private void runRefreshTasks() {
+        Runnable task;
+        while ((task = refreshTasks.poll()) != null) {
+            task.run();
+        }
+    }
+}
@@ -3,11 +3,14 @@ package com.redhat.cloud.notifications.templates;
 import com.redhat.cloud.notifications.MockServerConfig;
 import com.redhat.cloud.notifications.TestLifecycleManager;
 import com.redhat.cloud.notifications.config.FeatureFlipper;
+import com.redhat.cloud.notifications.db.CacheInvalidationPoller;
+import com.redhat.cloud.notifications.db.ResourceHelpers;
 import com.redhat.cloud.notifications.ingress.Action;
 import com.redhat.cloud.notifications.ingress.Context;
 import com.redhat.cloud.notifications.ingress.Event;
 import com.redhat.cloud.notifications.ingress.Payload;
 import com.redhat.cloud.notifications.models.Template;
+import io.micrometer.core.instrument.MeterRegistry;
 import io.quarkus.qute.TemplateException;
 import io.quarkus.qute.TemplateInstance;
 import io.quarkus.test.common.QuarkusTestResource;
@@ -25,11 +28,15 @@ import java.time.LocalDateTime;
 import java.time.Month;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 
+import static com.redhat.cloud.notifications.models.CacheInvalidation.COMPILED_TEMPLATES_CACHE_NAME;
+import static com.redhat.cloud.notifications.templates.TemplateService.PARSE_COUNTER_NAME;
 import static java.nio.charset.StandardCharsets.UTF_8;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 @QuarkusTest
 @QuarkusTestResource(TestLifecycleManager.class)
@@ -44,10 +51,23 @@ public class DbQuteEngineTest {
     @Inject
     FeatureFlipper featureFlipper;
 
+    @Inject
+    ResourceHelpers resourceHelpers;
+
+    @Inject
+    CacheInvalidationPoller cacheInvalidationPoller;
+
+    @Inject
+    MeterRegistry registry;
+
+    @Inject
+    DbTemplateSnapshot dbTemplateSnapshot;
+
     @Test
     void testIncludeExistingTemplate() {
         Template outerTemplate = createTemplate("outer-template", "Hello, {#include inner-template /}");
         Template innerTemplate = createTemplate("inner-template", "World!");
+        dbTemplateSnapshot.refresh(); // The included templates are located from the snapshot.
         String renderedOuterTemplate = templateService.compileTemplate(outerTemplate.getData(), outerTemplate.getName()).render();
         assertEquals("Hello, World!", renderedOuterTemplate);
 
@@ -82,6 +102,95 @@ public class DbQuteEngineTest {
         assertEquals("Rendering error in template [outer-template] line 1: included template [inner-template] not found", e.getMessage());
     }
 
+    @Test
+    void testCompiledTemplatesInvalidation() {
+        Template outerTemplate = createTemplate("cached-outer-template", "Hello, {#include cached-inner-template /}");
+        Template innerTemplate = createTemplate("cached-inner-template", "World!");
+        Template otherTemplate = createTemplate("cached-other-template", "Hello, Red Hat!");
+        dbTemplateSnapshot.refresh(); // The included templates are located from the snapshot.
+
+        assertEquals("Hello, World!", templateService.compileTemplate(outerTemplate).render());
+        assertEquals("Hello, World!", templateService.compileTemplate(outerTemplate).render());
+        assertEquals("Hello, Red Hat!", templateService.compileTemplate(otherTemplate).render());
+        assertEquals(1, getParseCount(outerTemplate));
+        assertEquals(1, getParseCount(otherTemplate));
+
+        // This is what the backend does when a template is modified.
+        updateTemplateData(innerTemplate.getId(), "Red Hat!");
+        resourceHelpers.createCacheInvalidation(COMPILED_TEMPLATES_CACHE_NAME, innerTemplate.getName());
+        cacheInvalidationPoller.poll();
+        dbTemplateSnapshot.refresh(); // The poller only schedules a refresh of the snapshot.
+
+        entityManager.clear(); // The Hibernate L1 cache still contains the old version of the template and needs to be cleared.
+
+        // Only the template which includes the modified template is parsed again.
+        assertEquals("Hello, Red Hat!", templateService.compileTemplate(outerTemplate).render());
+        assertEquals("Hello, Red Hat!", templateService.compileTemplate(otherTemplate).render());
+        assertEquals(2, getParseCount(outerTemplate));
+        assertEquals(1, getParseCount(otherTemplate));
+    }
+
+    @Test
+    void testCompiledTemplatesInvalidationWithSlashInIncludedName() {
+        // The shared layouts have slashes in their names, like Common/insightsEmailBody.
+        Template outerTemplate = createTemplate("cached-layout-user", "Hello, {#include Common/cached-layout}{/include} and {#include Secure/Common/cached-layout/}");
+        Template layoutTemplate = createTemplate("Common/cached-layout", "World!");
+        Template secureLayoutTemplate = createTemplate("Secure/Common/cached-layout", "Secure World!");
+        dbTemplateSnapshot.refresh();
+
+        assertEquals("Hello, World! and Secure World!", templateService.compileTemplate(outerTemplate).render());
+        assertEquals(1, getParseCount(outerTemplate));
+
+        updateTemplateData(layoutTemplate.getId(), "Red Hat!");
+        resourceHelpers.createCacheInvalidation(COMPILED_TEMPLATES_CACHE_NAME, layoutTemplate.getName());
+        cacheInvalidationPoller.poll();
+        dbTemplateSnapshot.refresh();
+        entityManager.clear();
+
+        assertEquals("Hello, Red Hat! and Secure World!", templateService.compileTemplate(outerTemplate).render());
+        assertEquals(2, getParseCount(outerTemplate));
+
+        updateTemplateData(secureLayoutTemplate.getId(), "Secure Red Hat!");
+        resourceHelpers.createCacheInvalidation(COMPILED_TEMPLATES_CACHE_NAME, secureLayoutTemplate.getName());
+        cacheInvalidationPoller.poll();
+        dbTemplateSnapshot.refresh();
+        entityManager.clear();
+
+        assertEquals("Hello, Red Hat! and Secure Red Hat!", templateService.compileTemplate(outerTemplate).render());
+        assertEquals(3, getParseCount(outerTemplate));
+    }
+
+    @Test
+    void testTemplatesSnapshotRefresh() {
+        Template template = createTemplate("snapshot-template", "Hello, World!");
+        dbTemplateSnapshot.refresh();
+        assertEquals("Hello, World!", dbTemplateSnapshot.getTemplateData(template.getName()).get());
+
+        updateTemplateData(template.getId(), "Hello, Red Hat!");
+        dbTemplateSnapshot.refresh();
+        assertEquals("Hello, Red Hat!", dbTemplateSnapshot.getTemplateData(template.getName()).get());
+
+        deleteTemplate(template.getId());
+        assertTrue(dbTemplateSnapshot.refresh().contains(template.getName()));
+        assertTrue(dbTemplateSnapshot.getTemplateData(template.getName()).isEmpty());
+    }
+
+    @Test
+    void testTemplatesSnapshotRefreshAfterDeleteAndCreate() {
+        Template deletedTemplate = createTemplate("snapshot-deleted-template", "Hello, World!");
+        dbTemplateSnapshot.refresh();
+
+        // The number of templates does not change.
+        deleteTemplate(deletedTemplate.getId());
+        Template createdTemplate = createTemplate("snapshot-created-template", "Hello, Red Hat!");
+
+        // Other tests may have modified templates too.
+        Set<String> changedTemplates = dbTemplateSnapshot.refreshAsync().join();
+        assertTrue(changedTemplates.containsAll(Set.of(deletedTemplate.getName(), createdTemplate.getName())));
+        assertTrue(dbTemplateSnapshot.getTemplateData(deletedTemplate.getName()).isEmpty());
+        assertEquals("Hello, Red Hat!", dbTemplateSnapshot.getTemplateData(createdTemplate.getName()).get());
+    }
+
     @Test
     void testIncludeUnknownTemplate() {
         Template outerTemplate = createTemplate("other-outer-template", "Hello, {#include unknown-inner-template /}");
@@ -184,6 +293,10 @@ public class DbQuteEngineTest {
         );
     }
 
+    private double getParseCount(Template template) {
+        return registry.counter(PARSE_COUNTER_NAME, "template", template.getName()).count();
+    }
+
     @Transactional
     Template createTemplate(String name, String data) {
         Template template = new Template();